@@ -10,7 +10,11 @@ import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
 import java.util.concurrent.ForkJoinPool;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
 import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
 import java.util.function.UnaryOperator;
 
@@ -21,6 +25,21 @@ public interface DataAPI extends AutoCloseable {
     <T> void update(UUID player, PlayerField<T> field, UnaryOperator<T> updater);
     <T> void update(UUID player, PlayerField<T> field, UnaryOperator<T> updater, UpdateMode mode);
 
+    // Primitive player fields - the fields above, read and changed without boxing. add/update return
+    // the new value. With deferred persistence and no listener on the field these allocate nothing.
+    int getInt(UUID player, IntPlayerField field);
+    void setInt(UUID player, IntPlayerField field, int value);
+    int addInt(UUID player, IntPlayerField field, int delta);
+    int updateInt(UUID player, IntPlayerField field, IntUnaryOperator updater);
+    long getLong(UUID player, LongPlayerField field);
+    void setLong(UUID player, LongPlayerField field, long value);
+    long addLong(UUID player, LongPlayerField field, long delta);
+    long updateLong(UUID player, LongPlayerField field, LongUnaryOperator updater);
+    double getDouble(UUID player, DoublePlayerField field);
+    void setDouble(UUID player, DoublePlayerField field, double value);
+    double addDouble(UUID player, DoublePlayerField field, double delta);
+    double updateDouble(UUID player, DoublePlayerField field, DoubleUnaryOperator updater);
+
     // Linked fields (resolves via player's link key)
     <K, T> T get(UUID player, LinkedField<K, T> field);
     <K, T> void set(UUID player, LinkedField<K, T> field, T value);
@@ -33,6 +52,41 @@ public interface DataAPI extends AutoCloseable {
     <K, T> void updateDirect(K key, LinkedField<K, T> field, UnaryOperator<T> updater);
     <K, T> void updateDirect(K key, LinkedField<K, T> field, UnaryOperator<T> updater, UpdateMode mode);
 
+    // Mailbox execution - queued on the entity's serial mailbox instead of waiting for its lock, and
+    // run in order with the entity's other queued calls on MailboxOptions' executor, by default the
+    // API's bounded I/O pool (IoOptions). Calls queued on one entity together are written in one
+    // storage write; each future completes once that write is durable, or, without autoPersist, once
+    // the change is staged, as the blocking call returns. A call the pool has no room for fails at
+    // once with RejectedExecutionException rather than blocking the caller. An implementation with
+    // no pool of its own inherits defaults that make the blocking call on the caller's thread.
+    default <T> CompletableFuture<T> getAsync(UUID player, PlayerField<T> field) {
+        return completed(() -> get(player, field));
+    }
+    default <T> CompletableFuture<Void> setAsync(UUID player, PlayerField<T> field, T value) {
+        return completed(() -> { set(player, field, value); return null; });
+    }
+    default <T> CompletableFuture<Void> updateAsync(UUID player, PlayerField<T> field, UnaryOperator<T> updater) {
+        return completed(() -> { update(player, field, updater); return null; });
+    }
+    default <K, T> CompletableFuture<T> getAsync(UUID player, LinkedField<K, T> field) {
+        return completed(() -> get(player, field));
+    }
+    default <K, T> CompletableFuture<Void> setAsync(UUID player, LinkedField<K, T> field, T value) {
+        return completed(() -> { set(player, field, value); return null; });
+    }
+    default <K, T> CompletableFuture<Void> updateAsync(UUID player, LinkedField<K, T> field, UnaryOperator<T> updater) {
+        return completed(() -> { update(player, field, updater); return null; });
+    }
+    default <K, T> CompletableFuture<T> getDirectAsync(K key, LinkedField<K, T> field) {
+        return completed(() -> getDirect(key, field));
+    }
+    default <K, T> CompletableFuture<Void> setDirectAsync(K key, LinkedField<K, T> field, T value) {
+        return completed(() -> { setDirect(key, field, value); return null; });
+    }
+    default <K, T> CompletableFuture<Void> updateDirectAsync(K key, LinkedField<K, T> field, UnaryOperator<T> updater) {
+        return completed(() -> { updateDirect(key, field, updater); return null; });
+    }
+
     // Link management
     <K> void link(UUID player, LinkType<K> type, K key);
     <K> void unlink(UUID player, LinkType<K> type);
@@ -54,6 +108,16 @@ public interface DataAPI extends AutoCloseable {
     void transaction(UUID player, TransactionConsumer action);
     <K, R> R transactionDirect(K key, LinkType<K> type, TransactionFunction<R> action);
 
+    // Asynchronous transactions - run on the API's bounded I/O pool (IoOptions) rather than the
+    // caller's thread. They are not ordered with the entity's mailbox calls. Only the function form
+    // is offered: a body with nothing to return returns null.
+    default <R> CompletableFuture<R> transactionAsync(UUID player, TransactionFunction<R> action) {
+        return completed(() -> transaction(player, action));
+    }
+    default <K, R> CompletableFuture<R> transactionDirectAsync(K key, LinkType<K> type, TransactionFunction<R> action) {
+        return completed(() -> transactionDirect(key, type, action));
+    }
+
     // Events
     <T> void subscribe(PlayerField<T> field, PlayerDataListener<T> listener);
     <K, T> void subscribe(LinkedField<K, T> field, LinkedDataListener<K, T> listener);
@@ -78,6 +142,36 @@ public interface DataAPI extends AutoCloseable {
     <K, T extends Comparable<T>> List<LeaderboardEntry<T>> getTopLinked(LinkedField<K, T> field, int limit);
     <K, T> List<K> queryLinked(LinkedField<K, T> field, Predicate<T> filter);
 
+    // Bulk operations - asynchronous, on the same I/O pool
+    default <T extends Comparable<T>> CompletableFuture<List<LeaderboardEntry<T>>> getTopAsync(PlayerField<T> field,
+                                                                                              int limit) {
+        return completed(() -> getTop(field, limit));
+    }
+    default <T extends Comparable<T>> CompletableFuture<Page<LeaderboardEntry<T>>> getTopPagedAsync(
+            PlayerField<T> field, int page, int pageSize) {
+        return completed(() -> getTopPaged(field, page, pageSize));
+    }
+    default <T> CompletableFuture<List<UUID>> queryAsync(PlayerField<T> field, Predicate<T> filter) {
+        return completed(() -> query(field, filter));
+    }
+    default <T> CompletableFuture<Integer> countAsync(PlayerField<T> field, Predicate<T> filter) {
+        return completed(() -> count(field, filter));
+    }
+    default <T> CompletableFuture<Integer> updateAllAsync(PlayerField<T> field, UnaryOperator<T> updater) {
+        return completed(() -> updateAll(field, updater));
+    }
+    default <T> CompletableFuture<Integer> updateWhereAsync(PlayerField<T> field, Predicate<T> filter,
+                                                            UnaryOperator<T> updater) {
+        return completed(() -> updateWhere(field, filter, updater));
+    }
+    default <K, T extends Comparable<T>> CompletableFuture<List<LeaderboardEntry<T>>> getTopLinkedAsync(
+            LinkedField<K, T> field, int limit) {
+        return completed(() -> getTopLinked(field, limit));
+    }
+    default <K, T> CompletableFuture<List<K>> queryLinkedAsync(LinkedField<K, T> field, Predicate<T> filter) {
+        return completed(() -> queryLinked(field, filter));
+    }
+
     // Leaderboard indexing - getTop/getTopPaged are index-backed and require a LeaderboardIndex-
     // capable storage (e.g. Redis sorted sets). No registration is needed for numeric fields: the
     // index self-builds on first rank and every node maintains it on write. trackLeaderboard only
@@ -90,9 +184,18 @@ public interface DataAPI extends AutoCloseable {
     // This is the primitive a proxy uses to load a player's data on the target server
     // BEFORE moving them there, and to evict it afterwards so a later visit is never stale.
     // The async variants share one in-flight operation per player and stay ordered with each other.
+    // Given no executor, DataAPIImpl runs them on its bounded I/O pool, counted against what it admits.
+    // Every wait in this API parks rather than blocking inside a monitor, so any method here, and the
+    // executor these variants run on, can be virtual threads (Executors.newVirtualThreadPerTaskExecutor()).
     void load(UUID player);
     CompletableFuture<Void> loadAsync(UUID player, Executor executor);
     default CompletableFuture<Void> loadAsync(UUID player) { return loadAsync(player, ForkJoinPool.commonPool()); }
+    // Warms several players (a party, a coop's members) with one batched storage read.
+    void loadAll(Collection<UUID> players);
+    CompletableFuture<Void> loadAllAsync(Collection<UUID> players, Executor executor);
+    default CompletableFuture<Void> loadAllAsync(Collection<UUID> players) {
+        return loadAllAsync(players, ForkJoinPool.commonPool());
+    }
     void flush(UUID player);
     CompletableFuture<Void> flushAsync(UUID player, Executor executor);
     default CompletableFuture<Void> flushAsync(UUID player) { return flushAsync(player, ForkJoinPool.commonPool()); }
@@ -130,6 +233,23 @@ public interface DataAPI extends AutoCloseable {
      */
     void deletePlayer(UUID player);
 
+    /**
+     * Estimates the heap this node holds for cached entities and event ordering state, with the
+     * {@code topN} largest entities named and the live fields totalled per namespace. Cheap enough
+     * for a metrics scrape, but it walks every cached entity; see {@link MemoryStats}.
+     */
+    MemoryStats memoryStats(int topN);
+    default MemoryStats memoryStats() { return memoryStats(10); }
+
+    /**
+     * How often callers on this node waited for an entity's lock, and for how long, with the
+     * {@code topN} stripes waited on longest; see {@link LockStats}. Stripes that keep showing up
+     * are shared by entities busy at once: more stripes, or dedicated locks, set through
+     * {@link net.swofty.api.LockOptions}, pull them apart.
+     */
+    LockStats lockStats(int topN);
+    default LockStats lockStats() { return lockStats(10); }
+
     // Distributed locking - takes the configured DistributedLock for an app-level critical section
     // that spans more than one field or entity. Use with try-with-resources; requires a lock to
     // have been supplied to the implementation.
@@ -140,4 +260,13 @@ public interface DataAPI extends AutoCloseable {
 
     @Override
     default void close() { shutdown(); }
+
+    // The blocking call's outcome as an already completed future, for the async defaults above.
+    private static <R> CompletableFuture<R> completed(Supplier<R> call) {
+        try {
+            return CompletableFuture.completedFuture(call.get());
+        } catch (RuntimeException | Error e) {
+            return CompletableFuture.failedFuture(e);
+        }
+    }
 }
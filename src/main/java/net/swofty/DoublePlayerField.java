@@ -0,0 +1,37 @@
+package net.swofty;
+
+import net.swofty.codec.Codecs;
+import net.swofty.codec.DoubleCodec;
+import net.swofty.validation.Validator;
+
+/**
+ * A {@code double} player field that can also be read and changed without boxing, through
+ * {@link DataAPI#getDouble}, {@link DataAPI#setDouble}, {@link DataAPI#addDouble} and {@link DataAPI#updateDouble}.
+ * It is still a {@code PlayerField<Double>}, so the rest of the API (events, leaderboards, bulk
+ * operations, transactions) takes it as it is.
+ */
+public class DoublePlayerField extends PlayerField<Double> {
+    private final double defaultDouble;
+
+    protected DoublePlayerField(String namespace, String key, double defaultValue, Validator<Double> validator) {
+        super(namespace, key, Codecs.DOUBLE, defaultValue, validator);
+        this.defaultDouble = defaultValue;
+    }
+
+    public static DoublePlayerField create(String namespace, String key, double defaultValue) {
+        return new DoublePlayerField(namespace, key, defaultValue, null);
+    }
+
+    public static DoublePlayerField create(String namespace, String key, double defaultValue, Validator<Double> validator) {
+        return new DoublePlayerField(namespace, key, defaultValue, validator);
+    }
+
+    @Override
+    public DoubleCodec codec() {
+        return Codecs.DOUBLE;
+    }
+
+    public double defaultDouble() {
+        return defaultDouble;
+    }
+}
@@ -0,0 +1,37 @@
+package net.swofty;
+
+import net.swofty.codec.Codecs;
+import net.swofty.codec.IntCodec;
+import net.swofty.validation.Validator;
+
+/**
+ * An {@code int} player field that can also be read and changed without boxing, through
+ * {@link DataAPI#getInt}, {@link DataAPI#setInt}, {@link DataAPI#addInt} and {@link DataAPI#updateInt}.
+ * It is still a {@code PlayerField<Integer>}, so the rest of the API (events, leaderboards, bulk
+ * operations, transactions) takes it as it is.
+ */
+public class IntPlayerField extends PlayerField<Integer> {
+    private final int defaultInt;
+
+    protected IntPlayerField(String namespace, String key, int defaultValue, Validator<Integer> validator) {
+        super(namespace, key, Codecs.INT, defaultValue, validator);
+        this.defaultInt = defaultValue;
+    }
+
+    public static IntPlayerField create(String namespace, String key, int defaultValue) {
+        return new IntPlayerField(namespace, key, defaultValue, null);
+    }
+
+    public static IntPlayerField create(String namespace, String key, int defaultValue, Validator<Integer> validator) {
+        return new IntPlayerField(namespace, key, defaultValue, validator);
+    }
+
+    @Override
+    public IntCodec codec() {
+        return Codecs.INT;
+    }
+
+    public int defaultInt() {
+        return defaultInt;
+    }
+}
@@ -0,0 +1,29 @@
+package net.swofty;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * How often callers on this node had to wait for an entity's lock, taken by
+ * {@link DataAPI#lockStats}. Only waits are counted: a lock found free, or already held by the
+ * caller, costs nothing and is not counted. Counts run from startup.
+ *
+ * @param players the locks players are read and written under
+ * @param linked  the locks shared (linked) entities are read and written under
+ */
+public record LockStats(Locks players, Locks linked) {
+
+    /**
+     * One manager's locks.
+     *
+     * @param stripes        how many locks keys are shared out over; 0 with dedicated locks
+     * @param dedicatedLocks how many entities hold a lock of their own right now; 0 when striped
+     * @param contended      how many acquisitions found the lock held by another thread
+     * @param waited         how long those acquisitions waited, together
+     * @param hottest        the stripes waited on longest, longest first; empty with dedicated locks
+     */
+    public record Locks(int stripes, int dedicatedLocks, long contended, Duration waited, List<Stripe> hottest) {}
+
+    /** One stripe's share of {@link Locks#contended} and {@link Locks#waited}. */
+    public record Stripe(int index, long contended, Duration waited) {}
+}
@@ -0,0 +1,37 @@
+package net.swofty;
+
+import net.swofty.codec.Codecs;
+import net.swofty.codec.LongCodec;
+import net.swofty.validation.Validator;
+
+/**
+ * A {@code long} player field that can also be read and changed without boxing, through
+ * {@link DataAPI#getLong}, {@link DataAPI#setLong}, {@link DataAPI#addLong} and {@link DataAPI#updateLong}.
+ * It is still a {@code PlayerField<Long>}, so the rest of the API (events, leaderboards, bulk
+ * operations, transactions) takes it as it is.
+ */
+public class LongPlayerField extends PlayerField<Long> {
+    private final long defaultLong;
+
+    protected LongPlayerField(String namespace, String key, long defaultValue, Validator<Long> validator) {
+        super(namespace, key, Codecs.LONG, defaultValue, validator);
+        this.defaultLong = defaultValue;
+    }
+
+    public static LongPlayerField create(String namespace, String key, long defaultValue) {
+        return new LongPlayerField(namespace, key, defaultValue, null);
+    }
+
+    public static LongPlayerField create(String namespace, String key, long defaultValue, Validator<Long> validator) {
+        return new LongPlayerField(namespace, key, defaultValue, validator);
+    }
+
+    @Override
+    public LongCodec codec() {
+        return Codecs.LONG;
+    }
+
+    public long defaultLong() {
+        return defaultLong;
+    }
+}
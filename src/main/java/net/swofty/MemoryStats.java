@@ -0,0 +1,30 @@
+package net.swofty;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * An estimate of the heap this node's {@link DataAPI} holds, taken by {@link DataAPI#memoryStats}.
+ *
+ * <p>Every figure is an estimate built from each cached entity's stored document and each live
+ * field's {@link net.swofty.codec.Codec#estimateSize}, not a measurement; it is for spotting what
+ * grows and what is largest, and it is the same figure a byte-bounded cache is held to.
+ *
+ * @param totalBytes      everything below together
+ * @param playerBytes     the cached players
+ * @param linkedBytes     the cached shared (linked) entities
+ * @param eventStateBytes the per-entity ordering state a distributed event bus keeps; 0 without one
+ * @param largest         the largest cached entities, largest first
+ * @param namespaceBytes  the live fields of every cached entity, totalled by field namespace; the
+ *                        stored documents they were read from belong to no one namespace and are
+ *                        left out
+ */
+public record MemoryStats(long totalBytes, long playerBytes, long linkedBytes, long eventStateBytes,
+                          List<Entity> largest, Map<String, Long> namespaceBytes) {
+
+    /**
+     * One cached entity's estimated size. {@code type} is {@code "players"} for a player and
+     * {@code "linked/<link type>"} for a shared entity, as in storage.
+     */
+    public record Entity(String type, String id, long bytes) {}
+}
@@ -6,6 +6,8 @@ import net.swofty.validation.Validator;
 public class PlayerField<T> implements DataField<T> {
     private final String namespace;
     private final String key;
+    // Built once: every read and write looks the field up by it.
+    private final String fullKey;
     private final Codec<T> codec;
     private final DefaultValueFactory<? extends T> defaultFactory;
     private final Validator<T> validator;
@@ -18,6 +20,7 @@ public class PlayerField<T> implements DataField<T> {
                           DefaultValueFactory<? extends T> defaultFactory, Validator<T> validator) {
         this.namespace = namespace;
         this.key = key;
+        this.fullKey = namespace + ":" + key;
         this.codec = codec;
         this.defaultFactory = defaultFactory;
         this.validator = validator;
@@ -41,6 +44,11 @@ public class PlayerField<T> implements DataField<T> {
         return key;
     }
 
+    @Override
+    public String fullKey() {
+        return fullKey;
+    }
+
     @Override
     public Codec<T> codec() {
         return codec;
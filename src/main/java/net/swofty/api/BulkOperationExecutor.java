@@ -1,27 +1,27 @@
 package net.swofty.api;
 
 import net.swofty.*;
-import net.swofty.event.EventBus;
 import net.swofty.storage.DataStorage;
 import net.swofty.storage.LeaderboardIndex;
-import net.swofty.storage.SaveResult;
 
 import java.util.*;
 import java.util.function.Predicate;
 import java.util.function.UnaryOperator;
 
 class BulkOperationExecutor {
+    private static final String PLAYERS = "players";
+
     private final PlayerDataManager playerData;
     private final LinkedDataManager linkedData;
     private final DataStorage storage;
-    private final EventBus eventBus;
+    private final BulkScanner scanner;
 
     public BulkOperationExecutor(PlayerDataManager playerData, LinkedDataManager linkedData,
-                                  DataStorage storage, EventBus eventBus) {
+                                  DataStorage storage, ScanOptions scanOptions) {
         this.playerData = playerData;
         this.linkedData = linkedData;
         this.storage = storage;
-        this.eventBus = eventBus;
+        this.scanner = new BulkScanner(storage, scanOptions);
     }
 
     public <T extends Comparable<T>> List<LeaderboardEntry<T>> getTop(PlayerField<T> field, int limit) {
@@ -47,7 +47,7 @@ class BulkOperationExecutor {
         int rank = start + 1;
         for (LeaderboardIndex.ScoreEntry entry : range) {
             UUID id = UUID.fromString(entry.id());
-            result.add(new LeaderboardEntry<>(id, playerData.getFieldValue(id, field), rank++));
+            result.add(new LeaderboardEntry<>(id, playerData.scanFieldValue(id, field), rank++));
         }
         return result;
     }
@@ -74,16 +74,36 @@ class BulkOperationExecutor {
     }
 
     public <T> List<UUID> query(PlayerField<T> field, Predicate<T> filter) {
-        return getAllPlayerValues(field).stream()
-                .filter(e -> filter.test(e.getValue()))
-                .map(Map.Entry::getKey)
-                .toList();
+        List<UUID> result = new ArrayList<>();
+        for (List<UUID> matched : scanner.scan(PLAYERS, Set.of(field.fullKey()), chunk -> {
+            List<UUID> inChunk = new ArrayList<>();
+            for (String id : chunk.ids()) {
+                UUID playerId = UUID.fromString(id);
+                if (filter.test(playerData.scanFieldValue(playerId, field, chunk.documents().get(id)))) {
+                    inChunk.add(playerId);
+                }
+            }
+            return inChunk;
+        })) {
+            result.addAll(matched);
+        }
+        return result;
     }
 
     public <T> int count(PlayerField<T> field, Predicate<T> filter) {
-        return (int) getAllPlayerValues(field).stream()
-                .filter(e -> filter.test(e.getValue()))
-                .count();
+        int count = 0;
+        for (int inChunk : scanner.scan(PLAYERS, Set.of(field.fullKey()), chunk -> {
+            int matched = 0;
+            for (String id : chunk.ids()) {
+                if (filter.test(playerData.scanFieldValue(UUID.fromString(id), field, chunk.documents().get(id)))) {
+                    matched++;
+                }
+            }
+            return matched;
+        })) {
+            count += inChunk;
+        }
+        return count;
     }
 
     public <T> int updateAll(PlayerField<T> field, UnaryOperator<T> updater) {
@@ -92,22 +112,22 @@ class BulkOperationExecutor {
 
     public <T> int updateWhere(PlayerField<T> field, Predicate<T> filter, UnaryOperator<T> updater) {
         int count = 0;
-        for (String id : storage.listIds("players")) {
-            UUID playerId = UUID.fromString(id);
-            synchronized (playerData.getLock(playerId)) {
-                T value = playerData.getFieldValue(playerId, field);
-                if (filter.test(value)) {
-                    T newValue = updater.apply(value);
-                    Validation.validate(field, newValue);
-                    // The version the write produced is what lets peers order this against their
-                    // own; publishing it unversioned made a bulk update apply unconditionally,
-                    // including after a newer write to the same field.
-                    SaveResult saved = playerData.setFieldValue(playerId, field, newValue);
-                    eventBus.firePlayerDataChanged(field, playerId, value, newValue,
-                            PlayerDataManager.eventVersion(saved));
-                    count++;
+        for (int inChunk : scanner.scan(PLAYERS, Set.of(field.fullKey()), chunk -> {
+            int updated = 0;
+            for (String id : chunk.ids()) {
+                UUID playerId = UUID.fromString(id);
+                // The batched read only screens out players that cannot match; a candidate is read
+                // again under its lock, so the filter is re-applied to the value actually updated.
+                if (!filter.test(playerData.scanFieldValue(playerId, field, chunk.documents().get(id)))) continue;
+                // Fires the change with the version the write produced, which is what lets peers
+                // order it against their own; an unversioned bulk update would apply after a newer write.
+                if (playerData.updateScanned(playerId, field, filter, updater)) {
+                    updated++;
                 }
             }
+            return updated;
+        })) {
+            count += inChunk;
         }
         return count;
     }
@@ -115,18 +135,22 @@ class BulkOperationExecutor {
     @SuppressWarnings("unchecked")
     public <K, T extends Comparable<T>> List<LeaderboardEntry<T>> getTopLinked(LinkedField<K, T> field, int limit) {
         String linkTypeName = field.linkType().name();
-        List<String> ids = linkedData.listLinkedIds(linkTypeName);
         List<Map.Entry<UUID, T>> entries = new ArrayList<>();
-
-        for (String id : ids) {
-            T value = linkedData.getFieldValue(linkTypeName, id, field);
-            UUID entryId;
-            try {
-                entryId = UUID.fromString(id);
-            } catch (IllegalArgumentException e) {
-                entryId = UUID.nameUUIDFromBytes(id.getBytes());
+        for (List<Map.Entry<UUID, T>> inChunk : scanner.scan(LinkedDataManager.storageType(linkTypeName), Set.of(field.fullKey()), chunk -> {
+            List<Map.Entry<UUID, T>> values = new ArrayList<>(chunk.ids().size());
+            for (String id : chunk.ids()) {
+                T value = linkedData.scanFieldValue(linkTypeName, id, field, chunk.documents().get(id));
+                UUID entryId;
+                try {
+                    entryId = UUID.fromString(id);
+                } catch (IllegalArgumentException e) {
+                    entryId = UUID.nameUUIDFromBytes(id.getBytes());
+                }
+                values.add(Map.entry(entryId, value));
             }
-            entries.add(Map.entry(entryId, value));
+            return values;
+        })) {
+            entries.addAll(inChunk);
         }
 
         entries.sort((a, b) -> b.getValue().compareTo(a.getValue()));
@@ -141,28 +165,37 @@ class BulkOperationExecutor {
     @SuppressWarnings("unchecked")
     public <K, T> List<K> queryLinked(LinkedField<K, T> field, Predicate<T> filter) {
         String linkTypeName = field.linkType().name();
-        List<String> ids = linkedData.listLinkedIds(linkTypeName);
         List<K> result = new ArrayList<>();
-
-        for (String id : ids) {
-            T value = linkedData.getFieldValue(linkTypeName, id, field);
-            if (filter.test(value)) {
-                try {
-                    result.add((K) UUID.fromString(id));
-                } catch (IllegalArgumentException e) {
-                    result.add((K) id);
+        for (List<K> inChunk : scanner.scan(LinkedDataManager.storageType(linkTypeName), Set.of(field.fullKey()), chunk -> {
+            List<K> matched = new ArrayList<>();
+            for (String id : chunk.ids()) {
+                T value = linkedData.scanFieldValue(linkTypeName, id, field, chunk.documents().get(id));
+                if (filter.test(value)) {
+                    try {
+                        matched.add((K) UUID.fromString(id));
+                    } catch (IllegalArgumentException e) {
+                        matched.add((K) id);
+                    }
                 }
             }
+            return matched;
+        })) {
+            result.addAll(inChunk);
         }
         return result;
     }
 
     private <T> List<Map.Entry<UUID, T>> getAllPlayerValues(PlayerField<T> field) {
         List<Map.Entry<UUID, T>> entries = new ArrayList<>();
-        for (String id : storage.listIds("players")) {
-            UUID playerId = UUID.fromString(id);
-            T value = playerData.getFieldValue(playerId, field);
-            entries.add(Map.entry(playerId, value));
+        for (List<Map.Entry<UUID, T>> inChunk : scanner.scan(PLAYERS, Set.of(field.fullKey()), chunk -> {
+            List<Map.Entry<UUID, T>> values = new ArrayList<>(chunk.ids().size());
+            for (String id : chunk.ids()) {
+                UUID playerId = UUID.fromString(id);
+                values.add(Map.entry(playerId, playerData.scanFieldValue(playerId, field, chunk.documents().get(id))));
+            }
+            return values;
+        })) {
+            entries.addAll(inChunk);
         }
         return entries;
     }
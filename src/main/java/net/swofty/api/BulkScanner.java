@@ -0,0 +1,107 @@
+package net.swofty.api;
+
+import net.swofty.storage.DataStorage;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.function.Function;
+
+/**
+ * Walks every stored document of a type in chunks: one batched storage read per chunk, the chunks
+ * worked on in parallel on the configured executor, and the per-chunk results handed back in id
+ * order for the caller to merge.
+ *
+ * <p>The number of chunks in flight is bounded by a semaphore the submitting thread takes before
+ * each chunk and the chunk gives back when it is done, so the scan runs as fast as the backend and
+ * the pool allow without ever buffering more than {@link ScanOptions#maxInFlightChunks()} chunks of
+ * documents. A chunk's documents are dropped as soon as its work function returns; only the
+ * (usually much smaller) result is kept until the merge.
+ *
+ * <p>A scan that only looks at some fields says which, and a backend that stores fields
+ * individually then reads just those (see {@link DataStorage#loadManyFields}); the documents a
+ * chunk hands over hold at least those fields.
+ */
+class BulkScanner {
+    private final DataStorage storage;
+    private final ScanOptions options;
+
+    BulkScanner(DataStorage storage, ScanOptions options) {
+        this.storage = storage;
+        this.options = options;
+    }
+
+    /** One chunk of a scan: the ids it covers and the documents stored for them (absent if none). */
+    record Chunk(List<String> ids, Map<String, byte[]> documents) {}
+
+    <R> List<R> scan(String type, Function<Chunk, R> work) {
+        return scan(type, storage.listIds(type), null, work);
+    }
+
+    /** Scans reading only {@code fields} of each document, where the backend can. */
+    <R> List<R> scan(String type, Set<String> fields, Function<Chunk, R> work) {
+        return scan(type, storage.listIds(type), fields, work);
+    }
+
+    <R> List<R> scan(String type, List<String> ids, Function<Chunk, R> work) {
+        return scan(type, ids, null, work);
+    }
+
+    // A null field set reads whole documents.
+    <R> List<R> scan(String type, List<String> ids, Set<String> fields, Function<Chunk, R> work) {
+        Semaphore inFlight = new Semaphore(options.maxInFlightChunks());
+        List<CompletableFuture<R>> chunks = new ArrayList<>();
+        CompletableFuture<Void> failed = new CompletableFuture<>();
+        for (int start = 0; start < ids.size() && !failed.isDone(); start += options.chunkSize()) {
+            List<String> slice = ids.subList(start, Math.min(ids.size(), start + options.chunkSize()));
+            acquire(inFlight);
+            CompletableFuture<R> chunk;
+            try {
+                chunk = CompletableFuture.supplyAsync(
+                        () -> work.apply(new Chunk(slice, fields == null
+                                ? storage.loadMany(type, slice)
+                                : storage.loadManyFields(type, slice, fields))), options.executor());
+            } catch (RejectedExecutionException rejected) {
+                inFlight.release();
+                throw rejected;
+            }
+            chunk.whenComplete((result, failure) -> {
+                inFlight.release();
+                // One failed chunk fails the scan, so there is no point fetching the rest of the table.
+                if (failure != null) failed.complete(null);
+            });
+            chunks.add(chunk);
+        }
+        List<R> results = new ArrayList<>(chunks.size());
+        for (CompletableFuture<R> chunk : chunks) {
+            results.add(join(chunk));
+        }
+        return results;
+    }
+
+    private static void acquire(Semaphore inFlight) {
+        try {
+            inFlight.acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted waiting for a bulk scan chunk", e);
+        }
+    }
+
+    // The chunk's own exception is what the caller of a synchronous query expects to see, not a
+    // CompletionException wrapped around it.
+    private static <R> R join(CompletableFuture<R> chunk) {
+        try {
+            return chunk.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+}
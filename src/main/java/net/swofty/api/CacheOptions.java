@@ -0,0 +1,78 @@
+package net.swofty.api;
+
+import java.nio.file.Path;
+import java.util.Objects;
+
+/**
+ * Bounds on what a {@link DataAPIImpl} keeps cached, per kind of entity: players and shared
+ * (linked) entities are each held to these limits on their own.
+ *
+ * <p>Without a bound an entity stays cached until it is unloaded, which is what a node that loads
+ * and unloads its players as they come and go wants. With one, the cache makes room by evicting
+ * the entries least likely to be used again, judged by how often as well as how recently each was
+ * used (W-TinyLFU), so a burst of one-off reads cannot push out the players actually online. An
+ * entry with unsaved writes is flushed before it goes, and one that is in use is never evicted
+ * under the operation using it. Eviction runs in the background, so the cache can briefly exceed
+ * its bound while it catches up.
+ *
+ * <p>{@code maxEntries} caps the number of cached entities. {@code maxBytes} caps their estimated
+ * size: the stored document each one was read from, plus an estimate for the values decoded out of
+ * it. Either can be {@link Long#MAX_VALUE} for no bound.
+ *
+ * <p>{@code offHeapDocuments} keeps each cached entity's stored document in direct memory rather
+ * than in a heap array, so thousands of online players do not mean thousands of long-lived
+ * old-generation arrays for the collector to copy and scan. The memory is pooled and reused as
+ * entities are unloaded or evicted. Fields are then decoded from it on each first read instead of
+ * from a tree kept on the heap, which costs a parse of the document per field miss; it pays off for
+ * large documents of which a session reads a few fields. It works with or without a bound.
+ *
+ * <p>{@code snapshotDirectory} keeps the cache across a restart. On shutdown, after the final flush,
+ * every cached entity with nothing left to write has its document and version written to a
+ * memory-mapped file there, one for players and one for shared entities, and the next start maps
+ * it back instead of forgetting it, taking the file so that no later start maps it too. An entity loaded from then on is checked against storage with
+ * a version-only read, batched for {@code loadAll}, and served from the file if it is still
+ * current, so a rolled node does not reread the whole document of every player reconnecting to
+ * it. Each entry is served at most once. Only backends that version their documents can be checked,
+ * so nothing is kept for the others, and the check only saves a read on a backend that overrides
+ * {@link net.swofty.storage.DataStorage#loadVersions}. A document deleted and recreated up to the
+ * same version while no API was running could pass the check, so delete the files before starting
+ * a node that was down across such a change. Null, the default, keeps nothing.
+ */
+public record CacheOptions(long maxEntries, long maxBytes, boolean offHeapDocuments, Path snapshotDirectory) {
+    public static final CacheOptions UNBOUNDED = new CacheOptions(Long.MAX_VALUE, Long.MAX_VALUE);
+
+    public CacheOptions {
+        if (maxEntries <= 0) throw new IllegalArgumentException("maxEntries must be positive: " + maxEntries);
+        if (maxBytes <= 0) throw new IllegalArgumentException("maxBytes must be positive: " + maxBytes);
+    }
+
+    public CacheOptions(long maxEntries, long maxBytes) {
+        this(maxEntries, maxBytes, false);
+    }
+
+    public CacheOptions(long maxEntries, long maxBytes, boolean offHeapDocuments) {
+        this(maxEntries, maxBytes, offHeapDocuments, null);
+    }
+
+    public static CacheOptions maxEntries(long maxEntries) {
+        return new CacheOptions(maxEntries, Long.MAX_VALUE);
+    }
+
+    public static CacheOptions maxBytes(long maxBytes) {
+        return new CacheOptions(Long.MAX_VALUE, maxBytes);
+    }
+
+    /** These bounds, with stored documents kept off the heap. */
+    public CacheOptions withOffHeapDocuments() {
+        return new CacheOptions(maxEntries, maxBytes, true, snapshotDirectory);
+    }
+
+    /** These bounds, with the cache kept across restarts in {@code directory}. */
+    public CacheOptions withWarmSnapshot(Path directory) {
+        return new CacheOptions(maxEntries, maxBytes, offHeapDocuments, Objects.requireNonNull(directory, "directory"));
+    }
+
+    public boolean bounded() {
+        return maxEntries != Long.MAX_VALUE || maxBytes != Long.MAX_VALUE;
+    }
+}
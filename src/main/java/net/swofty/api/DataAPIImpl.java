@@ -15,12 +15,19 @@ import java.time.Duration;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongUnaryOperator;
 import java.util.function.Predicate;
 import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
 import java.util.function.UnaryOperator;
 
+@SuppressWarnings("try")
 public class DataAPIImpl implements DataAPI {
     /** How long a transaction or a distributed update waits for the entity's lock by default. */
     public static final Duration DEFAULT_LOCK_TIMEOUT = Duration.ofSeconds(10);
@@ -36,6 +43,14 @@ public class DataAPIImpl implements DataAPI {
     private final DistributedLock distributedLock;
     private final StorageOwnership storageOwnership;
     private final Duration lockTimeout;
+    private final WriteBehindFlusher writeBehind;
+    private final IoExecutor io;
+    // The pool bulk scans run their chunks on when ScanOptions names none; owned and stopped here.
+    private final ExecutorService scanPool;
+    // The virtual threads mailbox runs get when MailboxOptions names no executor; owned and stopped here.
+    private final ExecutorService mailboxPool;
+    private final EntityMailboxes<UUID> playerMailboxes;
+    private final EntityMailboxes<LinkedDataManager.Entity> linkedMailboxes;
     private final AtomicBoolean shutdown = new AtomicBoolean();
 
     public DataAPIImpl(DataStorage storage, DataFormat format, PubSubHandler pubSub) {
@@ -67,21 +82,203 @@ public class DataAPIImpl implements DataAPI {
      */
     public DataAPIImpl(DataStorage storage, DataFormat format, PubSubHandler pubSub, boolean autoPersist,
                        DistributedLock distributedLock, StorageOwnership ownership, Duration lockTimeout) {
+        this(builder(storage).format(format).pubSub(pubSub).autoPersist(autoPersist).distributedLock(distributedLock)
+                .ownership(ownership).lockTimeout(lockTimeout));
+    }
+
+    /**
+     * Starts configuring an API over {@code storage}: everything the constructors take, and the
+     * options they leave at their defaults (scanning, caching, locking, mailboxes, the I/O pool).
+     */
+    public static Builder builder(DataStorage storage) {
+        return new Builder(storage);
+    }
+
+    /**
+     * Settings for a {@link DataAPIImpl}, each starting at the default the constructors use. At most
+     * one persistence mode applies: {@link #autoPersist}, {@link #writeBehind} (which defers writes)
+     * or {@link #groupCommit} (which persists them); combining write-behind with group commit, or
+     * either with an {@code autoPersist} that contradicts it, is refused by {@link #build}.
+     */
+    public static final class Builder {
+        private final DataStorage storage;
+        private DataFormat format = new JsonFormat();
+        private PubSubHandler pubSub;
+        private Boolean autoPersist;
+        private WriteBehindOptions writeBehind;
+        private GroupCommitOptions groupCommit;
+        private DistributedLock distributedLock;
+        private StorageOwnership ownership = StorageOwnership.BORROWED;
+        private Duration lockTimeout = DEFAULT_LOCK_TIMEOUT;
+        private ScanOptions scan = ScanOptions.DEFAULT;
+        private CacheOptions cache = CacheOptions.UNBOUNDED;
+        private LockOptions locks = LockOptions.DEFAULT;
+        private MailboxOptions mailboxes = MailboxOptions.DEFAULT;
+        private IoOptions io = IoOptions.DEFAULT;
+
+        private Builder(DataStorage storage) {
+            this.storage = Objects.requireNonNull(storage, "storage");
+        }
+
+        public Builder format(DataFormat format) {
+            this.format = Objects.requireNonNull(format, "format");
+            return this;
+        }
+
+        /** Delivers events to, and keeps caches coherent with, other nodes; null for one node. */
+        public Builder pubSub(PubSubHandler pubSub) {
+            this.pubSub = pubSub;
+            return this;
+        }
+
+        /**
+         * True (the default) flushes every write to storage immediately; false keeps writes in the
+         * cache until {@link DataAPIImpl#flush(UUID)} or {@link DataAPIImpl#unload(UUID)}, letting a
+         * node batch a play session into one write.
+         */
+        public Builder autoPersist(boolean autoPersist) {
+            this.autoPersist = autoPersist;
+            return this;
+        }
+
+        /**
+         * Defers writes as {@code autoPersist(false)} does, and flushes them in the background within
+         * the staleness bound, write rate and parallelism {@code writeBehind} sets. An explicit flush
+         * or unload still writes immediately.
+         */
+        public Builder writeBehind(WriteBehindOptions writeBehind) {
+            this.writeBehind = Objects.requireNonNull(writeBehind, "writeBehind");
+            return this;
+        }
+
+        /**
+         * Persists every write before it returns, but merges concurrent writes to one entity into a
+         * single storage write; see {@link GroupCommitOptions}.
+         */
+        public Builder groupCommit(GroupCommitOptions groupCommit) {
+            this.groupCommit = Objects.requireNonNull(groupCommit, "groupCommit");
+            return this;
+        }
+
+        /**
+         * Cross-node mutual exclusion for transactions and {@link DataAPIImpl#lock(String, Duration)};
+         * null, the default, falls back to a JVM-local lock.
+         */
+        public Builder distributedLock(DistributedLock distributedLock) {
+            this.distributedLock = distributedLock;
+            return this;
+        }
+
+        /**
+         * OWNED makes {@link DataAPIImpl#shutdown()} close the storage (and the distributed lock, when
+         * it is closeable) as well; BORROWED, the default, leaves both alone.
+         */
+        public Builder ownership(StorageOwnership ownership) {
+            this.ownership = Objects.requireNonNull(ownership, "ownership");
+            return this;
+        }
+
+        /** How long transactions and distributed writes wait for an entity's distributed lock. */
+        public Builder lockTimeout(Duration lockTimeout) {
+            this.lockTimeout = Objects.requireNonNull(lockTimeout, "lockTimeout");
+            return this;
+        }
+
+        /** How bulk queries walk stored documents; see {@link ScanOptions}. */
+        public Builder scan(ScanOptions scan) {
+            this.scan = Objects.requireNonNull(scan, "scan");
+            return this;
+        }
+
+        /** How much this node keeps cached before it evicts; see {@link CacheOptions}. */
+        public Builder cache(CacheOptions cache) {
+            this.cache = Objects.requireNonNull(cache, "cache");
+            return this;
+        }
+
+        /** How callers wait for an entity's lock on this node; see {@link LockOptions}. */
+        public Builder locks(LockOptions locks) {
+            this.locks = Objects.requireNonNull(locks, "locks");
+            return this;
+        }
+
+        /** Where the entity mailboxes behind the field {@code *Async} methods run; see {@link MailboxOptions}. */
+        public Builder mailboxes(MailboxOptions mailboxes) {
+            this.mailboxes = Objects.requireNonNull(mailboxes, "mailboxes");
+            return this;
+        }
+
+        /** The pool the {@code *Async} methods run on, and how much it admits; see {@link IoOptions}. */
+        public Builder io(IoOptions io) {
+            this.io = Objects.requireNonNull(io, "io");
+            return this;
+        }
+
+        public DataAPIImpl build() {
+            if (writeBehind != null && groupCommit != null) {
+                throw new IllegalStateException("Write-behind defers writes and group commit persists them; pick one");
+            }
+            if (writeBehind != null && Boolean.TRUE.equals(autoPersist)) {
+                throw new IllegalStateException("Write-behind defers writes, so it cannot be combined with autoPersist(true)");
+            }
+            if (groupCommit != null && Boolean.FALSE.equals(autoPersist)) {
+                throw new IllegalStateException("Group commit persists writes, so it cannot be combined with autoPersist(false)");
+            }
+            return new DataAPIImpl(this);
+        }
+    }
+
+    private DataAPIImpl(Builder builder) {
+        DataStorage storage = builder.storage;
+        DataFormat format = builder.format;
+        PubSubHandler pubSub = builder.pubSub;
+        WriteBehindOptions writeBehindOptions = builder.writeBehind;
+        GroupCommitOptions groupCommitOptions = builder.groupCommit;
+        boolean autoPersist = writeBehindOptions == null
+                && (groupCommitOptions != null || builder.autoPersist == null || builder.autoPersist);
+        DistributedLock distributedLock = builder.distributedLock;
+        StorageOwnership ownership = builder.ownership;
+        Duration lockTimeout = builder.lockTimeout;
+        ScanOptions scanOptions = builder.scan;
+        CacheOptions cacheOptions = builder.cache;
+        LockOptions lockOptions = builder.locks;
+        MailboxOptions mailboxOptions = builder.mailboxes;
+        IoOptions ioOptions = builder.io;
+        DataFormat fieldFormat = storage.fieldFormat();
+        if (fieldFormat != null && fieldFormat.getClass() != format.getClass()) {
+            throw new IllegalArgumentException("Storage encodes fields as " + fieldFormat.getClass().getSimpleName()
+                    + " but the API is built with " + format.getClass().getSimpleName());
+        }
         this.storage = storage;
         this.storageOwnership = Objects.requireNonNull(ownership, "ownership");
         this.lockTimeout = Objects.requireNonNull(lockTimeout, "lockTimeout");
         this.distributedLock = distributedLock;
         this.eventBus = (pubSub != null) ? new DistributedEventBus(pubSub) : new EventBus();
         this.linkRegistry = new LinkRegistryImpl();
-        this.playerData = new PlayerDataManager(storage, format, eventBus, autoPersist);
+        this.writeBehind = writeBehindOptions == null ? null : new WriteBehindFlusher(writeBehindOptions);
+        GroupCommitter groupCommit = groupCommitOptions == null ? null : new GroupCommitter(groupCommitOptions);
+        this.playerData = new PlayerDataManager(storage, format, eventBus, autoPersist, writeBehind, groupCommit,
+                cacheOptions, lockOptions);
         // Links live in shared storage on the player's own document, so a node that never linked
         // the player itself can still recover the key instead of behaving as if they had no link.
         this.linkRegistry.setKeyLoader(playerData::loadLinkKey);
-        this.linkedData = new LinkedDataManager(storage, format, eventBus, linkRegistry, autoPersist);
+        this.linkedData = new LinkedDataManager(storage, format, eventBus, linkRegistry, autoPersist, writeBehind,
+                groupCommit, cacheOptions, lockOptions);
         this.expirationManager = new ExpirationManager(eventBus);
         this.transactionManager = new TransactionManager(playerData, linkedData, linkRegistry, eventBus,
                 distributedLock, lockTimeout, this);
-        this.bulkOperations = new BulkOperationExecutor(playerData, linkedData, storage, eventBus);
+        this.io = new IoExecutor(ioOptions);
+        this.mailboxPool = mailboxOptions.executor() != null ? null : Executors.newVirtualThreadPerTaskExecutor();
+        Executor mailboxExecutor = mailboxPool == null ? mailboxOptions.executor() : mailboxPool;
+        this.playerMailboxes = new EntityMailboxes<>(mailboxExecutor, mailboxOptions.maxBatch(), playerData::lock,
+                playerData::commitStaged);
+        this.linkedMailboxes = new EntityMailboxes<>(mailboxExecutor, mailboxOptions.maxBatch(),
+                entity -> linkedData.lock(entity.compositeKey()),
+                entity -> linkedData.commitStaged(entity.linkTypeName(), entity.key()));
+        this.scanPool = scanOptions.executor() != null ? null : scanPool(scanOptions.maxInFlightChunks());
+        this.bulkOperations = new BulkOperationExecutor(playerData, linkedData, storage, scanPool == null
+                ? scanOptions
+                : new ScanOptions(scanOptions.chunkSize(), scanOptions.maxInFlightChunks(), scanPool));
 
         // Keep locally cached containers coherent with changes made on other nodes.
         if (eventBus instanceof DistributedEventBus distributed) {
@@ -194,10 +391,72 @@ public class DataAPIImpl implements DataAPI {
             playerData.update(player, field, updater);
             return;
         }
-        underEntityLock("player:" + player, playerData.getLock(player), () -> playerData.refresh(player),
+        underEntityLock("player:" + player, () -> playerData.lock(player), () -> playerData.refresh(player),
                 () -> playerData.update(player, field, updater));
     }
 
+    // ==================== Primitive Player Fields ====================
+
+    @Override
+    public int getInt(UUID player, IntPlayerField field) {
+        return playerData.getInt(player, field);
+    }
+
+    @Override
+    public void setInt(UUID player, IntPlayerField field, int value) {
+        playerData.setInt(player, field, value);
+    }
+
+    @Override
+    public int addInt(UUID player, IntPlayerField field, int delta) {
+        return playerData.addInt(player, field, delta);
+    }
+
+    @Override
+    public int updateInt(UUID player, IntPlayerField field, IntUnaryOperator updater) {
+        return playerData.updateInt(player, field, updater);
+    }
+
+    @Override
+    public long getLong(UUID player, LongPlayerField field) {
+        return playerData.getLong(player, field);
+    }
+
+    @Override
+    public void setLong(UUID player, LongPlayerField field, long value) {
+        playerData.setLong(player, field, value);
+    }
+
+    @Override
+    public long addLong(UUID player, LongPlayerField field, long delta) {
+        return playerData.addLong(player, field, delta);
+    }
+
+    @Override
+    public long updateLong(UUID player, LongPlayerField field, LongUnaryOperator updater) {
+        return playerData.updateLong(player, field, updater);
+    }
+
+    @Override
+    public double getDouble(UUID player, DoublePlayerField field) {
+        return playerData.getDouble(player, field);
+    }
+
+    @Override
+    public void setDouble(UUID player, DoublePlayerField field, double value) {
+        playerData.setDouble(player, field, value);
+    }
+
+    @Override
+    public double addDouble(UUID player, DoublePlayerField field, double delta) {
+        return playerData.addDouble(player, field, delta);
+    }
+
+    @Override
+    public double updateDouble(UUID player, DoublePlayerField field, DoubleUnaryOperator updater) {
+        return playerData.updateDouble(player, field, updater);
+    }
+
     // ==================== Linked Fields ====================
 
     @Override
@@ -246,11 +505,110 @@ public class DataAPIImpl implements DataAPI {
             return;
         }
         String ck = LinkedDataManager.compositeKey(field.linkType().name(), key);
-        underEntityLock("linked:" + ck, linkedData.getLock(ck),
+        underEntityLock("linked:" + ck, () -> linkedData.lock(ck),
                 () -> linkedData.refresh(field.linkType().name(), key),
                 () -> linkedData.updateDirect(key, field, updater));
     }
 
+    // ==================== Mailbox Execution ====================
+
+    @Override
+    public <T> CompletableFuture<T> getAsync(UUID player, PlayerField<T> field) {
+        return io.admit(() -> playerMailboxes.submit(player,
+                changes -> playerData.get(player, field, expirationManager)));
+    }
+
+    @Override
+    public <T> CompletableFuture<Void> setAsync(UUID player, PlayerField<T> field, T value) {
+        return io.admit(() -> playerMailboxes.submit(player, changes -> {
+            Validation.validate(field, value);
+            changes.add(playerData.stageChange(player, field, oldValue -> value));
+            return null;
+        }));
+    }
+
+    @Override
+    public <T> CompletableFuture<Void> updateAsync(UUID player, PlayerField<T> field, UnaryOperator<T> updater) {
+        return io.admit(() -> playerMailboxes.submit(player, changes -> {
+            changes.add(playerData.stageChange(player, field, oldValue -> {
+                T newValue = updater.apply(oldValue);
+                Validation.validate(field, newValue);
+                return newValue;
+            }));
+            return null;
+        }));
+    }
+
+    // The link key can take a storage read to recover, so it is resolved on the I/O pool too.
+    @Override
+    public <K, T> CompletableFuture<T> getAsync(UUID player, LinkedField<K, T> field) {
+        return io.admit(() -> resolveAsync(player, field).thenCompose(key -> key == null
+                ? CompletableFuture.completedFuture(field.defaultValue())
+                : queueGetDirect(key, field)));
+    }
+
+    @Override
+    public <K, T> CompletableFuture<Void> setAsync(UUID player, LinkedField<K, T> field, T value) {
+        return io.admit(() -> resolveAsync(player, field).thenCompose(key -> key == null
+                ? notLinked(player, field)
+                : queueSetDirect(key, field, value)));
+    }
+
+    @Override
+    public <K, T> CompletableFuture<Void> updateAsync(UUID player, LinkedField<K, T> field, UnaryOperator<T> updater) {
+        return io.admit(() -> resolveAsync(player, field).thenCompose(key -> key == null
+                ? notLinked(player, field)
+                : queueUpdateDirect(key, field, updater)));
+    }
+
+    @Override
+    public <K, T> CompletableFuture<T> getDirectAsync(K key, LinkedField<K, T> field) {
+        return io.admit(() -> queueGetDirect(key, field));
+    }
+
+    @Override
+    public <K, T> CompletableFuture<Void> setDirectAsync(K key, LinkedField<K, T> field, T value) {
+        return io.admit(() -> queueSetDirect(key, field, value));
+    }
+
+    @Override
+    public <K, T> CompletableFuture<Void> updateDirectAsync(K key, LinkedField<K, T> field, UnaryOperator<T> updater) {
+        return io.admit(() -> queueUpdateDirect(key, field, updater));
+    }
+
+    private <K> CompletableFuture<K> resolveAsync(UUID player, LinkedField<K, ?> field) {
+        return io.supply(() -> linkRegistry.resolve(player, field.linkType()));
+    }
+
+    private static CompletableFuture<Void> notLinked(UUID player, LinkedField<?, ?> field) {
+        return CompletableFuture.failedFuture(new IllegalStateException(
+                "Player " + player + " is not linked to " + field.linkType().name()));
+    }
+
+    private <K, T> CompletableFuture<T> queueGetDirect(K key, LinkedField<K, T> field) {
+        return linkedMailboxes.submit(new LinkedDataManager.Entity(field.linkType().name(), key),
+                changes -> linkedData.getDirect(key, field, expirationManager));
+    }
+
+    private <K, T> CompletableFuture<Void> queueSetDirect(K key, LinkedField<K, T> field, T value) {
+        return linkedMailboxes.submit(new LinkedDataManager.Entity(field.linkType().name(), key), changes -> {
+            Validation.validate(field, value);
+            changes.add(linkedData.stageChange(key, field, oldValue -> value));
+            return null;
+        });
+    }
+
+    private <K, T> CompletableFuture<Void> queueUpdateDirect(K key, LinkedField<K, T> field, UnaryOperator<T> updater) {
+        return linkedMailboxes.submit(new LinkedDataManager.Entity(field.linkType().name(), key), changes -> {
+            changes.add(linkedData.stageChange(key, field, oldValue -> {
+                T newValue = updater.apply(oldValue);
+                Validation.validate(field, newValue);
+                return newValue;
+            }));
+            return null;
+        });
+    }
+
     /**
      * Runs a read-modify-write under the entity's cross-node lock.
      *
@@ -261,10 +619,11 @@ public class DataAPIImpl implements DataAPI {
      * deadlock each other until both leases expire; take {@link #lock(String, Duration)} explicitly
      * in a fixed order instead.
      */
-    private void underEntityLock(String lockKey, Object monitor, Runnable refresh, Supplier<SaveResult> write) {
+    private void underEntityLock(String lockKey, Supplier<EntityLock> entityLock, Runnable refresh,
+                                 Supplier<SaveResult> write) {
         requireDistributedLock();
         if (LockScope.holdsKey(distributedLock, lockKey)) {
-            synchronized (monitor) {
+            try (EntityLock ignored = entityLock.get()) {
                 // Riding a lock this thread already holds. The reread is skipped only when this same
                 // API took it: another DataAPIImpl sharing this lock generates the same key for the
                 // same player, but it reread its own document, not this one's.
@@ -279,7 +638,7 @@ public class DataAPIImpl implements DataAPI {
                     + "; use lock(key, timeout) explicitly if you need more than one entity");
         }
         try (DistributedLock.Handle handle = distributedLock.acquire(lockKey, lockTimeout)) {
-            synchronized (monitor) {
+            try (EntityLock ignored = entityLock.get()) {
                 LockScope.enter(distributedLock, lockKey, this);
                 try {
                     refresh.run();
@@ -296,7 +655,7 @@ public class DataAPIImpl implements DataAPI {
 
     @Override
     public <K> void link(UUID player, LinkType<K> type, K key) {
-        synchronized (playerData.getLock(player)) {
+        try (EntityLock ignored = playerData.lock(player)) {
             linkRegistry.link(player, type, key);
             SaveResult saved = playerData.setFieldValue(player, type.playerField(), key);
             eventBus.fireLinked(type, player, key, PlayerDataManager.eventVersion(saved));
@@ -305,7 +664,7 @@ public class DataAPIImpl implements DataAPI {
 
     @Override
     public <K> void unlink(UUID player, LinkType<K> type) {
-        synchronized (playerData.getLock(player)) {
+        try (EntityLock ignored = playerData.lock(player)) {
             K previousKey = linkRegistry.unlink(player, type);
             if (previousKey == null) return;
             SaveResult saved = playerData.setFieldValue(player, type.playerField(), null);
@@ -328,7 +687,7 @@ public class DataAPIImpl implements DataAPI {
     @Override
     public <T> void set(UUID player, ExpiringField<T> field, T value, Duration ttl) {
         Validation.validate(field, value);
-        synchronized (playerData.getLock(player)) {
+        try (EntityLock ignored = playerData.lock(player)) {
             T oldValue = playerData.getFieldValue(player, field);
             SaveResult saved = playerData.setFieldValue(player, field, value);
             expirationManager.setExpiration(player, field, ttl, value);
@@ -364,7 +723,7 @@ public class DataAPIImpl implements DataAPI {
         }
         Validation.validate(field, value);
         String ck = LinkedDataManager.compositeKey(field.linkType().name(), linkKey);
-        synchronized (linkedData.getLock(ck)) {
+        try (EntityLock ignored = linkedData.lock(ck)) {
             T oldValue = linkedData.getFieldValue(field.linkType().name(), linkKey, field);
             SaveResult saved = linkedData.setFieldValue(field.linkType().name(), linkKey, field, value);
             Set<UUID> affected = linkRegistry.getLinkedPlayers(field.linkType(), linkKey);
@@ -391,6 +750,18 @@ public class DataAPIImpl implements DataAPI {
         return transactionManager.executeDirect(key, type, action);
     }
 
+    // Not queued on the entity's mailbox: a transaction takes the distributed lock before the
+    // entity's, and a mailbox run already holding the entity's would take them the other way round.
+    @Override
+    public <R> CompletableFuture<R> transactionAsync(UUID player, TransactionFunction<R> action) {
+        return io.submit(() -> transactionManager.execute(player, action));
+    }
+
+    @Override
+    public <K, R> CompletableFuture<R> transactionDirectAsync(K key, LinkType<K> type, TransactionFunction<R> action) {
+        return io.submit(() -> transactionManager.executeDirect(key, type, action));
+    }
+
     // ==================== Events ====================
 
     @Override
@@ -465,6 +836,50 @@ public class DataAPIImpl implements DataAPI {
         return bulkOperations.queryLinked(field, filter);
     }
 
+    @Override
+    public <T extends Comparable<T>> CompletableFuture<List<LeaderboardEntry<T>>> getTopAsync(PlayerField<T> field,
+                                                                                             int limit) {
+        return io.submit(() -> bulkOperations.getTop(field, limit));
+    }
+
+    @Override
+    public <T extends Comparable<T>> CompletableFuture<Page<LeaderboardEntry<T>>> getTopPagedAsync(
+            PlayerField<T> field, int page, int pageSize) {
+        return io.submit(() -> bulkOperations.getTopPaged(field, page, pageSize));
+    }
+
+    @Override
+    public <T> CompletableFuture<List<UUID>> queryAsync(PlayerField<T> field, Predicate<T> filter) {
+        return io.submit(() -> bulkOperations.query(field, filter));
+    }
+
+    @Override
+    public <T> CompletableFuture<Integer> countAsync(PlayerField<T> field, Predicate<T> filter) {
+        return io.submit(() -> bulkOperations.count(field, filter));
+    }
+
+    @Override
+    public <T> CompletableFuture<Integer> updateAllAsync(PlayerField<T> field, UnaryOperator<T> updater) {
+        return io.submit(() -> bulkOperations.updateAll(field, updater));
+    }
+
+    @Override
+    public <T> CompletableFuture<Integer> updateWhereAsync(PlayerField<T> field, Predicate<T> filter,
+                                                           UnaryOperator<T> updater) {
+        return io.submit(() -> bulkOperations.updateWhere(field, filter, updater));
+    }
+
+    @Override
+    public <K, T extends Comparable<T>> CompletableFuture<List<LeaderboardEntry<T>>> getTopLinkedAsync(
+            LinkedField<K, T> field, int limit) {
+        return io.submit(() -> bulkOperations.getTopLinked(field, limit));
+    }
+
+    @Override
+    public <K, T> CompletableFuture<List<K>> queryLinkedAsync(LinkedField<K, T> field, Predicate<T> filter) {
+        return io.submit(() -> bulkOperations.queryLinked(field, filter));
+    }
+
     @Override
     public <T> void trackLeaderboard(PlayerField<T> field, ToDoubleFunction<T> scorer) {
         playerData.trackLeaderboard(field, scorer);
@@ -482,16 +897,41 @@ public class DataAPIImpl implements DataAPI {
         playerData.load(player);
     }
 
+    @Override
+    public CompletableFuture<Void> loadAsync(UUID player) {
+        return io.admit(() -> playerData.loadAsync(player, io));
+    }
+
     @Override
     public CompletableFuture<Void> loadAsync(UUID player, Executor executor) {
         return playerData.loadAsync(player, executor);
     }
 
+    @Override
+    public void loadAll(Collection<UUID> players) {
+        playerData.loadAll(players);
+    }
+
+    @Override
+    public CompletableFuture<Void> loadAllAsync(Collection<UUID> players) {
+        return io.admit(() -> playerData.loadAllAsync(players, io));
+    }
+
+    @Override
+    public CompletableFuture<Void> loadAllAsync(Collection<UUID> players, Executor executor) {
+        return playerData.loadAllAsync(players, executor);
+    }
+
     @Override
     public void flush(UUID player) {
         playerData.flush(player);
     }
 
+    @Override
+    public CompletableFuture<Void> flushAsync(UUID player) {
+        return io.admit(() -> playerData.flushAsync(player, io));
+    }
+
     @Override
     public CompletableFuture<Void> flushAsync(UUID player, Executor executor) {
         return playerData.flushAsync(player, executor);
@@ -502,11 +942,30 @@ public class DataAPIImpl implements DataAPI {
         playerData.unload(player);
     }
 
+    @Override
+    public CompletableFuture<Void> unloadAsync(UUID player) {
+        return io.admit(() -> playerData.unloadAsync(player, io));
+    }
+
     @Override
     public CompletableFuture<Void> unloadAsync(UUID player, Executor executor) {
         return playerData.unloadAsync(player, executor);
     }
 
+    @Override
+    public MemoryStats memoryStats(int topN) {
+        MemoryStatsCollector stats = new MemoryStatsCollector(topN);
+        playerData.collectMemory(stats);
+        linkedData.collectMemory(stats);
+        long eventState = eventBus instanceof DistributedEventBus distributed ? distributed.estimatedBytes() : 0L;
+        return stats.build(eventState);
+    }
+
+    @Override
+    public LockStats lockStats(int topN) {
+        return new LockStats(playerData.lockStats(topN), linkedData.lockStats(topN));
+    }
+
     @Override
     public boolean isLoaded(UUID player) {
         return playerData.isLoaded(player);
@@ -583,8 +1042,29 @@ public class DataAPIImpl implements DataAPI {
         // Every stage runs even if an earlier one fails, so one broken subsystem cannot leak the
         // threads and connections held by the rest.
         RuntimeException failure = null;
-        try { playerData.flushAll(); } catch (RuntimeException e) { failure = e; }
+        // Queued calls run first: they may still stage writes the flush below has to see.
+        try { playerMailboxes.shutdown(); } catch (RuntimeException e) { failure = e; }
+        try { linkedMailboxes.shutdown(); } catch (RuntimeException e) { failure = suppress(failure, e); }
+        if (mailboxPool != null) {
+            try { mailboxPool.shutdown(); } catch (RuntimeException e) { failure = suppress(failure, e); }
+        }
+        // Then whatever else was admitted to the I/O pool.
+        try { io.shutdown(); } catch (RuntimeException e) { failure = suppress(failure, e); }
+        if (scanPool != null) {
+            try { scanPool.shutdown(); } catch (RuntimeException e) { failure = suppress(failure, e); }
+        }
+        // Background writes stop next, so the final flush below is the last write and sees no race.
+        if (writeBehind != null) {
+            try { writeBehind.shutdown(); } catch (RuntimeException e) { failure = suppress(failure, e); }
+        }
+        // Eviction stops too; anything it would have flushed is flushed below instead.
+        try { playerData.shutdown(); } catch (RuntimeException e) { failure = suppress(failure, e); }
+        try { linkedData.shutdown(); } catch (RuntimeException e) { failure = suppress(failure, e); }
+        try { playerData.flushAll(); } catch (RuntimeException e) { failure = suppress(failure, e); }
         try { linkedData.flushAll(); } catch (RuntimeException e) { failure = suppress(failure, e); }
+        // What is cached and clean now is exactly what storage holds, so it can seed the next start.
+        try { playerData.writeSnapshot(); } catch (RuntimeException e) { failure = suppress(failure, e); }
+        try { linkedData.writeSnapshot(); } catch (RuntimeException e) { failure = suppress(failure, e); }
         try { expirationManager.shutdown(); } catch (RuntimeException e) { failure = suppress(failure, e); }
         if (eventBus instanceof DistributedEventBus deb) {
             try { deb.shutdown(); } catch (RuntimeException e) { failure = suppress(failure, e); }
@@ -598,6 +1078,15 @@ public class DataAPIImpl implements DataAPI {
         if (failure != null) throw failure;
     }
 
+    private static ExecutorService scanPool(int threads) {
+        AtomicInteger threadIds = new AtomicInteger();
+        return Executors.newFixedThreadPool(threads, r -> {
+            Thread t = new Thread(r, "DataHandler-Scan-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+    }
+
     private static RuntimeException suppress(RuntimeException first, RuntimeException next) {
         if (first == null) return next;
         first.addSuppressed(next);
@@ -1,13 +1,27 @@
 package net.swofty.api;
 
 import net.swofty.DataField;
+import net.swofty.DoublePlayerField;
+import net.swofty.IntPlayerField;
+import net.swofty.LongPlayerField;
+import net.swofty.codec.Codec;
+import net.swofty.codec.Codecs;
+import net.swofty.data.Bytes;
 import net.swofty.data.DataFormat;
 import net.swofty.data.DataReader;
+import net.swofty.storage.VersionedData;
 
+import java.lang.invoke.VarHandle;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.HashSet;
+import java.util.Iterator;
 import java.util.LinkedHashMap;
 import java.util.Map;
+import java.util.NoSuchElementException;
 import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.BiConsumer;
 
 /**
  * The live, in-memory view of one entity's data on this node.
@@ -18,10 +32,24 @@ import java.util.concurrent.ConcurrentHashMap;
  * {@link #serialize(DataFormat)}, merges the touched fields over it. This is what
  * makes a partial write safe: previously an untouched field would be silently
  * dropped the first time any other field was persisted.
+ *
+ * <p>The backing document is decoded at most once per version of it. Every field miss, every
+ * merge on persist and every remote patch works off that one shared tree, which is replaced
+ * wholesale rather than mutated, and is only thrown away when the document itself is.
+ *
+ * <p>With {@link DocumentSlabs} the backing document is kept off the heap instead, and nothing
+ * decoded from it is kept on it: a field miss or a merge decodes the document afresh from direct
+ * memory and drops the tree afterwards, and a change that would have advanced the tree is printed
+ * back into the off-heap bytes. That trades a parse per miss for not holding the document, or a
+ * tree of it, in the old generation for as long as the entity is cached.
  */
 class DataContainer {
     private final ConcurrentHashMap<String, Object> data = new ConcurrentHashMap<>();
 
+    // The codec of every key that has been in {@link #data}, for formats that store a field's codec
+    // output rather than its live value (see {@link DataFormat#encodeValue}).
+    private final ConcurrentHashMap<String, Codec<?>> codecs = new ConcurrentHashMap<>();
+
     // Fields explicitly cleared (set to null) this session. Suppressed from the merged
     // output so a null-set actually deletes a field that still exists in the backing document.
     private final Set<String> tombstones = ConcurrentHashMap.newKeySet();
@@ -31,25 +59,88 @@ class DataContainer {
     // over one; that distinction is what makes {@link #rebase} safe.
     private final Set<String> pendingWrites = ConcurrentHashMap.newKeySet();
 
-    // The full serialized document as last seen in storage (null = no stored document).
-    private volatile byte[] backingDocument;
+    // The full serialized document as last seen in storage (null = no stored document, unless the
+    // tree below is set: a field patch advances the tree and leaves no bytes behind).
+    private volatile Bytes backingDocument;
+
+    // The backing document decoded into its top-level fullKey -> value tree, or null while it has not
+    // been needed yet. When both are set the tree is the newer of the two: a remote patch or a
+    // persist advances the tree without printing it back into bytes nobody reads. Values for keys
+    // that are also in {@link #data} or {@link #tombstones} may be stale, since those never read it.
+    private volatile Map<String, Object> document;
     private volatile boolean documentLoaded;
     private volatile boolean dirty;
     private volatile long documentVersion;
+    // Where the backing document is kept off the heap; null keeps it in an ordinary array.
+    private final DocumentSlabs slabs;
+    // The off-heap block behind {@link #backingDocument}, given back once the document is replaced
+    // or the container released. Only touched under the entity's lock.
+    private DocumentSlabs.Block block;
+    // Cached halves of {@link #estimatedBytes}: the live fields' estimate, or -1 once any field was
+    // added, replaced or dropped since it was taken; and the decoded tree's, valid while the tree it
+    // was taken of is still the current one (a tree is replaced, never mutated).
+    private volatile long fieldBytes = -1;
+    private volatile Map<String, Object> sizedTree;
+    private volatile long treeBytes;
+    // Odd while a change to more than one field is being applied, and moved on by each, so a read
+    // without the entity's lock can tell it saw some of one (see {@link #peek}). Only written under
+    // the entity's lock; changeDepth lets those changes nest.
+    private volatile long changeStamp;
+    private int changeDepth;
+
+    DataContainer() {
+        this(null);
+    }
+
+    DataContainer(DocumentSlabs slabs) {
+        this.slabs = slabs;
+    }
 
     @SuppressWarnings("unchecked")
     public <T> T get(DataField<T> field) {
-        Object value = data.get(field.fullKey());
+        Object value = unwrap(data.get(field.fullKey()));
         return value == null ? field.defaultValue() : (T) value;
     }
 
+    /**
+     * The field's value as held, read without the entity's lock: boxed, or a primitive field's slot
+     * (see {@link #unwrap}, {@link #intValue}). Null when the field is not materialised yet, or
+     * when a change to several fields at once is in flight, and the caller has to take the lock.
+     *
+     * <p>A single field is replaced whole in {@link #data}, so any value found there is one the
+     * field really held. The stamp is what keeps a reader from seeing half of a change to several:
+     * without it, a reader could see one field a transaction committed and then another it has yet
+     * to, a combination no locked reader ever could.
+     */
+    Object peek(DataField<?> field) {
+        long stamp = changeStamp;
+        if ((stamp & 1) != 0) return null;
+        Object value = data.get(field.fullKey());
+        // Keeps the read above from moving below the check, as StampedLock#validate does.
+        VarHandle.acquireFence();
+        return changeStamp == stamp ? value : null;
+    }
+
+    /**
+     * Applies {@code change}, which changes several fields, so that {@link #peek} sees all of it or
+     * none of it. Call under the entity's lock.
+     */
+    void changeAtomically(Runnable change) {
+        if (changeDepth++ == 0) changeStamp++;
+        try {
+            change.run();
+        } finally {
+            if (--changeDepth == 0) changeStamp++;
+        }
+    }
+
     public <T> void set(DataField<T> field, T value) {
         store(field, value);
-        pendingWrites.add(field.fullKey());
-        dirty = true;
+        written(field.fullKey());
     }
 
     private <T> void store(DataField<T> field, T value) {
+        codecs.put(field.fullKey(), field.codec());
         if (value == null) {
             data.remove(field.fullKey());
             tombstones.add(field.fullKey());
@@ -57,6 +148,7 @@ class DataContainer {
             data.put(field.fullKey(), value);
             tombstones.remove(field.fullKey());
         }
+        fieldBytes = -1;
     }
 
     public boolean has(String fullKey) {
@@ -69,7 +161,16 @@ class DataContainer {
     public void loadDocument(DataFormat format, byte[] raw) { loadDocument(format, raw, 0L); }
 
     public void loadDocument(DataFormat format, byte[] raw, long version) {
-        this.backingDocument = raw;
+        loadDocument(Bytes.wrap(raw), version);
+    }
+
+    /** Takes the document as storage read it, keeping the storage's view rather than a copy. */
+    public void loadDocument(VersionedData stored) {
+        loadDocument(stored.bytes(), stored.version());
+    }
+
+    private void loadDocument(Bytes raw, long version) {
+        replaceDocument(raw);
         this.documentVersion = version;
         this.documentLoaded = true;
     }
@@ -85,16 +186,74 @@ class DataContainer {
     /** Lazily deserialises a single field out of the backing document into the live view. */
     public void ensureField(DataField<?> field, DataFormat format) {
         if (data.containsKey(field.fullKey()) || tombstones.contains(field.fullKey())) return;
-        if (backingDocument == null) return;
-        DataReader reader = format.createReader(backingDocument);
-        if (reader.hasKey(field.fullKey())) {
-            Object value = field.codec().read(reader.readSection(field.fullKey()));
-            if (value != null) {
-                data.put(field.fullKey(), value);
-            }
+        Map<String, Object> tree = document(format);
+        if (tree == null || !tree.containsKey(field.fullKey())) return;
+        DataReader reader = format.createDocumentReader(tree);
+        DataReader section = reader.readSection(field.fullKey());
+        Object value = field instanceof IntPlayerField primitive ? new IntSlot(primitive.codec().readInt(section))
+                : field instanceof LongPlayerField primitive ? new LongSlot(primitive.codec().readLong(section))
+                : field instanceof DoublePlayerField primitive ? new DoubleSlot(primitive.codec().readDouble(section))
+                : field.codec().read(section);
+        if (value != null) {
+            codecs.put(field.fullKey(), field.codec());
+            data.put(field.fullKey(), value);
+            fieldBytes = -1;
         }
     }
 
+    /**
+     * Decodes one field straight out of stored bytes, for a reader that must not keep a container
+     * for the entity afterwards. Mirrors {@link #ensureField} followed by {@link #get}.
+     */
+    static <T> T decodeField(DataFormat format, byte[] raw, DataField<T> field) {
+        if (raw == null) return field.defaultValue();
+        DataReader reader = format.createReader(raw);
+        if (!reader.hasKey(field.fullKey())) return field.defaultValue();
+        T value = field.codec().read(reader.readSection(field.fullKey()));
+        return value == null ? field.defaultValue() : value;
+    }
+
+    // Decodes the backing document on first use and keeps the tree for every later miss and merge,
+    // unless the document is off the heap, where the tree is decoded for each use and dropped.
+    private Map<String, Object> document(DataFormat format) {
+        Map<String, Object> tree = document;
+        if (tree == null && backingDocument != null) {
+            tree = format.readRaw(backingDocument);
+            if (slabs == null) document = tree;
+        }
+        return tree;
+    }
+
+    private void replaceDocument(Bytes raw) {
+        storeBacking(raw);
+        this.document = null;
+    }
+
+    // Keeps raw as the backing document, copied into a block of its own when off the heap; the
+    // block it replaces is given back only after the new document is in place.
+    private void storeBacking(Bytes raw) {
+        if (slabs == null) {
+            this.backingDocument = raw;
+            return;
+        }
+        DocumentSlabs.Block previous = block;
+        block = raw == null ? null : slabs.store(raw);
+        this.backingDocument = block == null ? null : block.bytes;
+        if (previous != null) slabs.free(previous);
+    }
+
+    /**
+     * Gives back the off-heap memory held for the document, once the container has left the cache.
+     * A container used after all the same reads its document from storage again instead of reading
+     * memory handed to another entity.
+     */
+    void release() {
+        if (slabs == null) return;
+        storeBacking(null);
+        this.document = null;
+        this.documentLoaded = false;
+    }
+
     /** Back-compat entry point: warm the document (if needed) then pull a single field out of it. */
     public void loadField(DataField<?> field, DataFormat format, byte[] raw) {
         if (!documentLoaded) loadDocument(format, raw);
@@ -112,13 +271,24 @@ class DataContainer {
     public void reload(byte[] raw) { reload(raw, 0L); }
 
     public void reload(byte[] raw, long version) {
-        data.clear();
-        tombstones.clear();
-        pendingWrites.clear();
-        this.backingDocument = raw;
-        this.documentVersion = version;
-        this.documentLoaded = true;
-        this.dirty = false;
+        reload(Bytes.wrap(raw), version);
+    }
+
+    public void reload(VersionedData stored) {
+        reload(stored.bytes(), stored.version());
+    }
+
+    private void reload(Bytes raw, long version) {
+        changeAtomically(() -> {
+            data.clear();
+            fieldBytes = -1;
+            tombstones.clear();
+            pendingWrites.clear();
+            replaceDocument(raw);
+            this.documentVersion = version;
+            this.documentLoaded = true;
+            this.dirty = false;
+        });
     }
 
     /**
@@ -131,24 +301,126 @@ class DataContainer {
      * it started from.
      */
     public void rebase(byte[] raw, long version) {
-        data.keySet().removeIf(key -> !pendingWrites.contains(key));
-        tombstones.retainAll(pendingWrites);
-        this.backingDocument = raw;
-        this.documentVersion = version;
-        this.documentLoaded = true;
+        rebase(Bytes.wrap(raw), version);
+    }
+
+    public void rebase(VersionedData stored) {
+        rebase(stored.bytes(), stored.version());
+    }
+
+    private void rebase(Bytes raw, long version) {
+        changeAtomically(() -> {
+            data.keySet().removeIf(key -> !pendingWrites.contains(key));
+            fieldBytes = -1;
+            tombstones.retainAll(pendingWrites);
+            replaceDocument(raw);
+            this.documentVersion = version;
+            this.documentLoaded = true;
+        });
     }
 
     /** Merges the touched fields over the backing document so nothing untouched is lost. */
     public byte[] serialize(DataFormat format) {
-        Map<String, Object> merged = new LinkedHashMap<>();
-        if (backingDocument != null) {
-            merged.putAll(format.readRaw(backingDocument));
+        return format.writeRaw(new Merged(format, document(format)));
+    }
+
+    /**
+     * The backing document with the live fields written over it, each in its place or after the
+     * rest if it is new, and the cleared ones left out. A view rather than a copy, so a persist
+     * hands the format the merged document without first building it as a map of its own.
+     */
+    private final class Merged extends AbstractMap<String, Object> {
+        private final DataFormat format;
+        private final Map<String, Object> tree;
+
+        Merged(DataFormat format, Map<String, Object> tree) {
+            this.format = format;
+            this.tree = tree == null ? Map.of() : tree;
+        }
+
+        @Override
+        public void forEach(BiConsumer<? super String, ? super Object> action) {
+            tree.forEach((key, value) -> {
+                if (tombstones.contains(key)) return;
+                Object live = data.get(key);
+                action.accept(key, live == null ? value : encode(format, key, live));
+            });
+            data.forEach((key, value) -> {
+                if (!tree.containsKey(key)) action.accept(key, encode(format, key, value));
+            });
         }
-        merged.putAll(data);
-        for (String tombstone : tombstones) {
-            merged.remove(tombstone);
+
+        @Override
+        public Set<Entry<String, Object>> entrySet() {
+            return new AbstractSet<>() {
+                @Override
+                public Iterator<Entry<String, Object>> iterator() {
+                    return new Iterator<>() {
+                        private final Iterator<Entry<String, Object>> stored = tree.entrySet().iterator();
+                        private final Iterator<Entry<String, Object>> live = data.entrySet().iterator();
+                        private Entry<String, Object> next = advance();
+
+                        private Entry<String, Object> advance() {
+                            while (stored.hasNext()) {
+                                Entry<String, Object> entry = stored.next();
+                                if (tombstones.contains(entry.getKey())) continue;
+                                Object value = data.get(entry.getKey());
+                                return value == null ? entry
+                                        : new SimpleImmutableEntry<>(entry.getKey(), encode(format, entry.getKey(), value));
+                            }
+                            while (live.hasNext()) {
+                                Entry<String, Object> entry = live.next();
+                                if (tree.containsKey(entry.getKey())) continue;
+                                return new SimpleImmutableEntry<>(entry.getKey(), encode(format, entry.getKey(), entry.getValue()));
+                            }
+                            return null;
+                        }
+
+                        @Override
+                        public boolean hasNext() {
+                            return next != null;
+                        }
+
+                        @Override
+                        public Entry<String, Object> next() {
+                            if (next == null) throw new NoSuchElementException();
+                            Entry<String, Object> current = next;
+                            next = advance();
+                            return current;
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    int size = 0;
+                    for (Iterator<Entry<String, Object>> it = iterator(); it.hasNext(); it.next()) size++;
+                    return size;
+                }
+            };
         }
-        return format.writeRaw(merged);
+    }
+
+    /** The fields a write has to change in the stored document, and the fields it has to delete. */
+    record Patch(Map<String, byte[]> changed, Set<String> removed) {}
+
+    /**
+     * The pending writes as a field-level patch: each written field encoded alone as a one-key
+     * document, each cleared one named for removal. Writing this over the stored document yields
+     * exactly what {@link #serialize(DataFormat)} would have written, without shipping the rest.
+     */
+    public Patch patch(DataFormat format) {
+        Map<String, byte[]> changed = new LinkedHashMap<>();
+        Set<String> removed = new HashSet<>();
+        for (String key : pendingWrites) {
+            Object value = data.get(key);
+            if (value == null) {
+                removed.add(key);
+            } else {
+                changed.put(key, format.writeRaw(Map.of(key, encode(format, key, value))));
+            }
+        }
+        return new Patch(changed, removed);
     }
 
     /**
@@ -165,30 +437,101 @@ class DataContainer {
         patchBackingDocument(field.fullKey(), value, format);
     }
 
-    // Stores the value exactly as serialize() would — the live object, written out by the
-    // format's whole-document writer — so the patched document round-trips like any other.
+    // Only the one value is encoded and decoded, exactly as serialize() would store it, so the
+    // patched tree holds what a parse of the rewritten document would have; the rest of the
+    // document is never parsed or printed for a single remote field.
     private void patchBackingDocument(String fullKey, Object value, DataFormat format) {
         if (!documentLoaded) return;
-        Map<String, Object> document = backingDocument == null
-                ? new LinkedHashMap<>()
-                : format.readRaw(backingDocument);
+        Map<String, Object> tree = document(format);
+        Map<String, Object> patched = tree == null ? new LinkedHashMap<>() : new LinkedHashMap<>(tree);
         if (value == null) {
-            document.remove(fullKey);
+            patched.remove(fullKey);
+        } else {
+            patched.putAll(decoded(format, Map.of(fullKey, value)));
+        }
+        if (slabs == null) {
+            this.document = patched;
         } else {
-            document.put(fullKey, value);
+            storeBacking(Bytes.wrap(format.writeRaw(patched)));
         }
-        this.backingDocument = format.writeRaw(document);
     }
 
-    /** Records the bytes just written to storage as the new backing document and clears the dirty flag. */
-    public void markPersisted(byte[] bytes, long version) {
-        this.backingDocument = bytes;
+    // The tree form of live values: what they read back as once written into a document.
+    private Map<String, Object> decoded(DataFormat format, Map<String, Object> values) {
+        Map<String, Object> encoded = new LinkedHashMap<>();
+        values.forEach((key, value) -> encoded.put(key, encode(format, key, value)));
+        return format.readRaw(format.writeRaw(encoded));
+    }
+
+    @SuppressWarnings("unchecked")
+    private Object encode(DataFormat format, String key, Object value) {
+        value = unwrap(value);
+        Codec<Object> codec = (Codec<Object>) codecs.get(key);
+        return codec == null ? value : format.encodeValue(codec, value);
+    }
+
+    /**
+     * Records the bytes just written to storage as the new backing document and clears the dirty flag.
+     *
+     * <p>A tree already decoded is carried forward instead of being dropped and parsed again from
+     * {@code bytes}: the written document is that tree with this node's pending writes applied, so
+     * only those values are decoded.
+     */
+    public void markPersisted(DataFormat format, byte[] bytes, long version) {
+        Map<String, Object> tree = document;
+        storeBacking(Bytes.wrap(bytes));
+        this.document = tree == null ? null : persistedTree(format, tree);
+        this.documentVersion = Math.max(documentVersion, version);
+        this.documentLoaded = true;
+        this.dirty = false;
+        pendingWrites.clear();
+    }
+
+    /**
+     * Records a successful {@link #patch} write. There are no new document bytes to keep, so the
+     * decoded tree becomes the record of what is stored, with the written fields applied to it.
+     * That costs one parse of the old bytes if nothing had decoded them yet, once per document.
+     * Off the heap the tree is printed into new bytes instead, since no tree is kept there.
+     */
+    public void markPatched(DataFormat format, long version) {
+        Map<String, Object> tree = document(format);
+        Map<String, Object> persisted = persistedTree(format, tree == null ? new LinkedHashMap<>() : tree);
+        if (slabs == null) {
+            this.document = persisted;
+            this.backingDocument = null;
+        } else {
+            storeBacking(Bytes.wrap(format.writeRaw(persisted)));
+        }
         this.documentVersion = Math.max(documentVersion, version);
         this.documentLoaded = true;
         this.dirty = false;
         pendingWrites.clear();
     }
 
+    private Map<String, Object> persistedTree(DataFormat format, Map<String, Object> tree) {
+        Map<String, Object> next = new LinkedHashMap<>(tree);
+        next.keySet().removeAll(tombstones);
+        Map<String, Object> written = new LinkedHashMap<>();
+        for (String key : pendingWrites) {
+            Object value = data.get(key);
+            if (value != null) written.put(key, value);
+        }
+        if (!written.isEmpty()) {
+            next.putAll(decoded(format, written));
+        }
+        return next;
+    }
+
+    /**
+     * What storage holds for this container, for a cache snapshot: the document as of
+     * {@link #documentVersion}. Null when there are unsaved writes, nothing was loaded, or the
+     * document has no version a later start could check it against.
+     */
+    VersionedData snapshot(DataFormat format) {
+        if (!documentLoaded || dirty || documentVersion == VersionedData.UNVERSIONED) return null;
+        return new VersionedData(Bytes.wrap(serialize(format)), documentVersion);
+    }
+
     /**
      * The version of the document this container last read or wrote in full. A remote field patch
      * deliberately does not advance it: the patch proves one field moved, not that this node holds
@@ -199,6 +542,178 @@ class DataContainer {
         return documentVersion;
     }
 
+    // ---- Heap accounting ----------------------------------------------------
+    //
+    // An estimate, taken without the entity's lock: a container being written to meanwhile is sized
+    // as it was at some point during the write. Each half is cached until what it sized changes, so
+    // weighing a container on every cache access costs a few volatile reads, and re-sizing after a
+    // write walks the live fields once, through each field's own Codec#estimateSize.
+
+    // The container and its four maps, empty.
+    private static final long CONTAINER_OVERHEAD = 256;
+    // A map entry and the reference to its key; the key string is sized on top.
+    private static final long ENTRY_OVERHEAD = 32;
+
+    /**
+     * Roughly what this container keeps on the heap: the stored document it holds on to, the tree
+     * decoded from it if one was needed, and the live fields.
+     */
+    long estimatedBytes() {
+        Bytes backing = backingDocument;
+        return CONTAINER_OVERHEAD + (backing == null ? 0 : backing.length()) + treeBytes() + fieldBytes();
+    }
+
+    /**
+     * Adds each live field's estimate to {@code totals} under its field's namespace. The stored
+     * document and its tree belong to no one field, so they are left out; {@link #estimatedBytes}
+     * still counts them.
+     */
+    void addNamespaceBytes(Map<String, Long> totals) {
+        data.forEach((key, value) -> {
+            int colon = key.indexOf(':');
+            String namespace = colon < 0 ? key : key.substring(0, colon);
+            totals.merge(namespace, fieldSize(key, value), Long::sum);
+        });
+    }
+
+    private long fieldBytes() {
+        long size = fieldBytes;
+        if (size < 0) {
+            size = 0;
+            for (Map.Entry<String, Object> entry : data.entrySet()) {
+                size += fieldSize(entry.getKey(), entry.getValue());
+            }
+            fieldBytes = size;
+        }
+        return size;
+    }
+
+    @SuppressWarnings("unchecked")
+    private long fieldSize(String key, Object value) {
+        Codec<Object> codec = (Codec<Object>) codecs.get(key);
+        Object unwrapped = unwrap(value);
+        return ENTRY_OVERHEAD + Codecs.estimateSize(key)
+                + (codec == null ? Codecs.estimateSize(unwrapped) : codec.estimateSize(unwrapped));
+    }
+
+    private long treeBytes() {
+        Map<String, Object> tree = document;
+        if (tree == null) return 0;
+        if (tree != sizedTree) {
+            treeBytes = Codecs.estimateSize(tree);
+            sizedTree = tree;
+        }
+        return treeBytes;
+    }
+
+    // ---- Primitive fields ---------------------------------------------------
+    //
+    // A primitive field lives in {@link #data} as a mutable slot rather than a boxed value, so
+    // counting on it changes the slot in place instead of allocating a new box per write. Slots are
+    // only mutated under the entity's lock, and every path that hands a value out of {@link #data}
+    // or encodes one goes through {@link #unwrap} first. A boxed set replaces the slot with the
+    // boxed value; the next primitive write puts a slot back.
+
+    private abstract static class Slot {
+        abstract Object boxed();
+    }
+
+    private static final class IntSlot extends Slot {
+        volatile int value;
+
+        IntSlot(int value) { this.value = value; }
+
+        @Override Object boxed() { return value; }
+    }
+
+    private static final class LongSlot extends Slot {
+        volatile long value;
+
+        LongSlot(long value) { this.value = value; }
+
+        @Override Object boxed() { return value; }
+    }
+
+    private static final class DoubleSlot extends Slot {
+        volatile double value;
+
+        DoubleSlot(double value) { this.value = value; }
+
+        @Override Object boxed() { return value; }
+    }
+
+    /** A value as held in {@link #rawData()}, boxed if it is a primitive field's slot. */
+    static Object unwrap(Object value) {
+        return value instanceof Slot slot ? slot.boxed() : value;
+    }
+
+    public int getInt(IntPlayerField field) {
+        return intValue(data.get(field.fullKey()), field);
+    }
+
+    /** A value as held, or null for none, read as an int field. */
+    static int intValue(Object value, IntPlayerField field) {
+        if (value instanceof IntSlot slot) return slot.value;
+        return value == null ? field.defaultInt() : ((Number) value).intValue();
+    }
+
+    public void setInt(IntPlayerField field, int value) {
+        if (data.get(field.fullKey()) instanceof IntSlot slot) {
+            slot.value = value;
+        } else {
+            storeSlot(field, new IntSlot(value));
+        }
+        written(field.fullKey());
+    }
+
+    public long getLong(LongPlayerField field) {
+        return longValue(data.get(field.fullKey()), field);
+    }
+
+    static long longValue(Object value, LongPlayerField field) {
+        if (value instanceof LongSlot slot) return slot.value;
+        return value == null ? field.defaultLong() : ((Number) value).longValue();
+    }
+
+    public void setLong(LongPlayerField field, long value) {
+        if (data.get(field.fullKey()) instanceof LongSlot slot) {
+            slot.value = value;
+        } else {
+            storeSlot(field, new LongSlot(value));
+        }
+        written(field.fullKey());
+    }
+
+    public double getDouble(DoublePlayerField field) {
+        return doubleValue(data.get(field.fullKey()), field);
+    }
+
+    static double doubleValue(Object value, DoublePlayerField field) {
+        if (value instanceof DoubleSlot slot) return slot.value;
+        return value == null ? field.defaultDouble() : ((Number) value).doubleValue();
+    }
+
+    public void setDouble(DoublePlayerField field, double value) {
+        if (data.get(field.fullKey()) instanceof DoubleSlot slot) {
+            slot.value = value;
+        } else {
+            storeSlot(field, new DoubleSlot(value));
+        }
+        written(field.fullKey());
+    }
+
+    private void storeSlot(DataField<?> field, Slot slot) {
+        codecs.put(field.fullKey(), field.codec());
+        data.put(field.fullKey(), slot);
+        tombstones.remove(field.fullKey());
+        fieldBytes = -1;
+    }
+
+    private void written(String fullKey) {
+        pendingWrites.add(fullKey);
+        dirty = true;
+    }
+
     ConcurrentHashMap<String, Object> rawData() {
         return data;
     }
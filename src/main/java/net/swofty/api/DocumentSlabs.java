@@ -0,0 +1,116 @@
+package net.swofty.api;
+
+import net.swofty.data.Bytes;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayDeque;
+
+/**
+ * Direct memory for the backing documents of cached containers, when {@link CacheOptions} keeps
+ * them off the heap.
+ *
+ * <p>Documents live as long as their player is online, which on the heap means old-generation
+ * arrays the collector keeps copying and scanning for nothing. Here they are copied into blocks
+ * carved out of 1 MB direct slabs instead, one power-of-two size class per free list, so a block
+ * freed by an unload or eviction is handed to the next document of its class rather than left for
+ * a collector that cannot free direct memory promptly. A document larger than a slab gets a direct
+ * buffer of its own, released by the collector once nothing refers to it.
+ *
+ * <p>Slabs are never returned: the pool stays at the most this node ever held at once. Rounding up
+ * to a power of two wastes at most half a block per document.
+ *
+ * <p>A block is only valid until it is freed, and the memory is reused straight away, so a view
+ * handed out by {@link #store} must not be read after {@link #free}. Containers guarantee that by
+ * doing both under the entity's lock.
+ *
+ * <p>Blocks are direct {@link ByteBuffer}s rather than {@code MemorySegment}s: the JDK 21 this
+ * library builds on has the foreign memory API only as a preview, final from JDK 22, and slicing
+ * pooled slabs needs nothing a buffer cannot do.
+ */
+final class DocumentSlabs {
+    private static final int MIN_SHIFT = 8;   // 256-byte blocks
+    private static final int SLAB_SHIFT = 20; // 1 MB slabs, and the largest pooled block
+    private static final int SLAB_SIZE = 1 << SLAB_SHIFT;
+
+    private final SizeClass[] classes = new SizeClass[SLAB_SHIFT - MIN_SHIFT + 1];
+
+    DocumentSlabs() {
+        for (int i = 0; i < classes.length; i++) {
+            classes[i] = new SizeClass(1 << (MIN_SHIFT + i));
+        }
+    }
+
+    /** A stored document: the read-only view of it, and the block to give back for it. */
+    static final class Block {
+        final Bytes bytes;
+        private final ByteBuffer memory;
+        private final SizeClass owner;
+
+        private Block(Bytes bytes, ByteBuffer memory, SizeClass owner) {
+            this.bytes = bytes;
+            this.memory = memory;
+            this.owner = owner;
+        }
+    }
+
+    /** Copies {@code document} into a block of its own. */
+    Block store(Bytes document) {
+        int length = document.length();
+        SizeClass owner = length > SLAB_SIZE ? null : classes[classIndex(length)];
+        ByteBuffer memory = owner == null ? ByteBuffer.allocateDirect(length) : owner.take();
+        ByteBuffer target = memory.duplicate().clear();
+        if (document.hasArray()) {
+            target.put(document.unsafeArray(), document.offset(), length);
+        } else {
+            target.put(document.asByteBuffer());
+        }
+        target.flip();
+        return new Block(Bytes.wrap(target), memory, owner);
+    }
+
+    /** Gives the block back for the next document of its size. Its view must not be read again. */
+    void free(Block block) {
+        if (block.owner != null) block.owner.give(block.memory);
+    }
+
+    /** Direct memory reserved by the slabs, in use or free. */
+    long reservedBytes() {
+        long reserved = 0;
+        for (SizeClass sizeClass : classes) reserved += sizeClass.reservedBytes();
+        return reserved;
+    }
+
+    private static int classIndex(int length) {
+        int shift = length <= 1 << MIN_SHIFT ? MIN_SHIFT : 32 - Integer.numberOfLeadingZeros(length - 1);
+        return shift - MIN_SHIFT;
+    }
+
+    private static final class SizeClass {
+        private final int blockSize;
+        private final ArrayDeque<ByteBuffer> free = new ArrayDeque<>();
+        private long slabs;
+
+        SizeClass(int blockSize) {
+            this.blockSize = blockSize;
+        }
+
+        synchronized ByteBuffer take() {
+            if (free.isEmpty()) {
+                ByteBuffer slab = ByteBuffer.allocateDirect(SLAB_SIZE);
+                slabs++;
+                for (int at = 0; at < SLAB_SIZE; at += blockSize) {
+                    free.add(slab.slice(at, blockSize));
+                }
+            }
+            return free.poll();
+        }
+
+        synchronized void give(ByteBuffer block) {
+            free.push(block);
+        }
+
+        synchronized long reservedBytes() {
+            return slabs * SLAB_SIZE;
+        }
+    }
+}
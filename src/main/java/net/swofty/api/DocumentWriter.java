@@ -27,10 +27,14 @@ import java.util.concurrent.ThreadLocalRandom;
  * some other writer committed and a retry that follows the winner does land. What the budget is
  * really there for is the case where retrying cannot work at all: reads and writes disagreeing
  * about what is stored, the way a failover to a lagging replica looks, where the reread returns a
- * version the write then rejects forever. Spinning on that holds the entity's monitor and, from
+ * version the write then rejects forever. Spinning on that holds the entity's lock and, from
  * inside a transaction, the distributed lock. So it gives up loudly with
  * {@link WriteConflictException} instead — the write did not happen, and nothing was forced over
  * whatever is stored to hide that.
+ *
+ * <p>On a backend that stores fields individually the write is a patch of just the fields this node
+ * changed, under the same comparison, so one coin update on a large document no longer ships the
+ * whole document. Everywhere else it is the full merged document.
  */
 final class DocumentWriter {
     private static final System.Logger LOGGER = System.getLogger(DocumentWriter.class.getName());
@@ -49,11 +53,12 @@ final class DocumentWriter {
                             DataContainer container, Duration retryBudget) {
         long startedAt = System.nanoTime();
         long deadline = startedAt + retryBudget.toNanos();
+        boolean patches = storage.supportsFieldPatches();
         for (int conflicts = 0; ; conflicts++) {
-            byte[] bytes = container.serialize(format);
-            SaveResult result = storage.saveIfVersion(type, id, bytes, container.documentVersion());
+            SaveResult result = patches
+                    ? writePatch(storage, format, type, id, container)
+                    : writeDocument(storage, format, type, id, container);
             if (!result.conflict()) {
-                container.markPersisted(bytes, result.version());
                 return result;
             }
             if (System.nanoTime() >= deadline) {
@@ -67,8 +72,29 @@ final class DocumentWriter {
             backOff(conflicts);
             // Reread last, so the document this node rebases onto is as fresh as the backoff allows.
             VersionedData fresh = storage.loadVersioned(type, id);
-            container.rebase(fresh.data(), fresh.version());
+            container.rebase(fresh);
+        }
+    }
+
+    private static SaveResult writeDocument(DataStorage storage, DataFormat format, String type, String id,
+                                            DataContainer container) {
+        byte[] bytes = container.serialize(format);
+        SaveResult result = storage.saveIfVersion(type, id, bytes, container.documentVersion());
+        if (!result.conflict()) {
+            container.markPersisted(format, bytes, result.version());
+        }
+        return result;
+    }
+
+    private static SaveResult writePatch(DataStorage storage, DataFormat format, String type, String id,
+                                         DataContainer container) {
+        DataContainer.Patch patch = container.patch(format);
+        SaveResult result = storage.savePatchIfVersion(type, id, patch.changed(), patch.removed(),
+                container.documentVersion());
+        if (!result.conflict()) {
+            container.markPatched(format, result.version());
         }
+        return result;
     }
 
     // Two nodes writing the same document in a loop spend most of each attempt serialising, so they
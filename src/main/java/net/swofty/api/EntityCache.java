@@ -0,0 +1,419 @@
+package net.swofty.api;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.BiConsumer;
+
+/**
+ * The containers a manager holds, keyed by entity, and, when {@link CacheOptions} bound it, the
+ * policy deciding which of them to give up.
+ *
+ * <p>The policy is W-TinyLFU. A new entry starts in a small window (1% of the bound) ordered by
+ * recency; what falls out of the window competes for a place in the main region against the main
+ * region's least recently used entry, and whichever of the two a {@link FrequencySketch} says was
+ * used less often is the one evicted. The main region is split into probation and a protected part
+ * (80% of it) for entries used again after they got in, so an entity in steady use is not pushed
+ * out by a scan that touches thousands of others exactly once.
+ *
+ * <p>Reads and writes of the map never wait for the policy. Recording a use takes the policy lock
+ * only if it is free; under contention the use is dropped, which costs the policy some accuracy and
+ * nothing else. Adding an entry always records it. Evicting is left to a background thread,
+ * because taking a victim's lock from a thread that already holds another entity's lock
+ * could deadlock against a thread doing the reverse; the thread holds no other lock while it
+ * waits for one. The manager decides under that lock whether the victim can go, see
+ * {@link Eviction}.
+ */
+final class EntityCache<K> {
+    private static final System.Logger LOGGER = System.getLogger(EntityCache.class.getName());
+
+    /** Gives up one cached entity. */
+    @FunctionalInterface
+    interface Eviction<K> {
+        /**
+         * Flushes the entity if it is dirty and removes it with {@link #evicted}, under its lock.
+         * Returns false to keep it, for an entity that cannot go right now (a load or group commit
+         * in flight, a flush that failed); the policy then treats it as just used.
+         */
+        boolean tryEvict(K key);
+    }
+
+    private final ConcurrentHashMap<K, DataContainer> map = new ConcurrentHashMap<>();
+    private final CacheOptions options;
+    // Null when unbounded: nothing is tracked and nothing is evicted.
+    private final Policy<K> policy;
+    private final Eviction<K> eviction;
+    private final ExecutorService evictor;
+    // Where containers keep their documents off the heap; null keeps them on it.
+    private final DocumentSlabs slabs;
+    private final AtomicBoolean drainScheduled = new AtomicBoolean();
+    private final ReentrantLock drainLock = new ReentrantLock();
+
+    EntityCache(CacheOptions options, String name, Eviction<K> eviction) {
+        this.options = options;
+        this.eviction = eviction;
+        this.slabs = options.offHeapDocuments() ? new DocumentSlabs() : null;
+        if (options.bounded()) {
+            this.policy = new Policy<>(options);
+            this.evictor = Executors.newSingleThreadExecutor(r -> {
+                Thread t = new Thread(r, "DataHandler-Evictor-" + name);
+                t.setDaemon(true);
+                return t;
+            });
+        } else {
+            this.policy = null;
+            this.evictor = null;
+        }
+    }
+
+    DataContainer get(K key) {
+        return map.get(key);
+    }
+
+    /** The entity's container if it is cached, recorded as used; never creates one. */
+    DataContainer peek(K key) {
+        DataContainer container = map.get(key);
+        if (container != null && policy != null) {
+            policy.recordAccess(key, weigh(container));
+            if (policy.overBudget()) scheduleDrain();
+        }
+        return container;
+    }
+
+    /** The entity's container, created if absent, recorded as used. */
+    DataContainer getOrCreate(K key) {
+        DataContainer container = map.get(key);
+        if (container == null) {
+            container = map.computeIfAbsent(key, k -> new DataContainer(slabs));
+        }
+        if (policy != null) {
+            policy.recordAccess(key, weigh(container));
+            if (policy.overBudget()) scheduleDrain();
+        }
+        return container;
+    }
+
+    /**
+     * Weighs the entity again after its container grew by a whole document, so a byte bound sees a
+     * load straight away rather than on the entity's next use. Smaller changes, a field written or
+     * decoded, are picked up on that next use.
+     */
+    void reweigh(K key, DataContainer container) {
+        if (policy == null || options.maxBytes() == Long.MAX_VALUE || map.get(key) != container) return;
+        policy.reweigh(key, container.estimatedBytes());
+        if (policy.overBudget()) scheduleDrain();
+    }
+
+    boolean containsKey(K key) {
+        return map.containsKey(key);
+    }
+
+    Set<K> keySet() {
+        return map.keySet();
+    }
+
+    int size() {
+        return map.size();
+    }
+
+    /** Direct memory reserved for off-heap documents, or 0 when they are kept on the heap. */
+    long offHeapReservedBytes() {
+        return slabs == null ? 0 : slabs.reservedBytes();
+    }
+
+    void forEach(BiConsumer<K, DataContainer> action) {
+        map.forEach(action);
+    }
+
+    /**
+     * Drops an entity that was unloaded, evicted or deleted outside the policy. Call under the
+     * entity's lock: the container's off-heap document is given back here.
+     */
+    void remove(K key) {
+        DataContainer removed = map.remove(key);
+        if (removed != null) removed.release();
+        if (policy != null) policy.remove(key);
+    }
+
+    /**
+     * Removes a victim {@link Eviction#tryEvict} decided to give up, unless it was used again after
+     * the policy chose it, in which case it stays. Call under the entity's lock. Returns whether
+     * it was removed.
+     */
+    boolean evicted(K key, DataContainer container) {
+        if (policy != null && policy.isTracked(key)) return false;
+        if (!map.remove(key, container)) return false;
+        container.release();
+        return true;
+    }
+
+    /** Whether the entity was used again since the policy chose it for eviction. */
+    boolean isTracked(K key) {
+        return policy != null && policy.isTracked(key);
+    }
+
+    private long weigh(DataContainer container) {
+        return options.maxBytes() == Long.MAX_VALUE ? 0L : container.estimatedBytes();
+    }
+
+    private void scheduleDrain() {
+        if (!drainScheduled.compareAndSet(false, true)) return;
+        try {
+            evictor.execute(() -> {
+                drainScheduled.set(false);
+                cleanUp();
+            });
+        } catch (RuntimeException rejected) {
+            // Shut down; whatever is cached now stays until the node stops.
+            drainScheduled.set(false);
+        }
+    }
+
+    /**
+     * Evicts until the cache is back within its bound, on the calling thread, which must not hold
+     * any entity's lock. The background thread calls this; tests call it to evict deterministically.
+     */
+    void cleanUp() {
+        if (policy == null) return;
+        drainLock.lock();
+        try {
+            // Every entry gets at most one chance per drain, so a cache full of entities that cannot
+            // go right now ends the drain instead of spinning on them.
+            int attempts = policy.size() + 1;
+            while (attempts-- > 0) {
+                K victim = policy.nextVictim();
+                if (victim == null) return;
+                DataContainer container = map.get(victim);
+                if (container == null) continue;
+                boolean gone;
+                try {
+                    gone = eviction.tryEvict(victim);
+                } catch (RuntimeException e) {
+                    LOGGER.log(System.Logger.Level.WARNING, "Could not evict " + victim + "; keeping it cached", e);
+                    gone = false;
+                }
+                if (!gone && map.containsKey(victim)) {
+                    policy.recordAccess(victim, weigh(container));
+                }
+            }
+        } finally {
+            drainLock.unlock();
+        }
+    }
+
+    // Not shutdownNow: interrupting a drain could interrupt the flush of the entity it is evicting.
+    // A drain still running finishes under the same locks the final flush takes, so the two
+    // cannot interleave on one entity.
+    void shutdown() {
+        if (evictor != null) evictor.shutdown();
+    }
+
+    /** The W-TinyLFU bookkeeping. Every method takes the policy lock. */
+    private static final class Policy<K> {
+        private static final int WINDOW = 0, PROBATION = 1, PROTECTED = 2;
+
+        private final ReentrantLock lock = new ReentrantLock();
+        // Read without the lock to decide whether a use has to be recorded for sure.
+        private final ConcurrentHashMap<K, Node<K>> nodes = new ConcurrentHashMap<>();
+        private final Region<K> window = new Region<>();
+        private final Region<K> probation = new Region<>();
+        private final Region<K> protectedRegion = new Region<>();
+        private final FrequencySketch sketch;
+        private final long maxEntries;
+        private final long maxBytes;
+        // Region sizes, in bytes when the bound is in bytes and in entries otherwise.
+        private final long windowMax;
+        private final long protectedMax;
+        private long totalBytes;
+
+        Policy(CacheOptions options) {
+            this.maxEntries = options.maxEntries();
+            this.maxBytes = options.maxBytes();
+            long bound = maxBytes != Long.MAX_VALUE ? maxBytes : maxEntries;
+            this.windowMax = Math.max(1, bound / 100);
+            this.protectedMax = (bound - windowMax) / 10 * 8;
+            this.sketch = new FrequencySketch(maxEntries != Long.MAX_VALUE ? maxEntries : maxBytes / 4096);
+        }
+
+        private long measure(Node<K> node) {
+            return maxBytes != Long.MAX_VALUE ? node.weight : 1;
+        }
+
+        void recordAccess(K key, long weight) {
+            if (!lock.tryLock()) {
+                // A use of an entry the policy already tracks can be dropped; a new one cannot.
+                if (nodes.containsKey(key)) return;
+                lock.lock();
+            }
+            try {
+                sketch.increment(key);
+                Node<K> node = nodes.get(key);
+                if (node == null) {
+                    node = new Node<>(key);
+                    nodes.put(key, node);
+                    node.weight = weight;
+                    totalBytes += weight;
+                    add(window, WINDOW, node);
+                    overflowWindow();
+                    return;
+                }
+                reweigh(node, weight);
+                switch (node.region) {
+                    case WINDOW -> window.moveToTail(node);
+                    case PROBATION -> {
+                        probation.remove(node, measure(node));
+                        add(protectedRegion, PROTECTED, node);
+                        while (protectedRegion.measure > protectedMax && protectedRegion.head != node) {
+                            Node<K> demoted = protectedRegion.head;
+                            protectedRegion.remove(demoted, measure(demoted));
+                            add(probation, PROBATION, demoted);
+                        }
+                    }
+                    default -> protectedRegion.moveToTail(node);
+                }
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void reweigh(K key, long weight) {
+            lock.lock();
+            try {
+                Node<K> node = nodes.get(key);
+                if (node != null) reweigh(node, weight);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void reweigh(Node<K> node, long weight) {
+            if (weight == node.weight) return;
+            Region<K> region = region(node);
+            region.measure -= measure(node);
+            totalBytes += weight - node.weight;
+            node.weight = weight;
+            region.measure += measure(node);
+        }
+
+        // What no longer fits in the window moves on to probation, where it competes for a place.
+        private void overflowWindow() {
+            while (window.measure > windowMax && window.head != window.tail) {
+                Node<K> moved = window.head;
+                window.remove(moved, measure(moved));
+                add(probation, PROBATION, moved);
+            }
+        }
+
+        boolean overBudget() {
+            return nodes.size() > maxEntries || totalBytes > maxBytes;
+        }
+
+        /**
+         * Picks and stops tracking the next entry to evict, or returns null when the cache is
+         * within its bound. The newest arrival in probation is weighed against its oldest entry and
+         * the one used less often loses; a tie goes against the newcomer.
+         */
+        K nextVictim() {
+            lock.lock();
+            try {
+                if (!overBudget()) return null;
+                Node<K> victim = probation.head;
+                Node<K> candidate = probation.tail;
+                Node<K> evict;
+                if (victim == null) {
+                    evict = protectedRegion.head != null ? protectedRegion.head : window.head;
+                } else if (candidate == victim) {
+                    evict = victim;
+                } else {
+                    evict = sketch.frequency(candidate.key) > sketch.frequency(victim.key) ? victim : candidate;
+                }
+                if (evict == null) return null;
+                untrack(evict);
+                return evict.key;
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        void remove(K key) {
+            lock.lock();
+            try {
+                Node<K> node = nodes.get(key);
+                if (node != null) untrack(node);
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        boolean isTracked(K key) {
+            return nodes.containsKey(key);
+        }
+
+        int size() {
+            return nodes.size();
+        }
+
+        private void untrack(Node<K> node) {
+            region(node).remove(node, measure(node));
+            nodes.remove(node.key, node);
+            totalBytes -= node.weight;
+        }
+
+        private void add(Region<K> region, int id, Node<K> node) {
+            node.region = id;
+            region.addTail(node, measure(node));
+        }
+
+        private Region<K> region(Node<K> node) {
+            return switch (node.region) {
+                case WINDOW -> window;
+                case PROBATION -> probation;
+                default -> protectedRegion;
+            };
+        }
+    }
+
+    private static final class Node<K> {
+        final K key;
+        long weight;
+        int region;
+        Node<K> prev;
+        Node<K> next;
+
+        Node(K key) {
+            this.key = key;
+        }
+    }
+
+    /** An intrusive list, least recently used at the head. */
+    private static final class Region<K> {
+        Node<K> head;
+        Node<K> tail;
+        long measure;
+
+        void addTail(Node<K> node, long size) {
+            node.prev = tail;
+            node.next = null;
+            if (tail == null) head = node; else tail.next = node;
+            tail = node;
+            measure += size;
+        }
+
+        void remove(Node<K> node, long size) {
+            if (node.prev == null) head = node.next; else node.prev.next = node.next;
+            if (node.next == null) tail = node.prev; else node.next.prev = node.prev;
+            node.prev = null;
+            node.next = null;
+            measure -= size;
+        }
+
+        void moveToTail(Node<K> node) {
+            if (tail == node) return;
+            remove(node, 0);
+            addTail(node, 0);
+        }
+    }
+}
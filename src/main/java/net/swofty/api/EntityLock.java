@@ -0,0 +1,92 @@
+package net.swofty.api;
+
+import net.swofty.lock.LockAcquisitionException;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * One of the locks {@link EntityLocks} hands out. It is a {@link ReentrantLock} rather than a
+ * monitor because it is held across storage round trips, retry backoff included: a virtual thread
+ * blocked on a monitor, or sleeping inside one, pins its carrier for the whole time, so a few slow
+ * writes would leave a virtual-thread-per-request server with no carriers to run anything else. A
+ * thread waiting for this one, or holding it while it waits on I/O, parks and frees its carrier.
+ *
+ * <p>{@link EntityLocks#acquire} returns the lock held, and closing it releases it, so a critical
+ * section reads {@code try (EntityLock ignored = ...acquire(key)) { ... }}. It is reentrant, as the
+ * monitors it replaces were.
+ */
+final class EntityLock implements AutoCloseable {
+    private static final AtomicLongFieldUpdater<EntityLock> CONTENDED =
+            AtomicLongFieldUpdater.newUpdater(EntityLock.class, "contended");
+    private static final AtomicLongFieldUpdater<EntityLock> WAITED_NANOS =
+            AtomicLongFieldUpdater.newUpdater(EntityLock.class, "waitedNanos");
+
+    private final ReentrantLock lock = new ReentrantLock();
+    // How long acquire waits; negative waits for as long as it takes.
+    private final long timeoutNanos;
+    // Set for a dedicated lock: who hands it out, which entity it is for, and how many acquisitions
+    // of it are open, holders and waiters alike. references is only touched inside the owner's map.
+    final EntityLocks owner;
+    final Object key;
+    int references;
+    // Acquisitions that had to wait, and for how long together. Counted off the fast path only.
+    private volatile long contended;
+    private volatile long waitedNanos;
+
+    EntityLock(long timeoutNanos) {
+        this(timeoutNanos, null, null);
+    }
+
+    EntityLock(long timeoutNanos, EntityLocks owner, Object key) {
+        this.timeoutNanos = timeoutNanos;
+        this.owner = owner;
+        this.key = key;
+    }
+
+    /**
+     * Takes the lock for {@code key}, which only names it in the failure.
+     *
+     * @throws LockAcquisitionException when the wait times out or the thread is interrupted while
+     *                                  waiting; the interrupt status is kept
+     */
+    EntityLock acquire(Object key) {
+        if (lock.tryLock()) return this;
+        CONTENDED.incrementAndGet(this);
+        long start = System.nanoTime();
+        try {
+            if (timeoutNanos < 0) {
+                lock.lockInterruptibly();
+                return this;
+            }
+            if (lock.tryLock(timeoutNanos, TimeUnit.NANOSECONDS)) return this;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new LockAcquisitionException("Interrupted while waiting for the lock on " + key);
+        } finally {
+            WAITED_NANOS.addAndGet(this, System.nanoTime() - start);
+        }
+        throw new LockAcquisitionException("Timed out after " + Duration.ofNanos(timeoutNanos)
+                + " waiting for the lock on " + key);
+    }
+
+    boolean isHeldByCurrentThread() {
+        return lock.isHeldByCurrentThread();
+    }
+
+    long contended() {
+        return contended;
+    }
+
+    long waitedNanos() {
+        return waitedNanos;
+    }
+
+    @Override
+    public void close() {
+        lock.unlock();
+        if (owner != null) owner.release(this);
+    }
+}
@@ -1,28 +1,136 @@
 package net.swofty.api;
 
+import net.swofty.LockStats;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
 /**
- * The monitors entities are locked on, one fixed stripe per hash bucket.
+ * The locks entities are locked on, one fixed stripe per hash bucket.
+ *
+ * <p>A lock per entity in a map would either grow without bound or have to be evicted, and
+ * evicting a lock is a correctness bug: a thread that read the lock just before it was removed
+ * ends up excluding nobody, because the next thread creates a fresh one. Stripes sidestep that
+ * entirely — the identity of the lock for a key never changes — at the cost of two unrelated
+ * entities occasionally sharing one.
  *
- * <p>A monitor per entity in a map would either grow without bound or have to be evicted, and
- * evicting a monitor is a correctness bug: a thread that read the monitor just before it was
- * removed ends up excluding nobody, because the next thread creates a fresh one. Stripes sidestep
- * that entirely — the identity of the monitor for a key never changes — at the cost of two
- * unrelated entities occasionally sharing one.
+ * <p>With {@link LockOptions#dedicatedLocks()} each entity gets its own lock instead, counted by
+ * reference: every acquisition, holder or waiter, holds one from before it reads the lock until it
+ * closes it, and the lock leaves the map only with the last. So no thread ever holds a lock that
+ * is no longer the entity's, and an entity nobody is locking costs nothing.
  */
 final class EntityLocks {
-    private static final int STRIPES = 512;
-
-    private final Object[] monitors = new Object[STRIPES];
+    private final long timeoutNanos;
+    // Exactly one of the two is set.
+    private final EntityLock[] stripes;
+    private final ConcurrentHashMap<Object, EntityLock> dedicated;
+    // What dedicated locks that have since left the map counted.
+    private final LongAdder retiredContended = new LongAdder();
+    private final LongAdder retiredWaitedNanos = new LongAdder();
 
     EntityLocks() {
-        for (int i = 0; i < STRIPES; i++) {
-            monitors[i] = new Object();
+        this(LockOptions.DEFAULT);
+    }
+
+    EntityLocks(LockOptions options) {
+        this.timeoutNanos = options.acquireTimeout() == null ? -1 : options.acquireTimeout().toNanos();
+        if (options.dedicatedLocks()) {
+            this.stripes = null;
+            this.dedicated = new ConcurrentHashMap<>();
+        } else {
+            int count = Integer.highestOneBit(options.stripes());
+            if (count < options.stripes()) count <<= 1;
+            this.stripes = new EntityLock[count];
+            for (int i = 0; i < count; i++) {
+                stripes[i] = new EntityLock(timeoutNanos);
+            }
+            this.dedicated = null;
+        }
+    }
+
+    /**
+     * The stripe {@code key} is always taken on. Dedicated locks have no such fixed lock, since one
+     * exists only while something holds or waits for it, so this is refused for them; take the lock
+     * with {@link #acquire}, or look at it with {@link #live}.
+     */
+    EntityLock forKey(Object key) {
+        if (dedicated != null) {
+            throw new IllegalStateException("Dedicated entity locks have no fixed lock per key; acquire it instead");
+        }
+        return stripes[stripe(key)];
+    }
+
+    /**
+     * The lock {@code key} would be taken on right now, without taking or referencing it: its
+     * stripe, or its dedicated lock while anything holds or waits for it and null otherwise. For
+     * diagnostics only, since a dedicated lock seen here may be dropped at once.
+     */
+    EntityLock live(Object key) {
+        return dedicated != null ? dedicated.get(key) : stripes[stripe(key)];
+    }
+
+    /** The key's lock, taken as {@link EntityLock#acquire} takes it. */
+    EntityLock acquire(Object key) {
+        if (dedicated == null) return stripes[stripe(key)].acquire(key);
+        EntityLock lock = dedicated.compute(key, (k, current) -> {
+            EntityLock referenced = current != null ? current : new EntityLock(timeoutNanos, this, k);
+            referenced.references++;
+            return referenced;
+        });
+        try {
+            return lock.acquire(key);
+        } catch (RuntimeException | Error e) {
+            release(lock);
+            throw e;
         }
     }
 
-    Object forKey(Object key) {
+    // Drops one reference to a dedicated lock, and the lock itself with the last one.
+    void release(EntityLock lock) {
+        dedicated.computeIfPresent(lock.key, (k, current) -> {
+            if (current != lock || --current.references > 0) return current;
+            retiredContended.add(current.contended());
+            retiredWaitedNanos.add(current.waitedNanos());
+            return null;
+        });
+    }
+
+    private int stripe(Object key) {
         int hash = key.hashCode();
         hash ^= hash >>> 16;
-        return monitors[hash & (STRIPES - 1)];
+        return hash & (stripes.length - 1);
+    }
+
+    /** Contention so far, with the {@code topN} stripes waited on longest. */
+    LockStats.Locks stats(int topN) {
+        if (dedicated != null) {
+            long contended = retiredContended.sum();
+            long waitedNanos = retiredWaitedNanos.sum();
+            int live = 0;
+            for (EntityLock lock : dedicated.values()) {
+                contended += lock.contended();
+                waitedNanos += lock.waitedNanos();
+                live++;
+            }
+            return new LockStats.Locks(0, live, contended, Duration.ofNanos(waitedNanos), List.of());
+        }
+        long contended = 0;
+        long waitedNanos = 0;
+        List<LockStats.Stripe> waitedOn = new ArrayList<>();
+        for (int i = 0; i < stripes.length; i++) {
+            long stripeContended = stripes[i].contended();
+            if (stripeContended == 0) continue;
+            long stripeWaited = stripes[i].waitedNanos();
+            contended += stripeContended;
+            waitedNanos += stripeWaited;
+            waitedOn.add(new LockStats.Stripe(i, stripeContended, Duration.ofNanos(stripeWaited)));
+        }
+        waitedOn.sort(Comparator.comparing(LockStats.Stripe::waited).reversed());
+        List<LockStats.Stripe> hottest = List.copyOf(waitedOn.subList(0, Math.min(Math.max(topN, 0), waitedOn.size())));
+        return new LockStats.Locks(stripes.length, 0, contended, Duration.ofNanos(waitedNanos), hottest);
     }
 }
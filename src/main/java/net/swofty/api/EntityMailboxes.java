@@ -0,0 +1,199 @@
+package net.swofty.api;
+
+import net.swofty.storage.SaveResult;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * One serial mailbox per entity with calls queued, run on a shared executor; see
+ * {@link MailboxOptions}.
+ *
+ * <p>A mailbox is created by the call that finds none, which also starts its only runner, and is
+ * removed by that runner once it finds the queue empty. Queueing onto a mailbox and removing it
+ * both happen inside the map's compute for the key, so a call can never land on a mailbox that has
+ * already been given up: it either joins the running one or starts the next.
+ *
+ * <p>A run applies its calls under the entity's lock, then writes whatever they staged once and
+ * fires their change events, coalesced per field as a group commit does, at that write's version.
+ * A call that throws fails alone and stages nothing. A write that fails fails every call of the
+ * run, since the reads among them saw what it was writing.
+ */
+@SuppressWarnings("try")
+final class EntityMailboxes<K> {
+    private static final System.Logger LOGGER = System.getLogger(EntityMailboxes.class.getName());
+    private static final long SHUTDOWN_WAIT_SECONDS = 10;
+
+    /** One queued call's work: runs under the entity's lock, adding any change it stages. */
+    @FunctionalInterface
+    interface Step<R> {
+        R run(FieldChanges changes);
+    }
+
+    private static final class Call<R> {
+        final Step<R> step;
+        final CompletableFuture<R> result = new CompletableFuture<>();
+        // Set inside the map's compute: whether this call created its mailbox and so starts it.
+        boolean opened;
+        R value;
+        Throwable failure;
+
+        Call(Step<R> step) {
+            this.step = step;
+        }
+
+        void apply(FieldChanges changes) {
+            try {
+                value = step.run(changes);
+            } catch (RuntimeException | Error e) {
+                failure = e;
+            }
+        }
+
+        void complete() {
+            if (failure != null) {
+                result.completeExceptionally(failure);
+            } else {
+                result.complete(value);
+            }
+        }
+    }
+
+    private final class Mailbox implements IoExecutor.Droppable {
+        final K key;
+        final ConcurrentLinkedQueue<Call<?>> queue = new ConcurrentLinkedQueue<>();
+
+        Mailbox(K key) {
+            this.key = key;
+        }
+
+        @Override
+        public void run() {
+            try {
+                runBatch(this);
+            } catch (RuntimeException | Error e) {
+                LOGGER.log(System.Logger.Level.ERROR, "Mailbox run for " + key + " failed", e);
+            }
+            if (mailboxes.compute(key, (k, current) -> current == this && queue.isEmpty() ? null : current) == this) {
+                start(this);
+            }
+        }
+
+        @Override
+        public void drop(RuntimeException cause) {
+            abandon(this, cause);
+        }
+    }
+
+    private final Executor executor;
+    private final int maxBatch;
+    private final Function<K, EntityLock> lock;
+    private final Function<K, SaveResult> commit;
+    private final ConcurrentHashMap<K, Mailbox> mailboxes = new ConcurrentHashMap<>();
+    private volatile boolean closed;
+
+    /**
+     * @param lock   takes the entity's lock
+     * @param commit writes what a run staged, under that lock
+     */
+    EntityMailboxes(Executor executor, int maxBatch, Function<K, EntityLock> lock, Function<K, SaveResult> commit) {
+        this.executor = executor;
+        this.maxBatch = maxBatch;
+        this.lock = lock;
+        this.commit = commit;
+    }
+
+    /** Queues {@code step} on {@code key}'s mailbox; the future completes once its run is durable. */
+    <R> CompletableFuture<R> submit(K key, Step<R> step) {
+        Call<R> call = new Call<>(step);
+        if (closed) {
+            call.result.completeExceptionally(new IllegalStateException("DataAPI is shut down"));
+            return call.result;
+        }
+        Mailbox mailbox = mailboxes.compute(key, (k, current) -> {
+            Mailbox target = current;
+            if (target == null) {
+                target = new Mailbox(k);
+                call.opened = true;
+            }
+            target.queue.add(call);
+            return target;
+        });
+        if (call.opened) start(mailbox);
+        return call.result;
+    }
+
+    private void start(Mailbox mailbox) {
+        try {
+            executor.execute(mailbox);
+        } catch (RejectedExecutionException e) {
+            abandon(mailbox, e);
+        }
+    }
+
+    // Fails everything queued on a mailbox its executor would not run, including calls that join
+    // it meanwhile, and removes it.
+    private void abandon(Mailbox mailbox, RuntimeException cause) {
+        do {
+            Call<?> call;
+            while ((call = mailbox.queue.poll()) != null) {
+                call.result.completeExceptionally(cause);
+            }
+        } while (mailboxes.compute(mailbox.key,
+                (k, current) -> current == mailbox && mailbox.queue.isEmpty() ? null : current) == mailbox);
+    }
+
+    private void runBatch(Mailbox mailbox) {
+        List<Call<?>> batch = new ArrayList<>();
+        Call<?> next;
+        while (batch.size() < maxBatch && (next = mailbox.queue.poll()) != null) {
+            batch.add(next);
+        }
+        if (batch.isEmpty()) return;
+        FieldChanges changes = new FieldChanges();
+        try (EntityLock ignored = lock.apply(mailbox.key)) {
+            for (Call<?> call : batch) {
+                call.apply(changes);
+            }
+            if (!changes.isEmpty()) {
+                changes.fire(PlayerDataManager.eventVersion(commit.apply(mailbox.key)));
+            }
+        } catch (RuntimeException | Error e) {
+            for (Call<?> call : batch) {
+                if (call.failure == null) call.failure = e;
+            }
+        }
+        for (Call<?> call : batch) {
+            call.complete();
+        }
+    }
+
+    /**
+     * Refuses further calls and waits, a bounded time, for the queued ones to run, so the final
+     * flush after it sees everything they staged.
+     */
+    void shutdown() {
+        closed = true;
+        long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(SHUTDOWN_WAIT_SECONDS);
+        while (!mailboxes.isEmpty()) {
+            if (System.nanoTime() - deadline > 0) {
+                LOGGER.log(System.Logger.Level.WARNING, mailboxes.size() + " entity mailboxes still running after "
+                        + SHUTDOWN_WAIT_SECONDS + "s");
+                return;
+            }
+            LockSupport.parkNanos(TimeUnit.MILLISECONDS.toNanos(1));
+        }
+    }
+
+    int activeMailboxes() {
+        return mailboxes.size();
+    }
+}
@@ -0,0 +1,57 @@
+package net.swofty.api;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * The field changes staged in one entity's cached document for a single storage write, coalesced
+ * per field, and the change events to fire once that write is durable.
+ *
+ * <p>They have to be coalesced: peers order field events by version, and every change in one
+ * write carries that write's version, so two events for one field would have the second dropped,
+ * leaving the peer on an intermediate value. Guarded by the entity's lock, like the container the
+ * changes were applied to.
+ */
+final class FieldChanges {
+    /** Fires one coalesced change event at the version the write produced. */
+    @FunctionalInterface
+    interface ChangeEvent {
+        void fire(Object oldValue, Object newValue, long version);
+    }
+
+    /** One field's change: the value before the write's first change and the value it now holds. */
+    static final class Change {
+        private final String fullKey;
+        private final Object oldValue;
+        private Object newValue;
+        private final ChangeEvent event;
+
+        Change(String fullKey, Object oldValue, Object newValue, ChangeEvent event) {
+            this.fullKey = fullKey;
+            this.oldValue = oldValue;
+            this.newValue = newValue;
+            this.event = event;
+        }
+    }
+
+    private final Map<String, Change> changes = new LinkedHashMap<>();
+
+    void add(Change change) {
+        Change earlier = changes.get(change.fullKey);
+        if (earlier == null) {
+            changes.put(change.fullKey, change);
+        } else {
+            earlier.newValue = change.newValue;
+        }
+    }
+
+    boolean isEmpty() {
+        return changes.isEmpty();
+    }
+
+    void fire(long version) {
+        for (Change change : changes.values()) {
+            change.event.fire(change.oldValue, change.newValue, version);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package net.swofty.api;
+
+/**
+ * An approximate count of how often each key has been used lately, for {@link EntityCache}'s
+ * admission decisions.
+ *
+ * <p>A count-min sketch: each key bumps one small counter in each of four rows and its estimate is
+ * the least of the four, so collisions only ever overstate a count. Counters saturate at 15, and
+ * once ten increments per expected entry have been recorded every counter is halved, so what the sketch
+ * reports is recent popularity rather than the all-time total. It keeps no keys, so its size is
+ * fixed however many distinct entities pass through the cache.
+ *
+ * <p>Not thread-safe; the cache only touches it under its policy lock.
+ */
+final class FrequencySketch {
+    private static final int DEPTH = 4;
+    private static final int MAX_COUNT = 15;
+
+    private final byte[] counters;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    FrequencySketch(long expectedEntries) {
+        int entries = Integer.highestOneBit((int) Math.max(16, Math.min(1 << 20, expectedEntries)) - 1) << 1;
+        // Four counters per expected entry in each row, so that between two agings a key that was
+        // used once shares its counters with a couple of others at most, and reads as used once.
+        int width = entries * 4;
+        this.counters = new byte[width * DEPTH];
+        this.mask = width - 1;
+        this.sampleSize = 10 * entries;
+    }
+
+    void increment(Object key) {
+        int hash = spread(key.hashCode());
+        int step = spread(hash ^ 0x9E3779B9) | 1;
+        boolean added = false;
+        for (int row = 0; row < DEPTH; row++) {
+            int index = row * (mask + 1) + ((hash + row * step) & mask);
+            if (counters[index] < MAX_COUNT) {
+                counters[index]++;
+                added = true;
+            }
+        }
+        if (added && ++additions >= sampleSize) {
+            age();
+        }
+    }
+
+    int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int step = spread(hash ^ 0x9E3779B9) | 1;
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < DEPTH; row++) {
+            frequency = Math.min(frequency, counters[row * (mask + 1) + ((hash + row * step) & mask)]);
+        }
+        return frequency;
+    }
+
+    private void age() {
+        for (int i = 0; i < counters.length; i++) {
+            counters[i] >>= 1;
+        }
+        additions /= 2;
+    }
+
+    private static int spread(int hash) {
+        hash ^= hash >>> 16;
+        hash *= 0x45D9F3B;
+        hash ^= hash >>> 16;
+        return hash;
+    }
+}
@@ -0,0 +1,25 @@
+package net.swofty.api;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Opt-in group commit for auto-persisted writes: writes to one entity that arrive within
+ * {@code window} of each other, or while that entity's previous write is still in flight, are
+ * merged into a single compare-and-set write. Every caller still returns only once its change is
+ * durable, with the version it was written at, so the "durable when it returns" contract of
+ * {@code autoPersist = true} is kept at a fraction of the storage round trips.
+ *
+ * <p>The price is the window itself, added to the latency of the first write of each group, and
+ * events: a group fires one change event per field it touched, from the value before the group to
+ * the value it committed, rather than one per call. A zero window merges only the writes that
+ * queued up behind an in-flight one, which costs no latency at all.
+ */
+public record GroupCommitOptions(Duration window) {
+    public static final GroupCommitOptions DEFAULT = new GroupCommitOptions(Duration.ofMillis(2));
+
+    public GroupCommitOptions {
+        Objects.requireNonNull(window, "window");
+        if (window.isNegative()) throw new IllegalArgumentException("window must not be negative: " + window);
+    }
+}
@@ -0,0 +1,112 @@
+package net.swofty.api;
+
+import net.swofty.storage.SaveResult;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Merges auto-persisted writes to one entity into one storage write.
+ *
+ * <p>The first writer to find no open group for its entity opens one and leads it: it applies its
+ * change, lets go of the entity's lock for the commit window, then takes it back, closes the
+ * group and writes the document once. Writers arriving meanwhile, including those that were
+ * blocked behind the previous group's write, only apply their change to the cached document and
+ * wait on the group's future. The document is still only ever serialised and written under the
+ * entity's lock, exactly as an immediate write is.
+ *
+ * <p>Change events are coalesced per field and fired by the leader under the lock once the
+ * write is durable, stamped with the version it produced; see {@link FieldChanges}.
+ */
+@SuppressWarnings("try")
+class GroupCommitter {
+    private final long windowNanos;
+    private final ConcurrentHashMap<Object, Group> open = new ConcurrentHashMap<>();
+
+    GroupCommitter(GroupCommitOptions options) {
+        this.windowNanos = options.window().toNanos();
+    }
+
+    private static final class Group {
+        final CompletableFuture<SaveResult> durable = new CompletableFuture<>();
+        final FieldChanges changes = new FieldChanges();
+        // The write that took the group's changes to storage while its leader waited out the
+        // window, if another write got the lock first. Only touched under the entity's lock.
+        SaveResult drained;
+    }
+
+    /**
+     * Applies a change as part of the entity's open group and returns once the group is durable.
+     *
+     * @param apply   stages the change in the cached document without persisting it; runs under
+     *                the entity's lock in {@code locks} and reports what changed
+     * @param persist writes the document; runs under that lock
+     */
+    SaveResult submit(Object key, EntityLocks locks, Supplier<FieldChanges.Change> apply,
+                      Supplier<SaveResult> persist) {
+        Group group;
+        boolean leader;
+        try (EntityLock ignored = locks.acquire(key)) {
+            FieldChanges.Change change = apply.get();
+            group = open.get(key);
+            leader = group == null;
+            if (leader) {
+                group = new Group();
+                open.put(key, group);
+            }
+            group.changes.add(change);
+        }
+        if (!leader) return await(group.durable);
+
+        if (windowNanos > 0) LockSupport.parkNanos(windowNanos);
+        try (EntityLock ignored = locks.acquire(key)) {
+            open.remove(key, group);
+            SaveResult result;
+            try {
+                result = persist.get();
+                // Nothing was left to write because that write already made the changes durable.
+                if (!result.saved() && group.drained != null) result = group.drained;
+            } catch (RuntimeException | Error failure) {
+                group.durable.completeExceptionally(failure);
+                throw failure;
+            }
+            long version = PlayerDataManager.eventVersion(result);
+            group.changes.fire(version);
+            group.durable.complete(result);
+            return result;
+        }
+    }
+
+    /**
+     * Records a write of the entity's cached document, made under its lock, as the one that made an
+     * open group's changes durable, so the group reports that write's version rather than finding
+     * nothing left to write. Writes by the group's own leader happen after it has left {@link #open}.
+     */
+    void written(Object key, SaveResult result) {
+        if (!result.saved()) return;
+        Group group = open.get(key);
+        if (group != null) group.drained = result;
+    }
+
+    /**
+     * Whether a group for the entity is waiting out its commit window. Its leader is not holding
+     * the lock then, but will take it back expecting the entity's cached document to still be
+     * there to write, so the entity must not be evicted meanwhile.
+     */
+    boolean isOpen(Object key) {
+        return open.containsKey(key);
+    }
+
+    private static SaveResult await(CompletableFuture<SaveResult> durable) {
+        try {
+            return durable.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException runtime) throw runtime;
+            if (e.getCause() instanceof Error error) throw error;
+            throw e;
+        }
+    }
+}
@@ -0,0 +1,140 @@
+package net.swofty.api;
+
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+/**
+ * The API's own pool for asynchronous calls, with admission bounded by a permit per call; see
+ * {@link IoOptions}.
+ *
+ * <p>Admission is counted per call, not per task: a call holds its permit until its future
+ * completes, however many tasks it runs on the way. Work handed to {@link #execute} directly is
+ * not counted, which is what the mailboxes use to run and rerun themselves; each mailbox has at
+ * most one task queued, and every call it runs was admitted already.
+ *
+ * <p>Shutdown waits a bounded time for what was admitted. Past that the pool is stopped outright:
+ * running tasks are interrupted, and every task still queued is told it will never run (see
+ * {@link Droppable}), so its caller's future fails rather than waiting on storage that is about
+ * to be flushed and closed.
+ */
+final class IoExecutor implements Executor {
+    private static final System.Logger LOGGER = System.getLogger(IoExecutor.class.getName());
+    private static final long SHUTDOWN_WAIT_NANOS = TimeUnit.SECONDS.toNanos(10);
+
+    /** A task that can fail whatever waits on it when the pool drops it unrun. */
+    interface Droppable extends Runnable {
+        void drop(RuntimeException cause);
+    }
+
+    private final ThreadPoolExecutor pool;
+    private final Semaphore pending;
+    private final int maxPending;
+    private final long shutdownWaitNanos;
+
+    IoExecutor(IoOptions options) {
+        this(options, SHUTDOWN_WAIT_NANOS);
+    }
+
+    IoExecutor(IoOptions options, long shutdownWaitNanos) {
+        AtomicInteger threadIds = new AtomicInteger();
+        this.pool = new ThreadPoolExecutor(options.threads(), options.threads(), 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(), r -> {
+            Thread t = new Thread(r, "DataHandler-IO-" + threadIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        this.pending = new Semaphore(options.maxPending());
+        this.maxPending = options.maxPending();
+        this.shutdownWaitNanos = shutdownWaitNanos;
+    }
+
+    @Override
+    public void execute(Runnable task) {
+        pool.execute(task);
+    }
+
+    /** Admits {@code work} and runs it on the pool. */
+    <R> CompletableFuture<R> submit(Supplier<R> work) {
+        return admit(() -> supply(work));
+    }
+
+    /** Runs {@code work} on the pool without admitting it: for steps of a call admitted already. */
+    <R> CompletableFuture<R> supply(Supplier<R> work) {
+        CompletableFuture<R> result = new CompletableFuture<>();
+        pool.execute(new Droppable() {
+            @Override
+            public void run() {
+                try {
+                    result.complete(work.get());
+                } catch (RuntimeException | Error e) {
+                    result.completeExceptionally(e);
+                }
+            }
+
+            @Override
+            public void drop(RuntimeException cause) {
+                result.completeExceptionally(cause);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * Admits the call {@code start} begins, holding a permit until the future it returns
+     * completes. A call that finds every permit taken, or the pool shut down, fails without being
+     * started.
+     */
+    <R> CompletableFuture<R> admit(Supplier<CompletableFuture<R>> start) {
+        if (pool.isShutdown()) return CompletableFuture.failedFuture(new IllegalStateException("DataAPI is shut down"));
+        if (!pending.tryAcquire()) {
+            return CompletableFuture.failedFuture(new RejectedExecutionException(
+                    "DataAPI I/O pool is saturated: " + maxPending + " calls already pending"));
+        }
+        CompletableFuture<R> started;
+        try {
+            started = start.get();
+        } catch (RuntimeException | Error e) {
+            pending.release();
+            return CompletableFuture.failedFuture(e);
+        }
+        return started.whenComplete((value, failure) -> pending.release());
+    }
+
+    /** Calls admitted and not yet complete. */
+    int pendingCalls() {
+        return maxPending - pending.availablePermits();
+    }
+
+    /**
+     * Refuses further calls and waits, a bounded time, for the admitted ones to finish. Whatever is
+     * still queued after that is dropped and its futures failed; running tasks are interrupted.
+     */
+    void shutdown() {
+        pool.shutdown();
+        try {
+            if (pool.awaitTermination(shutdownWaitNanos, TimeUnit.NANOSECONDS)) return;
+            List<Runnable> dropped = pool.shutdownNow();
+            LOGGER.log(System.Logger.Level.WARNING, "DataAPI I/O pool still busy after "
+                    + TimeUnit.NANOSECONDS.toMillis(shutdownWaitNanos) + "ms; dropping " + dropped.size()
+                    + " queued tasks and interrupting the running ones");
+            IllegalStateException cause = new IllegalStateException("DataAPI shut down before this call ran");
+            for (Runnable task : dropped) {
+                if (task instanceof Droppable droppable) droppable.drop(cause);
+            }
+            if (!pool.awaitTermination(shutdownWaitNanos, TimeUnit.NANOSECONDS)) {
+                LOGGER.log(System.Logger.Level.WARNING, "DataAPI I/O tasks ignored interruption; "
+                        + "shutting down without them");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package net.swofty.api;
+
+/**
+ * The pool a {@link DataAPIImpl} runs its asynchronous calls on: the {@code *Async} field,
+ * transaction and bulk methods, and the lifecycle methods given no executor of their own. Field
+ * calls queued on an entity mailbox run where {@link MailboxOptions} says, but are admitted here.
+ *
+ * <p>Those calls wait on storage, so they get {@code threads} threads of their own rather than
+ * the common pool, where blocking starves every other user of it. At most {@code maxPending} of
+ * them are admitted at once, counting both queued and running ones. A call past that is not
+ * queued and does not block its caller: its future fails at once with a
+ * {@link java.util.concurrent.RejectedExecutionException}, so a game thread that outruns storage
+ * learns so immediately instead of stalling or piling up unbounded work.
+ */
+public record IoOptions(int threads, int maxPending) {
+    public static final IoOptions DEFAULT = new IoOptions(16, 10_000);
+
+    public IoOptions {
+        if (threads <= 0) throw new IllegalArgumentException("threads must be positive: " + threads);
+        if (maxPending <= 0) throw new IllegalArgumentException("maxPending must be positive: " + maxPending);
+    }
+}
@@ -3,16 +3,19 @@ package net.swofty.api;
 import net.swofty.DataField;
 import net.swofty.ExpiringLinkedField;
 import net.swofty.LinkedField;
+import net.swofty.LockStats;
 import net.swofty.data.DataFormat;
 import net.swofty.event.EventBus;
 import net.swofty.storage.DataStorage;
 import net.swofty.storage.SaveResult;
 import net.swofty.storage.VersionedData;
 
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.UnaryOperator;
 
+@SuppressWarnings("try")
 class LinkedDataManager {
     private static final System.Logger LOGGER = System.getLogger(LinkedDataManager.class.getName());
 
@@ -20,9 +23,16 @@ class LinkedDataManager {
     private final DataFormat format;
     private final EventBus eventBus;
     private final LinkRegistryImpl linkRegistry;
-    private final ConcurrentHashMap<String, DataContainer> cache = new ConcurrentHashMap<>();
-    private final EntityLocks locks = new EntityLocks();
+    private final EntityCache<String> cache;
+    private final EntityLocks locks;
     private final boolean autoPersist;
+    // Flushes deferred writes in the background; null when writes wait for an explicit flush.
+    private final WriteBehindFlusher writeBehind;
+    // Merges concurrent auto-persisted writes to one entity; null when every write commits alone.
+    private final GroupCommitter groupCommit;
+    // As for players, keyed by composite key.
+    private final Path snapshotFile;
+    private final WarmSnapshot snapshot;
 
     public LinkedDataManager(DataStorage storage, DataFormat format, EventBus eventBus, LinkRegistryImpl linkRegistry) {
         this(storage, format, eventBus, linkRegistry, true);
@@ -30,15 +40,54 @@ class LinkedDataManager {
 
     public LinkedDataManager(DataStorage storage, DataFormat format, EventBus eventBus,
                              LinkRegistryImpl linkRegistry, boolean autoPersist) {
+        this(storage, format, eventBus, linkRegistry, autoPersist, null);
+    }
+
+    public LinkedDataManager(DataStorage storage, DataFormat format, EventBus eventBus,
+                             LinkRegistryImpl linkRegistry, boolean autoPersist, WriteBehindFlusher writeBehind) {
+        this(storage, format, eventBus, linkRegistry, autoPersist, writeBehind, null);
+    }
+
+    public LinkedDataManager(DataStorage storage, DataFormat format, EventBus eventBus,
+                             LinkRegistryImpl linkRegistry, boolean autoPersist, WriteBehindFlusher writeBehind,
+                             GroupCommitter groupCommit) {
+        this(storage, format, eventBus, linkRegistry, autoPersist, writeBehind, groupCommit, CacheOptions.UNBOUNDED);
+    }
+
+    public LinkedDataManager(DataStorage storage, DataFormat format, EventBus eventBus,
+                             LinkRegistryImpl linkRegistry, boolean autoPersist, WriteBehindFlusher writeBehind,
+                             GroupCommitter groupCommit, CacheOptions cacheOptions) {
+        this(storage, format, eventBus, linkRegistry, autoPersist, writeBehind, groupCommit, cacheOptions,
+                LockOptions.DEFAULT);
+    }
+
+    public LinkedDataManager(DataStorage storage, DataFormat format, EventBus eventBus,
+                             LinkRegistryImpl linkRegistry, boolean autoPersist, WriteBehindFlusher writeBehind,
+                             GroupCommitter groupCommit, CacheOptions cacheOptions, LockOptions lockOptions) {
         this.storage = storage;
         this.format = format;
         this.eventBus = eventBus;
         this.linkRegistry = linkRegistry;
         this.autoPersist = autoPersist;
+        this.writeBehind = writeBehind;
+        this.groupCommit = groupCommit;
+        this.locks = new EntityLocks(lockOptions);
+        this.cache = new EntityCache<>(cacheOptions, "Linked", this::tryEvict);
+        this.snapshotFile = cacheOptions.snapshotDirectory() == null ? null
+                : cacheOptions.snapshotDirectory().resolve("linked.snapshot");
+        this.snapshot = snapshotFile == null ? WarmSnapshot.EMPTY : WarmSnapshot.open(snapshotFile, format);
     }
 
-    Object getLock(String compositeKey) {
-        return locks.forKey(compositeKey);
+    /** Takes the entity's lock; close the result to release it. */
+    EntityLock lock(String compositeKey) {
+        return locks.acquire(compositeKey);
+    }
+
+    /** A shared entity named by its link type and key, where the composite key will not do. */
+    record Entity(String linkTypeName, Object key) {
+        String compositeKey() {
+            return LinkedDataManager.compositeKey(linkTypeName, key);
+        }
     }
 
     static String compositeKey(String linkTypeName, Object key) {
@@ -49,8 +98,14 @@ class LinkedDataManager {
         return "linked/" + linkTypeName;
     }
 
+    // As for players: the value held in the cached container, read without the lock, or null.
+    private Object cachedValue(String compositeKey, DataField<?> field) {
+        DataContainer container = cache.peek(compositeKey);
+        return container == null ? null : container.peek(field);
+    }
+
     DataContainer getContainer(String compositeKey) {
-        return cache.computeIfAbsent(compositeKey, k -> new DataContainer());
+        return cache.getOrCreate(compositeKey);
     }
 
     public <K, T> T get(UUID player, LinkedField<K, T> field) {
@@ -59,21 +114,27 @@ class LinkedDataManager {
         return getDirect(linkKey, field);
     }
 
+    @SuppressWarnings("unchecked")
     public <K, T> T getDirect(K key, LinkedField<K, T> field, ExpirationManager expiration) {
-        String ck = compositeKey(field.linkType().name(), key);
-        synchronized (getLock(ck)) {
-            if (field instanceof ExpiringLinkedField<?, ?>) {
-                if (expiration.isLinkedExpired(field.linkType().name(), key, field)) {
-                    return field.defaultValue();
-                }
+        if (field instanceof ExpiringLinkedField<?, ?>) {
+            if (expiration.isLinkedExpired(field.linkType().name(), key, field)) {
+                return field.defaultValue();
             }
+        }
+        String ck = compositeKey(field.linkType().name(), key);
+        Object cached = cachedValue(ck, field);
+        if (cached != null) return (T) DataContainer.unwrap(cached);
+        try (EntityLock ignored = lock(ck)) {
             return getFieldValue(field.linkType().name(), key, field);
         }
     }
 
+    @SuppressWarnings("unchecked")
     public <K, T> T getDirect(K key, LinkedField<K, T> field) {
         String ck = compositeKey(field.linkType().name(), key);
-        synchronized (getLock(ck)) {
+        Object cached = cachedValue(ck, field);
+        if (cached != null) return (T) DataContainer.unwrap(cached);
+        try (EntityLock ignored = lock(ck)) {
             return getFieldValue(field.linkType().name(), key, field);
         }
     }
@@ -88,8 +149,11 @@ class LinkedDataManager {
 
     public <K, T> SaveResult setDirect(K key, LinkedField<K, T> field, T value) {
         Validation.validate(field, value);
+        if (grouped()) {
+            return commitGrouped(key, field, oldValue -> value);
+        }
         String ck = compositeKey(field.linkType().name(), key);
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             T oldValue = getFieldValue(field.linkType().name(), key, field);
             SaveResult saved = setFieldValue(field.linkType().name(), key, field, value);
             Set<UUID> affected = linkRegistry.getLinkedPlayers(field.linkType(), key);
@@ -108,8 +172,15 @@ class LinkedDataManager {
     }
 
     public <K, T> SaveResult updateDirect(K key, LinkedField<K, T> field, UnaryOperator<T> updater) {
+        if (grouped()) {
+            return commitGrouped(key, field, oldValue -> {
+                T newValue = updater.apply(oldValue);
+                Validation.validate(field, newValue);
+                return newValue;
+            });
+        }
         String ck = compositeKey(field.linkType().name(), key);
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             T oldValue = getFieldValue(field.linkType().name(), key, field);
             T newValue = updater.apply(oldValue);
             Validation.validate(field, newValue);
@@ -121,6 +192,60 @@ class LinkedDataManager {
         }
     }
 
+    private boolean grouped() {
+        return autoPersist && groupCommit != null;
+    }
+
+    // Stages the change under the entity's lock and returns once the group it joined is durable.
+    // Who is affected is worked out when the group commits, so a link made meanwhile is included.
+    private <K, T> SaveResult commitGrouped(K key, LinkedField<K, T> field, UnaryOperator<T> change) {
+        String linkTypeName = field.linkType().name();
+        String ck = compositeKey(linkTypeName, key);
+        return groupCommit.submit(ck, locks, () -> stageChange(key, field, change),
+                () -> persistGroup(linkTypeName, key));
+    }
+
+    /**
+     * Applies {@code change} to the cached document without writing it, for a caller that writes
+     * several changes at once with {@link #commitStaged}. Call under the entity's lock.
+     */
+    <K, T> FieldChanges.Change stageChange(K key, LinkedField<K, T> field, UnaryOperator<T> change) {
+        String linkTypeName = field.linkType().name();
+        T oldValue = getFieldValue(linkTypeName, key, field);
+        T newValue = change.apply(oldValue);
+        stageFieldValue(linkTypeName, key, field, newValue);
+        return new FieldChanges.Change(field.fullKey(), oldValue, newValue,
+                (from, to, version) -> fireChanged(field, key, from, to, version));
+    }
+
+    /** Writes what {@link #stageChange} staged, once, as a single write would. Call under the lock. */
+    SaveResult commitStaged(String linkTypeName, Object key) {
+        if (autoPersist) return persistGroup(linkTypeName, key);
+        String ck = compositeKey(linkTypeName, key);
+        if (writeBehind != null) {
+            writeBehind.markDirty(ck, () -> flushLinked(linkTypeName, key));
+        }
+        return SaveResult.unchanged(storageType(linkTypeName), key.toString(), getContainer(ck).documentVersion());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <K, T> void fireChanged(LinkedField<K, T> field, K key, Object oldValue, Object newValue, long version) {
+        Set<UUID> affected = linkRegistry.getLinkedPlayers(field.linkType(), key);
+        eventBus.fireLinkedDataChanged(field, key, (T) oldValue, (T) newValue, affected, version);
+    }
+
+    // As for players: a group already written by a flush or unload that got the lock first is
+    // durable at that write's version, which the group committer reports, and has nothing left to write.
+    private SaveResult persistGroup(String linkTypeName, Object key) {
+        DataContainer container = cache.get(compositeKey(linkTypeName, key));
+        if (container == null || !container.isDirty()) {
+            long version = container == null ? 0L : container.documentVersion();
+            return version == 0L ? SaveResult.unchanged(storageType(linkTypeName), key.toString(), 0L)
+                    : SaveResult.saved(storageType(linkTypeName), key.toString(), version);
+        }
+        return persistLinked(linkTypeName, key, container);
+    }
+
     <T> T getFieldValue(String linkTypeName, Object key, DataField<T> field) {
         String ck = compositeKey(linkTypeName, key);
         DataContainer container = getContainer(ck);
@@ -133,20 +258,31 @@ class LinkedDataManager {
 
     <T> SaveResult setFieldValue(String linkTypeName, Object key, DataField<T> field, T value) {
         String ck = compositeKey(linkTypeName, key);
-        DataContainer container = getContainer(ck);
-        ensureDocumentLoaded(linkTypeName, key, container);
-        container.set(field, value);
+        DataContainer container = stageFieldValue(linkTypeName, key, field, value);
         if (autoPersist) {
             return persistLinked(linkTypeName, key, container);
         }
+        if (writeBehind != null) {
+            writeBehind.markDirty(ck, () -> flushLinked(linkTypeName, key));
+        }
         return SaveResult.unchanged(storageType(linkTypeName), key.toString(), container.documentVersion());
     }
 
+    private <T> DataContainer stageFieldValue(String linkTypeName, Object key, DataField<T> field, T value) {
+        DataContainer container = getContainer(compositeKey(linkTypeName, key));
+        ensureDocumentLoaded(linkTypeName, key, container);
+        container.set(field, value);
+        return container;
+    }
+
     private void ensureDocumentLoaded(String linkTypeName, Object key, DataContainer container) {
         if (!container.isDocumentLoaded()) {
-            VersionedData loaded = storage.loadVersioned(storageType(linkTypeName), key.toString());
-            container.loadDocument(format, loaded.data(), loaded.version());
+            String type = storageType(linkTypeName);
+            VersionedData loaded = snapshot.take(compositeKey(linkTypeName, key), storage, type, key.toString());
+            if (loaded == null) loaded = storage.loadVersioned(type, key.toString());
+            container.loadDocument(loaded);
             documentRead(linkTypeName, key, loaded.version());
+            cache.reweigh(compositeKey(linkTypeName, key), container);
         }
     }
 
@@ -157,7 +293,9 @@ class LinkedDataManager {
     }
 
     private SaveResult persistLinked(String linkTypeName, Object key, DataContainer container) {
-        return DocumentWriter.write(storage, format, storageType(linkTypeName), key.toString(), container);
+        SaveResult result = DocumentWriter.write(storage, format, storageType(linkTypeName), key.toString(), container);
+        if (groupCommit != null) groupCommit.written(compositeKey(linkTypeName, key), result);
+        return result;
     }
 
     // ---- Lifecycle ----------------------------------------------------------
@@ -165,14 +303,14 @@ class LinkedDataManager {
     /** Warms a shared entity's whole document into this node's cache in a single storage read. */
     public void loadLinked(String linkTypeName, Object key) {
         String ck = compositeKey(linkTypeName, key);
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             ensureDocumentLoaded(linkTypeName, key, getContainer(ck));
         }
     }
 
     public SaveResult flushLinked(String linkTypeName, Object key) {
         String ck = compositeKey(linkTypeName, key);
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             DataContainer container = cache.get(ck);
             if (container != null && container.isDirty()) {
                 SaveResult saved = persistLinked(linkTypeName, key, container);
@@ -187,7 +325,7 @@ class LinkedDataManager {
     public SaveResult unloadLinked(String linkTypeName, Object key) {
         SaveResult result;
         String ck = compositeKey(linkTypeName, key);
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             DataContainer container = cache.get(ck);
             if (container != null && container.isDirty()) {
                 result = persistLinked(linkTypeName, key, container);
@@ -197,16 +335,48 @@ class LinkedDataManager {
                         container == null ? 0L : container.documentVersion());
             }
             cache.remove(ck);
+            if (writeBehind != null) writeBehind.forget(ck);
         }
         eventBus.forgetLinked(linkTypeName, key);
         return result;
     }
 
+    // Called by the cache's evictor, never under another entity's lock; the composite key is split
+    // back into type and key the way flushAll does. An entity with a group commit waiting out its
+    // window stays, and so does one whose flush fails, since dropping it would drop those writes.
+    private boolean tryEvict(String ck) {
+        int colon = ck.indexOf(':');
+        if (colon < 0) return false;
+        String linkTypeName = ck.substring(0, colon);
+        String key = ck.substring(colon + 1);
+        try (EntityLock ignored = lock(ck)) {
+            DataContainer container = cache.get(ck);
+            if (container == null || cache.isTracked(ck)) return true;
+            if (groupCommit != null && groupCommit.isOpen(ck)) return false;
+            if (container.isDirty()) {
+                try {
+                    SaveResult saved = persistLinked(linkTypeName, key, container);
+                    eventBus.fireLinkedSnapshotSaved(linkTypeName, key, saved.version());
+                } catch (RuntimeException e) {
+                    LOGGER.log(System.Logger.Level.WARNING,
+                            "Could not flush " + ck + " for eviction; keeping it cached", e);
+                    return false;
+                }
+            }
+            if (!cache.evicted(ck, container)) return true;
+            if (writeBehind != null) writeBehind.forget(ck);
+        }
+        eventBus.forgetLinked(linkTypeName, key);
+        return true;
+    }
+
     /** Drops the cached view without persisting it, for an entity whose document is gone. */
     void evict(String linkTypeName, Object key) {
         String ck = compositeKey(linkTypeName, key);
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             cache.remove(ck);
+            snapshot.forget(ck);
+            if (writeBehind != null) writeBehind.forget(ck);
         }
         eventBus.forgetLinked(linkTypeName, key);
     }
@@ -214,8 +384,10 @@ class LinkedDataManager {
     /** Deletes the shared document itself and forgets everything cached about it here. */
     void deleteLinked(String linkTypeName, Object key) {
         String ck = compositeKey(linkTypeName, key);
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             cache.remove(ck);
+            snapshot.forget(ck);
+            if (writeBehind != null) writeBehind.forget(ck);
             storage.delete(storageType(linkTypeName), key.toString());
         }
         eventBus.forgetLinked(linkTypeName, key);
@@ -233,14 +405,14 @@ class LinkedDataManager {
      */
     void refresh(String linkTypeName, Object key) {
         String ck = compositeKey(linkTypeName, key);
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             DataContainer container = cache.get(ck);
             if (container == null) return;
             if (container.isDirty()) {
                 persistLinked(linkTypeName, key, container);
             }
             VersionedData loaded = storage.loadVersioned(storageType(linkTypeName), key.toString());
-            container.reload(loaded.data(), loaded.version());
+            container.reload(loaded);
             documentRead(linkTypeName, key, loaded.version());
         }
     }
@@ -262,15 +434,26 @@ class LinkedDataManager {
         String ck = compositeKey(linkTypeName, key);
         DataContainer container = cache.get(ck);
         if (container == null) return;
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             container = cache.get(ck);
             if (container == null) return;
             container.applyRemote(field, newValue, format);
         }
     }
 
-    public List<String> listLinkedIds(String linkTypeName) {
-        return storage.listIds(storageType(linkTypeName));
+    /**
+     * Reads one field for a bulk scan without adding the entity to this node's cache: an entity
+     * cached here answers from its container, anything else is decoded from {@code stored}, the
+     * scan's batched read of its document.
+     */
+    <T> T scanFieldValue(String linkTypeName, Object key, DataField<T> field, byte[] stored) {
+        String ck = compositeKey(linkTypeName, key);
+        if (cache.containsKey(ck)) {
+            try (EntityLock ignored = lock(ck)) {
+                if (cache.containsKey(ck)) return getFieldValue(linkTypeName, key, field);
+            }
+        }
+        return DataContainer.decodeField(format, stored, field);
     }
 
     /** Rereads a shared entity another node has just flushed. Returns whether anything changed. */
@@ -278,7 +461,7 @@ class LinkedDataManager {
         String ck = compositeKey(linkTypeName, linkKey);
         DataContainer container = cache.get(ck);
         if (container == null) return false;
-        synchronized (getLock(ck)) {
+        try (EntityLock ignored = lock(ck)) {
             container = cache.get(ck);
             if (container == null || version <= container.documentVersion()) return false;
             if (container.isDirty()) {
@@ -289,12 +472,52 @@ class LinkedDataManager {
             }
             VersionedData loaded = storage.loadVersioned(storageType(linkTypeName), linkKey);
             if (loaded.version() < version) return false;
-            container.reload(loaded.data(), loaded.version());
+            container.reload(loaded);
             documentRead(linkTypeName, linkKey, loaded.version());
             return true;
         }
     }
 
+    /** Contention on the locks of shared entities, with the {@code topN} stripes waited on longest. */
+    LockStats.Locks lockStats(int topN) {
+        return locks.stats(topN);
+    }
+
+    /** Adds every cached shared entity's estimated footprint to {@code stats}. */
+    void collectMemory(MemoryStatsCollector stats) {
+        cache.forEach((ck, container) -> {
+            int colon = ck.indexOf(':');
+            if (colon >= 0) stats.linked(ck.substring(0, colon), ck.substring(colon + 1), container);
+        });
+    }
+
+    /**
+     * Stops evicting; whatever is cached stays for the final flush. The snapshot this start opened
+     * is let go, since nothing is loaded from here on.
+     */
+    void shutdown() {
+        cache.shutdown();
+        snapshot.close();
+    }
+
+    /** As {@link PlayerDataManager#writeSnapshot()}, for the cached shared entities. */
+    void writeSnapshot() {
+        if (snapshotFile == null) return;
+        Map<String, VersionedData> entries = new LinkedHashMap<>();
+        cache.forEach((ck, container) -> {
+            try (EntityLock ignored = lock(ck)) {
+                VersionedData stored = container.snapshot(format);
+                if (stored != null) entries.put(ck, stored);
+            }
+        });
+        WarmSnapshot.write(snapshotFile, format, entries);
+    }
+
+    /** Evicts down to the cache bound on the calling thread, instead of waiting for the evictor. */
+    void cleanUpCache() {
+        cache.cleanUp();
+    }
+
     int cachedCount() {
         return cache.size();
     }
@@ -0,0 +1,52 @@
+package net.swofty.api;
+
+import java.time.Duration;
+
+/**
+ * How a caller waits for an entity's lock on this node: the JVM-local lock every read and write of
+ * one player or shared entity takes, not the cross-node {@link net.swofty.lock.DistributedLock}.
+ *
+ * <p>The wait always gives way to an interrupt. With {@code acquireTimeout} set it also gives up
+ * after that long, so a caller stuck behind a write that is retrying against a slow backend fails
+ * with {@link net.swofty.lock.LockAcquisitionException} instead of queueing indefinitely. Either way
+ * a thread that already holds the lock, or finds it free, never waits and is never refused. Null,
+ * the default, waits for as long as it takes.
+ *
+ * <p>By default the players and the shared entities each share out {@code stripes} locks by key
+ * hash, so two unrelated entities can land on one lock, and one waits out the other's storage write.
+ * More stripes make that rarer; {@link net.swofty.DataAPI#lockStats} shows how often it happens.
+ * {@code dedicatedLocks} rules it out instead: each entity gets a lock of its own for as long as a
+ * thread holds or waits for it, and nothing while none does, at the cost of a map update per
+ * acquisition. {@code stripes} is rounded up to a power of two, and unused with dedicated locks.
+ */
+public record LockOptions(Duration acquireTimeout, int stripes, boolean dedicatedLocks) {
+    public static final int DEFAULT_STRIPES = 512;
+    public static final LockOptions DEFAULT = new LockOptions(null);
+
+    public LockOptions {
+        if (acquireTimeout != null && (acquireTimeout.isNegative() || acquireTimeout.isZero())) {
+            throw new IllegalArgumentException("acquireTimeout must be positive: " + acquireTimeout);
+        }
+        if (stripes < 1 || stripes > 1 << 20) {
+            throw new IllegalArgumentException("stripes must be between 1 and 2^20: " + stripes);
+        }
+    }
+
+    public LockOptions(Duration acquireTimeout) {
+        this(acquireTimeout, DEFAULT_STRIPES, false);
+    }
+
+    public static LockOptions acquireTimeout(Duration acquireTimeout) {
+        return new LockOptions(acquireTimeout);
+    }
+
+    /** These options with {@code stripes} locks per manager. */
+    public LockOptions withStripes(int stripes) {
+        return new LockOptions(acquireTimeout, stripes, dedicatedLocks);
+    }
+
+    /** These options with a lock per entity instead of stripes. */
+    public LockOptions withDedicatedLocks() {
+        return new LockOptions(acquireTimeout, stripes, true);
+    }
+}
@@ -0,0 +1,29 @@
+package net.swofty.api;
+
+import java.util.concurrent.Executor;
+
+/**
+ * How the per-entity mailboxes behind {@link net.swofty.DataAPI#getAsync}, {@code setAsync} and
+ * {@code updateAsync} run.
+ *
+ * <p>Each of those calls is queued on its entity's mailbox instead of waiting for the entity's
+ * lock. A mailbox is run on {@code executor} by one task at a time, in the order its calls were
+ * queued, and exists only while it has calls queued. A run takes up to {@code maxBatch} calls,
+ * takes the entity's lock once for all of them and writes their changes in one storage write, so
+ * fifty members of one coop updating its bank queue fifty calls behind one lock holder instead of
+ * fifty threads convoying on the lock, and cost one write per run rather than one each.
+ *
+ * <p>A null {@code executor} runs each mailbox run on a virtual thread of its own. A run spends
+ * most of its time holding the entity's lock across a storage write, and that lock parks a virtual
+ * thread rather than its carrier, so a thousand busy entities cost a thousand parked virtual
+ * threads instead of a thousand platform threads or a queue behind the I/O pool. The calls are
+ * still admitted against {@link IoOptions#maxPending}, so a caller that outruns storage is still
+ * refused. Naming an executor instead bounds how many runs write at once.
+ */
+public record MailboxOptions(Executor executor, int maxBatch) {
+    public static final MailboxOptions DEFAULT = new MailboxOptions(null, 64);
+
+    public MailboxOptions {
+        if (maxBatch <= 0) throw new IllegalArgumentException("maxBatch must be positive: " + maxBatch);
+    }
+}
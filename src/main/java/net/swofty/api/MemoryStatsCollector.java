@@ -0,0 +1,52 @@
+package net.swofty.api;
+
+import net.swofty.MemoryStats;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.TreeMap;
+
+/** Totals the cached containers for {@link MemoryStats}, keeping only the {@code topN} largest. */
+final class MemoryStatsCollector {
+    private final int topN;
+    // Smallest on top, so a larger entity displaces it once the queue is full.
+    private final PriorityQueue<MemoryStats.Entity> largest =
+            new PriorityQueue<>(Comparator.comparingLong(MemoryStats.Entity::bytes));
+    private final Map<String, Long> namespaceBytes = new TreeMap<>();
+    private long playerBytes;
+    private long linkedBytes;
+
+    MemoryStatsCollector(int topN) {
+        if (topN < 0) throw new IllegalArgumentException("topN must not be negative: " + topN);
+        this.topN = topN;
+    }
+
+    void player(String id, DataContainer container) {
+        playerBytes += add("players", id, container);
+    }
+
+    void linked(String linkTypeName, String key, DataContainer container) {
+        linkedBytes += add(LinkedDataManager.storageType(linkTypeName), key, container);
+    }
+
+    private long add(String type, String id, DataContainer container) {
+        long bytes = container.estimatedBytes();
+        container.addNamespaceBytes(namespaceBytes);
+        if (topN > 0 && (largest.size() < topN || bytes > largest.peek().bytes())) {
+            largest.add(new MemoryStats.Entity(type, id, bytes));
+            if (largest.size() > topN) largest.poll();
+        }
+        return bytes;
+    }
+
+    MemoryStats build(long eventStateBytes) {
+        List<MemoryStats.Entity> ranked = new ArrayList<>(largest);
+        ranked.sort(Comparator.comparingLong(MemoryStats.Entity::bytes).reversed());
+        return new MemoryStats(playerBytes + linkedBytes + eventStateBytes, playerBytes, linkedBytes,
+                eventStateBytes, List.copyOf(ranked), Collections.unmodifiableMap(namespaceBytes));
+    }
+}
@@ -1,8 +1,12 @@
 package net.swofty.api;
 
 import net.swofty.DataField;
+import net.swofty.DoublePlayerField;
 import net.swofty.ExpiringField;
+import net.swofty.IntPlayerField;
 import net.swofty.LinkType;
+import net.swofty.LockStats;
+import net.swofty.LongPlayerField;
 import net.swofty.PlayerField;
 import net.swofty.data.DataFormat;
 import net.swofty.event.EventBus;
@@ -11,14 +15,24 @@ import net.swofty.storage.LeaderboardIndex;
 import net.swofty.storage.SaveResult;
 import net.swofty.storage.VersionedData;
 
+import java.nio.file.Path;
 import java.util.*;
 import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.Executor;
+import java.util.function.DoubleBinaryOperator;
+import java.util.function.DoubleUnaryOperator;
+import java.util.function.IntBinaryOperator;
+import java.util.function.IntUnaryOperator;
+import java.util.function.LongBinaryOperator;
+import java.util.function.LongUnaryOperator;
+import java.util.function.Predicate;
+import java.util.function.Supplier;
 import java.util.function.ToDoubleFunction;
 import java.util.function.UnaryOperator;
 
 // Internal to net.swofty.api — reach it through DataAPI / DataAPIImpl, not directly.
+@SuppressWarnings("try")
 class PlayerDataManager {
     private static final System.Logger LOGGER = System.getLogger(PlayerDataManager.class.getName());
     private static final String TYPE = "players";
@@ -26,8 +40,8 @@ class PlayerDataManager {
     private final DataStorage storage;
     private final DataFormat format;
     private final EventBus eventBus;
-    private final ConcurrentHashMap<UUID, DataContainer> cache = new ConcurrentHashMap<>();
-    private final EntityLocks locks = new EntityLocks();
+    private final EntityCache<UUID> cache;
+    private final EntityLocks locks;
     // Only holds players with a load in flight right now, so it drains itself instead of growing
     // one entry per player the node has ever seen.
     private final ConcurrentHashMap<UUID, CompletableFuture<Void>> loads = new ConcurrentHashMap<>();
@@ -35,38 +49,102 @@ class PlayerDataManager {
     // are scored automatically — so leaderboards require no registration in the common case.
     private final ConcurrentHashMap<String, ToDoubleFunction<?>> scorers = new ConcurrentHashMap<>();
     private final boolean autoPersist;
+    // Flushes deferred writes in the background; null when writes wait for an explicit flush.
+    private final WriteBehindFlusher writeBehind;
+    // Merges concurrent auto-persisted writes to one player; null when every write commits alone.
+    private final GroupCommitter groupCommit;
+    // Where the cache is kept across restarts, and what the last shutdown left there; null and
+    // empty when it is not kept.
+    private final Path snapshotFile;
+    private final WarmSnapshot snapshot;
 
     public PlayerDataManager(DataStorage storage, DataFormat format, EventBus eventBus) {
         this(storage, format, eventBus, true);
     }
 
     public PlayerDataManager(DataStorage storage, DataFormat format, EventBus eventBus, boolean autoPersist) {
+        this(storage, format, eventBus, autoPersist, null);
+    }
+
+    public PlayerDataManager(DataStorage storage, DataFormat format, EventBus eventBus, boolean autoPersist,
+                             WriteBehindFlusher writeBehind) {
+        this(storage, format, eventBus, autoPersist, writeBehind, null);
+    }
+
+    public PlayerDataManager(DataStorage storage, DataFormat format, EventBus eventBus, boolean autoPersist,
+                             WriteBehindFlusher writeBehind, GroupCommitter groupCommit) {
+        this(storage, format, eventBus, autoPersist, writeBehind, groupCommit, CacheOptions.UNBOUNDED);
+    }
+
+    public PlayerDataManager(DataStorage storage, DataFormat format, EventBus eventBus, boolean autoPersist,
+                             WriteBehindFlusher writeBehind, GroupCommitter groupCommit, CacheOptions cacheOptions) {
+        this(storage, format, eventBus, autoPersist, writeBehind, groupCommit, cacheOptions, LockOptions.DEFAULT);
+    }
+
+    public PlayerDataManager(DataStorage storage, DataFormat format, EventBus eventBus, boolean autoPersist,
+                             WriteBehindFlusher writeBehind, GroupCommitter groupCommit, CacheOptions cacheOptions,
+                             LockOptions lockOptions) {
         this.storage = storage;
         this.format = format;
         this.eventBus = eventBus;
         this.autoPersist = autoPersist;
+        this.writeBehind = writeBehind;
+        this.groupCommit = groupCommit;
+        this.locks = new EntityLocks(lockOptions);
+        this.cache = new EntityCache<>(cacheOptions, "Players", this::tryEvict);
+        this.snapshotFile = cacheOptions.snapshotDirectory() == null ? null
+                : cacheOptions.snapshotDirectory().resolve("players.snapshot");
+        this.snapshot = snapshotFile == null ? WarmSnapshot.EMPTY : WarmSnapshot.open(snapshotFile, format);
     }
 
-    public Object getLock(UUID player) {
+    /**
+     * The stripe the player's lock lives on, which never changes. Refused with
+     * {@link LockOptions#withDedicatedLocks dedicated locks}, whose lock exists only while it is
+     * held or waited for; use {@link #lock} to take it.
+     */
+    public EntityLock getLock(UUID player) {
         return locks.forKey(player);
     }
 
+    /** The lock the player is taken on right now, or null if nothing holds one; see {@link EntityLocks#live}. */
+    EntityLock liveLock(UUID player) {
+        return locks.live(player);
+    }
+
+    /** Takes the player's lock; close the result to release it. */
+    EntityLock lock(UUID player) {
+        return locks.acquire(player);
+    }
+
     DataContainer getContainer(UUID player) {
-        return cache.computeIfAbsent(player, id -> new DataContainer());
+        return cache.getOrCreate(player);
     }
 
+    // The field's value as held in the player's cached container, read without the player's lock,
+    // which writers hold across storage round trips; null when the locked path has to decode it.
+    private Object cachedValue(UUID player, DataField<?> field) {
+        DataContainer container = cache.peek(player);
+        return container == null ? null : container.peek(field);
+    }
+
+    @SuppressWarnings("unchecked")
     public <T> T get(UUID player, PlayerField<T> field, ExpirationManager expiration) {
-        synchronized (getLock(player)) {
-            if (field instanceof ExpiringField<T> exp && expiration.isExpired(player, exp)) {
-                return field.defaultValue();
-            }
+        if (field instanceof ExpiringField<T> exp && expiration.isExpired(player, exp)) {
+            return field.defaultValue();
+        }
+        Object cached = cachedValue(player, field);
+        if (cached != null) return (T) DataContainer.unwrap(cached);
+        try (EntityLock ignored = lock(player)) {
             return getFieldValue(player, field);
         }
     }
 
     public <T> SaveResult set(UUID player, PlayerField<T> field, T value) {
         Validation.validate(field, value);
-        synchronized (getLock(player)) {
+        if (grouped()) {
+            return commitGrouped(player, field, oldValue -> value);
+        }
+        try (EntityLock ignored = lock(player)) {
             T oldValue = getFieldValue(player, field);
             SaveResult saved = setFieldValue(player, field, value);
             eventBus.firePlayerDataChanged(field, player, oldValue, value, eventVersion(saved));
@@ -75,7 +153,14 @@ class PlayerDataManager {
     }
 
     public <T> SaveResult update(UUID player, PlayerField<T> field, UnaryOperator<T> updater) {
-        synchronized (getLock(player)) {
+        if (grouped()) {
+            return commitGrouped(player, field, oldValue -> {
+                T newValue = updater.apply(oldValue);
+                Validation.validate(field, newValue);
+                return newValue;
+            });
+        }
+        try (EntityLock ignored = lock(player)) {
             T oldValue = getFieldValue(player, field);
             T newValue = updater.apply(oldValue);
             Validation.validate(field, newValue);
@@ -85,12 +170,230 @@ class PlayerDataManager {
         }
     }
 
+    private boolean grouped() {
+        return autoPersist && groupCommit != null;
+    }
+
+    // Stages the change under the player's lock and returns once the group it joined is durable.
+    // The change event is fired by the group, once per field, at the version the group wrote.
+    private <T> SaveResult commitGrouped(UUID player, PlayerField<T> field, UnaryOperator<T> change) {
+        return groupCommit.submit(player, locks, () -> stageChange(player, field, change),
+                () -> persistGroup(player));
+    }
+
+    /**
+     * Applies {@code change} to the cached document without writing it, for a caller that writes
+     * several changes at once with {@link #commitStaged}. Call under the player's lock.
+     */
+    <T> FieldChanges.Change stageChange(UUID player, PlayerField<T> field, UnaryOperator<T> change) {
+        T oldValue = getFieldValue(player, field);
+        T newValue = change.apply(oldValue);
+        stageFieldValue(player, field, newValue);
+        return new FieldChanges.Change(field.fullKey(), oldValue, newValue,
+                (from, to, version) -> fireChanged(field, player, from, to, version));
+    }
+
+    /** Writes what {@link #stageChange} staged, once, as a single write would. Call under the lock. */
+    SaveResult commitStaged(UUID player) {
+        if (autoPersist) return persistGroup(player);
+        deferWrite(player);
+        return SaveResult.unchanged(TYPE, player.toString(), getContainer(player).documentVersion());
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T> void fireChanged(PlayerField<T> field, UUID player, Object oldValue, Object newValue, long version) {
+        eventBus.firePlayerDataChanged(field, player, (T) oldValue, (T) newValue, version);
+    }
+
+    // A group whose changes were already written, say by an unload or flush that got the lock
+    // first, has nothing left to write; its changes are durable at the version that write made,
+    // which the group committer recorded (see persist) and reports in place of this result.
+    private SaveResult persistGroup(UUID player) {
+        DataContainer container = cache.get(player);
+        if (container == null || !container.isDirty()) {
+            long version = container == null ? 0L : container.documentVersion();
+            return version == 0L ? SaveResult.unchanged(TYPE, player.toString(), 0L)
+                    : SaveResult.saved(TYPE, player.toString(), version);
+        }
+        return persist(player);
+    }
+
     // A deferred write has no durable version to order peers by, so it publishes unversioned and is
     // delivered unconditionally; only a write that actually reached storage can claim a sequence.
     static long eventVersion(SaveResult result) {
         return result.saved() ? result.version() : 0L;
     }
 
+    // ---- Primitive fields ---------------------------------------------------
+    //
+    // The same read-modify-write as get/set/update, without boxing. The value is read from and
+    // written to the container's primitive slot, and the change event, which carries boxed values,
+    // is only built when something receives it. With deferred persistence an increment on a loaded
+    // player therefore allocates nothing. A validated field and group commit both hand the value to
+    // code that takes an object, so those take the boxed path.
+
+    private static final IntBinaryOperator ADD_INT = Integer::sum;
+    private static final IntBinaryOperator SET_INT = (oldValue, value) -> value;
+    private static final LongBinaryOperator ADD_LONG = Long::sum;
+    private static final LongBinaryOperator SET_LONG = (oldValue, value) -> value;
+    private static final DoubleBinaryOperator ADD_DOUBLE = Double::sum;
+    private static final DoubleBinaryOperator SET_DOUBLE = (oldValue, value) -> value;
+
+    public int getInt(UUID player, IntPlayerField field) {
+        Object cached = cachedValue(player, field);
+        if (cached != null) return DataContainer.intValue(cached, field);
+        try (EntityLock ignored = lock(player)) {
+            return primitiveContainer(player, field).getInt(field);
+        }
+    }
+
+    public int setInt(UUID player, IntPlayerField field, int value) {
+        return changeInt(player, field, null, SET_INT, value);
+    }
+
+    public int addInt(UUID player, IntPlayerField field, int delta) {
+        return changeInt(player, field, null, ADD_INT, delta);
+    }
+
+    public int updateInt(UUID player, IntPlayerField field, IntUnaryOperator updater) {
+        return changeInt(player, field, updater, null, 0);
+    }
+
+    // Applies updater, or else change with operand, and returns the new value.
+    private int changeInt(UUID player, IntPlayerField field, IntUnaryOperator updater,
+                          IntBinaryOperator change, int operand) {
+        if (boxedOnly(field)) {
+            int[] newValue = new int[1];
+            update(player, field, oldValue -> {
+                newValue[0] = updater != null ? updater.applyAsInt(oldValue) : change.applyAsInt(oldValue, operand);
+                return newValue[0];
+            });
+            return newValue[0];
+        }
+        try (EntityLock ignored = lock(player)) {
+            DataContainer container = primitiveContainer(player, field);
+            int oldValue = container.getInt(field);
+            int newValue = updater != null ? updater.applyAsInt(oldValue) : change.applyAsInt(oldValue, operand);
+            container.setInt(field, newValue);
+            long version = primitiveWritten(player);
+            if (eventBus.hasPlayerListeners(field)) {
+                eventBus.firePlayerDataChanged(field, player, oldValue, newValue, version);
+            }
+            return newValue;
+        }
+    }
+
+    public long getLong(UUID player, LongPlayerField field) {
+        Object cached = cachedValue(player, field);
+        if (cached != null) return DataContainer.longValue(cached, field);
+        try (EntityLock ignored = lock(player)) {
+            return primitiveContainer(player, field).getLong(field);
+        }
+    }
+
+    public long setLong(UUID player, LongPlayerField field, long value) {
+        return changeLong(player, field, null, SET_LONG, value);
+    }
+
+    public long addLong(UUID player, LongPlayerField field, long delta) {
+        return changeLong(player, field, null, ADD_LONG, delta);
+    }
+
+    public long updateLong(UUID player, LongPlayerField field, LongUnaryOperator updater) {
+        return changeLong(player, field, updater, null, 0L);
+    }
+
+    private long changeLong(UUID player, LongPlayerField field, LongUnaryOperator updater,
+                            LongBinaryOperator change, long operand) {
+        if (boxedOnly(field)) {
+            long[] newValue = new long[1];
+            update(player, field, oldValue -> {
+                newValue[0] = updater != null ? updater.applyAsLong(oldValue) : change.applyAsLong(oldValue, operand);
+                return newValue[0];
+            });
+            return newValue[0];
+        }
+        try (EntityLock ignored = lock(player)) {
+            DataContainer container = primitiveContainer(player, field);
+            long oldValue = container.getLong(field);
+            long newValue = updater != null ? updater.applyAsLong(oldValue) : change.applyAsLong(oldValue, operand);
+            container.setLong(field, newValue);
+            long version = primitiveWritten(player);
+            if (eventBus.hasPlayerListeners(field)) {
+                eventBus.firePlayerDataChanged(field, player, oldValue, newValue, version);
+            }
+            return newValue;
+        }
+    }
+
+    public double getDouble(UUID player, DoublePlayerField field) {
+        Object cached = cachedValue(player, field);
+        if (cached != null) return DataContainer.doubleValue(cached, field);
+        try (EntityLock ignored = lock(player)) {
+            return primitiveContainer(player, field).getDouble(field);
+        }
+    }
+
+    public double setDouble(UUID player, DoublePlayerField field, double value) {
+        return changeDouble(player, field, null, SET_DOUBLE, value);
+    }
+
+    public double addDouble(UUID player, DoublePlayerField field, double delta) {
+        return changeDouble(player, field, null, ADD_DOUBLE, delta);
+    }
+
+    public double updateDouble(UUID player, DoublePlayerField field, DoubleUnaryOperator updater) {
+        return changeDouble(player, field, updater, null, 0.0);
+    }
+
+    private double changeDouble(UUID player, DoublePlayerField field, DoubleUnaryOperator updater,
+                                DoubleBinaryOperator change, double operand) {
+        if (boxedOnly(field)) {
+            double[] newValue = new double[1];
+            update(player, field, oldValue -> {
+                newValue[0] = updater != null ? updater.applyAsDouble(oldValue) : change.applyAsDouble(oldValue, operand);
+                return newValue[0];
+            });
+            return newValue[0];
+        }
+        try (EntityLock ignored = lock(player)) {
+            DataContainer container = primitiveContainer(player, field);
+            double oldValue = container.getDouble(field);
+            double newValue = updater != null ? updater.applyAsDouble(oldValue)
+                    : change.applyAsDouble(oldValue, operand);
+            container.setDouble(field, newValue);
+            long version = primitiveWritten(player);
+            if (eventBus.hasPlayerListeners(field)) {
+                eventBus.firePlayerDataChanged(field, player, oldValue, newValue, version);
+            }
+            return newValue;
+        }
+    }
+
+    private boolean boxedOnly(PlayerField<?> field) {
+        return grouped() || field.validator() != null;
+    }
+
+    // Loads the document, so a write merges over it, and the field, so a read finds it.
+    private DataContainer primitiveContainer(UUID player, DataField<?> field) {
+        DataContainer container = getContainer(player);
+        ensureDocumentLoaded(player, container);
+        if (!container.has(field.fullKey())) {
+            container.ensureField(field, format);
+        }
+        return container;
+    }
+
+    // What setFieldValue does once the value is staged, returning just the event version so the
+    // deferred case builds no SaveResult.
+    private long primitiveWritten(UUID player) {
+        if (autoPersist) {
+            return eventVersion(persist(player));
+        }
+        deferWrite(player);
+        return 0L;
+    }
+
     <T> T getFieldValue(UUID player, DataField<T> field) {
         DataContainer container = getContainer(player);
         if (!container.has(field.fullKey())) {
@@ -101,22 +404,37 @@ class PlayerDataManager {
     }
 
     <T> SaveResult setFieldValue(UUID player, DataField<T> field, T value) {
+        DataContainer container = stageFieldValue(player, field, value);
+        if (autoPersist) {
+            return persist(player);
+        }
+        deferWrite(player);
+        return SaveResult.unchanged(TYPE, player.toString(), container.documentVersion());
+    }
+
+    // A player already queued keeps its place; only the first write since the last flush queues it.
+    private void deferWrite(UUID player) {
+        if (writeBehind != null && !writeBehind.isPending(player)) {
+            writeBehind.markDirty(player, () -> flush(player));
+        }
+    }
+
+    private <T> DataContainer stageFieldValue(UUID player, DataField<T> field, T value) {
         DataContainer container = getContainer(player);
         // Warm the backing document first so serialize() merges over it and never
         // drops fields that were never read this session.
         ensureDocumentLoaded(player, container);
         container.set(field, value);
-        if (autoPersist) {
-            return persist(player);
-        }
-        return SaveResult.unchanged(TYPE, player.toString(), container.documentVersion());
+        return container;
     }
 
     private void ensureDocumentLoaded(UUID player, DataContainer container) {
         if (!container.isDocumentLoaded()) {
-            VersionedData loaded = storage.loadVersioned(TYPE, player.toString());
-            container.loadDocument(format, loaded.data(), loaded.version());
+            VersionedData loaded = snapshot.take(player.toString(), storage, TYPE, player.toString());
+            if (loaded == null) loaded = storage.loadVersioned(TYPE, player.toString());
+            container.loadDocument(loaded);
             documentRead(player, loaded.version());
+            cache.reweigh(player, container);
         }
     }
 
@@ -133,6 +451,7 @@ class PlayerDataManager {
             return SaveResult.unchanged(TYPE, player.toString(), 0L);
         }
         SaveResult result = DocumentWriter.write(storage, format, TYPE, player.toString(), container);
+        if (groupCommit != null) groupCommit.written(player, result);
         updateLeaderboards(player, container);
         return result;
     }
@@ -179,7 +498,7 @@ class PlayerDataManager {
         LeaderboardIndex index = leaderboardIndex();
         if (index == null) return;
         for (Map.Entry<String, Object> entry : container.rawData().entrySet()) {
-            Double score = scoreOf(entry.getKey(), entry.getValue());
+            Double score = scoreOf(entry.getKey(), DataContainer.unwrap(entry.getValue()));
             if (score != null) {
                 index.updateScoreIfPresent(entry.getKey(), player.toString(), score);
             }
@@ -198,7 +517,7 @@ class PlayerDataManager {
         LeaderboardIndex index = requireLeaderboardIndex();
         for (String id : storage.listIds(TYPE)) {
             UUID player = UUID.fromString(id);
-            T value = getFieldValue(player, field);
+            T value = scanFieldValue(player, field);
             Double score = scoreOf(field.fullKey(), value);
             if (score == null) {
                 throw new IllegalStateException("Leaderboard field '" + field.fullKey()
@@ -208,11 +527,73 @@ class PlayerDataManager {
         }
     }
 
+    // ---- Scans --------------------------------------------------------------
+    //
+    // A bulk operation touches every stored player, and going through getContainer would leave a
+    // cached container, backing document and all, behind for each one until it is unloaded. A scan
+    // answers from the cache only for players already loaded here, so it still sees this node's
+    // unsaved writes, and decodes everyone else straight from storage into nothing that outlives
+    // the call. The cache is the same size after a scan as before it.
+
+    /** Reads one field for a scan without adding the player to this node's cache. */
+    <T> T scanFieldValue(UUID player, DataField<T> field) {
+        return scanFieldValue(player, field, () -> storage.loadFields(TYPE, player.toString(), Set.of(field.fullKey())));
+    }
+
+    /** As {@link #scanFieldValue(UUID, DataField)}, decoding {@code stored}, a batched read's copy. */
+    <T> T scanFieldValue(UUID player, DataField<T> field, byte[] stored) {
+        return scanFieldValue(player, field, () -> stored);
+    }
+
+    private <T> T scanFieldValue(UUID player, DataField<T> field, Supplier<byte[]> stored) {
+        if (cache.containsKey(player)) {
+            try (EntityLock ignored = lock(player)) {
+                if (cache.containsKey(player)) return getFieldValue(player, field);
+            }
+        }
+        return DataContainer.decodeField(format, stored.get(), field);
+    }
+
+    /**
+     * Applies {@code updater} to one field if its current value passes {@code filter}, firing the
+     * change like {@link #update} does. Returns whether the player was updated.
+     *
+     * <p>A player not cached here is worked on through a detached container over its stored
+     * document and written back through the same compare-and-set path. That write is immediate even
+     * without auto-persist: a detached container has no cache entry to wait in for a flush.
+     */
+    <T> boolean updateScanned(UUID player, PlayerField<T> field, Predicate<T> filter, UnaryOperator<T> updater) {
+        try (EntityLock ignored = lock(player)) {
+            if (cache.containsKey(player)) {
+                T value = getFieldValue(player, field);
+                if (!filter.test(value)) return false;
+                T newValue = updater.apply(value);
+                Validation.validate(field, newValue);
+                SaveResult saved = setFieldValue(player, field, newValue);
+                eventBus.firePlayerDataChanged(field, player, value, newValue, eventVersion(saved));
+                return true;
+            }
+            VersionedData stored = storage.loadVersioned(TYPE, player.toString());
+            DataContainer detached = new DataContainer();
+            detached.loadDocument(stored);
+            detached.ensureField(field, format);
+            T value = detached.get(field);
+            if (!filter.test(value)) return false;
+            T newValue = updater.apply(value);
+            Validation.validate(field, newValue);
+            detached.set(field, newValue);
+            SaveResult saved = DocumentWriter.write(storage, format, TYPE, player.toString(), detached);
+            updateLeaderboards(player, detached);
+            eventBus.firePlayerDataChanged(field, player, value, newValue, eventVersion(saved));
+            return true;
+        }
+    }
+
     // ---- Lifecycle ----------------------------------------------------------
 
     /** Warms the player's whole document into this node's cache in a single storage read. */
     public void load(UUID player) {
-        synchronized (getLock(player)) {
+        try (EntityLock ignored = lock(player)) {
             ensureDocumentLoaded(player, getContainer(player));
         }
     }
@@ -226,7 +607,7 @@ class PlayerDataManager {
         if (cached != null && cached.isDocumentLoaded()) {
             return CompletableFuture.completedFuture(null);
         }
-        // Claimed without the entity monitor on purpose: the running load holds that monitor for as
+        // Claimed without the entity lock on purpose: the running load holds that lock for as
         // long as the storage read takes, and a caller asking to join it must not have to wait for
         // the very read it is trying to share.
         CompletableFuture<Void> future = new CompletableFuture<>();
@@ -247,6 +628,70 @@ class PlayerDataManager {
         return future;
     }
 
+    /**
+     * Warms several players in one batched storage read instead of one round trip each, e.g. a
+     * party moving servers together. Players already loaded here are skipped.
+     */
+    public void loadAll(Collection<UUID> players) {
+        List<String> missing = new ArrayList<>();
+        for (UUID player : new LinkedHashSet<>(players)) {
+            DataContainer cached = cache.get(player);
+            if (cached == null || !cached.isDocumentLoaded()) missing.add(player.toString());
+        }
+        if (missing.isEmpty()) return;
+        Map<String, VersionedData> loaded = snapshot.takeAll(storage, TYPE, missing);
+        missing.removeAll(loaded.keySet());
+        if (!missing.isEmpty()) loaded.putAll(storage.loadManyVersioned(TYPE, missing));
+        for (Map.Entry<String, VersionedData> entry : loaded.entrySet()) {
+            UUID player = UUID.fromString(entry.getKey());
+            try (EntityLock ignored = lock(player)) {
+                // A single load may have won the race while the batch was in flight; its read is at
+                // least as fresh as this one, so it stands.
+                DataContainer container = getContainer(player);
+                if (container.isDocumentLoaded()) continue;
+                VersionedData stored = entry.getValue();
+                container.loadDocument(stored);
+                documentRead(player, stored.version());
+                cache.reweigh(player, container);
+            }
+        }
+    }
+
+    /**
+     * {@link #loadAll} off the calling thread. Players with a load already in flight join it, and
+     * the rest are claimed the way {@link #loadAsync} claims one, so a single load started during
+     * the batch shares it rather than reading the same document again.
+     */
+    public CompletableFuture<Void> loadAllAsync(Collection<UUID> players, Executor executor) {
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        Map<UUID, CompletableFuture<Void>> claimed = new LinkedHashMap<>();
+        for (UUID player : new LinkedHashSet<>(players)) {
+            DataContainer cached = cache.get(player);
+            if (cached != null && cached.isDocumentLoaded()) continue;
+            CompletableFuture<Void> future = new CompletableFuture<>();
+            CompletableFuture<Void> inFlight = loads.putIfAbsent(player, future);
+            pending.add(inFlight != null ? inFlight : future);
+            if (inFlight == null) claimed.put(player, future);
+        }
+        if (!claimed.isEmpty()) {
+            try {
+                executor.execute(() -> {
+                    Throwable failure = null;
+                    try {
+                        loadAll(claimed.keySet());
+                    } catch (Throwable t) {
+                        failure = t;
+                    }
+                    Throwable outcome = failure;
+                    claimed.forEach((player, future) -> finishLoad(player, future, outcome));
+                });
+            } catch (Throwable rejected) {
+                claimed.forEach((player, future) -> finishLoad(player, future, rejected));
+            }
+        }
+        return CompletableFuture.allOf(pending.toArray(CompletableFuture<?>[]::new));
+    }
+
     private void finishLoad(UUID player, CompletableFuture<Void> future, Throwable failure) {
         loads.remove(player, future);
         if (failure == null) {
@@ -266,7 +711,7 @@ class PlayerDataManager {
     /** Persists pending changes for a player if the cache holds unsaved edits. */
     public SaveResult flush(UUID player) {
         awaitLoad(player);
-        synchronized (getLock(player)) {
+        try (EntityLock ignored = lock(player)) {
             DataContainer container = cache.get(player);
             if (container != null && container.isDirty()) {
                 SaveResult saved = persist(player);
@@ -286,7 +731,7 @@ class PlayerDataManager {
     public SaveResult unload(UUID player) {
         awaitLoad(player);
         SaveResult result;
-        synchronized (getLock(player)) {
+        try (EntityLock ignored = lock(player)) {
             DataContainer container = cache.get(player);
             if (container != null && container.isDirty()) {
                 result = persist(player);
@@ -296,6 +741,7 @@ class PlayerDataManager {
                         container == null ? 0L : container.documentVersion());
             }
             cache.remove(player);
+            if (writeBehind != null) writeBehind.forget(player);
         }
         // Nothing here caches this player any more, so the ordering state kept for them is dead
         // weight on every node that keeps running.
@@ -307,10 +753,38 @@ class PlayerDataManager {
         return afterLoad(player, executor, () -> unload(player));
     }
 
+    // Called by the cache's evictor, never under another entity's lock. A player with a load in
+    // flight or a group commit waiting out its window is about to be used, so it stays; so does one
+    // whose flush fails, because dropping it would drop the writes that failed with it.
+    private boolean tryEvict(UUID player) {
+        if (loads.containsKey(player)) return false;
+        try (EntityLock ignored = lock(player)) {
+            DataContainer container = cache.get(player);
+            if (container == null || cache.isTracked(player)) return true;
+            if (groupCommit != null && groupCommit.isOpen(player)) return false;
+            if (container.isDirty()) {
+                try {
+                    SaveResult saved = persist(player);
+                    eventBus.firePlayerSnapshotSaved(player, saved.version());
+                } catch (RuntimeException e) {
+                    LOGGER.log(System.Logger.Level.WARNING,
+                            "Could not flush player " + player + " for eviction; keeping it cached", e);
+                    return false;
+                }
+            }
+            if (!cache.evicted(player, container)) return true;
+            if (writeBehind != null) writeBehind.forget(player);
+        }
+        eventBus.forgetPlayer(player);
+        return true;
+    }
+
     /** Drops the cached view without persisting it, for a player whose document is gone. */
     void evict(UUID player) {
-        synchronized (getLock(player)) {
+        try (EntityLock ignored = lock(player)) {
             cache.remove(player);
+            snapshot.forget(player.toString());
+            if (writeBehind != null) writeBehind.forget(player);
         }
         eventBus.forgetPlayer(player);
     }
@@ -323,9 +797,11 @@ class PlayerDataManager {
      */
     void delete(UUID player) {
         awaitLoad(player);
-        synchronized (getLock(player)) {
+        try (EntityLock ignored = lock(player)) {
             removeFromLeaderboards(player);
             cache.remove(player);
+            snapshot.forget(player.toString());
+            if (writeBehind != null) writeBehind.forget(player);
             storage.delete(TYPE, player.toString());
         }
         eventBus.forgetPlayer(player);
@@ -378,14 +854,14 @@ class PlayerDataManager {
      * node wrote since this node last looked. A player not cached here needs nothing.
      */
     void refresh(UUID player) {
-        synchronized (getLock(player)) {
+        try (EntityLock ignored = lock(player)) {
             DataContainer container = cache.get(player);
             if (container == null) return;
             if (container.isDirty()) {
                 persist(player);
             }
             VersionedData loaded = storage.loadVersioned(TYPE, player.toString());
-            container.reload(loaded.data(), loaded.version());
+            container.reload(loaded);
             documentRead(player, loaded.version());
         }
     }
@@ -405,7 +881,7 @@ class PlayerDataManager {
     <T> void applyRemote(DataField<T> field, UUID player, T newValue) {
         DataContainer container = cache.get(player);
         if (container == null) return;
-        synchronized (getLock(player)) {
+        try (EntityLock ignored = lock(player)) {
             container = cache.get(player);
             if (container == null) return;
             container.applyRemote(field, newValue, format);
@@ -419,7 +895,7 @@ class PlayerDataManager {
     boolean applyRemoteSnapshot(UUID player, long version) {
         DataContainer container = cache.get(player);
         if (container == null) return false;
-        synchronized (getLock(player)) {
+        try (EntityLock ignored = lock(player)) {
             container = cache.get(player);
             if (container == null || version <= container.documentVersion()) return false;
             if (container.isDirty()) {
@@ -430,7 +906,7 @@ class PlayerDataManager {
             }
             VersionedData loaded = storage.loadVersioned(TYPE, player.toString());
             if (loaded.version() < version) return false;
-            container.reload(loaded.data(), loaded.version());
+            container.reload(loaded);
             documentRead(player, loaded.version());
             return true;
         }
@@ -447,7 +923,7 @@ class PlayerDataManager {
         if (playerField == null) return null;
         DataField<K> ref = new SimpleFieldRef<>(playerField.fullKey(), type.keyCodec());
         try {
-            synchronized (getLock(player)) {
+            try (EntityLock ignored = lock(player)) {
                 return getFieldValue(player, ref);
             }
         } catch (RuntimeException e) {
@@ -465,6 +941,55 @@ class PlayerDataManager {
         return loads.size();
     }
 
+    /** Contention on the locks of players, with the {@code topN} stripes waited on longest. */
+    LockStats.Locks lockStats(int topN) {
+        return locks.stats(topN);
+    }
+
+    /** Adds every cached player's estimated footprint to {@code stats}. */
+    void collectMemory(MemoryStatsCollector stats) {
+        cache.forEach((player, container) -> stats.player(player.toString(), container));
+    }
+
+    /**
+     * Stops evicting; whatever is cached stays for the final flush. The snapshot this start opened
+     * is let go, since nothing is loaded from here on.
+     */
+    void shutdown() {
+        cache.shutdown();
+        snapshot.close();
+    }
+
+    /**
+     * Writes every cached player with nothing left to write to the snapshot file, for the next start
+     * to serve instead of reading them again. Run after the final flush; a no-op unless
+     * {@link CacheOptions#snapshotDirectory()} is set.
+     */
+    void writeSnapshot() {
+        if (snapshotFile == null) return;
+        Map<String, VersionedData> entries = new LinkedHashMap<>();
+        cache.forEach((player, container) -> {
+            try (EntityLock ignored = lock(player)) {
+                VersionedData stored = container.snapshot(format);
+                if (stored != null) entries.put(player.toString(), stored);
+            }
+        });
+        WarmSnapshot.write(snapshotFile, format, entries);
+    }
+
+    int snapshotEntries() {
+        return snapshot.size();
+    }
+
+    /** Evicts down to the cache bound on the calling thread, instead of waiting for the evictor. */
+    void cleanUpCache() {
+        cache.cleanUp();
+    }
+
+    long offHeapReservedBytes() {
+        return cache.offHeapReservedBytes();
+    }
+
     int cachedCount() {
         return cache.size();
     }
@@ -0,0 +1,32 @@
+package net.swofty.api;
+
+import java.util.concurrent.Executor;
+
+/**
+ * How bulk queries ({@code query}, {@code count}, {@code updateWhere} and the comparator
+ * leaderboards) walk stored documents.
+ *
+ * <p>The ids are split into chunks of {@code chunkSize}; each chunk is fetched with one batched
+ * storage read and decoded and filtered on {@code executor}. At most {@code maxInFlightChunks}
+ * chunks are being fetched or decoded at once, which is what keeps a scan over millions of
+ * documents from holding millions of documents: the heap a scan needs is roughly
+ * {@code chunkSize * maxInFlightChunks} documents, however large the table is.
+ *
+ * <p>Filters and updaters passed to a bulk operation run on the executor, several chunks at a
+ * time, so they must be safe to call concurrently. A chunk blocks on its storage read, and
+ * {@code updateWhere} on its writes and their retries, so a null {@code executor}, the default,
+ * gives the API a pool of its own for them: {@code maxInFlightChunks} threads, stopped when the
+ * API shuts down. An executor passed in is only borrowed; a virtual-thread-per-task executor suits
+ * backends whose batched read blocks on the network.
+ */
+public record ScanOptions(int chunkSize, int maxInFlightChunks, Executor executor) {
+    public static final ScanOptions DEFAULT = new ScanOptions(500,
+            Math.max(2, Runtime.getRuntime().availableProcessors()), null);
+
+    public ScanOptions {
+        if (chunkSize <= 0) throw new IllegalArgumentException("chunkSize must be positive: " + chunkSize);
+        if (maxInFlightChunks <= 0) {
+            throw new IllegalArgumentException("maxInFlightChunks must be positive: " + maxInFlightChunks);
+        }
+    }
+}
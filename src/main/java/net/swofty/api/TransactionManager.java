@@ -15,6 +15,7 @@ import java.util.Set;
 import java.util.UUID;
 import java.util.function.UnaryOperator;
 
+@SuppressWarnings("try")
 class TransactionManager {
     private static final DistributedLock.Handle NO_OP = () -> {};
 
@@ -54,7 +55,7 @@ class TransactionManager {
     private record Write(DataField<?> field, Object value) {}
 
     // Cross-node mutual exclusion when a distributed lock is configured; a no-op handle
-    // otherwise, leaving the JVM-local monitor as the only guard (single-node behaviour).
+    // otherwise, leaving the JVM-local entity lock as the only guard (single-node behaviour).
     private DistributedLock.Handle acquire(String key) {
         return distributedLock == null ? NO_OP : distributedLock.acquire(key, lockTimeout);
     }
@@ -79,7 +80,7 @@ class TransactionManager {
         // The lock key is recorded against this thread for the duration, so a write inside the body
         // that would transparently take the same non-reentrant lock can ride this one instead.
         try (DistributedLock.Handle handle = acquire(lockKey)) {
-            synchronized (playerData.getLock(player)) {
+            try (EntityLock ignored = playerData.lock(player)) {
                 enterScope(lockKey);
                 refreshPlayer(player);
                 TransactionContext tx = new TransactionContext(player, null, null);
@@ -112,7 +113,7 @@ class TransactionManager {
         String ck = LinkedDataManager.compositeKey(type.name(), key);
         String lockKey = "linked:" + ck;
         try (DistributedLock.Handle handle = acquire(lockKey)) {
-            synchronized (linkedData.getLock(ck)) {
+            try (EntityLock ignored = linkedData.lock(ck)) {
                 enterScope(lockKey);
                 refreshLinked(type.name(), key);
                 TransactionContext tx = new TransactionContext(null, type, key);
@@ -267,9 +268,11 @@ class TransactionManager {
             long playerVersion = 0L;
             if (!newPlayerValues.isEmpty()) {
                 DataContainer playerContainer = playerData.getContainer(player);
-                for (Write write : newPlayerValues.values()) {
-                    playerContainer.set((DataField<Object>) write.field(), write.value());
-                }
+                playerContainer.changeAtomically(() -> {
+                    for (Write write : newPlayerValues.values()) {
+                        playerContainer.set((DataField<Object>) write.field(), write.value());
+                    }
+                });
                 playerVersion = PlayerDataManager.eventVersion(playerData.persist(player));
             }
 
@@ -316,9 +319,11 @@ class TransactionManager {
 
             if (player != null) {
                 DataContainer playerContainer = playerData.getContainer(player);
-                for (Map.Entry<String, Object> entry : originalPlayerValues.entrySet()) {
-                    restore(playerContainer, entry.getKey(), entry.getValue());
-                }
+                playerContainer.changeAtomically(() -> {
+                    for (Map.Entry<String, Object> entry : originalPlayerValues.entrySet()) {
+                        restore(playerContainer, entry.getKey(), entry.getValue());
+                    }
+                });
             }
 
             for (Map.Entry<String, Object> entry : originalLinkedValues.entrySet()) {
@@ -0,0 +1,247 @@
+package net.swofty.api;
+
+import net.swofty.data.Bytes;
+import net.swofty.data.DataFormat;
+import net.swofty.storage.DataStorage;
+import net.swofty.storage.VersionedData;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * The documents a manager had cached when it last shut down, mapped back from the file it wrote
+ * them to, for {@link CacheOptions#snapshotDirectory()}.
+ *
+ * <p>The file puts an index of every entry (key, version, where its bytes are) ahead of the bytes
+ * themselves, so opening it reads the index and nothing else; an entry's document is paged in
+ * when its entity is next loaded, and copied out then. An entry is only served after storage
+ * reports the same version for it, checked at the point the storage read it replaces would have
+ * been made, so it is never older than that read. Served or not, an entry is used once.
+ *
+ * <p>Opening claims the file: it is renamed aside before it is mapped, so no later start can map
+ * it again, whether this one shuts down cleanly or not. Once every entry has been used, or the
+ * manager shuts down, the mapping is dropped and the claimed file deleted. A claimed file left by
+ * a start that crashed is deleted by the next one, unread.
+ *
+ * <p>A file that is missing, unreadable or written with another format is ignored, and the
+ * entities are read from storage as if there had been none.
+ */
+final class WarmSnapshot {
+    private static final System.Logger LOGGER = System.getLogger(WarmSnapshot.class.getName());
+    private static final int MAGIC = 0x53574453; // "SWDS"
+    private static final int LAYOUT = 1;
+
+    static final WarmSnapshot EMPTY = new WarmSnapshot(null, null, Map.of());
+
+    private record Entry(long version, int offset, int length) {}
+
+    private record Kept(byte[] key, VersionedData stored) {}
+
+    private final ConcurrentHashMap<String, Entry> index;
+    // Dropped once every entry was taken, so the mapping can go with it.
+    private volatile ByteBuffer mapped;
+    // The claimed file the mapping is of, deleted when it is dropped.
+    private Path claimed;
+
+    private WarmSnapshot(ByteBuffer mapped, Path claimed, Map<String, Entry> index) {
+        this.mapped = mapped;
+        this.claimed = claimed;
+        this.index = new ConcurrentHashMap<>(index);
+    }
+
+    /** Maps {@code file} back, or returns an empty snapshot when there is nothing usable in it. */
+    static WarmSnapshot open(Path file, DataFormat format) {
+        Path claimed = file.resolveSibling(file.getFileName() + ".open");
+        delete(claimed);
+        if (!Files.isRegularFile(file)) return EMPTY;
+        try {
+            move(file, claimed);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Ignoring cache snapshot " + file + ": could not claim it", e);
+            return EMPTY;
+        }
+        WarmSnapshot opened = map(claimed, file, format);
+        if (opened == EMPTY) delete(claimed);
+        return opened;
+    }
+
+    // Messages name the snapshot as it was written, not the claimed file being read.
+    private static WarmSnapshot map(Path claimed, Path file, DataFormat format) {
+        try (FileChannel channel = FileChannel.open(claimed, StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE) return EMPTY;
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            if (mapped.getInt() != MAGIC || mapped.getInt() != LAYOUT) {
+                LOGGER.log(System.Logger.Level.WARNING, "Ignoring " + file + ": not a cache snapshot");
+                return EMPTY;
+            }
+            if (!format.getClass().getName().equals(readString(mapped))) {
+                LOGGER.log(System.Logger.Level.INFO, "Ignoring " + file + ": written with another format");
+                return EMPTY;
+            }
+            int count = mapped.getInt();
+            Map<String, Entry> index = new HashMap<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                String key = readString(mapped);
+                Entry entry = new Entry(mapped.getLong(), mapped.getInt(), mapped.getInt());
+                if (entry.offset() < 0 || entry.length() < 0 || entry.offset() > mapped.limit() - entry.length()) {
+                    throw new IllegalStateException("entry for " + key + " lies outside the file");
+                }
+                index.put(key, entry);
+            }
+            return index.isEmpty() ? EMPTY : new WarmSnapshot(mapped, claimed, index);
+        } catch (IOException | BufferUnderflowException | IllegalStateException e) {
+            LOGGER.log(System.Logger.Level.WARNING, "Ignoring unreadable cache snapshot " + file, e);
+            return EMPTY;
+        }
+    }
+
+    /**
+     * The document kept for {@code key}, if storage still holds the same version of it as
+     * {@code type}/{@code id}; null to read it from storage instead. Call under the entity's lock.
+     */
+    VersionedData take(String key, DataStorage storage, String type, String id) {
+        ByteBuffer source = mapped;
+        Entry entry = index.remove(key);
+        if (entry == null) return null;
+        Long stored = storage.loadVersions(type, List.of(id)).get(id);
+        released();
+        return stored != null && stored == entry.version() ? read(source, entry) : null;
+    }
+
+    /**
+     * {@link #take} for several entities whose key is their id, with one version read for all of
+     * them. Ids with no current entry are absent from the result.
+     */
+    Map<String, VersionedData> takeAll(DataStorage storage, String type, Collection<String> ids) {
+        ByteBuffer source = mapped;
+        Map<String, Entry> taken = new LinkedHashMap<>();
+        for (String id : ids) {
+            Entry entry = index.remove(id);
+            if (entry != null) taken.put(id, entry);
+        }
+        Map<String, VersionedData> current = new LinkedHashMap<>();
+        if (taken.isEmpty()) return current;
+        Map<String, Long> stored = storage.loadVersions(type, taken.keySet());
+        released();
+        taken.forEach((id, entry) -> {
+            Long version = stored.get(id);
+            if (version != null && version == entry.version()) current.put(id, read(source, entry));
+        });
+        return current;
+    }
+
+    /** Drops the entry for an entity whose document this node just deleted. */
+    void forget(String key) {
+        if (index.remove(key) != null) released();
+    }
+
+    int size() {
+        return index.size();
+    }
+
+    /** Drops every entry still unused, the mapping and the claimed file; for the manager's shutdown. */
+    void close() {
+        index.clear();
+        released();
+    }
+
+    private void released() {
+        if (!index.isEmpty()) return;
+        Path file;
+        synchronized (this) {
+            mapped = null;
+            file = claimed;
+            claimed = null;
+        }
+        if (file != null) delete(file);
+    }
+
+    // A platform that will not delete a file still mapped leaves it to the next start's open.
+    private static void delete(Path file) {
+        try {
+            Files.deleteIfExists(file);
+        } catch (IOException e) {
+            LOGGER.log(System.Logger.Level.DEBUG, "Could not delete cache snapshot " + file, e);
+        }
+    }
+
+    private static void move(Path from, Path to) throws IOException {
+        try {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (AtomicMoveNotSupportedException e) {
+            Files.move(from, to, StandardCopyOption.REPLACE_EXISTING);
+        }
+    }
+
+    private static VersionedData read(ByteBuffer source, Entry entry) {
+        byte[] document = new byte[entry.length()];
+        source.get(entry.offset(), document);
+        return new VersionedData(Bytes.wrap(document), entry.version());
+    }
+
+    /**
+     * Writes {@code entries} to {@code file} through a mapping of a temporary file that then
+     * replaces it, so a crash mid-write leaves the previous snapshot, or none, rather than half of
+     * one. Entries past what one mapping can hold (2 GB) are left out.
+     */
+    static void write(Path file, DataFormat format, Map<String, VersionedData> entries) {
+        byte[] formatName = format.getClass().getName().getBytes(StandardCharsets.UTF_8);
+        List<Kept> kept = new ArrayList<>();
+        long indexSize = 12L + 2 + formatName.length;
+        long dataSize = 0;
+        for (Map.Entry<String, VersionedData> entry : entries.entrySet()) {
+            byte[] key = entry.getKey().getBytes(StandardCharsets.UTF_8);
+            if (key.length > 0xFFFF) continue;
+            long length = entry.getValue().bytes().length();
+            if (indexSize + 2 + key.length + 16 + dataSize + length > Integer.MAX_VALUE) {
+                LOGGER.log(System.Logger.Level.WARNING, "Cache snapshot " + file + " is full; keeping "
+                        + kept.size() + " of " + entries.size() + " entries");
+                break;
+            }
+            kept.add(new Kept(key, entry.getValue()));
+            indexSize += 2 + key.length + 16;
+            dataSize += length;
+        }
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.createDirectories(file.toAbsolutePath().getParent());
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE,
+                    StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                MappedByteBuffer out = channel.map(FileChannel.MapMode.READ_WRITE, 0, indexSize + dataSize);
+                out.putInt(MAGIC).putInt(LAYOUT);
+                out.putShort((short) formatName.length).put(formatName);
+                out.putInt(kept.size());
+                int offset = (int) indexSize;
+                for (Kept entry : kept) {
+                    Bytes document = entry.stored().bytes();
+                    out.putShort((short) entry.key().length).put(entry.key());
+                    out.putLong(entry.stored().version()).putInt(offset).putInt(document.length());
+                    out.put(offset, document.asByteBuffer(), 0, document.length());
+                    offset += document.length();
+                }
+                out.force();
+            }
+            move(temp, file);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Could not write cache snapshot " + file, e);
+        }
+    }
+
+    private static String readString(ByteBuffer in) {
+        byte[] bytes = new byte[Short.toUnsignedInt(in.getShort())];
+        in.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,166 @@
+package net.swofty.api;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drains the entities dirtied under {@link WriteBehindOptions} to storage in the background.
+ *
+ * <p>Each dirty entity has one queue entry, stamped when it was first dirtied and kept in that
+ * order, so the head of the queue is always the entity that has waited longest. A single scheduler
+ * thread walks the head: anything due is handed to the writer pool as long as the per-second
+ * budget and a writer slot allow, and the walk stops at the first entity that is not due yet.
+ * The entry is dropped before its write starts, so a write arriving while the flush runs queues the
+ * entity again instead of being lost behind it.
+ */
+class WriteBehindFlusher {
+    private static final System.Logger LOGGER = System.getLogger(WriteBehindFlusher.class.getName());
+    // Long enough for DocumentWriter to exhaust its own retry budget on a contended document.
+    private static final long SHUTDOWN_WAIT_SECONDS = 60;
+
+    private record Pending(Object key, long dirtiedAt, Runnable flush) {}
+
+    private final ConcurrentHashMap<Object, Pending> pending = new ConcurrentHashMap<>();
+    private final ConcurrentLinkedQueue<Pending> order = new ConcurrentLinkedQueue<>();
+    private final WriteBehindOptions options;
+    private final long dueAfterNanos;
+    private final Semaphore writerSlots;
+    private final ScheduledExecutorService scheduler;
+    private final ExecutorService writers;
+
+    // Token bucket for maxWritesPerSecond; only the scheduler thread touches these.
+    private double tokens;
+    private long refilledAt;
+    private boolean behind;
+
+    WriteBehindFlusher(WriteBehindOptions options) {
+        this.options = options;
+        this.dueAfterNanos = options.maxStaleness().toNanos() / 2;
+        this.writerSlots = new Semaphore(options.parallelism());
+        this.tokens = options.maxWritesPerSecond();
+        this.refilledAt = System.nanoTime();
+        this.scheduler = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread t = new Thread(r, "DataHandler-WriteBehind");
+            t.setDaemon(true);
+            return t;
+        });
+        AtomicInteger writerIds = new AtomicInteger();
+        this.writers = Executors.newFixedThreadPool(options.parallelism(), r -> {
+            Thread t = new Thread(r, "DataHandler-WriteBehind-" + writerIds.incrementAndGet());
+            t.setDaemon(true);
+            return t;
+        });
+        long tick = Math.max(TimeUnit.MILLISECONDS.toNanos(10),
+                Math.min(TimeUnit.MILLISECONDS.toNanos(250), options.maxStaleness().toNanos() / 10));
+        this.scheduler.scheduleWithFixedDelay(this::drain, tick, tick, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Queues {@code key} to be written by {@code flush}, unless it is already queued: the entry
+     * keeps its original timestamp, so repeated writes coalesce without pushing the deadline back.
+     */
+    void markDirty(Object key, Runnable flush) {
+        pending.computeIfAbsent(key, k -> {
+            Pending entry = new Pending(k, System.nanoTime(), flush);
+            order.add(entry);
+            return entry;
+        });
+    }
+
+    /** Whether {@code key} is queued, so a caller can skip building a flush for it again. */
+    boolean isPending(Object key) {
+        return pending.containsKey(key);
+    }
+
+    /** Drops a queued entity that was flushed or evicted some other way. */
+    void forget(Object key) {
+        pending.remove(key);
+    }
+
+    int pendingCount() {
+        return pending.size();
+    }
+
+    private void drain() {
+        try {
+            long now = System.nanoTime();
+            refill(now);
+            Pending head;
+            while ((head = order.peek()) != null) {
+                if (pending.get(head.key()) != head) {
+                    order.poll(); // forgotten, or already written
+                    continue;
+                }
+                if (now - head.dirtiedAt() < dueAfterNanos) break;
+                if (tokens < 1 || !writerSlots.tryAcquire()) {
+                    reportBacklog(head, now);
+                    break;
+                }
+                order.poll();
+                if (!pending.remove(head.key(), head)) {
+                    writerSlots.release();
+                    continue;
+                }
+                tokens -= 1;
+                Pending entry = head;
+                writers.execute(() -> write(entry));
+            }
+            if (order.isEmpty()) behind = false;
+        } catch (RuntimeException e) {
+            // A scheduled task that throws is never run again, which would silently end write-behind.
+            LOGGER.log(System.Logger.Level.ERROR, "Write-behind pass failed", e);
+        }
+    }
+
+    private void write(Pending entry) {
+        try {
+            entry.flush().run();
+        } catch (RuntimeException e) {
+            LOGGER.log(System.Logger.Level.WARNING,
+                    "Write-behind flush of " + entry.key() + " failed; it stays dirty and is retried", e);
+            markDirty(entry.key(), entry.flush());
+        } finally {
+            writerSlots.release();
+        }
+    }
+
+    private void refill(long now) {
+        double earned = (now - refilledAt) / 1_000_000_000.0 * options.maxWritesPerSecond();
+        tokens = Math.min(options.maxWritesPerSecond(), tokens + earned);
+        refilledAt = now;
+    }
+
+    private void reportBacklog(Pending head, long now) {
+        if (behind || now - head.dirtiedAt() < options.maxStaleness().toNanos()) return;
+        behind = true;
+        LOGGER.log(System.Logger.Level.WARNING, "Write-behind is missing its " + options.maxStaleness()
+                + " staleness bound with " + pending.size() + " dirty entities queued;"
+                + " raise maxWritesPerSecond or parallelism");
+    }
+
+    /**
+     * Stops scheduling and waits for writes already started. Whatever is still queued is left to
+     * the caller's own final flush, which is why this runs before it.
+     */
+    void shutdown() {
+        scheduler.shutdown();
+        try {
+            // A pass in progress may still hand writes to the pool, so the pool closes after it.
+            scheduler.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS);
+            writers.shutdown();
+            if (!writers.awaitTermination(SHUTDOWN_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                LOGGER.log(System.Logger.Level.WARNING,
+                        "Write-behind writers still running after " + SHUTDOWN_WAIT_SECONDS + "s");
+            }
+        } catch (InterruptedException e) {
+            writers.shutdown();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
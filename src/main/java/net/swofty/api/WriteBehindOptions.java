@@ -0,0 +1,32 @@
+package net.swofty.api;
+
+import java.time.Duration;
+import java.util.Objects;
+
+/**
+ * Background flushing for deferred writes: with these options a {@link DataAPIImpl} keeps writes in
+ * its cache, as {@code autoPersist = false} does, but no longer relies on an explicit flush, unload or
+ * shutdown to make them durable.
+ *
+ * <p>An entity is queued the first time it is dirtied; dirtying it again before it is written
+ * changes nothing, so a burst of writes to one player costs one storage write. It is written once
+ * it has been dirty for half of {@code maxStaleness}, leaving the other half for queueing and the
+ * write itself, so a crash loses at most about {@code maxStaleness} of work. At most
+ * {@code maxWritesPerSecond} writes are started per second and at most {@code parallelism} run at
+ * once; when those limits cannot keep up the oldest entities still go first, and the bound is
+ * logged as missed rather than silently stretched.
+ */
+public record WriteBehindOptions(Duration maxStaleness, int maxWritesPerSecond, int parallelism) {
+    public static final WriteBehindOptions DEFAULT = new WriteBehindOptions(Duration.ofSeconds(5), 1000, 4);
+
+    public WriteBehindOptions {
+        Objects.requireNonNull(maxStaleness, "maxStaleness");
+        if (maxStaleness.isNegative() || maxStaleness.isZero()) {
+            throw new IllegalArgumentException("maxStaleness must be positive: " + maxStaleness);
+        }
+        if (maxWritesPerSecond <= 0) {
+            throw new IllegalArgumentException("maxWritesPerSecond must be positive: " + maxWritesPerSecond);
+        }
+        if (parallelism <= 0) throw new IllegalArgumentException("parallelism must be positive: " + parallelism);
+    }
+}
@@ -7,6 +7,17 @@ public interface Codec<T> {
     T read(DataReader reader);
     void write(DataWriter writer, T value);
 
+    /**
+     * Roughly how many bytes of heap {@code value} holds, for memory accounting and byte-bounded
+     * caches. An estimate, never a measurement: it only has to rank values against each other and
+     * against a budget. The default guesses from the value's type (see {@link Codecs#estimateSize});
+     * a codec for a type that guess gets badly wrong, or whose values are expensive to walk, can
+     * answer for it instead.
+     */
+    default long estimateSize(T value) {
+        return Codecs.estimateSize(value);
+    }
+
     static <T> Codec<T> of(java.util.function.Function<DataReader, T> reader,
                            java.util.function.BiConsumer<DataWriter, T> writer) {
         java.util.Objects.requireNonNull(reader, "reader");
@@ -9,26 +9,32 @@ import java.util.*;
 public final class Codecs {
     private Codecs() {}
 
-    public static final Codec<Integer> INT = new Codec<>() {
+    // Shallow sizes on a 64-bit JVM with compressed references: a 12-byte header, fields, and
+    // padding to 8 bytes. Close enough to rank values and keep a budget honest; not a measurement.
+    private static final long BOX_BYTES = 16, WIDE_BOX_BYTES = 24, ARRAY_BYTES = 16, STRING_BYTES = 40;
+    private static final long COLLECTION_BYTES = 32, ELEMENT_BYTES = 16, MAP_BYTES = 48, MAP_ENTRY_BYTES = 32;
+    private static final long UNKNOWN_BYTES = 64;
+
+    public static final IntCodec INT = new IntCodec() {
         @Override
-        public Integer read(DataReader reader) {
+        public int readInt(DataReader reader) {
             return reader.readInt();
         }
 
         @Override
-        public void write(DataWriter writer, Integer value) {
+        public void writeInt(DataWriter writer, int value) {
             writer.writeInt(value);
         }
     };
 
-    public static final Codec<Long> LONG = new Codec<>() {
+    public static final LongCodec LONG = new LongCodec() {
         @Override
-        public Long read(DataReader reader) {
+        public long readLong(DataReader reader) {
             return reader.readLong();
         }
 
         @Override
-        public void write(DataWriter writer, Long value) {
+        public void writeLong(DataWriter writer, long value) {
             writer.writeLong(value);
         }
     };
@@ -45,14 +51,14 @@ public final class Codecs {
         }
     };
 
-    public static final Codec<Double> DOUBLE = new Codec<>() {
+    public static final DoubleCodec DOUBLE = new DoubleCodec() {
         @Override
-        public Double read(DataReader reader) {
+        public double readDouble(DataReader reader) {
             return reader.readDouble();
         }
 
         @Override
-        public void write(DataWriter writer, Double value) {
+        public void writeDouble(DataWriter writer, double value) {
             writer.writeDouble(value);
         }
     };
@@ -84,12 +90,12 @@ public final class Codecs {
     public static final Codec<UUID> UUID = new Codec<>() {
         @Override
         public UUID read(DataReader reader) {
-            return java.util.UUID.fromString(reader.readString());
+            return reader.readUuid();
         }
 
         @Override
         public void write(DataWriter writer, UUID value) {
-            writer.writeString(value.toString());
+            writer.writeUuid(value);
         }
     };
 
@@ -116,6 +122,11 @@ public final class Codecs {
             public void write(DataWriter writer, List<T> value) {
                 writer.writeList(value, element);
             }
+
+            @Override
+            public long estimateSize(List<T> value) {
+                return estimateElements(value, element);
+            }
         };
     }
 
@@ -130,6 +141,11 @@ public final class Codecs {
             public void write(DataWriter writer, Set<T> value) {
                 writer.writeSet(value, element);
             }
+
+            @Override
+            public long estimateSize(Set<T> value) {
+                return estimateElements(value, element);
+            }
         };
     }
 
@@ -137,23 +153,46 @@ public final class Codecs {
         return new Codec<>() {
             @Override
             public Map<K, V> read(DataReader reader) {
-                List<K> keys = reader.readList(keyCodec);
-                List<V> values = reader.readList(valueCodec);
-                Map<K, V> map = new LinkedHashMap<>();
-                for (int i = 0; i < keys.size(); i++) {
-                    map.put(keys.get(i), values.get(i));
-                }
-                return map;
+                return reader.readMap(keyCodec, valueCodec);
             }
 
             @Override
             public void write(DataWriter writer, Map<K, V> value) {
-                writer.writeList(new ArrayList<>(value.keySet()), keyCodec);
-                writer.writeList(new ArrayList<>(value.values()), valueCodec);
+                writer.writeMap(value, keyCodec, valueCodec);
+            }
+
+            @Override
+            public long estimateSize(Map<K, V> value) {
+                if (value == null) return 0;
+                long size = MAP_BYTES + ARRAY_BYTES + 4L * value.size();
+                for (Map.Entry<K, V> entry : value.entrySet()) {
+                    size += MAP_ENTRY_BYTES + keyCodec.estimateSize(entry.getKey()) + valueCodec.estimateSize(entry.getValue());
+                }
+                return size;
             }
         };
     }
 
+    /**
+     * A codec for a record, derived once from its components. Each component's codec is picked from
+     * its declared type: primitives and their boxes, {@code String}, {@code UUID}, {@code Instant},
+     * {@code byte[]}, enums (by name), nested records, and {@code List}, {@code Set} and {@code Map}
+     * of those. Reading and writing invoke pre-resolved method handles; nothing is looked up per
+     * call. A component of any other type needs its codec passed to
+     * {@link #record(Class, Map)}.
+     *
+     * <p>Components are written as sections named after them, so the record can be stored in any
+     * format. Null components are rejected unless their codec is {@link #nullable}.
+     */
+    public static <R extends Record> Codec<R> record(Class<R> type) {
+        return record(type, Map.of());
+    }
+
+    /** As {@link #record(Class)}, with the codecs of some components, by component name, given explicitly. */
+    public static <R extends Record> Codec<R> record(Class<R> type, Map<String, Codec<?>> componentCodecs) {
+        return new RecordCodec<>(type, componentCodecs);
+    }
+
     public static <T> Codec<T> nullable(Codec<T> codec) {
         return new Codec<>() {
             @Override
@@ -169,6 +208,53 @@ public final class Codecs {
                     codec.write(writer, value);
                 }
             }
+
+            @Override
+            public long estimateSize(T value) {
+                return value == null ? 0 : codec.estimateSize(value);
+            }
         };
     }
+
+    private static <T> long estimateElements(Collection<T> value, Codec<T> element) {
+        if (value == null) return 0;
+        long size = COLLECTION_BYTES + ARRAY_BYTES + ELEMENT_BYTES * value.size();
+        for (T item : value) {
+            size += element.estimateSize(item);
+        }
+        return size;
+    }
+
+    /**
+     * The default {@link Codec#estimateSize}: a guess at the heap {@code value} holds from its
+     * runtime type. Boxes, strings, UUIDs, instants, byte arrays, enums (shared, so free) and
+     * collections and maps of those are sized; anything else, records included, counts as a small
+     * object. A collection is walked element by element, so sizing a huge one costs as much as
+     * iterating it.
+     */
+    public static long estimateSize(Object value) {
+        if (value == null || value instanceof Enum<?>) return 0;
+        if (value instanceof Long || value instanceof Double) return WIDE_BOX_BYTES;
+        if (value instanceof Number || value instanceof Boolean || value instanceof Character) return BOX_BYTES;
+        if (value instanceof String string) return STRING_BYTES + align(string.length());
+        if (value instanceof java.util.UUID || value instanceof Instant) return WIDE_BOX_BYTES + 8;
+        if (value instanceof byte[] bytes) return ARRAY_BYTES + align(bytes.length);
+        if (value instanceof Collection<?> collection) {
+            long size = COLLECTION_BYTES + ARRAY_BYTES + ELEMENT_BYTES * collection.size();
+            for (Object item : collection) size += estimateSize(item);
+            return size;
+        }
+        if (value instanceof Map<?, ?> map) {
+            long size = MAP_BYTES + ARRAY_BYTES + 4L * map.size();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                size += MAP_ENTRY_BYTES + estimateSize(entry.getKey()) + estimateSize(entry.getValue());
+            }
+            return size;
+        }
+        return UNKNOWN_BYTES;
+    }
+
+    private static long align(long bytes) {
+        return (bytes + 7) & ~7L;
+    }
 }
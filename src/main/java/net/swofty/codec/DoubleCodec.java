@@ -0,0 +1,23 @@
+package net.swofty.codec;
+
+import net.swofty.data.DataReader;
+import net.swofty.data.DataWriter;
+
+/**
+ * A {@code Codec<Double>} that can also read and write a bare {@code double}, so a caller holding the
+ * primitive never boxes it. The boxed methods delegate to the primitive ones.
+ */
+public interface DoubleCodec extends Codec<Double> {
+    double readDouble(DataReader reader);
+    void writeDouble(DataWriter writer, double value);
+
+    @Override
+    default Double read(DataReader reader) {
+        return readDouble(reader);
+    }
+
+    @Override
+    default void write(DataWriter writer, Double value) {
+        writeDouble(writer, value);
+    }
+}
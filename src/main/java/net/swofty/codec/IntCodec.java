@@ -0,0 +1,23 @@
+package net.swofty.codec;
+
+import net.swofty.data.DataReader;
+import net.swofty.data.DataWriter;
+
+/**
+ * A {@code Codec<Integer>} that can also read and write a bare {@code int}, so a caller holding the
+ * primitive never boxes it. The boxed methods delegate to the primitive ones.
+ */
+public interface IntCodec extends Codec<Integer> {
+    int readInt(DataReader reader);
+    void writeInt(DataWriter writer, int value);
+
+    @Override
+    default Integer read(DataReader reader) {
+        return readInt(reader);
+    }
+
+    @Override
+    default void write(DataWriter writer, Integer value) {
+        writeInt(writer, value);
+    }
+}
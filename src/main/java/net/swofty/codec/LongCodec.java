@@ -0,0 +1,23 @@
+package net.swofty.codec;
+
+import net.swofty.data.DataReader;
+import net.swofty.data.DataWriter;
+
+/**
+ * A {@code Codec<Long>} that can also read and write a bare {@code long}, so a caller holding the
+ * primitive never boxes it. The boxed methods delegate to the primitive ones.
+ */
+public interface LongCodec extends Codec<Long> {
+    long readLong(DataReader reader);
+    void writeLong(DataWriter writer, long value);
+
+    @Override
+    default Long read(DataReader reader) {
+        return readLong(reader);
+    }
+
+    @Override
+    default void write(DataWriter writer, Long value) {
+        writeLong(writer, value);
+    }
+}
@@ -0,0 +1,206 @@
+package net.swofty.codec;
+
+import net.swofty.data.DataReader;
+import net.swofty.data.DataWriter;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.ParameterizedType;
+import java.lang.reflect.RecordComponent;
+import java.lang.reflect.Type;
+import java.time.Instant;
+import java.util.*;
+
+/**
+ * The codec {@link Codecs#record} derives for a record class.
+ *
+ * <p>All of the reflection happens once, in the constructor. Each component's accessor and the
+ * canonical constructor are resolved into {@link MethodHandle}s, and each component's codec is
+ * chosen from its declared type. After that a read or write only invokes those handles. An
+ * {@code int}, {@code long} or {@code double} component is read out of the record and handed to
+ * its primitive codec without being boxed.
+ *
+ * <p>Each component is written as a section named after it, in declaration order. A JSON document
+ * therefore reads as an object keyed by the record's component names, and a binary one is the
+ * components one after another.
+ */
+final class RecordCodec<R extends Record> implements Codec<R> {
+    private final Class<R> type;
+    private final Component[] components;
+    // (Object[]) -> Object: the canonical constructor, spread over one array of component values.
+    private final MethodHandle constructor;
+
+    RecordCodec(Class<R> type, Map<String, Codec<?>> explicit) {
+        this(type, explicit, new HashSet<>());
+    }
+
+    private RecordCodec(Class<R> type, Map<String, Codec<?>> explicit, Set<Class<?>> deriving) {
+        if (!deriving.add(type)) {
+            throw new IllegalArgumentException("Record " + type.getName()
+                    + " contains itself; pass the codec of the component that refers back to it explicitly");
+        }
+        this.type = type;
+        MethodHandles.Lookup lookup = lookupIn(type);
+        RecordComponent[] declared = type.getRecordComponents();
+        Class<?>[] parameterTypes = new Class<?>[declared.length];
+        this.components = new Component[declared.length];
+        try {
+            for (int i = 0; i < declared.length; i++) {
+                RecordComponent component = declared[i];
+                parameterTypes[i] = component.getType();
+                Codec<?> codec = explicit.get(component.getName());
+                boolean derived = codec == null;
+                if (derived) {
+                    codec = derive(component.getGenericType(), type.getSimpleName() + "." + component.getName(), deriving);
+                }
+                components[i] = new Component(component.getName(), component.getType(),
+                        lookup.unreflect(component.getAccessor()), codec, derived);
+            }
+            this.constructor = lookup.findConstructor(type, MethodType.methodType(void.class, parameterTypes))
+                    .asType(MethodType.genericMethodType(declared.length))
+                    .asSpreader(Object[].class, declared.length);
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalArgumentException("Cannot derive a codec for " + type.getName(), e);
+        }
+        deriving.remove(type);
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public R read(DataReader reader) {
+        Object[] values = new Object[components.length];
+        for (int i = 0; i < components.length; i++) {
+            Component component = components[i];
+            values[i] = component.codec.read(reader.readSection(component.name));
+        }
+        try {
+            return (R) (Object) constructor.invokeExact(values);
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    @Override
+    public void write(DataWriter writer, R value) {
+        try {
+            for (Component component : components) {
+                component.write(writer, value);
+            }
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+    }
+
+    // The record's own header and one reference or primitive slot per component, plus whatever
+    // each component's codec says its value holds.
+    @Override
+    public long estimateSize(R value) {
+        if (value == null) return 0;
+        long size = 16 + 8L * components.length;
+        try {
+            for (Component component : components) {
+                size += component.estimateSize(value);
+            }
+        } catch (Throwable e) {
+            throw rethrow(e);
+        }
+        return size;
+    }
+
+    private static final class Component {
+        private static final int REFERENCE = 0, INT = 1, LONG = 2, DOUBLE = 3;
+
+        final String name;
+        final Codec<Object> codec;
+        final int kind;
+        // A derived codec cannot take a null; one passed explicitly decides for itself.
+        final boolean derived;
+        // (Object) -> Object for a reference component, (Object) -> int/long/double for a primitive one.
+        final MethodHandle accessor;
+
+        @SuppressWarnings("unchecked")
+        Component(String name, Class<?> type, MethodHandle accessor, Codec<?> codec, boolean derived) {
+            this.name = name;
+            this.codec = (Codec<Object>) codec;
+            this.derived = derived;
+            this.kind = type == int.class && codec instanceof IntCodec ? INT
+                    : type == long.class && codec instanceof LongCodec ? LONG
+                    : type == double.class && codec instanceof DoubleCodec ? DOUBLE
+                    : REFERENCE;
+            Class<?> returned = kind == REFERENCE ? Object.class : type;
+            this.accessor = accessor.asType(MethodType.methodType(returned, Object.class));
+        }
+
+        // A primitive component lives in the record itself, so only a reference has a value to size.
+        long estimateSize(Object record) throws Throwable {
+            return kind == REFERENCE ? codec.estimateSize((Object) accessor.invokeExact(record)) : 0;
+        }
+
+        void write(DataWriter writer, Object record) throws Throwable {
+            DataWriter section = writer.writeSection(name);
+            switch (kind) {
+                case INT -> ((IntCodec) (Codec<?>) codec).writeInt(section, (int) accessor.invokeExact(record));
+                case LONG -> ((LongCodec) (Codec<?>) codec).writeLong(section, (long) accessor.invokeExact(record));
+                case DOUBLE -> ((DoubleCodec) (Codec<?>) codec).writeDouble(section, (double) accessor.invokeExact(record));
+                default -> {
+                    Object value = (Object) accessor.invokeExact(record);
+                    if (value == null && derived) {
+                        throw new NullPointerException("Component '" + name + "' of " + record.getClass().getSimpleName()
+                                + " is null; give it a Codecs.nullable codec to store nulls");
+                    }
+                    codec.write(section, value);
+                }
+            }
+        }
+    }
+
+    // Works for any record on the class path. A record in a named module needs that module to open
+    // its package to this one.
+    private static MethodHandles.Lookup lookupIn(Class<?> type) {
+        try {
+            return MethodHandles.privateLookupIn(type, MethodHandles.lookup());
+        } catch (IllegalAccessException e) {
+            throw new IllegalArgumentException("Cannot access " + type.getName() + " to derive its codec", e);
+        }
+    }
+
+    @SuppressWarnings({"unchecked", "rawtypes"})
+    private static Codec<?> derive(Type type, String where, Set<Class<?>> deriving) {
+        if (type instanceof Class<?> raw) {
+            if (raw == int.class || raw == Integer.class) return Codecs.INT;
+            if (raw == long.class || raw == Long.class) return Codecs.LONG;
+            if (raw == double.class || raw == Double.class) return Codecs.DOUBLE;
+            if (raw == float.class || raw == Float.class) return Codecs.FLOAT;
+            if (raw == boolean.class || raw == Boolean.class) return Codecs.BOOL;
+            if (raw == String.class) return Codecs.STRING;
+            if (raw == UUID.class) return Codecs.UUID;
+            if (raw == Instant.class) return Codecs.INSTANT;
+            if (raw == byte[].class) return BYTES;
+            if (raw.isEnum()) return enumeration((Class) raw);
+            if (raw.isRecord()) return new RecordCodec(raw, Map.of(), deriving);
+        } else if (type instanceof ParameterizedType parameterized
+                && parameterized.getRawType() instanceof Class<?> raw) {
+            Type[] arguments = parameterized.getActualTypeArguments();
+            if (raw == List.class) return Codecs.list(derive(arguments[0], where, deriving));
+            if (raw == Set.class) return Codecs.set(derive(arguments[0], where, deriving));
+            if (raw == Map.class) {
+                return Codecs.map(derive(arguments[0], where, deriving), derive(arguments[1], where, deriving));
+            }
+        }
+        throw new IllegalArgumentException("No codec can be derived for " + where + " of type "
+                + type.getTypeName() + "; pass one for it explicitly");
+    }
+
+    private static final Codec<byte[]> BYTES = Codec.of(DataReader::readBytes, DataWriter::writeBytes);
+
+    private static <E extends Enum<E>> Codec<E> enumeration(Class<E> type) {
+        return Codec.of(reader -> Enum.valueOf(type, reader.readString()), (writer, value) -> writer.writeString(value.name()));
+    }
+
+    private RuntimeException rethrow(Throwable e) {
+        if (e instanceof RuntimeException runtime) return runtime;
+        if (e instanceof Error error) throw error;
+        return new IllegalStateException("Record codec for " + type.getName() + " failed", e);
+    }
+}
@@ -0,0 +1,178 @@
+package net.swofty.data;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
+import java.util.Objects;
+
+/**
+ * An immutable view of a stored document's bytes, passed from storage through the formats into a
+ * container without being copied on the way.
+ *
+ * <p>Immutability is by contract rather than by copying: {@link #wrap} takes the array over as it
+ * is, so whoever wraps an array must not write to it afterwards, and nothing holding a
+ * {@code Bytes} ever writes to the array behind it. A caller that cannot promise that uses
+ * {@link #copyOf}. {@link #toByteArray} is the copy for code that wants an array of its own.
+ *
+ * <p>A view can also be over a buffer, typically direct memory outside the heap, through
+ * {@link #wrap(ByteBuffer)}. Such a view has no array ({@link #hasArray()} is false), so
+ * {@link #sharedArray()} copies, and whoever owns the memory decides how long the view stays valid.
+ */
+public final class Bytes {
+    public static final Bytes EMPTY = new Bytes(new byte[0], 0, 0);
+
+    // Exactly one of the two is set: the array behind an on-heap view, or the read-only buffer,
+    // positioned at 0 with its limit at the length, behind a buffer view.
+    private final byte[] array;
+    private final ByteBuffer buffer;
+    private final int offset;
+    private final int length;
+
+    private Bytes(byte[] array, int offset, int length) {
+        this.array = array;
+        this.buffer = null;
+        this.offset = offset;
+        this.length = length;
+    }
+
+    private Bytes(ByteBuffer buffer) {
+        this.array = null;
+        this.buffer = buffer;
+        this.offset = 0;
+        this.length = buffer.limit();
+    }
+
+    /** A view of the whole array, which must not be modified afterwards. Null stays null. */
+    public static Bytes wrap(byte[] array) {
+        return array == null ? null : new Bytes(array, 0, array.length);
+    }
+
+    /** A view of {@code length} bytes of {@code array} from {@code offset}, which must not be modified afterwards. */
+    public static Bytes wrap(byte[] array, int offset, int length) {
+        Objects.checkFromIndexSize(offset, length, array.length);
+        return new Bytes(array, offset, length);
+    }
+
+    /**
+     * A view of the buffer's remaining bytes, which must not be modified afterwards. The buffer's
+     * own position and limit are left alone.
+     */
+    public static Bytes wrap(ByteBuffer buffer) {
+        return new Bytes(buffer.slice().asReadOnlyBuffer());
+    }
+
+    /** A view of a copy of the array, for a caller that may still change it. Null stays null. */
+    public static Bytes copyOf(byte[] array) {
+        return array == null ? null : new Bytes(array.clone(), 0, array.length);
+    }
+
+    public int length() {
+        return length;
+    }
+
+    public boolean isEmpty() {
+        return length == 0;
+    }
+
+    public byte byteAt(int index) {
+        Objects.checkIndex(index, length);
+        return array != null ? array[offset + index] : buffer.get(index);
+    }
+
+    /** The bytes from {@code from} (inclusive) to {@code to} (exclusive), sharing this view's memory. */
+    public Bytes slice(int from, int to) {
+        Objects.checkFromToIndex(from, to, length);
+        return array != null ? new Bytes(array, offset + from, to - from) : new Bytes(buffer.slice(from, to - from));
+    }
+
+    /** A read-only buffer over the bytes, positioned at the first of them. */
+    public ByteBuffer asByteBuffer() {
+        return array != null ? ByteBuffer.wrap(array, offset, length).slice().asReadOnlyBuffer() : buffer.duplicate();
+    }
+
+    public InputStream newInputStream() {
+        if (array != null) return new ByteArrayInputStream(array, offset, length);
+        ByteBuffer source = buffer.duplicate();
+        return new InputStream() {
+            @Override
+            public int read() {
+                return source.hasRemaining() ? source.get() & 0xFF : -1;
+            }
+
+            @Override
+            public int read(byte[] into, int off, int len) {
+                Objects.checkFromIndexSize(off, len, into.length);
+                if (len == 0) return 0;
+                if (!source.hasRemaining()) return -1;
+                int n = Math.min(len, source.remaining());
+                source.get(into, off, n);
+                return n;
+            }
+
+            @Override
+            public int available() {
+                return source.remaining();
+            }
+        };
+    }
+
+    /** A copy of the bytes in an array of their own. */
+    public byte[] toByteArray() {
+        if (array != null) return Arrays.copyOfRange(array, offset, offset + length);
+        byte[] copy = new byte[length];
+        buffer.get(0, copy);
+        return copy;
+    }
+
+    /**
+     * The bytes as one array, for handing to an API that takes {@code byte[]}: the array behind
+     * this view when the view spans all of it, which the receiver must not modify, or else a copy.
+     */
+    public byte[] sharedArray() {
+        return array != null && offset == 0 && length == array.length ? array : toByteArray();
+    }
+
+    /** Whether the view is over an array, so {@link #unsafeArray()} and {@link #offset()} apply. */
+    public boolean hasArray() {
+        return array != null;
+    }
+
+    /**
+     * The array behind this view, for a reader that takes an array, an offset and a length. The
+     * bytes are {@code length()} of them from {@link #offset()}, and must not be modified.
+     *
+     * @throws UnsupportedOperationException for a view over a buffer; see {@link #hasArray()}
+     */
+    public byte[] unsafeArray() {
+        if (array == null) throw new UnsupportedOperationException("Bytes over a buffer have no array");
+        return array;
+    }
+
+    public int offset() {
+        return offset;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof Bytes other)) return false;
+        if (array != null && other.array != null) {
+            return Arrays.equals(array, offset, offset + length, other.array, other.offset, other.offset + other.length);
+        }
+        return asByteBuffer().equals(other.asByteBuffer());
+    }
+
+    @Override
+    public int hashCode() {
+        int hash = 1;
+        for (int i = 0; i < length; i++) {
+            hash = 31 * hash + byteAt(i);
+        }
+        return hash;
+    }
+
+    @Override
+    public String toString() {
+        return "Bytes[" + length + "]";
+    }
+}
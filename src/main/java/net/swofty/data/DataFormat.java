@@ -1,9 +1,20 @@
 package net.swofty.data;
 
+import net.swofty.codec.Codec;
+
 import java.util.Map;
 
 public interface DataFormat {
     DataReader createReader(byte[] data);
+
+    /**
+     * Creates a reader over a stored document. The view is handed to {@link #createReader(byte[])}
+     * as its own array, which is not a copy for a whole document as storage returns it, so a
+     * format (or a subclass of one) only ever implements the {@code byte[]} form.
+     */
+    default DataReader createReader(Bytes data) {
+        return createReader(data.sharedArray());
+    }
     DataWriter createWriter();
     byte[] toBytes(DataWriter writer);
 
@@ -19,6 +30,31 @@ public interface DataFormat {
                 getClass().getSimpleName() + " does not support whole-document (readRaw) access");
     }
 
+    /** {@link #readRaw(byte[])} over a view of a stored document, handed over as {@link #createReader(Bytes)} does. */
+    default Map<String, Object> readRaw(Bytes data) {
+        return readRaw(data == null ? null : data.sharedArray());
+    }
+
+    /**
+     * Creates a reader over a document {@link #readRaw} has already decoded, so a caller that keeps
+     * the decoded tree can pull fields out of it without parsing the same bytes again. The default
+     * re-encodes the tree and reads that back, which is correct for any keyed format; formats whose
+     * reader works on the decoded tree directly should override it.
+     */
+    default DataReader createDocumentReader(Map<String, Object> document) {
+        return createReader(writeRaw(document));
+    }
+
+    /**
+     * The form a live field value takes in the map handed to {@link #writeRaw}. The default hands
+     * the value over as it is, for formats that print live objects themselves; a format that
+     * stores codec output encodes it with {@code codec} here, into whatever {@link #readRaw}
+     * yields for that field.
+     */
+    default <T> Object encodeValue(Codec<T> codec, T value) {
+        return value;
+    }
+
     /** Serializes a top-level {@code fullKey -> value} map back into stored bytes. */
     default byte[] writeRaw(Map<String, Object> data) {
         throw new UnsupportedOperationException(
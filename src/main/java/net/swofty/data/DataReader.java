@@ -2,8 +2,11 @@ package net.swofty.data;
 
 import net.swofty.codec.Codec;
 
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 public interface DataReader {
     int readInt();
@@ -14,9 +17,29 @@ public interface DataReader {
     String readString();
     byte[] readBytes();
 
+    /** Reads a UUID in whatever form {@link DataWriter#writeUuid} gave it. */
+    default UUID readUuid() {
+        return UUID.fromString(readString());
+    }
+
     DataReader readSection(String key);
     <T> List<T> readList(Codec<T> elementCodec);
     <T> Set<T> readSet(Codec<T> elementCodec);
 
+    /**
+     * Reads a map written by {@link DataWriter#writeMap}, in its original order. A format that
+     * overrides {@code writeMap} still reads the key-list-then-value-list layout older versions
+     * wrote, which is what this default reads.
+     */
+    default <K, V> Map<K, V> readMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        List<K> keys = readList(keyCodec);
+        List<V> values = readList(valueCodec);
+        Map<K, V> map = new LinkedHashMap<>(Math.max(4, keys.size() * 4 / 3 + 1));
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), values.get(i));
+        }
+        return map;
+    }
+
     boolean hasKey(String key);
 }
@@ -2,8 +2,11 @@ package net.swofty.data;
 
 import net.swofty.codec.Codec;
 
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
+import java.util.UUID;
 
 public interface DataWriter {
     void writeInt(int value);
@@ -14,7 +17,22 @@ public interface DataWriter {
     void writeString(String value);
     void writeBytes(byte[] bytes);
 
+    /** Writes a UUID. The default is its string form; a binary format may write the 16 raw bytes. */
+    default void writeUuid(UUID value) {
+        writeString(value.toString());
+    }
+
     DataWriter writeSection(String key);
     <T> void writeList(List<T> list, Codec<T> elementCodec);
     <T> void writeSet(Set<T> set, Codec<T> elementCodec);
+
+    /**
+     * Writes a map's entries for {@link DataReader#readMap}. The default is the original layout, a
+     * list of the keys followed by a list of the values; formats override it to stream the entries
+     * in one pass without copying either side into a list first.
+     */
+    default <K, V> void writeMap(Map<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec) {
+        writeList(new ArrayList<>(map.keySet()), keyCodec);
+        writeList(new ArrayList<>(map.values()), valueCodec);
+    }
 }
@@ -0,0 +1,40 @@
+package net.swofty.data.format;
+
+import java.util.ArrayDeque;
+
+/**
+ * The scratch arrays {@link BinaryDataWriter} encodes into, kept per thread so that a save does not
+ * allocate and grow a fresh buffer every time.
+ *
+ * <p>Writers nest (a keyed document has one per section), so each thread keeps a small stack rather
+ * than a single array. An array that grew past {@link #MAX_RETAINED} while encoding one unusually
+ * large document is dropped instead of returned, so one outlier does not pin its memory to the
+ * thread for good.
+ */
+final class BinaryBuffers {
+    static final int INITIAL = 256;
+    static final int MAX_RETAINED = 64 * 1024;
+    private static final int PER_THREAD = 8;
+
+    private static final ThreadLocal<ArrayDeque<byte[]>> POOL = ThreadLocal.withInitial(ArrayDeque::new);
+
+    private BinaryBuffers() {}
+
+    /** An array of at least {@code minimum} bytes, from this thread's pool when one fits. */
+    static byte[] acquire(int minimum) {
+        ArrayDeque<byte[]> pool = POOL.get();
+        byte[] pooled = pool.pollLast();
+        if (pooled != null) {
+            if (pooled.length >= minimum) return pooled;
+            pool.addLast(pooled);
+        }
+        return new byte[Math.max(INITIAL, minimum)];
+    }
+
+    /** Hands {@code buffer} back; the caller must not touch it afterwards. */
+    static void release(byte[] buffer) {
+        if (buffer.length > MAX_RETAINED) return;
+        ArrayDeque<byte[]> pool = POOL.get();
+        if (pool.size() < PER_THREAD) pool.addLast(buffer);
+    }
+}
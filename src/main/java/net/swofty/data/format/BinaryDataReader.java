@@ -3,88 +3,152 @@ package net.swofty.data.format;
 import net.swofty.codec.Codec;
 import net.swofty.data.DataReader;
 
-import java.io.ByteArrayInputStream;
-import java.io.DataInputStream;
-import java.io.IOException;
+import java.io.EOFException;
+import java.io.UTFDataFormatException;
 import java.io.UncheckedIOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
+/**
+ * Reads what {@link BinaryDataWriter} wrote, straight out of a {@link ByteBuffer} over the
+ * document's array. Running off the end fails with an {@link UncheckedIOException} around an
+ * {@link EOFException}, as the stream-based reader did.
+ */
 public class BinaryDataReader implements DataReader {
-    private final DataInputStream in;
+    private final ByteBuffer in;
 
     public BinaryDataReader(byte[] data) {
-        this.in = new DataInputStream(new ByteArrayInputStream(data));
+        this(data, 0, data.length);
+    }
+
+    /** Reads {@code length} bytes of {@code data} from {@code offset}, without copying them. */
+    public BinaryDataReader(byte[] data, int offset, int length) {
+        this.in = ByteBuffer.wrap(data, offset, length);
     }
 
     @Override
     public int readInt() {
         try {
-            return in.readInt();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            return in.getInt();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
         }
     }
 
     @Override
     public long readLong() {
         try {
-            return in.readLong();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            return in.getLong();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
         }
     }
 
     @Override
     public float readFloat() {
         try {
-            return in.readFloat();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            return in.getFloat();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
         }
     }
 
     @Override
     public double readDouble() {
         try {
-            return in.readDouble();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            return in.getDouble();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
         }
     }
 
     @Override
     public boolean readBoolean() {
+        return readByte() != 0;
+    }
+
+    byte readByte() {
         try {
-            return in.readBoolean();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+            return in.get();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
         }
     }
 
+    // The next length bytes, decoded as standard UTF-8.
+    String readUtf8(int length) {
+        if (length < 0 || in.remaining() < length) throw truncated();
+        String value = new String(in.array(), in.arrayOffset() + in.position(), length, StandardCharsets.UTF_8);
+        in.position(in.position() + length);
+        return value;
+    }
+
+    // The next length bytes, copied out.
+    byte[] readFully(int length) {
+        if (length < 0 || in.remaining() < length) throw truncated();
+        byte[] bytes = new byte[length];
+        in.get(bytes);
+        return bytes;
+    }
+
+    /** Where the next read starts, as an index into the array this reader was built over. */
+    int position() {
+        return in.position();
+    }
+
+    // Decodes DataOutputStream.writeUTF's modified UTF-8. The common all-ASCII string is a single
+    // Latin-1 copy into the String.
     @Override
     public String readString() {
-        try {
-            return in.readUTF();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+        int length = Short.toUnsignedInt(readShort());
+        if (in.remaining() < length) throw truncated();
+        byte[] array = in.array();
+        int start = in.arrayOffset() + in.position();
+        int end = start + length;
+        in.position(in.position() + length);
+
+        int at = start;
+        while (at < end && array[at] >= 0) at++;
+        if (at == end) return new String(array, start, length, StandardCharsets.ISO_8859_1);
+
+        char[] chars = new char[length];
+        int count = 0;
+        for (int i = start; i < at; i++) {
+            chars[count++] = (char) array[i];
         }
+        while (at < end) {
+            int b = array[at] & 0xFF;
+            if (b < 0x80) {
+                chars[count++] = (char) b;
+                at++;
+            } else if ((b >> 5) == 0b110 && at + 1 < end && (array[at + 1] & 0xC0) == 0x80) {
+                chars[count++] = (char) (((b & 0x1F) << 6) | (array[at + 1] & 0x3F));
+                at += 2;
+            } else if ((b >> 4) == 0b1110 && at + 2 < end
+                    && (array[at + 1] & 0xC0) == 0x80 && (array[at + 2] & 0xC0) == 0x80) {
+                chars[count++] = (char) (((b & 0x0F) << 12) | ((array[at + 1] & 0x3F) << 6) | (array[at + 2] & 0x3F));
+                at += 3;
+            } else {
+                throw new UncheckedIOException(new UTFDataFormatException("malformed input around byte " + (at - start)));
+            }
+        }
+        return new String(chars, 0, count);
     }
 
     @Override
     public byte[] readBytes() {
-        try {
-            int length = in.readInt();
-            byte[] bytes = new byte[length];
-            in.readFully(bytes);
-            return bytes;
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        return readFully(readLength());
     }
 
+    // Binary format is sequential: the writer put the section's key inline, and its data follows it.
     @Override
     public DataReader readSection(String key) {
-        // Binary format is sequential, section key is read but data follows inline
+        String written = readString();
+        if (!written.equals(key)) {
+            throw new IllegalStateException("Expected section '" + key + "', found '" + written + "'");
+        }
         return this;
     }
 
@@ -103,9 +167,58 @@ public class BinaryDataReader implements DataReader {
         return new LinkedHashSet<>(readList(elementCodec));
     }
 
+    @Override
+    public <K, V> Map<K, V> readMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        int count = readInt();
+        if (count >= 0) {
+            // The two-list layout: count keys, then the value list with its own count.
+            List<K> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                keys.add(keyCodec.read(this));
+            }
+            int values = readInt();
+            if (values != count) {
+                throw new IllegalStateException("Map has " + count + " keys but " + values + " values");
+            }
+            Map<K, V> map = new LinkedHashMap<>(capacity(count));
+            for (K key : keys) {
+                map.put(key, valueCodec.read(this));
+            }
+            return map;
+        }
+        int size = -1 - count;
+        Map<K, V> map = new LinkedHashMap<>(capacity(size));
+        for (int i = 0; i < size; i++) {
+            K key = keyCodec.read(this);
+            map.put(key, valueCodec.read(this));
+        }
+        return map;
+    }
+
+    static int capacity(int size) {
+        return Math.max(4, size * 4 / 3 + 1);
+    }
+
     @Override
     public boolean hasKey(String key) {
         // Binary format doesn't support key-based lookups
         return false;
     }
+
+    // A fixed four-byte length, which CompactBinaryDataReader reads as a varint instead.
+    int readLength() {
+        return readInt();
+    }
+
+    private short readShort() {
+        try {
+            return in.getShort();
+        } catch (BufferUnderflowException e) {
+            throw truncated();
+        }
+    }
+
+    static UncheckedIOException truncated() {
+        return new UncheckedIOException(new EOFException("Binary document ended early"));
+    }
 }
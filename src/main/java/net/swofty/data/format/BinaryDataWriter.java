@@ -2,91 +2,117 @@ package net.swofty.data.format;
 
 import net.swofty.codec.Codec;
 import net.swofty.data.DataWriter;
+import net.swofty.data.format.KeyedBinaryFormat.Slice;
 
-import java.io.ByteArrayOutputStream;
-import java.io.DataOutputStream;
-import java.io.IOException;
+import java.io.UTFDataFormatException;
 import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.util.Arrays;
 import java.util.List;
+import java.util.Map;
 import java.util.Set;
 import java.util.ArrayList;
 
+/**
+ * Encodes values straight into a {@link ByteBuffer} over an array borrowed from a per-thread pool
+ * (see {@link BinaryBuffers}), rather than through a stream stack allocated per document.
+ *
+ * <p>The bytes are exactly what {@link java.io.DataOutputStream} wrote before: big-endian numbers
+ * and length-prefixed modified UTF-8 strings, so documents stored by earlier versions still read.
+ * {@link #toByteArray} copies the result out once and gives the array back to the pool;
+ * {@link #slice} hands out the encoded bytes where they are, for a caller that copies them onward
+ * itself and then calls {@link #release}.
+ */
 public class BinaryDataWriter implements DataWriter {
-    private final DataOutputStream out;
-    private final ByteArrayOutputStream baos;
+    private ByteBuffer buffer;
+    private boolean pooled;
 
     public BinaryDataWriter() {
-        this.baos = new ByteArrayOutputStream();
-        this.out = new DataOutputStream(baos);
+        this(BinaryBuffers.INITIAL);
     }
 
-    private BinaryDataWriter(DataOutputStream out, ByteArrayOutputStream baos) {
-        this.out = out;
-        this.baos = baos;
+    /** A writer whose first buffer already holds {@code expectedSize} bytes. */
+    BinaryDataWriter(int expectedSize) {
+        this.buffer = ByteBuffer.wrap(BinaryBuffers.acquire(expectedSize));
+        this.pooled = true;
     }
 
     @Override
     public void writeInt(int value) {
-        try {
-            out.writeInt(value);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        ensure(4).putInt(value);
     }
 
     @Override
     public void writeLong(long value) {
-        try {
-            out.writeLong(value);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        ensure(8).putLong(value);
     }
 
     @Override
     public void writeFloat(float value) {
-        try {
-            out.writeFloat(value);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        ensure(4).putFloat(value);
     }
 
     @Override
     public void writeDouble(double value) {
-        try {
-            out.writeDouble(value);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        ensure(8).putDouble(value);
     }
 
     @Override
     public void writeBoolean(boolean value) {
-        try {
-            out.writeBoolean(value);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        ensure(1).put(value ? (byte) 1 : (byte) 0);
+    }
+
+    void writeByte(int value) {
+        ensure(1).put((byte) value);
     }
 
+    // Modified UTF-8 behind an unsigned short length, as DataOutputStream.writeUTF: NUL takes two
+    // bytes and a supplementary character is written as its two surrogates.
     @Override
     public void writeString(String value) {
-        try {
-            out.writeUTF(value);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+        int chars = value.length();
+        int length = chars;
+        for (int i = 0; i < chars; i++) {
+            char c = value.charAt(i);
+            if (c >= 0x80 || c == 0) length += c >= 0x800 ? 2 : 1;
         }
+        if (length > 0xFFFF) {
+            throw new UncheckedIOException(new UTFDataFormatException("encoded string too long: " + length + " bytes"));
+        }
+        ByteBuffer out = ensure(2 + length);
+        out.putShort((short) length);
+        byte[] array = out.array();
+        int at = out.arrayOffset() + out.position();
+        if (length == chars) {
+            for (int i = 0; i < chars; i++) {
+                array[at++] = (byte) value.charAt(i);
+            }
+        } else {
+            for (int i = 0; i < chars; i++) {
+                char c = value.charAt(i);
+                if (c < 0x80 && c != 0) {
+                    array[at++] = (byte) c;
+                } else if (c < 0x800) {
+                    array[at++] = (byte) (0xC0 | (c >> 6));
+                    array[at++] = (byte) (0x80 | (c & 0x3F));
+                } else {
+                    array[at++] = (byte) (0xE0 | (c >> 12));
+                    array[at++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                    array[at++] = (byte) (0x80 | (c & 0x3F));
+                }
+            }
+        }
+        out.position(out.position() + length);
     }
 
     @Override
     public void writeBytes(byte[] bytes) {
-        try {
-            out.writeInt(bytes.length);
-            out.write(bytes);
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
-        }
+        ensure(4 + bytes.length).putInt(bytes.length).put(bytes);
+    }
+
+    // Appends bytes another writer already encoded, with no length prefix.
+    void writeEncoded(Slice bytes) {
+        ensure(bytes.length()).put(bytes.array(), bytes.offset(), bytes.length());
     }
 
     @Override
@@ -108,12 +134,60 @@ public class BinaryDataWriter implements DataWriter {
         writeList(new ArrayList<>(set), elementCodec);
     }
 
-    public byte[] toByteArray() {
-        try {
-            out.flush();
-        } catch (IOException e) {
-            throw new UncheckedIOException(e);
+    // Entries go key, value, key, value. The count is written as -1 - size: the two-list layout
+    // starts with the key list's size, which is never negative, so a reader tells them apart.
+    @Override
+    public <K, V> void writeMap(Map<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec) {
+        writeInt(-1 - map.size());
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            keyCodec.write(this, entry.getKey());
+            valueCodec.write(this, entry.getValue());
         }
-        return baos.toByteArray();
+    }
+
+    /**
+     * The bytes written so far, in the writer's own buffer. Valid until the next write or
+     * {@link #release}, whichever comes first.
+     */
+    public Slice slice() {
+        return new Slice(buffer.array(), buffer.arrayOffset(), buffer.position());
+    }
+
+    /** Gives the buffer back to the pool. The writer must not be used afterwards. */
+    public void release() {
+        if (pooled) BinaryBuffers.release(buffer.array());
+        buffer = ByteBuffer.allocate(0);
+        pooled = false;
+    }
+
+    /**
+     * A copy of the bytes written so far. The pooled buffer goes back to the pool and the writer
+     * carries on from the copy, which is full, so a later write moves to a new array rather than
+     * touching the one returned here.
+     */
+    public byte[] toByteArray() {
+        byte[] bytes = Arrays.copyOf(buffer.array(), buffer.position());
+        release();
+        buffer = ByteBuffer.wrap(bytes);
+        buffer.position(bytes.length);
+        return bytes;
+    }
+
+    // The buffer, with room for at least that many more bytes.
+    ByteBuffer ensure(int bytes) {
+        if (buffer.remaining() < bytes) grow(bytes);
+        return buffer;
+    }
+
+    private void grow(int bytes) {
+        int needed = buffer.position() + bytes;
+        if (needed < 0) throw new OutOfMemoryError("Binary document exceeds 2 GiB");
+        byte[] larger = BinaryBuffers.acquire(Math.max(needed, buffer.capacity() * 2));
+        System.arraycopy(buffer.array(), buffer.arrayOffset(), larger, 0, buffer.position());
+        int position = buffer.position();
+        if (pooled) BinaryBuffers.release(buffer.array());
+        buffer = ByteBuffer.wrap(larger);
+        buffer.position(position);
+        pooled = true;
     }
 }
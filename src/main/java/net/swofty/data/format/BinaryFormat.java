@@ -5,14 +5,42 @@ import net.swofty.data.DataReader;
 import net.swofty.data.DataWriter;
 
 public class BinaryFormat implements DataFormat {
+    /**
+     * How values are laid out. The two are not interchangeable: documents written in one encoding
+     * cannot be read in the other, so an existing store keeps the encoding it was written with.
+     */
+    public enum Encoding {
+        /** Fixed-width big-endian numbers and {@code writeUTF} strings, the original layout. */
+        FIXED,
+        /**
+         * Varint numbers, strings stored once per document and back-referenced after that, and
+         * UUIDs as 16 raw bytes. See {@link CompactBinaryDataWriter}.
+         */
+        COMPACT
+    }
+
+    private final Encoding encoding;
+
+    public BinaryFormat() {
+        this(Encoding.FIXED);
+    }
+
+    public BinaryFormat(Encoding encoding) {
+        this.encoding = encoding;
+    }
+
+    public Encoding getEncoding() {
+        return encoding;
+    }
+
     @Override
     public DataReader createReader(byte[] data) {
-        return new BinaryDataReader(data);
+        return encoding == Encoding.COMPACT ? new CompactBinaryDataReader(data) : new BinaryDataReader(data);
     }
 
     @Override
     public DataWriter createWriter() {
-        return new BinaryDataWriter();
+        return encoding == Encoding.COMPACT ? new CompactBinaryDataWriter() : new BinaryDataWriter();
     }
 
     @Override
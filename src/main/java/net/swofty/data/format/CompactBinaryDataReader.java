@@ -0,0 +1,86 @@
+package net.swofty.data.format;
+
+import java.io.StreamCorruptedException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/** Reads what {@link CompactBinaryDataWriter} wrote. */
+public class CompactBinaryDataReader extends BinaryDataReader {
+    private final List<String> strings = new ArrayList<>();
+
+    public CompactBinaryDataReader(byte[] data) {
+        this(data, 0, data.length);
+    }
+
+    public CompactBinaryDataReader(byte[] data, int offset, int length) {
+        super(data, offset, length);
+        if (length == 0) return;
+        byte version = readByte();
+        if (version != CompactBinaryDataWriter.VERSION) {
+            throw new IllegalStateException("Unsupported compact BinaryFormat version " + version
+                    + "; was this document written with Encoding.FIXED?");
+        }
+    }
+
+    @Override
+    public int readInt() {
+        int encoded = readVarInt();
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    @Override
+    public long readLong() {
+        long encoded = readVarLong();
+        return (encoded >>> 1) ^ -(encoded & 1);
+    }
+
+    @Override
+    public String readString() {
+        int reference = readVarInt();
+        if (reference == 0) {
+            String value = readUtf8(readVarInt());
+            strings.add(value);
+            return value;
+        }
+        if (reference < 0 || reference > strings.size()) {
+            throw corrupt("string reference " + reference + " with " + strings.size() + " strings seen");
+        }
+        return strings.get(reference - 1);
+    }
+
+    @Override
+    public UUID readUuid() {
+        return new UUID(super.readLong(), super.readLong());
+    }
+
+    @Override
+    int readLength() {
+        return readVarInt();
+    }
+
+    private int readVarInt() {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            byte b = readByte();
+            value |= (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw corrupt("varint longer than 5 bytes");
+    }
+
+    private long readVarLong() {
+        long value = 0;
+        for (int shift = 0; shift < 70; shift += 7) {
+            byte b = readByte();
+            value |= (long) (b & 0x7F) << shift;
+            if (b >= 0) return value;
+        }
+        throw corrupt("varint longer than 10 bytes");
+    }
+
+    private static UncheckedIOException corrupt(String detail) {
+        return new UncheckedIOException(new StreamCorruptedException("Malformed compact binary document: " + detail));
+    }
+}
@@ -0,0 +1,87 @@
+package net.swofty.data.format;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Writes {@link BinaryFormat.Encoding#COMPACT} documents: the {@link BinaryDataWriter} layout with
+ * variable-length numbers and a per-document string table.
+ *
+ * <ul>
+ *   <li>{@code int} and {@code long} values are zigzag-encoded LEB128 varints, so small magnitudes
+ *       of either sign take one or two bytes instead of four or eight. Lengths and list sizes are
+ *       written the same way.</li>
+ *   <li>A string is a varint reference: {@code 0} followed by the string's UTF-8 length and bytes
+ *       the first time it appears, then {@code n} for the {@code n}th distinct string ever after.
+ *       Item ids and enchantment names that repeat through an inventory are stored once.</li>
+ *   <li>A UUID is its 16 raw bytes.</li>
+ * </ul>
+ *
+ * Floats, doubles and booleans are as in the fixed layout. The document opens with a version byte.
+ */
+public class CompactBinaryDataWriter extends BinaryDataWriter {
+    static final byte VERSION = 1;
+
+    private final Map<String, Integer> strings = new HashMap<>();
+
+    public CompactBinaryDataWriter() {
+        writeByte(VERSION);
+    }
+
+    @Override
+    public void writeInt(int value) {
+        writeVarInt((value << 1) ^ (value >> 31));
+    }
+
+    @Override
+    public void writeLong(long value) {
+        writeVarLong((value << 1) ^ (value >> 63));
+    }
+
+    @Override
+    public void writeString(String value) {
+        Integer seen = strings.get(value);
+        if (seen != null) {
+            writeVarInt(seen + 1);
+            return;
+        }
+        strings.put(value, strings.size());
+        byte[] utf8 = value.getBytes(StandardCharsets.UTF_8);
+        writeVarInt(0);
+        writeVarInt(utf8.length);
+        ensure(utf8.length).put(utf8);
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes) {
+        writeVarInt(bytes.length);
+        ensure(bytes.length).put(bytes);
+    }
+
+    @Override
+    public void writeUuid(UUID value) {
+        ensure(16).putLong(value.getMostSignificantBits()).putLong(value.getLeastSignificantBits());
+    }
+
+    // Unsigned LEB128: seven bits per byte, low bits first, high bit set on all but the last.
+    private void writeVarInt(int value) {
+        ByteBuffer out = ensure(5);
+        while ((value & ~0x7F) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+
+    private void writeVarLong(long value) {
+        ByteBuffer out = ensure(10);
+        while ((value & ~0x7FL) != 0) {
+            out.put((byte) ((value & 0x7F) | 0x80));
+            value >>>= 7;
+        }
+        out.put((byte) value);
+    }
+}
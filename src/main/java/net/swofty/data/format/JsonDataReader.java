@@ -3,15 +3,23 @@ package net.swofty.data.format;
 import net.swofty.codec.Codec;
 import net.swofty.data.DataReader;
 
+import java.math.BigDecimal;
 import java.util.*;
 
 public class JsonDataReader implements DataReader {
     private final Map<String, Object> data;
     private String currentKey;
     private int autoIndex = 0;
+    // Reads a map key out of a JSON object, where it can only have been stored as a string.
+    private final boolean memberName;
 
     public JsonDataReader(Map<String, Object> data) {
+        this(data, false);
+    }
+
+    private JsonDataReader(Map<String, Object> data, boolean memberName) {
         this.data = data;
+        this.memberName = memberName;
     }
 
     public JsonDataReader key(String key) {
@@ -30,38 +38,38 @@ public class JsonDataReader implements DataReader {
 
     @Override
     public int readInt() {
-        Object val = get();
-        if (val instanceof Number n) {
-            return n.intValue();
-        }
-        throw new IllegalStateException("Expected int, got " + (val == null ? "null" : val.getClass()));
+        return number("int").intValue();
     }
 
     @Override
     public long readLong() {
-        Object val = get();
-        if (val instanceof Number n) {
-            return n.longValue();
-        }
-        throw new IllegalStateException("Expected long, got " + (val == null ? "null" : val.getClass()));
+        return number("long").longValue();
     }
 
     @Override
     public float readFloat() {
-        Object val = get();
-        if (val instanceof Number n) {
-            return n.floatValue();
-        }
-        throw new IllegalStateException("Expected float, got " + (val == null ? "null" : val.getClass()));
+        return number("float").floatValue();
     }
 
     @Override
     public double readDouble() {
+        return number("double").doubleValue();
+    }
+
+    private Number number(String expected) {
         Object val = get();
         if (val instanceof Number n) {
-            return n.doubleValue();
+            return n;
         }
-        throw new IllegalStateException("Expected double, got " + (val == null ? "null" : val.getClass()));
+        // A map printed from a live value keeps numeric keys as member names, which are strings.
+        if (memberName && val instanceof String s) {
+            try {
+                return new BigDecimal(s);
+            } catch (NumberFormatException ignored) {
+                // Reported below as the type mismatch it is.
+            }
+        }
+        throw new IllegalStateException("Expected " + expected + ", got " + (val == null ? "null" : val.getClass()));
     }
 
     @Override
@@ -96,13 +104,10 @@ public class JsonDataReader implements DataReader {
             return new JsonDataReader((Map<String, Object>) m);
         }
         // Wrap primitive value in a map for section access
-        Map<String, Object> wrapper = new LinkedHashMap<>();
-        wrapper.put("_v0", val);
-        return new JsonDataReader(wrapper);
+        return new JsonDataReader(Collections.singletonMap("_v0", val));
     }
 
     @Override
-    @SuppressWarnings("unchecked")
     public <T> List<T> readList(Codec<T> elementCodec) {
         Object val = get();
         if (val == null) {
@@ -111,24 +116,71 @@ public class JsonDataReader implements DataReader {
         if (!(val instanceof List<?> list)) {
             throw new IllegalStateException("Expected list, got " + val.getClass());
         }
-        List<T> result = new ArrayList<>();
+        return elements(list, elementCodec);
+    }
+
+    private static <T> List<T> elements(List<?> list, Codec<T> elementCodec) {
+        List<T> result = new ArrayList<>(list.size());
         for (Object element : list) {
-            if (element instanceof Map<?, ?> m) {
-                result.add(elementCodec.read(new JsonDataReader((Map<String, Object>) m)));
-            } else {
-                Map<String, Object> wrapper = new LinkedHashMap<>();
-                wrapper.put("_v0", element);
-                result.add(elementCodec.read(new JsonDataReader(wrapper)));
-            }
+            result.add(element(element, elementCodec));
         }
         return result;
     }
 
+    @SuppressWarnings("unchecked")
+    private static <T> T element(Object element, Codec<T> codec) {
+        if (element instanceof Map<?, ?> m) {
+            return codec.read(new JsonDataReader((Map<String, Object>) m));
+        }
+        return codec.read(new JsonDataReader(Collections.singletonMap("_v0", element)));
+    }
+
     @Override
     public <T> Set<T> readSet(Codec<T> elementCodec) {
         return new LinkedHashSet<>(readList(elementCodec));
     }
 
+    /**
+     * Reads either layout {@link JsonDataWriter#writeMap} can leave: a JSON object, or a list of
+     * keys followed by a list of values, which is also how every map was written before. A reader
+     * whose first value is missing is itself the object; that is how a map field's live value is
+     * printed into the document, and how it reads through {@link #readSection}.
+     */
+    @Override
+    @SuppressWarnings("unchecked")
+    public <K, V> Map<K, V> readMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        boolean first = currentKey == null && autoIndex == 0;
+        Object val = get();
+        if (val instanceof List<?> keyList) {
+            List<K> keys = elements(keyList, keyCodec);
+            List<V> values = readList(valueCodec);
+            if (values.size() != keys.size()) {
+                throw new IllegalStateException("Map has " + keys.size() + " keys but " + values.size() + " values");
+            }
+            Map<K, V> map = new LinkedHashMap<>(Math.max(4, keys.size() * 4 / 3 + 1));
+            for (int i = 0; i < keys.size(); i++) {
+                map.put(keys.get(i), values.get(i));
+            }
+            return map;
+        }
+        Map<String, Object> object;
+        if (val instanceof Map<?, ?> m) {
+            object = (Map<String, Object>) m;
+        } else if (val == null && first) {
+            object = data;
+        } else if (val == null) {
+            return new LinkedHashMap<>();
+        } else {
+            throw new IllegalStateException("Expected map, got " + val.getClass());
+        }
+        Map<K, V> map = new LinkedHashMap<>(Math.max(4, object.size() * 4 / 3 + 1));
+        for (Map.Entry<String, Object> entry : object.entrySet()) {
+            K key = keyCodec.read(new JsonDataReader(Collections.singletonMap("_v0", entry.getKey()), true));
+            map.put(key, element(entry.getValue(), valueCodec));
+        }
+        return map;
+    }
+
     @Override
     public boolean hasKey(String key) {
         return data.containsKey(key);
@@ -1,21 +1,88 @@
 package net.swofty.data.format;
 
+import com.google.gson.stream.JsonWriter;
 import net.swofty.codec.Codec;
 import net.swofty.data.DataWriter;
 
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 
+/**
+ * Writes codec output straight into a {@link JsonWriter}, token by token, without building the
+ * document as a tree first.
+ *
+ * <p>Values are written in the order the codec writes them, so a section or list element has to be
+ * finished before its parent writes anything else; the parent does that itself on its next write.
+ * A section written to after that fails with {@link IllegalStateException}.
+ */
 public class JsonDataWriter implements DataWriter {
-    private final Map<String, Object> data;
+    private final JsonWriter out;
+    // The document's bytes; only the root writer has them.
+    private final ByteArrayOutputStream bytes;
     private String currentKey;
     private int autoIndex = 0;
+    // Whether this writer's object has been begun; always, except in a list element's writer, which
+    // may turn out to be a bare value.
+    private boolean opened;
+    private boolean finished;
+    // A section handed out and not yet ended, ended before this writer writes anything else.
+    private JsonDataWriter openSection;
+    // The writer each list element or map value is written through in turn, reused between them.
+    private JsonDataWriter elements;
+
+    // A list element that writes one unkeyed value is stored as that bare value, which is what most
+    // elements are. Its writer holds that first value back, and only opens the "_v0" wrapper object
+    // if a second value or a section turns up; a held list is kept as the list and its codec, and
+    // written out once it is known where it goes.
+    private final boolean element;
+    private Object held;
+    private Codec<?> heldCodec;
+    private boolean holds;
 
     public JsonDataWriter() {
-        this.data = new LinkedHashMap<>();
+        this.bytes = new ByteArrayOutputStream(256);
+        this.out = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8));
+        // As the tree format did: an object member whose value is null is left out, a null list
+        // element is not.
+        out.setSerializeNulls(false);
+        this.element = false;
+        open();
+    }
+
+    private JsonDataWriter(JsonWriter out, boolean element) {
+        this.bytes = null;
+        this.out = out;
+        this.element = element;
+    }
+
+    private void open() {
+        try {
+            out.beginObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        opened = true;
     }
 
-    private JsonDataWriter(Map<String, Object> data) {
-        this.data = data;
+    // Readies the writer for the element after the one it last wrote.
+    private JsonDataWriter reset() {
+        currentKey = null;
+        autoIndex = 0;
+        opened = false;
+        finished = false;
+        openSection = null;
+        held = null;
+        heldCodec = null;
+        holds = false;
+        return this;
+    }
+
+    private JsonDataWriter element() {
+        return elements == null ? elements = new JsonDataWriter(out, true) : elements.reset();
     }
 
     public JsonDataWriter key(String key) {
@@ -23,33 +90,147 @@ public class JsonDataWriter implements DataWriter {
         return this;
     }
 
-    private void put(Object value) {
+    /**
+     * Names the next value, opening this writer's object first if it is still a bare element. Returns
+     * false when an element's first unkeyed value may be held back as the bare value instead.
+     */
+    private boolean name(boolean bareable) throws IOException {
+        if (finished) {
+            throw new IllegalStateException("Section written to after its parent moved on");
+        }
+        if (openSection != null) {
+            openSection.finish();
+            openSection = null;
+        }
+        if (bareable && element && !opened && currentKey == null && autoIndex == 0) {
+            autoIndex++;
+            return false;
+        }
+        if (!opened) {
+            open();
+            if (holds) {
+                out.name("_v0");
+                writeHeld();
+            }
+        }
         if (currentKey != null) {
-            data.put(currentKey, value);
+            out.name(currentKey);
             currentKey = null;
         } else {
-            data.put("_v" + autoIndex++, value);
+            out.name("_v" + autoIndex++);
+        }
+        return true;
+    }
+
+    private void hold(Object value, Codec<?> codec) {
+        held = value;
+        heldCodec = codec;
+        holds = true;
+    }
+
+    @SuppressWarnings("unchecked")
+    private void writeHeld() throws IOException {
+        holds = false;
+        Object value = held;
+        held = null;
+        if (heldCodec != null) {
+            writeArray((Collection<Object>) value, (Codec<Object>) heldCodec);
+        } else {
+            writeScalar(value);
+        }
+        heldCodec = null;
+    }
+
+    private void writeScalar(Object value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else if (value instanceof String string) {
+            out.value(string);
+        } else if (value instanceof Boolean bool) {
+            out.value(bool);
+        } else {
+            out.value((Number) value);
+        }
+    }
+
+    /** Ends this writer's object, or writes the bare value a list element held back. */
+    void finish() {
+        if (finished) return;
+        try {
+            if (openSection != null) {
+                openSection.finish();
+                openSection = null;
+            }
+            if (holds) {
+                writeHeld();
+            } else {
+                if (!opened) open();
+                out.endObject();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        finished = true;
+    }
+
+    /** The document written, ending the root object if it has not been ended yet. */
+    byte[] toByteArray() {
+        if (bytes == null) {
+            throw new IllegalStateException("Only the document's own writer has its bytes");
+        }
+        if (!finished) {
+            finish();
+            try {
+                out.close();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+        return bytes.toByteArray();
+    }
+
+    private void put(Object value) {
+        try {
+            if (name(true)) {
+                writeScalar(value);
+            } else {
+                hold(value, null);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
     }
 
     @Override
     public void writeInt(int value) {
-        put(value);
+        try {
+            if (name(true)) out.value(value); else hold(value, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
     public void writeLong(long value) {
-        put(value);
+        try {
+            if (name(true)) out.value(value); else hold(value, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
     public void writeFloat(float value) {
-        put((double) value);
+        writeDouble(value);
     }
 
     @Override
     public void writeDouble(double value) {
-        put(value);
+        try {
+            if (name(true)) out.value(value); else hold(value, null);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
     @Override
@@ -69,32 +250,132 @@ public class JsonDataWriter implements DataWriter {
 
     @Override
     public DataWriter writeSection(String key) {
-        Map<String, Object> section = new LinkedHashMap<>();
-        data.put(key, section);
-        return new JsonDataWriter(section);
+        try {
+            String pending = currentKey;
+            currentKey = key;
+            name(false);
+            currentKey = pending;
+            out.beginObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        JsonDataWriter section = new JsonDataWriter(out, false);
+        section.opened = true;
+        openSection = section;
+        return section;
     }
 
     @Override
     public <T> void writeList(List<T> list, Codec<T> elementCodec) {
-        List<Object> jsonList = new ArrayList<>();
-        for (T element : list) {
-            JsonDataWriter elementWriter = new JsonDataWriter();
-            elementCodec.write(elementWriter, element);
-            if (elementWriter.data.size() == 1 && elementWriter.data.containsKey("_v0")) {
-                jsonList.add(elementWriter.data.get("_v0"));
+        writeCollection(list, elementCodec);
+    }
+
+    @Override
+    public <T> void writeSet(Set<T> set, Codec<T> elementCodec) {
+        writeCollection(set, elementCodec);
+    }
+
+    private <T> void writeCollection(Collection<T> values, Codec<T> elementCodec) {
+        try {
+            if (name(true)) {
+                writeArray(values, elementCodec);
             } else {
-                jsonList.add(elementWriter.data);
+                hold(values, elementCodec);
             }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
         }
-        put(jsonList);
     }
 
+    private <T> void writeArray(Collection<T> values, Codec<T> elementCodec) throws IOException {
+        out.beginArray();
+        for (T value : values) {
+            JsonDataWriter elementWriter = element();
+            elementCodec.write(elementWriter, value);
+            elementWriter.finish();
+        }
+        out.endArray();
+    }
+
+    /**
+     * Writes the map as a JSON object when every key encodes to a string, which is the map as it
+     * reads in the document. Keys that encode to anything else (a number, a record) cannot be
+     * member names, so such a map keeps the list-of-keys and list-of-values layout. The keys are
+     * encoded first to tell which, since nothing written can be taken back.
+     */
     @Override
-    public <T> void writeSet(Set<T> set, Codec<T> elementCodec) {
-        writeList(new ArrayList<>(set), elementCodec);
+    public <K, V> void writeMap(Map<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec) {
+        String[] names = new String[map.size()];
+        Set<String> seen = names.length > 1 ? new HashSet<>(names.length * 4 / 3 + 1) : null;
+        MemberName probe = new MemberName();
+        int i = 0;
+        for (K key : map.keySet()) {
+            String name = probe.of(keyCodec, key);
+            if (name == null || (seen != null && !seen.add(name))) {
+                writeCollection(map.keySet(), keyCodec);
+                writeCollection(map.values(), valueCodec);
+                return;
+            }
+            names[i++] = name;
+        }
+        try {
+            // A map is never an element's bare value, or it would read back as the element's own keys.
+            name(false);
+            out.beginObject();
+            i = 0;
+            for (V value : map.values()) {
+                out.name(names[i++]);
+                JsonDataWriter valueWriter = element();
+                valueCodec.write(valueWriter, value);
+                valueWriter.finish();
+            }
+            out.endObject();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 
+    /** Decodes the document written so far, ending it; the tree {@link JsonFormat#readRaw} would give. */
     public Map<String, Object> getData() {
-        return data;
+        return new JsonFormat().readRaw(toByteArray());
+    }
+
+    /**
+     * Catches what a key codec writes, to tell whether the key can be a member name: it can if the
+     * codec writes exactly one unkeyed string, which is all an element holding a lone string writes.
+     */
+    private static final class MemberName implements DataWriter {
+        private String name;
+        private boolean other;
+
+        <K> String of(Codec<K> codec, K key) {
+            name = null;
+            other = false;
+            codec.write(this, key);
+            return other ? null : name;
+        }
+
+        private void string(String value) {
+            if (name != null || value == null) other = true;
+            name = value;
+        }
+
+        @Override public void writeString(String value) { string(value); }
+        @Override public void writeBytes(byte[] bytes) { string(Base64.getEncoder().encodeToString(bytes)); }
+        @Override public void writeInt(int value) { other = true; }
+        @Override public void writeLong(long value) { other = true; }
+        @Override public void writeFloat(float value) { other = true; }
+        @Override public void writeDouble(double value) { other = true; }
+        @Override public void writeBoolean(boolean value) { other = true; }
+
+        @Override
+        public DataWriter writeSection(String key) {
+            other = true;
+            return new MemberName();
+        }
+
+        @Override public <T> void writeList(List<T> list, Codec<T> elementCodec) { other = true; }
+        @Override public <T> void writeSet(Set<T> set, Codec<T> elementCodec) { other = true; }
+        @Override public <K, V> void writeMap(Map<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec) { other = true; }
     }
 }
@@ -1,29 +1,51 @@
 package net.swofty.data.format;
 
 import com.google.gson.Gson;
-import com.google.gson.GsonBuilder;
-import com.google.gson.reflect.TypeToken;
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import net.swofty.data.DataFormat;
 import net.swofty.data.DataReader;
 import net.swofty.data.DataWriter;
 
-import java.lang.reflect.Type;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
 import java.util.LinkedHashMap;
+import java.util.List;
 import java.util.Map;
 
+/**
+ * Stores documents as JSON.
+ *
+ * <p>Codec values are written and read token by token: {@link JsonDataWriter} writes straight into a
+ * Gson {@link JsonWriter} and {@link JsonStreamReader} pulls from a {@link JsonReader}, so encoding
+ * or decoding a value builds no tree of it. Output is compact. It is the same JSON the
+ * pretty-printing format wrote before, minus the whitespace, so documents stored either way read
+ * identically.
+ *
+ * <p>{@link #readRaw} still decodes a whole document into a tree, since that is what it is for: the
+ * caller keeps the tree to pull fields out of and merge writes over (see
+ * {@link #createDocumentReader}). It is parsed straight from the bytes, with no intermediate
+ * {@code String}: numbers come back as {@code Double}, objects as maps, arrays as lists.
+ * {@link #writeRaw} streams whatever map it is given, live field values included.
+ */
 public class JsonFormat implements DataFormat {
-    private static final Gson GSON = new GsonBuilder().setPrettyPrinting().create();
-    private static final Type MAP_TYPE = new TypeToken<Map<String, Object>>() {}.getType();
+    // Only for live values the streaming writer has no case of its own for, such as a record.
+    private static final Gson GSON = new Gson();
 
     @Override
     public DataReader createReader(byte[] data) {
-        String json = new String(data, StandardCharsets.UTF_8);
-        Map<String, Object> map = GSON.fromJson(json, MAP_TYPE);
-        if (map == null) {
-            map = new LinkedHashMap<>();
-        }
-        return new JsonDataReader(map);
+        return JsonStreamReader.document(data);
     }
 
     @Override
@@ -36,8 +58,7 @@ public class JsonFormat implements DataFormat {
         if (!(writer instanceof JsonDataWriter jsonWriter)) {
             throw new IllegalArgumentException("Expected JsonDataWriter");
         }
-        String json = GSON.toJson(jsonWriter.getData());
-        return json.getBytes(StandardCharsets.UTF_8);
+        return jsonWriter.toByteArray();
     }
 
     @Override
@@ -45,12 +66,109 @@ public class JsonFormat implements DataFormat {
         if (data == null || data.length == 0) {
             return new LinkedHashMap<>();
         }
-        Map<String, Object> map = GSON.fromJson(new String(data, StandardCharsets.UTF_8), MAP_TYPE);
-        return map == null ? new LinkedHashMap<>() : map;
+        try (JsonReader in = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8))) {
+            // Documents written by older versions went through Gson, which reads leniently.
+            in.setStrictness(Strictness.LENIENT);
+            JsonToken first;
+            try {
+                first = in.peek();
+            } catch (EOFException blank) {
+                return new LinkedHashMap<>();
+            }
+            if (first == JsonToken.NULL) {
+                return new LinkedHashMap<>();
+            }
+            if (first != JsonToken.BEGIN_OBJECT) {
+                throw new JsonSyntaxException("Expected a JSON object but was " + first + " at " + in.getPath());
+            }
+            return readObject(in);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static Map<String, Object> readObject(JsonReader in) throws IOException {
+        Map<String, Object> object = new LinkedHashMap<>();
+        in.beginObject();
+        while (in.hasNext()) {
+            String name = in.nextName();
+            object.put(name, readValue(in));
+        }
+        in.endObject();
+        return object;
+    }
+
+    static Object readValue(JsonReader in) throws IOException {
+        switch (in.peek()) {
+            case BEGIN_OBJECT:
+                return readObject(in);
+            case BEGIN_ARRAY: {
+                List<Object> array = new ArrayList<>();
+                in.beginArray();
+                while (in.hasNext()) {
+                    array.add(readValue(in));
+                }
+                in.endArray();
+                return array;
+            }
+            case STRING:
+                return in.nextString();
+            case NUMBER:
+                return in.nextDouble();
+            case BOOLEAN:
+                return in.nextBoolean();
+            case NULL:
+                in.nextNull();
+                return null;
+            default:
+                throw new JsonSyntaxException("Unexpected " + in.peek() + " at " + in.getPath());
+        }
+    }
+
+    // readRaw yields exactly the tree createReader builds internally, so a decoded document is read
+    // in place rather than printed and parsed again.
+    @Override
+    public DataReader createDocumentReader(Map<String, Object> document) {
+        return new JsonDataReader(document);
     }
 
     @Override
     public byte[] writeRaw(Map<String, Object> data) {
-        return GSON.toJson(data).getBytes(StandardCharsets.UTF_8);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(256);
+        try (JsonWriter out = new JsonWriter(new OutputStreamWriter(bytes, StandardCharsets.UTF_8))) {
+            // As Gson did: an object member whose value is null is left out, a null list element is not.
+            out.setSerializeNulls(false);
+            writeValue(out, data);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeValue(JsonWriter out, Object value) throws IOException {
+        if (value == null) {
+            out.nullValue();
+        } else if (value instanceof String string) {
+            out.value(string);
+        } else if (value instanceof Boolean bool) {
+            out.value(bool);
+        } else if (value instanceof Number number) {
+            out.value(number);
+        } else if (value instanceof Map<?, ?> map) {
+            out.beginObject();
+            for (Map.Entry<?, ?> entry : map.entrySet()) {
+                out.name(String.valueOf(entry.getKey()));
+                writeValue(out, entry.getValue());
+            }
+            out.endObject();
+        } else if (value instanceof Collection<?> collection) {
+            out.beginArray();
+            for (Object element : collection) {
+                writeValue(out, element);
+            }
+            out.endArray();
+        } else {
+            GSON.toJson(value, value.getClass(), out);
+        }
     }
 }
@@ -0,0 +1,536 @@
+package net.swofty.data.format;
+
+import com.google.gson.JsonSyntaxException;
+import com.google.gson.Strictness;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import net.swofty.codec.Codec;
+import net.swofty.data.DataReader;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+
+/**
+ * Reads codec input by pulling tokens from a {@link JsonReader}, in the order the codec asks for
+ * them, without decoding the document into a tree first. It reads what {@link JsonDataReader} reads
+ * from the tree {@link JsonFormat#readRaw} would give.
+ *
+ * <p>Codecs read their values in the order they wrote them, so a read normally finds its member next
+ * in the stream. A member passed over on the way to a later one is decoded and kept, in case it is
+ * asked for after all; the document's top-level object is the exception, since it can be scanned
+ * again from its bytes instead, so a reader after one field of a large document keeps nothing.
+ * A section or list element has to be read before its parent reads anything else, as it is written.
+ */
+final class JsonStreamReader implements DataReader {
+    // What locate returns when the member is next in the stream, or is not there at all.
+    private static final Object STREAM = new Object();
+    private static final Object ABSENT = new Object();
+
+    private JsonReader in;
+    // The document, for the top-level reader only: what it scans again for a member it passed over.
+    private final byte[] source;
+    // An object's reader, or a lone value's: a list element or section that is not an object, read
+    // as its "_v0" the way JsonDataReader reads one.
+    private boolean object;
+    // A lone value that is a member name, read as a map key, rather than a token in the stream.
+    private String memberName;
+    private boolean consumed;
+
+    // Object state: whether its end has been read; a member whose name has been read but not its
+    // value; whether anything has been read or passed since its start; members passed over.
+    private boolean ended;
+    private String pendingName;
+    private boolean atStart = true;
+    private Map<String, Object> passed;
+
+    // A section or list element handed out and not yet read through, skipped before this reader reads on.
+    private JsonStreamReader child;
+    // The reader each list element, map key or map value is read through in turn, reused between them.
+    private JsonStreamReader elements;
+    private String currentKey;
+    private int autoIndex = 0;
+
+    private JsonStreamReader(JsonReader in, byte[] source) {
+        this.in = in;
+        this.source = source;
+    }
+
+    /** A reader over a whole document: a JSON object, or nothing, which reads as an empty one. */
+    static JsonStreamReader document(byte[] data) {
+        JsonStreamReader empty = new JsonStreamReader(null, null);
+        empty.object = true;
+        empty.ended = true;
+        if (data == null || data.length == 0) {
+            return empty;
+        }
+        try {
+            JsonReader in = open(data);
+            JsonToken first = in.peek();
+            if (first == JsonToken.END_DOCUMENT || first == JsonToken.NULL) {
+                return empty;
+            }
+            if (first != JsonToken.BEGIN_OBJECT) {
+                throw new JsonSyntaxException("Expected a JSON object but was " + first + " at " + in.getPath());
+            }
+            in.beginObject();
+            JsonStreamReader reader = new JsonStreamReader(in, data);
+            reader.object = true;
+            return reader;
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static JsonReader open(byte[] data) {
+        JsonReader in = new JsonReader(new InputStreamReader(new ByteArrayInputStream(data), StandardCharsets.UTF_8));
+        // Documents written by older versions went through Gson, which reads leniently.
+        in.setStrictness(Strictness.LENIENT);
+        return in;
+    }
+
+    // Readies the reader for the next element, which starts at the stream's next token.
+    private JsonStreamReader reset(JsonReader in, boolean object, String memberName) {
+        this.in = in;
+        this.object = object;
+        this.memberName = memberName;
+        consumed = false;
+        ended = false;
+        pendingName = null;
+        atStart = true;
+        passed = null;
+        child = null;
+        currentKey = null;
+        autoIndex = 0;
+        return this;
+    }
+
+    // The next list element or map value: an object is read member by member, anything else as a
+    // lone value.
+    private JsonStreamReader element() throws IOException {
+        boolean isObject = in.peek() == JsonToken.BEGIN_OBJECT;
+        if (isObject) in.beginObject();
+        if (elements == null) elements = new JsonStreamReader(in, null);
+        return elements.reset(in, isObject, null);
+    }
+
+    private JsonStreamReader memberNameReader(String name) {
+        if (elements == null) elements = new JsonStreamReader(in, null);
+        return elements.reset(in, false, name);
+    }
+
+    public JsonStreamReader key(String key) {
+        this.currentKey = key;
+        return this;
+    }
+
+    private String nextKey() {
+        String key = currentKey != null ? currentKey : "_v" + autoIndex++;
+        currentKey = null;
+        return key;
+    }
+
+    /**
+     * Finds {@code key}'s value: {@link #STREAM} when it is the stream's next value, {@link #ABSENT}
+     * when the reader has no such member, or the value itself, decoded, when it was passed over.
+     */
+    private Object locate(String key) throws IOException {
+        finishChild();
+        if (!object) {
+            return "_v0".equals(key) && !consumed ? (memberName != null ? memberName : STREAM) : ABSENT;
+        }
+        if (passed != null && passed.containsKey(key)) {
+            return passed.get(key);
+        }
+        if (pendingName != null) {
+            if (pendingName.equals(key)) return STREAM;
+            pass(pendingName);
+        }
+        boolean fromStart = atStart;
+        while (!ended) {
+            if (!in.hasNext()) {
+                in.endObject();
+                ended = true;
+                break;
+            }
+            String name = in.nextName();
+            atStart = false;
+            if (name.equals(key)) {
+                pendingName = name;
+                return STREAM;
+            }
+            pass(name);
+        }
+        if (source != null && !fromStart) {
+            // The member may be one read or passed over earlier: scan the document again.
+            in = open(source);
+            in.beginObject();
+            ended = false;
+            atStart = true;
+            return locate(key);
+        }
+        return ABSENT;
+    }
+
+    // Moves past a member that was not asked for, keeping its value unless the document can be
+    // scanned again for it.
+    private void pass(String name) throws IOException {
+        pendingName = null;
+        if (source != null) {
+            in.skipValue();
+        } else {
+            if (passed == null) passed = new LinkedHashMap<>();
+            passed.put(name, JsonFormat.readValue(in));
+        }
+    }
+
+    // Marks the value locate found in the stream as read, so the reader moves on past it.
+    private void take() {
+        if (object) {
+            pendingName = null;
+        } else {
+            consumed = true;
+        }
+    }
+
+    private void finishChild() throws IOException {
+        if (child != null) {
+            child.finish();
+            child = null;
+        }
+    }
+
+    /** Skips whatever of this reader's value has not been read. */
+    private void finish() throws IOException {
+        finishChild();
+        if (!object) {
+            if (!consumed && memberName == null) in.skipValue();
+            consumed = true;
+            return;
+        }
+        if (pendingName != null) {
+            pendingName = null;
+            in.skipValue();
+        }
+        while (!ended) {
+            if (in.hasNext()) {
+                in.nextName();
+                in.skipValue();
+            } else {
+                in.endObject();
+                ended = true;
+            }
+        }
+    }
+
+    private static IllegalStateException mismatch(String expected, Object got) {
+        return new IllegalStateException("Expected " + expected + ", got " + got);
+    }
+
+    // The tree reader's view of a value that was passed over, or of a missing one.
+    private static JsonDataReader treeReader(Object value) {
+        return new JsonDataReader(Collections.singletonMap("_v0", value == ABSENT ? null : value));
+    }
+
+    @Override
+    public int readInt() {
+        try {
+            Object located = locate(nextKey());
+            if (located == STREAM) {
+                expectNumber("int");
+                take();
+                try {
+                    return in.nextInt();
+                } catch (NumberFormatException notAnInt) {
+                    // As Double#intValue reads it from the tree.
+                    return (int) in.nextDouble();
+                }
+            }
+            if (located instanceof String name && !object) return parseMemberName(name, "int").intValue();
+            return treeReader(located).readInt();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    @Override
+    public long readLong() {
+        try {
+            Object located = locate(nextKey());
+            if (located == STREAM) {
+                expectNumber("long");
+                take();
+                try {
+                    return in.nextLong();
+                } catch (NumberFormatException notALong) {
+                    return (long) in.nextDouble();
+                }
+            }
+            if (located instanceof String name && !object) return parseMemberName(name, "long").longValue();
+            return treeReader(located).readLong();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    @Override
+    public float readFloat() {
+        return (float) readDouble();
+    }
+
+    @Override
+    public double readDouble() {
+        try {
+            Object located = locate(nextKey());
+            if (located == STREAM) {
+                expectNumber("double");
+                take();
+                return in.nextDouble();
+            }
+            if (located instanceof String name && !object) return parseMemberName(name, "double").doubleValue();
+            return treeReader(located).readDouble();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private void expectNumber(String expected) throws IOException {
+        JsonToken token = in.peek();
+        if (token != JsonToken.NUMBER) throw mismatch(expected, token == JsonToken.NULL ? "null" : token);
+    }
+
+    // A map printed from a live value keeps numeric keys as member names, which are strings.
+    private static Number parseMemberName(String name, String expected) {
+        try {
+            return new BigDecimal(name);
+        } catch (NumberFormatException e) {
+            throw mismatch(expected, String.class);
+        }
+    }
+
+    @Override
+    public boolean readBoolean() {
+        try {
+            Object located = locate(nextKey());
+            if (located == STREAM) {
+                JsonToken token = in.peek();
+                if (token != JsonToken.BOOLEAN) throw mismatch("boolean", token == JsonToken.NULL ? "null" : token);
+                take();
+                return in.nextBoolean();
+            }
+            return treeReader(located).readBoolean();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    @Override
+    public String readString() {
+        try {
+            Object located = locate(nextKey());
+            if (located == STREAM) {
+                JsonToken token = in.peek();
+                if (token != JsonToken.STRING) throw mismatch("string", token == JsonToken.NULL ? "null" : token);
+                take();
+                return in.nextString();
+            }
+            if (located instanceof String name && !object) {
+                consumed = true;
+                return name;
+            }
+            return treeReader(located).readString();
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    @Override
+    public byte[] readBytes() {
+        return Base64.getDecoder().decode(readString());
+    }
+
+    @Override
+    public DataReader readSection(String key) {
+        try {
+            Object located = locate(key);
+            if (located != STREAM) {
+                Object value = located == ABSENT ? null : located;
+                return value instanceof Map<?, ?> ? treeReader(value).readSection("_v0") : treeReader(value);
+            }
+            take();
+            JsonStreamReader section = new JsonStreamReader(in, null);
+            section.object = in.peek() == JsonToken.BEGIN_OBJECT;
+            if (section.object) in.beginObject();
+            child = section;
+            return section;
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    @Override
+    public <T> List<T> readList(Codec<T> elementCodec) {
+        try {
+            Object located = locate(nextKey());
+            if (located != STREAM) {
+                return treeReader(located).readList(elementCodec);
+            }
+            take();
+            return streamList(elementCodec);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    // Reads the array (or null) that is the stream's next value.
+    private <T> List<T> streamList(Codec<T> elementCodec) throws IOException {
+        JsonToken token = in.peek();
+        if (token == JsonToken.NULL) {
+            in.nextNull();
+            return new ArrayList<>();
+        }
+        if (token != JsonToken.BEGIN_ARRAY) {
+            throw new IllegalStateException("Expected list, got " + token);
+        }
+        List<T> result = new ArrayList<>();
+        in.beginArray();
+        while (in.hasNext()) {
+            JsonStreamReader element = element();
+            result.add(elementCodec.read(element));
+            element.finish();
+        }
+        in.endArray();
+        return result;
+    }
+
+    @Override
+    public <T> Set<T> readSet(Codec<T> elementCodec) {
+        return new LinkedHashSet<>(readList(elementCodec));
+    }
+
+    /**
+     * Reads either layout {@link JsonDataWriter#writeMap} can leave, as {@link JsonDataReader#readMap}
+     * does. A reader whose first value is missing is itself the object; an object reader that has
+     * read nothing yet and does not open with {@code "_v0"} is taken to be one without scanning it
+     * for a {@code "_v0"} further on.
+     */
+    @Override
+    public <K, V> Map<K, V> readMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        try {
+            boolean first = currentKey == null && autoIndex == 0;
+            if (first && object && atStart && passed == null && pendingName == null) {
+                finishChild();
+                if (ended || !in.hasNext()) {
+                    return new LinkedHashMap<>();
+                }
+                String name = in.nextName();
+                atStart = false;
+                pendingName = name;
+                if (!name.equals("_v0")) {
+                    autoIndex++;
+                    return streamMembers(keyCodec, valueCodec);
+                }
+            }
+            Object located = locate(nextKey());
+            if (located == STREAM) {
+                JsonToken token = in.peek();
+                if (token == JsonToken.BEGIN_ARRAY) {
+                    take();
+                    List<K> keys = streamList(keyCodec);
+                    return zip(keys, readList(valueCodec));
+                }
+                if (token == JsonToken.BEGIN_OBJECT) {
+                    take();
+                    in.beginObject();
+                    JsonStreamReader members = new JsonStreamReader(in, null);
+                    members.object = true;
+                    return members.streamMembers(keyCodec, valueCodec);
+                }
+                if (token == JsonToken.NULL) {
+                    take();
+                    in.nextNull();
+                    return new LinkedHashMap<>();
+                }
+                throw new IllegalStateException("Expected map, got " + token);
+            }
+            if (located instanceof List<?> keyList) {
+                List<K> keys = treeReader(keyList).readList(keyCodec);
+                return zip(keys, readList(valueCodec));
+            }
+            if (located == ABSENT && first) {
+                return new JsonDataReader(rest()).readMap(keyCodec, valueCodec);
+            }
+            return treeReader(located).readMap(keyCodec, valueCodec);
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+
+    private static <K, V> Map<K, V> zip(List<K> keys, List<V> values) {
+        if (values.size() != keys.size()) {
+            throw new IllegalStateException("Map has " + keys.size() + " keys but " + values.size() + " values");
+        }
+        Map<K, V> map = new LinkedHashMap<>(Math.max(4, keys.size() * 4 / 3 + 1));
+        for (int i = 0; i < keys.size(); i++) {
+            map.put(keys.get(i), values.get(i));
+        }
+        return map;
+    }
+
+    // Reads this object's members from the pending one on as the map's entries, each name through the
+    // key codec and each value through the value codec.
+    private <K, V> Map<K, V> streamMembers(Codec<K> keyCodec, Codec<V> valueCodec) throws IOException {
+        Map<K, V> map = new LinkedHashMap<>();
+        while (true) {
+            String name = pendingName;
+            if (name == null) {
+                if (!in.hasNext()) break;
+                name = in.nextName();
+            }
+            pendingName = null;
+            K key = keyCodec.read(memberNameReader(name));
+            JsonStreamReader value = element();
+            map.put(key, valueCodec.read(value));
+            value.finish();
+        }
+        in.endObject();
+        ended = true;
+        return map;
+    }
+
+    // Every member of this object, passed over or still to come, as the tree reader would see it.
+    private Map<String, Object> rest() throws IOException {
+        Map<String, Object> all = new LinkedHashMap<>();
+        if (source != null) {
+            in = open(source);
+            in.beginObject();
+            ended = false;
+        } else if (passed != null) {
+            all.putAll(passed);
+        }
+        while (!ended) {
+            if (in.hasNext()) {
+                String name = in.nextName();
+                all.put(name, JsonFormat.readValue(in));
+            } else {
+                in.endObject();
+                ended = true;
+            }
+        }
+        atStart = false;
+        return all;
+    }
+
+    @Override
+    public boolean hasKey(String key) {
+        if (!object) return "_v0".equals(key);
+        try {
+            return locate(key) != ABSENT;
+        } catch (IOException e) {
+            throw new JsonSyntaxException(e);
+        }
+    }
+}
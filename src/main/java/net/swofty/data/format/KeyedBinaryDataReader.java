@@ -0,0 +1,168 @@
+package net.swofty.data.format;
+
+import net.swofty.codec.Codec;
+import net.swofty.data.DataReader;
+import net.swofty.data.format.KeyedBinaryFormat.Slice;
+
+import java.util.*;
+
+/**
+ * Reads a {@link KeyedBinaryFormat} document. Only the offset table is decoded up front; a section
+ * is read from its own bytes when asked for, and the unkeyed values only once something reads one.
+ */
+public class KeyedBinaryDataReader implements DataReader {
+    private static final byte[] EMPTY = new byte[0];
+
+    /** A decoded offset table: each key's bytes and the unkeyed values, all slices of the document. */
+    record Table(Map<String, Slice> sections, Slice inline) {}
+
+    private final Map<String, Slice> sections;
+    private final Slice inlineBytes;
+    private BinaryDataReader inline;
+
+    public KeyedBinaryDataReader(byte[] data) {
+        this(Slice.of(data));
+    }
+
+    KeyedBinaryDataReader(Slice document) {
+        this(table(document));
+    }
+
+    private KeyedBinaryDataReader(Table table) {
+        this(table.sections(), table.inline());
+    }
+
+    KeyedBinaryDataReader(Map<String, Slice> sections, Slice inline) {
+        this.sections = sections;
+        this.inlineBytes = inline;
+    }
+
+    static Table table(Slice document) {
+        if (document.length() == 0) return new Table(Map.of(), null);
+        BinaryDataReader in = new BinaryDataReader(document.array(), document.offset(), document.length());
+        byte version = in.readByte();
+        if (version != KeyedBinaryFormat.VERSION) {
+            throw new IllegalStateException("Unsupported KeyedBinaryFormat version " + version);
+        }
+        int count = in.readInt();
+        String[] keys = new String[count];
+        int[] offsets = new int[count];
+        int[] lengths = new int[count];
+        for (int i = 0; i < count; i++) {
+            keys[i] = in.readString();
+            offsets[i] = in.readInt();
+            lengths[i] = in.readInt();
+        }
+        int inlineLength = in.readInt();
+        int body = in.position();
+        Map<String, Slice> sections = new LinkedHashMap<>(Math.max(4, count * 2));
+        for (int i = 0; i < count; i++) {
+            sections.put(keys[i], new Slice(document.array(), body + offsets[i], lengths[i]));
+        }
+        return new Table(sections, new Slice(document.array(), body, inlineLength));
+    }
+
+    private BinaryDataReader inline() {
+        if (inline == null) {
+            inline = inlineBytes == null
+                    ? new BinaryDataReader(EMPTY)
+                    : new BinaryDataReader(inlineBytes.array(), inlineBytes.offset(), inlineBytes.length());
+        }
+        return inline;
+    }
+
+    @Override
+    public int readInt() {
+        return inline().readInt();
+    }
+
+    @Override
+    public long readLong() {
+        return inline().readLong();
+    }
+
+    @Override
+    public float readFloat() {
+        return inline().readFloat();
+    }
+
+    @Override
+    public double readDouble() {
+        return inline().readDouble();
+    }
+
+    @Override
+    public boolean readBoolean() {
+        return inline().readBoolean();
+    }
+
+    @Override
+    public String readString() {
+        return inline().readString();
+    }
+
+    @Override
+    public byte[] readBytes() {
+        return inline().readBytes();
+    }
+
+    @Override
+    public DataReader readSection(String key) {
+        Slice section = sections.get(key);
+        return section == null ? new KeyedBinaryDataReader(Map.of(), null) : new KeyedBinaryDataReader(section);
+    }
+
+    // Each element is flagged: inline values follow directly, while an element that wrote sections
+    // of its own is a nested document, so its keys cannot collide with a sibling's.
+    @Override
+    public <T> List<T> readList(Codec<T> elementCodec) {
+        int size = readInt();
+        List<T> list = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            list.add(readElement(elementCodec));
+        }
+        return list;
+    }
+
+    @Override
+    public <T> Set<T> readSet(Codec<T> elementCodec) {
+        return new LinkedHashSet<>(readList(elementCodec));
+    }
+
+    @Override
+    public <K, V> Map<K, V> readMap(Codec<K> keyCodec, Codec<V> valueCodec) {
+        int count = readInt();
+        if (count >= 0) {
+            // The two-list layout: count keys, then the value list with its own count.
+            List<K> keys = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                keys.add(readElement(keyCodec));
+            }
+            int values = readInt();
+            if (values != count) {
+                throw new IllegalStateException("Map has " + count + " keys but " + values + " values");
+            }
+            Map<K, V> map = new LinkedHashMap<>(BinaryDataReader.capacity(count));
+            for (K key : keys) {
+                map.put(key, readElement(valueCodec));
+            }
+            return map;
+        }
+        int size = -1 - count;
+        Map<K, V> map = new LinkedHashMap<>(BinaryDataReader.capacity(size));
+        for (int i = 0; i < size; i++) {
+            K key = readElement(keyCodec);
+            map.put(key, readElement(valueCodec));
+        }
+        return map;
+    }
+
+    private <T> T readElement(Codec<T> codec) {
+        return readBoolean() ? codec.read(new KeyedBinaryDataReader(readBytes())) : codec.read(this);
+    }
+
+    @Override
+    public boolean hasKey(String key) {
+        return sections.containsKey(key);
+    }
+}
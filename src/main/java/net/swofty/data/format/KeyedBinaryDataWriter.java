@@ -0,0 +1,104 @@
+package net.swofty.data.format;
+
+import net.swofty.codec.Codec;
+import net.swofty.data.DataWriter;
+import net.swofty.data.format.KeyedBinaryFormat.Slice;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.ArrayList;
+
+/** Writes a {@link KeyedBinaryFormat} document: unkeyed values inline, each section on its own. */
+public class KeyedBinaryDataWriter implements DataWriter {
+    private final BinaryDataWriter inline = new BinaryDataWriter();
+    private final Map<String, KeyedBinaryDataWriter> sections = new LinkedHashMap<>();
+
+    @Override
+    public void writeInt(int value) {
+        inline.writeInt(value);
+    }
+
+    @Override
+    public void writeLong(long value) {
+        inline.writeLong(value);
+    }
+
+    @Override
+    public void writeFloat(float value) {
+        inline.writeFloat(value);
+    }
+
+    @Override
+    public void writeDouble(double value) {
+        inline.writeDouble(value);
+    }
+
+    @Override
+    public void writeBoolean(boolean value) {
+        inline.writeBoolean(value);
+    }
+
+    @Override
+    public void writeString(String value) {
+        inline.writeString(value);
+    }
+
+    @Override
+    public void writeBytes(byte[] bytes) {
+        inline.writeBytes(bytes);
+    }
+
+    @Override
+    public DataWriter writeSection(String key) {
+        KeyedBinaryDataWriter section = new KeyedBinaryDataWriter();
+        sections.put(key, section);
+        return section;
+    }
+
+    @Override
+    public <T> void writeList(List<T> list, Codec<T> elementCodec) {
+        writeInt(list.size());
+        for (T element : list) {
+            writeElement(element, elementCodec);
+        }
+    }
+
+    @Override
+    public <T> void writeSet(Set<T> set, Codec<T> elementCodec) {
+        writeList(new ArrayList<>(set), elementCodec);
+    }
+
+    // As in BinaryDataWriter, -1 - size marks entries written key, value, key, value. Each key and
+    // each value is an element, flagged as writeList flags them.
+    @Override
+    public <K, V> void writeMap(Map<K, V> map, Codec<K> keyCodec, Codec<V> valueCodec) {
+        writeInt(-1 - map.size());
+        for (Map.Entry<K, V> entry : map.entrySet()) {
+            writeElement(entry.getKey(), keyCodec);
+            writeElement(entry.getValue(), valueCodec);
+        }
+    }
+
+    private <T> void writeElement(T element, Codec<T> codec) {
+        KeyedBinaryDataWriter elementWriter = new KeyedBinaryDataWriter();
+        codec.write(elementWriter, element);
+        boolean nested = !elementWriter.sections.isEmpty();
+        writeBoolean(nested);
+        if (nested) {
+            writeBytes(elementWriter.toByteArray());
+        } else {
+            inline.writeEncoded(elementWriter.inline.slice());
+            elementWriter.inline.release();
+        }
+    }
+
+    public byte[] toByteArray() {
+        Map<String, Slice> encoded = new LinkedHashMap<>(Math.max(4, sections.size() * 2));
+        sections.forEach((key, section) -> encoded.put(key, Slice.of(section.toByteArray())));
+        byte[] document = KeyedBinaryFormat.assemble(inline.slice(), encoded);
+        inline.release();
+        return document;
+    }
+}
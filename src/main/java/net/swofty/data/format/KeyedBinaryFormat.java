@@ -0,0 +1,124 @@
+package net.swofty.data.format;
+
+import net.swofty.codec.Codec;
+import net.swofty.data.DataFormat;
+import net.swofty.data.DataReader;
+import net.swofty.data.DataWriter;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * A compact binary format whose documents are keyed, so unlike {@link BinaryFormat} it can back
+ * multi-field container storage.
+ *
+ * <p>A document opens with an offset table, one entry per top-level key giving where that key's
+ * bytes start and how long they are, followed by the values themselves:
+ *
+ * <pre>
+ *   byte   format version (1)
+ *   int    number of keys
+ *   repeat UTF key, int offset, int length     offsets are relative to the body
+ *   int    length of the unkeyed (inline) values
+ *   body   inline values, then each key's value
+ * </pre>
+ *
+ * Each key's value is itself such a document, so nested sections are keyed all the way down.
+ * Reading one field jumps straight to its bytes through the table without decoding any other, and
+ * {@link #readRaw} hands back each field as a {@link Slice} of the document it came from, which
+ * {@link #writeRaw} copies byte for byte: a write re-encodes only the fields that changed.
+ */
+public class KeyedBinaryFormat implements DataFormat {
+    static final byte VERSION = 1;
+
+    /** One encoded value: {@code length} bytes of {@code array} from {@code offset}. */
+    public record Slice(byte[] array, int offset, int length) {
+        public static Slice of(byte[] bytes) {
+            return new Slice(bytes, 0, bytes.length);
+        }
+
+        public byte[] toByteArray() {
+            byte[] copy = new byte[length];
+            System.arraycopy(array, offset, copy, 0, length);
+            return copy;
+        }
+    }
+
+    @Override
+    public DataReader createReader(byte[] data) {
+        return new KeyedBinaryDataReader(Slice.of(data));
+    }
+
+    @Override
+    public DataWriter createWriter() {
+        return new KeyedBinaryDataWriter();
+    }
+
+    @Override
+    public byte[] toBytes(DataWriter writer) {
+        if (!(writer instanceof KeyedBinaryDataWriter keyedWriter)) {
+            throw new IllegalArgumentException("Expected KeyedBinaryDataWriter");
+        }
+        return keyedWriter.toByteArray();
+    }
+
+    // Only the offset table is read; the values stay where they are, as slices of data.
+    @Override
+    public Map<String, Object> readRaw(byte[] data) {
+        if (data == null || data.length == 0) {
+            return new LinkedHashMap<>();
+        }
+        return new LinkedHashMap<>(KeyedBinaryDataReader.table(Slice.of(data)).sections());
+    }
+
+    @Override
+    @SuppressWarnings("unchecked")
+    public DataReader createDocumentReader(Map<String, Object> document) {
+        return new KeyedBinaryDataReader((Map<String, Slice>) (Map<String, ?>) document, null);
+    }
+
+    @Override
+    public <T> Object encodeValue(Codec<T> codec, T value) {
+        KeyedBinaryDataWriter writer = new KeyedBinaryDataWriter();
+        codec.write(writer, value);
+        return Slice.of(writer.toByteArray());
+    }
+
+    @Override
+    public byte[] writeRaw(Map<String, Object> data) {
+        Map<String, Slice> sections = new LinkedHashMap<>();
+        data.forEach((key, value) -> {
+            if (value == null) return;
+            if (!(value instanceof Slice slice)) {
+                throw new IllegalArgumentException("Field '" + key + "' is a live " + value.getClass().getName()
+                        + "; KeyedBinaryFormat stores codec output, see encodeValue");
+            }
+            sections.put(key, slice);
+        });
+        return assemble(null, sections);
+    }
+
+    static byte[] assemble(Slice inline, Map<String, Slice> sections) {
+        int inlineLength = inline == null ? 0 : inline.length();
+        int bodyLength = inlineLength;
+        for (Slice section : sections.values()) {
+            bodyLength += section.length();
+        }
+        BinaryDataWriter out = new BinaryDataWriter(16 + sections.size() * 24 + bodyLength);
+        out.writeByte(VERSION);
+        out.writeInt(sections.size());
+        int offset = inlineLength;
+        for (Map.Entry<String, Slice> section : sections.entrySet()) {
+            out.writeString(section.getKey());
+            out.writeInt(offset);
+            out.writeInt(section.getValue().length());
+            offset += section.getValue().length();
+        }
+        out.writeInt(inlineLength);
+        if (inline != null) out.writeEncoded(inline);
+        for (Slice section : sections.values()) {
+            out.writeEncoded(section);
+        }
+        return out.toByteArray();
+    }
+}
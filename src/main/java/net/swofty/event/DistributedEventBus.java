@@ -9,6 +9,7 @@ import net.swofty.ExpiringLinkedField;
 import net.swofty.LinkType;
 import net.swofty.LinkedField;
 import net.swofty.codec.Codec;
+import net.swofty.codec.Codecs;
 import net.swofty.data.DataReader;
 import net.swofty.data.DataWriter;
 import net.swofty.data.format.JsonFormat;
@@ -106,6 +107,12 @@ public class DistributedEventBus extends EventBus {
 
     // ==================== Override fire* to publish ====================
 
+    // Every change is published to peers, whether or not anything listens on this node.
+    @Override
+    public boolean hasPlayerListeners(DataField<?> field) {
+        return true;
+    }
+
     @Override
     public <T> void firePlayerDataChanged(DataField<T> field, UUID player, T oldValue, T newValue) {
         firePlayerDataChanged(field, player, oldValue, newValue, 0L);
@@ -437,6 +444,26 @@ public class DistributedEventBus extends EventBus {
         return "link:" + linkTypeName;
     }
 
+    /**
+     * Roughly what the per-entity ordering state holds on the heap: each tracked entity's key and
+     * stream map, and each stream's name and version. Walks the state under its monitor, so this is
+     * for occasional reporting, not for every event.
+     */
+    public long estimatedBytes() {
+        synchronized (sequences) {
+            // The access-ordered table, then per entity its linked entry, key and stream map, then
+            // per stream its entry, name and boxed version.
+            long size = 64 + 4L * sequences.size();
+            for (Map.Entry<String, Map<String, Long>> entity : sequences.entrySet()) {
+                size += 40 + Codecs.estimateSize(entity.getKey()) + 64;
+                for (String stream : entity.getValue().keySet()) {
+                    size += 32 + Codecs.estimateSize(stream) + 24;
+                }
+            }
+            return size;
+        }
+    }
+
     int trackedEntities() {
         synchronized (sequences) {
             return sequences.size();
@@ -41,6 +41,15 @@ public class EventBus {
         linkedExpirationListeners.computeIfAbsent(field.fullKey(), k -> new CopyOnWriteArrayList<>()).add(listener);
     }
 
+    /**
+     * Whether a change to {@code field} goes anywhere. A caller holding unboxed values checks this
+     * before boxing them into an event nobody receives.
+     */
+    public boolean hasPlayerListeners(DataField<?> field) {
+        List<PlayerDataListener<?>> listeners = playerListeners.get(field.fullKey());
+        return listeners != null && !listeners.isEmpty();
+    }
+
     @SuppressWarnings("unchecked")
     public <T> void firePlayerDataChanged(DataField<T> field, UUID player, T oldValue, T newValue) {
         List<PlayerDataListener<?>> listeners = playerListeners.get(field.fullKey());
@@ -1,14 +1,60 @@
 package net.swofty.storage;
 
+import net.swofty.data.Bytes;
+import net.swofty.data.DataFormat;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 public interface DataStorage extends AutoCloseable {
     byte[] load(String type, String id);
+
+    /**
+     * Stores {@code data} as the document. The storage may keep the array as it is instead of
+     * copying it, so the caller must not modify it afterwards.
+     */
     void save(String type, String id, byte[] data);
     List<String> listIds(String type);
     void delete(String type, String id);
     boolean exists(String type, String id);
 
+    /**
+     * Reads several documents of one type in as few round trips as the backend allows, for bulk
+     * scans that would otherwise pay one round trip per id. Ids with no stored document are simply
+     * absent from the result.
+     *
+     * <p>The default reads the ids one at a time, which is correct for any backend; a backend with a
+     * batched read (MGET, {@code $in}) should override it.
+     */
+    default Map<String, byte[]> loadMany(String type, List<String> ids) {
+        Map<String, byte[]> loaded = new LinkedHashMap<>();
+        for (String id : ids) {
+            byte[] data = load(type, id);
+            if (data != null) loaded.put(id, data);
+        }
+        return loaded;
+    }
+
+    /**
+     * Reads a document for a caller that only needs the named top-level fields, such as a
+     * leaderboard looking up one value for a player nobody has loaded. The result holds at least
+     * those fields and may hold more; null when nothing is stored.
+     *
+     * <p>The default reads the whole document. A backend that stores fields individually should
+     * override it to fetch only what was asked for.
+     */
+    default byte[] loadFields(String type, String id, Set<String> fields) {
+        return load(type, id);
+    }
+
+    /** The batched {@link #loadFields}, with the contract of {@link #loadMany}. */
+    default Map<String, byte[]> loadManyFields(String type, List<String> ids, Set<String> fields) {
+        return loadMany(type, ids);
+    }
+
     /**
      * Reads a document together with the version the backend currently holds for it.
      *
@@ -20,6 +66,37 @@ public interface DataStorage extends AutoCloseable {
         return new VersionedData(load(type, id), VersionedData.UNVERSIONED);
     }
 
+    /**
+     * Reads several documents together with their versions in as few round trips as the backend
+     * allows, for warming a party or a coop's members at once. Every requested id has an entry; one
+     * with no stored document maps to exactly what {@link #loadVersioned} reports for it.
+     *
+     * <p>Each entry is as consistent as a single {@link #loadVersioned} — a document is never
+     * paired with another write's version — but the batch as a whole is not one snapshot unless
+     * the backend says so. The default reads the ids one at a time.
+     */
+    default Map<String, VersionedData> loadManyVersioned(String type, Collection<String> ids) {
+        Map<String, VersionedData> loaded = new LinkedHashMap<>();
+        for (String id : ids) {
+            loaded.put(id, loadVersioned(type, id));
+        }
+        return loaded;
+    }
+
+    /**
+     * Reads just the versions the backend holds for several documents, for a caller that already
+     * has a copy of each and only needs to know whether it is still current. Every requested id has
+     * an entry, with exactly the version {@link #loadVersioned} would report for it.
+     *
+     * <p>The default reads the documents along with their versions, which is correct but saves
+     * nothing; a backend that keeps versions apart from the documents should override it.
+     */
+    default Map<String, Long> loadVersions(String type, Collection<String> ids) {
+        Map<String, Long> versions = new LinkedHashMap<>();
+        loadManyVersioned(type, ids).forEach((id, stored) -> versions.put(id, stored.version()));
+        return versions;
+    }
+
     /**
      * Writes the document only if the stored version is still {@code expectedVersion}, atomically
      * within the backend, and reports the version the write produced.
@@ -33,6 +110,50 @@ public interface DataStorage extends AutoCloseable {
         return SaveResult.saved(type, id, VersionedData.UNVERSIONED);
     }
 
+    /**
+     * {@link #saveIfVersion(String, String, byte[], long)} for a document held as a {@link Bytes}
+     * view. The default hands the view's array over without copying it when the view spans all of
+     * it, so a backend only overrides the {@code byte[]} form.
+     */
+    default SaveResult saveIfVersion(String type, String id, Bytes data, long expectedVersion) {
+        return saveIfVersion(type, id, data.sharedArray(), expectedVersion);
+    }
+
+    /**
+     * Whether {@link #savePatchIfVersion} is supported. A write then ships only the fields that
+     * changed instead of the whole merged document; when this is false every write is a full
+     * {@link #saveIfVersion}.
+     */
+    default boolean supportsFieldPatches() {
+        return false;
+    }
+
+    /**
+     * The format a storage that keeps fields individually encodes each of them in, or null for one
+     * that keeps each document whole. It has to be the format the API is built with, which checks
+     * it on start.
+     */
+    default DataFormat fieldFormat() {
+        return null;
+    }
+
+    /**
+     * Applies a field-level patch to the document only if the stored version is still
+     * {@code expectedVersion}, atomically within the backend, and reports the version the write
+     * produced; a document that does not exist yet is created from the patch.
+     *
+     * <p>Each value in {@code changed} is that one top-level field encoded on its own, as a whole
+     * document holding just that key in the format the API was built with; {@code removed} names
+     * fields to delete. Every field the patch does not mention keeps its stored value. Documents
+     * read back afterwards must look exactly as if the merged document had been written in full,
+     * so a backend implementing this has to store fields individually and be built with the
+     * same format as the API.
+     */
+    default SaveResult savePatchIfVersion(String type, String id, Map<String, byte[]> changed,
+                                          Set<String> removed, long expectedVersion) {
+        throw new UnsupportedOperationException(getClass().getSimpleName() + " does not support field patches");
+    }
+
     @Override
     default void close() {}
 }
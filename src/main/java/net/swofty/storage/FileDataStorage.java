@@ -1,5 +1,6 @@
 package net.swofty.storage;
 
+import net.swofty.data.Bytes;
 import net.swofty.data.DataFormat;
 
 import java.io.IOException;
@@ -7,13 +8,21 @@ import java.io.UncheckedIOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
 import java.util.stream.Stream;
 
 public class FileDataStorage implements DataStorage {
     private final Path baseDir;
     private final DataFormat format;
     private final String extension;
+    // Writers exclude everyone; versioned readers only exclude writers, so a batch of documents can
+    // be read in parallel while still never pairing a document with another write's version.
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
 
     public FileDataStorage(Path baseDir, DataFormat format) {
         this(baseDir, format, ".dat");
@@ -43,24 +52,73 @@ public class FileDataStorage implements DataStorage {
     }
 
     @Override
-    public synchronized void save(String type, String id, byte[] data) {
-        write(type, id, data, readVersion(type, id) + 1);
+    public void save(String type, String id, byte[] data) {
+        lock.writeLock().lock();
+        try {
+            write(type, id, data, readVersion(type, id) + 1);
+        } finally {
+            lock.writeLock().unlock();
+        }
     }
 
     // Only a single JVM's writers are serialised here, so the compare and the write are atomic
     // for this process and no further. Two processes over one directory still race.
     @Override
-    public synchronized SaveResult saveIfVersion(String type, String id, byte[] data, long expectedVersion) {
-        long current = readVersion(type, id);
-        if (current != expectedVersion) return SaveResult.conflict(type, id, current);
-        long version = current + 1;
-        write(type, id, data, version);
-        return SaveResult.saved(type, id, version);
+    public SaveResult saveIfVersion(String type, String id, byte[] data, long expectedVersion) {
+        lock.writeLock().lock();
+        try {
+            long current = readVersion(type, id);
+            if (current != expectedVersion) return SaveResult.conflict(type, id, current);
+            long version = current + 1;
+            write(type, id, data, version);
+            return SaveResult.saved(type, id, version);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    @Override
+    public VersionedData loadVersioned(String type, String id) {
+        lock.readLock().lock();
+        try {
+            return new VersionedData(Bytes.wrap(load(type, id)), readVersion(type, id));
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    // The files are read under one hold of the read lock, so the batch is a single snapshot of this
+    // process's writes rather than one per document. They are read one after another on the
+    // caller's thread: bulk scans already run their chunks in parallel on a pool of their own.
+    @Override
+    public Map<String, VersionedData> loadManyVersioned(String type, Collection<String> ids) {
+        lock.readLock().lock();
+        try {
+            Map<String, VersionedData> loaded = new LinkedHashMap<>();
+            for (String id : ids) {
+                if (!loaded.containsKey(id)) {
+                    loaded.put(id, new VersionedData(Bytes.wrap(load(type, id)), readVersion(type, id)));
+                }
+            }
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
+    // Only the small version files are read; the documents stay on disk.
     @Override
-    public synchronized VersionedData loadVersioned(String type, String id) {
-        return new VersionedData(load(type, id), readVersion(type, id));
+    public Map<String, Long> loadVersions(String type, Collection<String> ids) {
+        lock.readLock().lock();
+        try {
+            Map<String, Long> loaded = new LinkedHashMap<>();
+            for (String id : ids) {
+                loaded.put(id, readVersion(type, id));
+            }
+            return loaded;
+        } finally {
+            lock.readLock().unlock();
+        }
     }
 
     private void write(String type, String id, byte[] data, long version) {
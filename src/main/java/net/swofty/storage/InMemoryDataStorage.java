@@ -1,5 +1,7 @@
 package net.swofty.storage;
 
+import net.swofty.data.Bytes;
+
 import java.util.*;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.concurrent.atomic.AtomicLong;
@@ -15,14 +17,36 @@ public class InMemoryDataStorage implements DataStorage, LeaderboardIndex {
         return bucket == null ? null : bucket.get(id);
     }
 
+    @Override
+    public Map<String, byte[]> loadMany(String type, List<String> ids) {
+        Map<String, byte[]> loaded = new LinkedHashMap<>();
+        Map<String, byte[]> bucket = data.get(type);
+        if (bucket == null) return loaded;
+        for (String id : ids) {
+            byte[] stored = bucket.get(id);
+            if (stored != null) loaded.put(id, stored);
+        }
+        return loaded;
+    }
+
     @Override
     public VersionedData loadVersioned(String type, String id) {
         AtomicLong version = versions.get(new StorageKey(type, id));
-        if (version == null) return new VersionedData(load(type, id), VersionedData.UNVERSIONED);
+        if (version == null) return new VersionedData(Bytes.wrap(load(type, id)), VersionedData.UNVERSIONED);
         // The per-key monitor is what makes the data and the version one observation.
         synchronized (version) {
-            return new VersionedData(load(type, id), version.get());
+            return new VersionedData(Bytes.wrap(load(type, id)), version.get());
+        }
+    }
+
+    @Override
+    public Map<String, Long> loadVersions(String type, Collection<String> ids) {
+        Map<String, Long> loaded = new LinkedHashMap<>();
+        for (String id : ids) {
+            AtomicLong version = versions.get(new StorageKey(type, id));
+            loaded.put(id, version == null ? VersionedData.UNVERSIONED : version.get());
         }
+        return loaded;
     }
 
     @Override
@@ -49,8 +73,10 @@ public class InMemoryDataStorage implements DataStorage, LeaderboardIndex {
         return versions.computeIfAbsent(new StorageKey(type, id), ignored -> new AtomicLong());
     }
 
+    // Kept as given, per the save contract: the array is handed over, not lent, so a document goes
+    // from the writer to storage to every later load without a copy.
     private void store(String type, String id, byte[] bytes) {
-        data.computeIfAbsent(type, k -> new ConcurrentHashMap<>()).put(id, Arrays.copyOf(bytes, bytes.length));
+        data.computeIfAbsent(type, k -> new ConcurrentHashMap<>()).put(id, bytes);
     }
 
     @Override
@@ -1,14 +1,21 @@
 package net.swofty.storage;
 
+import net.swofty.data.Bytes;
 import com.mongodb.client.MongoClient;
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.MongoDatabase;
 import com.mongodb.client.model.Filters;
+import net.swofty.data.DataFormat;
 import org.bson.Document;
 import org.bson.types.Binary;
 
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import com.mongodb.MongoWriteException;
 import com.mongodb.client.model.FindOneAndUpdateOptions;
 import com.mongodb.client.model.Projections;
@@ -16,18 +23,55 @@ import com.mongodb.client.model.ReturnDocument;
 import com.mongodb.client.model.Updates;
 import org.bson.conversions.Bson;
 
+/**
+ * Stores each document in one Mongo document keyed by id, with a {@code version} counter beside it.
+ *
+ * <p>By default the body is one opaque {@code data} binary, so every write replaces all of it. Built
+ * with the API's {@link DataFormat}, it instead keeps each top-level field as its own binary under
+ * {@code fields}, and a write that changed one field is a {@code $set} of that field alone (see
+ * {@link #savePatchIfVersion}). A document written in the old layout is read as before and moved
+ * to the field layout by the first write that reaches it.
+ *
+ * <p>A document in the field layout records the format its fields are encoded in. Reading one with a
+ * storage built without that format fails with {@link IllegalStateException} rather than coming
+ * back empty: an empty document would be written back over the real one. A full write in the
+ * whole-document layout replaces the fields outright, so no stale field outlives it.
+ *
+ * <p>The field layout costs a re-encode on each side of a whole document. Loading one decodes every
+ * field and encodes their merged tree as the document the API reads, and a full write (see
+ * {@link #saveIfVersion}) decodes the document to encode each field on its own. The patch writes
+ * that make up most traffic encode nothing beyond the fields they change.
+ */
 public class MongoDataStorage implements DataStorage {
+    private static final String FIELDS = "fields";
+    // The class of the format the fields are encoded in, beside them.
+    private static final String FORMAT = "format";
+
     private final MongoDatabase database;
     private final MongoClient ownedClient;
+    // The format documents are split into fields with; null keeps the whole-document layout.
+    private final DataFormat fieldFormat;
 
     public MongoDataStorage(MongoClient client, String databaseName) {
+        this(client, databaseName, null);
+    }
+
+    public MongoDataStorage(MongoDatabase database) {
+        this(database, null);
+    }
+
+    /** Keeps each field separately so writes patch just the fields that changed. */
+    public MongoDataStorage(MongoClient client, String databaseName, DataFormat fieldFormat) {
         this.database = client.getDatabase(databaseName);
         this.ownedClient = client;
+        this.fieldFormat = fieldFormat;
     }
 
-    public MongoDataStorage(MongoDatabase database) {
+    /** Keeps each field separately so writes patch just the fields that changed. */
+    public MongoDataStorage(MongoDatabase database, DataFormat fieldFormat) {
         this.database = database;
         this.ownedClient = null;
+        this.fieldFormat = fieldFormat;
     }
 
     private MongoCollection<Document> collection(String type) {
@@ -37,9 +81,19 @@ public class MongoDataStorage implements DataStorage {
     @Override
     public byte[] load(String type, String id) {
         Document doc = collection(type).find(Filters.eq("_id", id)).first();
-        if (doc == null) return null;
-        Binary binary = doc.get("data", Binary.class);
-        return binary == null ? null : binary.getData();
+        return doc == null ? null : body(doc);
+    }
+
+    @Override
+    public Map<String, byte[]> loadMany(String type, List<String> ids) {
+        Map<String, byte[]> loaded = new LinkedHashMap<>();
+        if (ids.isEmpty()) return loaded;
+        for (Document doc : collection(type).find(Filters.in("_id", ids))
+                .projection(Projections.include("data", FIELDS, FORMAT))) {
+            byte[] body = body(doc);
+            if (body != null) loaded.put(doc.getString("_id"), body);
+        }
+        return loaded;
     }
 
     @Override
@@ -50,14 +104,9 @@ public class MongoDataStorage implements DataStorage {
 
     @Override
     public SaveResult saveIfVersion(String type, String id, byte[] data, long expectedVersion) {
-        Bson filter = expectedVersion == VersionedData.UNVERSIONED
-                // A document that predates versioning, or one that does not exist yet, is version 0.
-                ? Filters.and(Filters.eq("_id", id),
-                        Filters.or(Filters.eq("version", 0L), Filters.exists("version", false)))
-                : Filters.and(Filters.eq("_id", id), Filters.eq("version", expectedVersion));
         Document updated;
         try {
-            updated = collection(type).findOneAndUpdate(filter, writeAndBump(data),
+            updated = collection(type).findOneAndUpdate(versionIs(id, expectedVersion), writeAndBump(data),
                     versionOnly().upsert(expectedVersion == VersionedData.UNVERSIONED));
         } catch (MongoWriteException lostTheInsertRace) {
             return SaveResult.conflict(type, id, storedVersion(type, id));
@@ -69,13 +118,154 @@ public class MongoDataStorage implements DataStorage {
     @Override
     public VersionedData loadVersioned(String type, String id) {
         Document doc = collection(type).find(Filters.eq("_id", id)).first();
-        if (doc == null) return new VersionedData(null, VersionedData.UNVERSIONED);
-        Binary binary = doc.get("data", Binary.class);
-        return new VersionedData(binary == null ? null : binary.getData(), versionOf(doc));
+        if (doc == null) return new VersionedData((Bytes) null, VersionedData.UNVERSIONED);
+        return new VersionedData(Bytes.wrap(body(doc)), versionOf(doc));
+    }
+
+    // One $in query for the whole batch. Each document carries its own version, so every entry is
+    // read atomically; ids the query did not return have no stored document.
+    @Override
+    public Map<String, VersionedData> loadManyVersioned(String type, Collection<String> ids) {
+        Map<String, VersionedData> loaded = new LinkedHashMap<>();
+        if (ids.isEmpty()) return loaded;
+        Map<String, VersionedData> found = new HashMap<>();
+        for (Document doc : collection(type).find(Filters.in("_id", ids))) {
+            found.put(doc.getString("_id"), new VersionedData(Bytes.wrap(body(doc)), versionOf(doc)));
+        }
+        for (String id : ids) {
+            loaded.put(id, found.getOrDefault(id, new VersionedData((Bytes) null, VersionedData.UNVERSIONED)));
+        }
+        return loaded;
+    }
+
+    // The same $in query, projected down to the version so no document body comes back.
+    @Override
+    public Map<String, Long> loadVersions(String type, Collection<String> ids) {
+        Map<String, Long> loaded = new LinkedHashMap<>();
+        if (ids.isEmpty()) return loaded;
+        Map<String, Long> found = new HashMap<>();
+        for (Document doc : collection(type).find(Filters.in("_id", ids)).projection(Projections.include("version"))) {
+            found.put(doc.getString("_id"), versionOf(doc));
+        }
+        for (String id : ids) {
+            loaded.put(id, found.getOrDefault(id, VersionedData.UNVERSIONED));
+        }
+        return loaded;
+    }
+
+    @Override
+    public boolean supportsFieldPatches() {
+        return fieldFormat != null;
+    }
+
+    @Override
+    public DataFormat fieldFormat() {
+        return fieldFormat;
+    }
+
+    // One findOneAndUpdate: $set each changed field, $unset each removed one and $inc the version,
+    // filtered on the version. A document still in the whole-document layout has nowhere to take a
+    // single field, so the filter skips it and it is rewritten in full, in the field layout, instead;
+    // one whose fields are in another format is skipped too, and refused below.
+    @Override
+    public SaveResult savePatchIfVersion(String type, String id, Map<String, byte[]> changed,
+                                         Set<String> removed, long expectedVersion) {
+        if (fieldFormat == null) {
+            return DataStorage.super.savePatchIfVersion(type, id, changed, removed, expectedVersion);
+        }
+        List<Bson> updates = new ArrayList<>();
+        changed.forEach((key, field) -> updates.add(Updates.set(FIELDS + "." + fieldName(key), new Binary(field))));
+        removed.forEach(key -> updates.add(Updates.unset(FIELDS + "." + fieldName(key))));
+        updates.add(Updates.set(FORMAT, formatName()));
+        updates.add(Updates.inc("version", 1L));
+        Document updated;
+        try {
+            updated = collection(type).findOneAndUpdate(
+                    Filters.and(versionIs(id, expectedVersion), Filters.exists("data", false),
+                            Filters.or(Filters.exists(FORMAT, false), Filters.eq(FORMAT, formatName()))),
+                    Updates.combine(updates), versionOnly().upsert(expectedVersion == VersionedData.UNVERSIONED));
+        } catch (MongoWriteException documentAlreadyExists) {
+            updated = null;
+        }
+        if (updated != null) return SaveResult.saved(type, id, versionOf(updated));
+
+        Document stored = collection(type).find(Filters.eq("_id", id))
+                .projection(Projections.include("version", "data", FORMAT)).first();
+        if (stored != null) checkFormat(stored);
+        long storedVersion = stored == null ? VersionedData.UNVERSIONED : versionOf(stored);
+        Binary legacy = stored == null ? null : stored.get("data", Binary.class);
+        if (storedVersion != expectedVersion || legacy == null) {
+            return SaveResult.conflict(type, id, storedVersion);
+        }
+        Map<String, Object> merged = new LinkedHashMap<>(fieldFormat.readRaw(legacy.getData()));
+        changed.values().forEach(field -> merged.putAll(fieldFormat.readRaw(field)));
+        merged.keySet().removeAll(removed);
+        return saveIfVersion(type, id, fieldFormat.writeRaw(merged), expectedVersion);
+    }
+
+    // A document that predates versioning, or one that does not exist yet, is version 0.
+    private static Bson versionIs(String id, long expectedVersion) {
+        return expectedVersion == VersionedData.UNVERSIONED
+                ? Filters.and(Filters.eq("_id", id),
+                        Filters.or(Filters.eq("version", 0L), Filters.exists("version", false)))
+                : Filters.and(Filters.eq("_id", id), Filters.eq("version", expectedVersion));
+    }
+
+    private Bson writeAndBump(byte[] data) {
+        if (fieldFormat == null) {
+            return Updates.combine(Updates.set("data", new Binary(data)), Updates.unset(FIELDS), Updates.unset(FORMAT),
+                    Updates.inc("version", 1L));
+        }
+        Document fields = new Document();
+        fieldFormat.readRaw(data).forEach((key, value) -> {
+            if (value != null) fields.append(fieldName(key), new Binary(fieldFormat.writeRaw(Map.of(key, value))));
+        });
+        return Updates.combine(Updates.set(FIELDS, fields), Updates.set(FORMAT, formatName()), Updates.unset("data"),
+                Updates.inc("version", 1L));
+    }
+
+    // The stored document as the API reads it, from whichever layout it was written in. Each field
+    // is a whole one-key document, so merging their trees rebuilds the original.
+    private byte[] body(Document doc) {
+        Binary data = doc.get("data", Binary.class);
+        if (data != null) return data.getData();
+        Document fields = doc.get(FIELDS, Document.class);
+        if (fields == null) return null;
+        if (fieldFormat == null) {
+            throw new IllegalStateException("Document " + doc.get("_id") + " is stored field by field"
+                    + recordedFormat(doc) + ", but this storage was built without a field format to read it with");
+        }
+        checkFormat(doc);
+        Map<String, Object> merged = new LinkedHashMap<>();
+        for (Object field : fields.values()) {
+            merged.putAll(fieldFormat.readRaw(((Binary) field).getData()));
+        }
+        return fieldFormat.writeRaw(merged);
+    }
+
+    // A document that records no format was moved to the field layout before formats were recorded,
+    // and is taken to be in this storage's.
+    private void checkFormat(Document doc) {
+        String recorded = doc.getString(FORMAT);
+        if (recorded != null && fieldFormat != null && !recorded.equals(formatName())) {
+            throw new IllegalStateException("Document " + doc.get("_id") + " is stored field by field"
+                    + recordedFormat(doc) + ", but this storage reads fields as " + formatName());
+        }
+    }
+
+    private static String recordedFormat(Document doc) {
+        String recorded = doc.getString(FORMAT);
+        return recorded == null ? "" : " in " + recorded;
+    }
+
+    private String formatName() {
+        return fieldFormat.getClass().getName();
     }
 
-    private static Bson writeAndBump(byte[] data) {
-        return Updates.combine(Updates.set("data", new Binary(data)), Updates.inc("version", 1L));
+    // Field keys are "namespace:key", and Mongo reads '.' as a path and a leading '$' as an operator.
+    // The key itself is inside each field's document, so the escaping never has to be undone.
+    private static String fieldName(String key) {
+        return key.replace("%", "%25").replace(".", "%2E").replace("$", "%24");
     }
 
     // The document body is the whole point of the collection; never ship it back just to read a
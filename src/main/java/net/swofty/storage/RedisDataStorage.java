@@ -1,5 +1,6 @@
 package net.swofty.storage;
 
+import net.swofty.data.Bytes;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 import redis.clients.jedis.JedisPoolConfig;
@@ -7,7 +8,10 @@ import redis.clients.jedis.resps.Tuple;
 
 import java.nio.charset.StandardCharsets;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
 public class RedisDataStorage implements DataStorage, LeaderboardIndex {
     private final JedisPool pool;
@@ -26,19 +30,19 @@ public class RedisDataStorage implements DataStorage, LeaderboardIndex {
         this(new JedisPool(new JedisPoolConfig(), host, port));
     }
 
-    private byte[] dataKey(String type, String id) {
+    byte[] dataKey(String type, String id) {
         return (prefix + ":" + type + ":" + id).getBytes(StandardCharsets.UTF_8);
     }
 
-    private String indexKey(String type) {
+    String indexKey(String type) {
         return prefix + ":index:" + type;
     }
 
-    private byte[] indexKeyBytes(String type) {
+    byte[] indexKeyBytes(String type) {
         return indexKey(type).getBytes(StandardCharsets.UTF_8);
     }
 
-    private byte[] versionKey(String type, String id) {
+    byte[] versionKey(String type, String id) {
         return (prefix + ":version:" + type + ":" + id).getBytes(StandardCharsets.UTF_8);
     }
 
@@ -59,6 +63,12 @@ public class RedisDataStorage implements DataStorage, LeaderboardIndex {
     private static final byte[] LOAD_SCRIPT =
             "return {redis.call('get',KEYS[1]),redis.call('get',KEYS[2])}".getBytes(StandardCharsets.UTF_8);
 
+    // The batched LOAD_SCRIPT: every document and its version in one EVAL, so each pair is read
+    // atomically and the whole batch costs one round trip. KEYS alternate data key, version key.
+    private static final byte[] LOAD_MANY_SCRIPT = ("local r={};for i=1,#KEYS,2 do "
+            + "r[#r+1]=redis.call('get',KEYS[i]);r[#r+1]=redis.call('get',KEYS[i+1]) end;return r")
+            .getBytes(StandardCharsets.UTF_8);
+
     @Override
     public byte[] load(String type, String id) {
         try (Jedis jedis = pool.getResource()) {
@@ -66,6 +76,26 @@ public class RedisDataStorage implements DataStorage, LeaderboardIndex {
         }
     }
 
+    // One MGET per batch. The caller bounds the batch, so the reply never holds more documents than
+    // it asked to have in memory at once.
+    @Override
+    public Map<String, byte[]> loadMany(String type, List<String> ids) {
+        Map<String, byte[]> loaded = new LinkedHashMap<>();
+        if (ids.isEmpty()) return loaded;
+        byte[][] keys = new byte[ids.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = dataKey(type, ids.get(i));
+        }
+        try (Jedis jedis = pool.getResource()) {
+            List<byte[]> values = jedis.mget(keys);
+            for (int i = 0; i < keys.length; i++) {
+                byte[] data = values.get(i);
+                if (data != null) loaded.put(ids.get(i), data);
+            }
+        }
+        return loaded;
+    }
+
     @Override
     public void save(String type, String id, byte[] data) {
         try (Jedis jedis = pool.getResource()) {
@@ -95,12 +125,54 @@ public class RedisDataStorage implements DataStorage, LeaderboardIndex {
         try (Jedis jedis = pool.getResource()) {
             Object raw = jedis.eval(LOAD_SCRIPT, List.of(dataKey(type, id), versionKey(type, id)), List.of());
             @SuppressWarnings("unchecked") List<byte[]> values = (List<byte[]>) raw;
-            byte[] data = values.get(0);
-            byte[] version = values.get(1);
-            return new VersionedData(data, version == null
-                    ? VersionedData.UNVERSIONED
-                    : Long.parseLong(new String(version, StandardCharsets.UTF_8)));
+            return versioned(values.get(0), values.get(1));
+        }
+    }
+
+    @Override
+    public Map<String, VersionedData> loadManyVersioned(String type, Collection<String> ids) {
+        Map<String, VersionedData> loaded = new LinkedHashMap<>();
+        if (ids.isEmpty()) return loaded;
+        List<String> ordered = List.copyOf(ids);
+        List<byte[]> keys = new ArrayList<>(ordered.size() * 2);
+        for (String id : ordered) {
+            keys.add(dataKey(type, id));
+            keys.add(versionKey(type, id));
+        }
+        try (Jedis jedis = pool.getResource()) {
+            Object raw = jedis.eval(LOAD_MANY_SCRIPT, keys, List.of());
+            @SuppressWarnings("unchecked") List<byte[]> values = (List<byte[]>) raw;
+            for (int i = 0; i < ordered.size(); i++) {
+                loaded.put(ordered.get(i), versioned(values.get(2 * i), values.get(2 * i + 1)));
+            }
         }
+        return loaded;
+    }
+
+    // One MGET of the version keys alone. The hash layout keeps its versions under the same keys,
+    // so this serves both.
+    @Override
+    public Map<String, Long> loadVersions(String type, Collection<String> ids) {
+        Map<String, Long> loaded = new LinkedHashMap<>();
+        if (ids.isEmpty()) return loaded;
+        List<String> ordered = List.copyOf(ids);
+        byte[][] keys = new byte[ordered.size()][];
+        for (int i = 0; i < keys.length; i++) {
+            keys[i] = versionKey(type, ordered.get(i));
+        }
+        try (Jedis jedis = pool.getResource()) {
+            List<byte[]> values = jedis.mget(keys);
+            for (int i = 0; i < keys.length; i++) {
+                loaded.put(ordered.get(i), versioned(null, values.get(i)).version());
+            }
+        }
+        return loaded;
+    }
+
+    static VersionedData versioned(byte[] data, byte[] version) {
+        return new VersionedData(Bytes.wrap(data), version == null
+                ? VersionedData.UNVERSIONED
+                : Long.parseLong(new String(version, StandardCharsets.UTF_8)));
     }
 
     @Override
@@ -0,0 +1,265 @@
+package net.swofty.storage;
+
+import net.swofty.data.Bytes;
+import net.swofty.data.DataFormat;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+import redis.clients.jedis.Pipeline;
+import redis.clients.jedis.Response;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * A {@link RedisDataStorage} that keeps each document as a Redis hash with one hash field per
+ * top-level field ({@code namespace:key}), instead of one opaque string.
+ *
+ * <p>That is what makes a document addressable by field. A write that changed one field is an
+ * HSET of that field (see {@link #savePatchIfVersion}), and a cold read that needs one field, a
+ * leaderboard value or a bulk query's filter, is an HMGET of that field (see {@link #loadFields}).
+ * Versions, the id index and leaderboards are kept exactly as {@link RedisDataStorage} keeps them,
+ * and every write still bumps the version, writes and indexes inside one script.
+ *
+ * <p>Each hash value is that one field encoded alone as a document in {@code format}, which has to
+ * be the format the API is built with; {@link #load} merges them back into the whole document the
+ * API expects. A hash and a string cannot share a key, so this layout must not be pointed at a
+ * prefix that already holds {@link RedisDataStorage} documents.
+ */
+public class RedisHashDataStorage extends RedisDataStorage {
+    private final DataFormat format;
+
+    public RedisHashDataStorage(JedisPool pool, DataFormat format) {
+        this(pool, "swofty:fields", format);
+    }
+
+    public RedisHashDataStorage(JedisPool pool, String prefix, DataFormat format) {
+        super(pool, prefix);
+        this.format = format;
+    }
+
+    // KEYS: hash, version, index. ARGV: id, then field/value pairs. The hash is replaced rather
+    // than merged into, so a field the new document no longer has is gone.
+    private static final byte[] SAVE_SCRIPT = ("local v=redis.call('incr',KEYS[2]);redis.call('del',KEYS[1]);"
+            + "for i=2,#ARGV,2 do redis.call('hset',KEYS[1],ARGV[i],ARGV[i+1]) end;"
+            + "redis.call('sadd',KEYS[3],ARGV[1]);return v")
+            .getBytes(StandardCharsets.UTF_8);
+
+    // As SAVE_SCRIPT, behind the same compare as RedisDataStorage. ARGV: id, expected version, pairs.
+    private static final byte[] SAVE_IF_VERSION_SCRIPT = ("local stored=tonumber(redis.call('get',KEYS[2]) or '0');"
+            + "if stored ~= tonumber(ARGV[2]) then return {0,stored} end;"
+            + "local updated=redis.call('incr',KEYS[2]);redis.call('del',KEYS[1]);"
+            + "for i=3,#ARGV,2 do redis.call('hset',KEYS[1],ARGV[i],ARGV[i+1]) end;"
+            + "redis.call('sadd',KEYS[3],ARGV[1]);return {1,updated}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    // ARGV: id, expected version, the number of changed fields n, n field/value pairs, then the
+    // fields to delete. Only the named fields are touched.
+    private static final byte[] PATCH_IF_VERSION_SCRIPT = ("local stored=tonumber(redis.call('get',KEYS[2]) or '0');"
+            + "if stored ~= tonumber(ARGV[2]) then return {0,stored} end;"
+            + "local updated=redis.call('incr',KEYS[2]);local last=3+2*tonumber(ARGV[3]);"
+            + "for i=4,last,2 do redis.call('hset',KEYS[1],ARGV[i],ARGV[i+1]) end;"
+            + "for i=last+1,#ARGV do redis.call('hdel',KEYS[1],ARGV[i]) end;"
+            + "redis.call('sadd',KEYS[3],ARGV[1]);return {1,updated}")
+            .getBytes(StandardCharsets.UTF_8);
+
+    private static final byte[] LOAD_SCRIPT =
+            "return {redis.call('hgetall',KEYS[1]),redis.call('get',KEYS[2])}".getBytes(StandardCharsets.UTF_8);
+
+    // KEYS alternate hash key, version key, as for RedisDataStorage's batched load.
+    private static final byte[] LOAD_MANY_SCRIPT = ("local r={};for i=1,#KEYS,2 do "
+            + "r[#r+1]=redis.call('hgetall',KEYS[i]);r[#r+1]=redis.call('get',KEYS[i+1]) end;return r")
+            .getBytes(StandardCharsets.UTF_8);
+
+    // A document exists exactly as long as its version does: an empty document is an empty hash,
+    // which Redis does not keep, but its version is still there.
+    @Override
+    public byte[] load(String type, String id) {
+        Bytes stored = loadVersioned(type, id).bytes();
+        return stored == null ? null : stored.sharedArray();
+    }
+
+    @Override
+    public VersionedData loadVersioned(String type, String id) {
+        try (Jedis jedis = getPool().getResource()) {
+            Object raw = jedis.eval(LOAD_SCRIPT, List.of(dataKey(type, id), versionKey(type, id)), List.of());
+            @SuppressWarnings("unchecked") List<Object> reply = (List<Object>) raw;
+            return document(reply.get(0), (byte[]) reply.get(1));
+        }
+    }
+
+    @Override
+    public Map<String, VersionedData> loadManyVersioned(String type, Collection<String> ids) {
+        Map<String, VersionedData> loaded = new LinkedHashMap<>();
+        if (ids.isEmpty()) return loaded;
+        List<String> ordered = List.copyOf(ids);
+        List<byte[]> keys = new ArrayList<>(ordered.size() * 2);
+        for (String id : ordered) {
+            keys.add(dataKey(type, id));
+            keys.add(versionKey(type, id));
+        }
+        try (Jedis jedis = getPool().getResource()) {
+            Object raw = jedis.eval(LOAD_MANY_SCRIPT, keys, List.of());
+            @SuppressWarnings("unchecked") List<Object> reply = (List<Object>) raw;
+            for (int i = 0; i < ordered.size(); i++) {
+                loaded.put(ordered.get(i), document(reply.get(2 * i), (byte[]) reply.get(2 * i + 1)));
+            }
+        }
+        return loaded;
+    }
+
+    @Override
+    public Map<String, byte[]> loadMany(String type, List<String> ids) {
+        Map<String, byte[]> loaded = new LinkedHashMap<>();
+        for (Map.Entry<String, VersionedData> entry : loadManyVersioned(type, ids).entrySet()) {
+            Bytes stored = entry.getValue().bytes();
+            if (stored != null) loaded.put(entry.getKey(), stored.sharedArray());
+        }
+        return loaded;
+    }
+
+    // One HMGET of just the requested fields, whatever else the document holds.
+    @Override
+    public byte[] loadFields(String type, String id, Set<String> fields) {
+        if (fields.isEmpty()) return load(type, id);
+        byte[][] names = fieldNames(fields);
+        try (Jedis jedis = getPool().getResource()) {
+            return merge(jedis.hmget(dataKey(type, id), names));
+        }
+    }
+
+    // One pipelined HMGET per id: a single round trip for the chunk, and only the requested fields
+    // on the wire.
+    @Override
+    public Map<String, byte[]> loadManyFields(String type, List<String> ids, Set<String> fields) {
+        if (fields.isEmpty()) return loadMany(type, ids);
+        Map<String, byte[]> loaded = new LinkedHashMap<>();
+        if (ids.isEmpty()) return loaded;
+        byte[][] names = fieldNames(fields);
+        List<Response<List<byte[]>>> replies = new ArrayList<>(ids.size());
+        try (Jedis jedis = getPool().getResource(); Pipeline pipeline = jedis.pipelined()) {
+            for (String id : ids) {
+                replies.add(pipeline.hmget(dataKey(type, id), names));
+            }
+            pipeline.sync();
+        }
+        for (int i = 0; i < ids.size(); i++) {
+            byte[] document = merge(replies.get(i).get());
+            if (document != null) loaded.put(ids.get(i), document);
+        }
+        return loaded;
+    }
+
+    @Override
+    public void save(String type, String id, byte[] data) {
+        List<byte[]> args = new ArrayList<>();
+        args.add(id.getBytes(StandardCharsets.UTF_8));
+        addFields(args, data);
+        try (Jedis jedis = getPool().getResource()) {
+            jedis.eval(SAVE_SCRIPT, List.of(dataKey(type, id), versionKey(type, id), indexKeyBytes(type)), args);
+        }
+    }
+
+    @Override
+    public SaveResult saveIfVersion(String type, String id, byte[] data, long expectedVersion) {
+        List<byte[]> args = new ArrayList<>();
+        args.add(id.getBytes(StandardCharsets.UTF_8));
+        args.add(Long.toString(expectedVersion).getBytes(StandardCharsets.UTF_8));
+        addFields(args, data);
+        return conditional(SAVE_IF_VERSION_SCRIPT, type, id, args);
+    }
+
+    @Override
+    public boolean supportsFieldPatches() {
+        return true;
+    }
+
+    @Override
+    public DataFormat fieldFormat() {
+        return format;
+    }
+
+    @Override
+    public SaveResult savePatchIfVersion(String type, String id, Map<String, byte[]> changed,
+                                         Set<String> removed, long expectedVersion) {
+        List<byte[]> args = new ArrayList<>(3 + 2 * changed.size() + removed.size());
+        args.add(id.getBytes(StandardCharsets.UTF_8));
+        args.add(Long.toString(expectedVersion).getBytes(StandardCharsets.UTF_8));
+        args.add(Integer.toString(changed.size()).getBytes(StandardCharsets.UTF_8));
+        changed.forEach((key, field) -> {
+            args.add(key.getBytes(StandardCharsets.UTF_8));
+            args.add(field);
+        });
+        for (String key : removed) {
+            args.add(key.getBytes(StandardCharsets.UTF_8));
+        }
+        return conditional(PATCH_IF_VERSION_SCRIPT, type, id, args);
+    }
+
+    @Override
+    public boolean exists(String type, String id) {
+        try (Jedis jedis = getPool().getResource()) {
+            return jedis.exists(versionKey(type, id));
+        }
+    }
+
+    private SaveResult conditional(byte[] script, String type, String id, List<byte[]> args) {
+        try (Jedis jedis = getPool().getResource()) {
+            Object raw = jedis.eval(script,
+                    List.of(dataKey(type, id), versionKey(type, id), indexKeyBytes(type)), args);
+            @SuppressWarnings("unchecked") List<Long> reply = (List<Long>) raw;
+            long version = reply.get(1);
+            return reply.get(0) == 1L
+                    ? SaveResult.saved(type, id, version)
+                    : SaveResult.conflict(type, id, version);
+        }
+    }
+
+    // Splits a whole document into field/value pairs, each value the field alone as a document.
+    private void addFields(List<byte[]> args, byte[] data) {
+        if (data == null) return;
+        format.readRaw(data).forEach((key, value) -> {
+            if (value == null) return;
+            args.add(key.getBytes(StandardCharsets.UTF_8));
+            args.add(format.writeRaw(Map.of(key, value)));
+        });
+    }
+
+    // HGETALL comes back as a flat field, value, field, value list from a script.
+    private VersionedData document(Object hash, byte[] version) {
+        VersionedData versioned = versioned(null, version);
+        if (versioned.version() == VersionedData.UNVERSIONED) return versioned;
+        @SuppressWarnings("unchecked") List<byte[]> flat = (List<byte[]>) hash;
+        List<byte[]> values = new ArrayList<>(flat.size() / 2);
+        for (int i = 1; i < flat.size(); i += 2) {
+            values.add(flat.get(i));
+        }
+        byte[] merged = merge(values);
+        return new VersionedData(Bytes.wrap(merged == null ? format.writeRaw(Map.of()) : merged), versioned.version());
+    }
+
+    // Each field is a whole one-key document, so merging their trees rebuilds the original; null
+    // when none of them is stored.
+    private byte[] merge(List<byte[]> fields) {
+        Map<String, Object> merged = null;
+        for (byte[] field : fields) {
+            if (field == null) continue;
+            if (merged == null) merged = new LinkedHashMap<>();
+            merged.putAll(format.readRaw(field));
+        }
+        return merged == null ? null : format.writeRaw(merged);
+    }
+
+    private static byte[][] fieldNames(Set<String> fields) {
+        byte[][] names = new byte[fields.size()][];
+        int i = 0;
+        for (String field : fields) {
+            names[i++] = field.getBytes(StandardCharsets.UTF_8);
+        }
+        return names;
+    }
+}
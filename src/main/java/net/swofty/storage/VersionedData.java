@@ -1,17 +1,23 @@
 package net.swofty.storage;
 
-import java.util.Arrays;
+import net.swofty.data.Bytes;
 
-public record VersionedData(byte[] data, long version) {
+/**
+ * A stored document and the version the backend holds for it. The document is a {@link Bytes}
+ * view, so it reaches the formats without being copied; {@link #data()} is the copying accessor
+ * the {@code byte[]} API had.
+ */
+public record VersionedData(Bytes bytes, long version) {
     /** Reported by backends that do not track document versions. */
     public static final long UNVERSIONED = 0L;
 
-    public VersionedData {
-        data = data == null ? null : Arrays.copyOf(data, data.length);
+    /** Copies {@code data}, as this constructor always has, for a caller that may still change it. */
+    public VersionedData(byte[] data, long version) {
+        this(Bytes.copyOf(data), version);
     }
 
-    @Override
+    /** A copy of the document, or null when nothing is stored. */
     public byte[] data() {
-        return data == null ? null : Arrays.copyOf(data, data.length);
+        return bytes == null ? null : bytes.toByteArray();
     }
 }
@@ -0,0 +1,155 @@
+package net.swofty;
+
+import net.swofty.api.DataAPIImpl;
+import net.swofty.api.IoOptions;
+import net.swofty.codec.Codecs;
+import net.swofty.storage.InMemoryDataStorage;
+import net.swofty.storage.VersionedData;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The {@code *Async} methods never make their caller wait on storage: they run on the API's own
+ * bounded pool, and a call it has no room for fails at once instead of queueing without limit.
+ */
+class AsyncApiTest {
+    private static final PlayerField<Integer> COINS = PlayerField.create("async", "coins", Codecs.INT, 0);
+    private static final PlayerField<UUID> COOP_ID =
+            PlayerField.create("async", "coop_id", Codecs.nullable(Codecs.UUID), null);
+    private static final LinkType<UUID> COOP = LinkType.create("async_coop", Codecs.UUID, COOP_ID);
+    private static final LinkedField<UUID, Long> BANK = LinkedField.create("async", "bank", Codecs.LONG, 0L, COOP);
+
+    /** Holds every document read until released, and records the thread each read ran on. */
+    private static final class GatedStorage extends InMemoryDataStorage {
+        final CountDownLatch open = new CountDownLatch(1);
+        volatile String readThread;
+
+        @Override
+        public VersionedData loadVersioned(String type, String id) {
+            readThread = Thread.currentThread().getName();
+            try {
+                open.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.loadVersioned(type, id);
+        }
+    }
+
+    private static DataAPIImpl api(InMemoryDataStorage storage, IoOptions io) {
+        return DataAPIImpl.builder(storage).io(io).build();
+    }
+
+    @Test
+    @Timeout(30)
+    void callsReturnBeforeStorageAnswersAndRunOnTheIoPool() throws Exception {
+        GatedStorage storage = new GatedStorage();
+        DataAPIImpl api = api(storage, IoOptions.DEFAULT);
+        UUID player = UUID.randomUUID();
+
+        CompletableFuture<Void> load = api.loadAsync(player);
+        CompletableFuture<Void> set = api.setAsync(player, COINS, 7);
+        assertFalse(load.isDone());
+        assertFalse(set.isDone());
+
+        storage.open.countDown();
+        load.get(10, TimeUnit.SECONDS);
+        set.get(10, TimeUnit.SECONDS);
+        assertTrue(storage.readThread.startsWith("DataHandler-IO-"), storage.readThread);
+        assertEquals(7, api.getAsync(player, COINS).get(10, TimeUnit.SECONDS));
+        api.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void transactionsRunAsynchronously() throws Exception {
+        DataAPIImpl api = api(new InMemoryDataStorage(), IoOptions.DEFAULT);
+        UUID player = UUID.randomUUID();
+        UUID coop = UUID.randomUUID();
+        api.link(player, COOP, coop);
+
+        Integer coins = api.transactionAsync(player, tx -> {
+            tx.set(COINS, 50);
+            return tx.get(COINS);
+        }).get(10, TimeUnit.SECONDS);
+        assertEquals(50, coins);
+        api.transactionDirectAsync(coop, COOP, tx -> {
+            tx.update(BANK, bank -> bank + 1000L);
+            return null;
+        }).get(10, TimeUnit.SECONDS);
+        assertEquals(1000L, api.getDirect(coop, BANK));
+
+        CompletionException failure = assertThrows(CompletionException.class, () -> api.transactionAsync(player, tx -> {
+            tx.set(COINS, 0);
+            throw new IllegalStateException("refund failed");
+        }).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertEquals(50, api.get(player, COINS), "the failed transaction was rolled back");
+        api.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void bulkOperationsRunAsynchronously() throws Exception {
+        InMemoryDataStorage storage = new InMemoryDataStorage();
+        DataAPIImpl api = api(storage, IoOptions.DEFAULT);
+        UUID rich = UUID.randomUUID();
+        UUID poor = UUID.randomUUID();
+        api.set(rich, COINS, 500);
+        api.set(poor, COINS, 5);
+
+        assertEquals(List.of(rich), api.queryAsync(COINS, c -> c > 100).get(10, TimeUnit.SECONDS));
+        assertEquals(2, api.countAsync(COINS, c -> c > 0).get(10, TimeUnit.SECONDS));
+        assertEquals(2, api.updateAllAsync(COINS, c -> c + 1).get(10, TimeUnit.SECONDS));
+        assertEquals(501, api.get(rich, COINS));
+        api.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void aFullPoolRejectsInsteadOfQueueing() throws Exception {
+        GatedStorage storage = new GatedStorage();
+        DataAPIImpl api = api(storage, new IoOptions(1, 2));
+        CompletableFuture<Void> first = api.loadAsync(UUID.randomUUID());
+        CompletableFuture<Integer> second = api.getAsync(UUID.randomUUID(), COINS);
+
+        CompletableFuture<Integer> third = api.getAsync(UUID.randomUUID(), COINS);
+        assertTrue(third.isCompletedExceptionally(), "failed without waiting");
+        CompletionException failure = assertThrows(CompletionException.class, third::join);
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+
+        storage.open.countDown();
+        first.get(10, TimeUnit.SECONDS);
+        assertEquals(0, second.get(10, TimeUnit.SECONDS));
+        assertEquals(0, api.getAsync(UUID.randomUUID(), COINS).get(10, TimeUnit.SECONDS),
+                "finished calls give their room back");
+        api.shutdown();
+    }
+
+    @Test
+    void callsAfterShutdownAreRefused() {
+        DataAPIImpl api = api(new InMemoryDataStorage(), IoOptions.DEFAULT);
+        api.shutdown();
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> api.transactionAsync(UUID.randomUUID(), tx -> 1).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        assertThrows(CompletionException.class, () -> api.loadAsync(UUID.randomUUID()).join());
+    }
+
+    @Test
+    void optionsAreValidated() {
+        assertThrows(IllegalArgumentException.class, () -> new IoOptions(0, 10));
+        assertThrows(IllegalArgumentException.class, () -> new IoOptions(4, 0));
+    }
+}
@@ -305,4 +305,55 @@ class BulkOperationsTest {
         int affected = api.updateAll(COINS, c -> c + 1);
         assertEquals(5, affected);
     }
+
+    // ==================== Cache Footprint ====================
+
+    // A scan over every stored player must not leave a cached container behind for each of them.
+    @Test
+    void scansDoNotLoadPlayersIntoTheCache() {
+        List<UUID> players = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UUID p = UUID.randomUUID();
+            players.add(p);
+            api.set(p, COINS, i * 10);
+            api.unload(p);
+        }
+        UUID online = players.get(0);
+        api.set(online, COINS, 1000);
+
+        assertEquals(11, api.count(COINS, c -> c >= 100));
+        assertEquals(List.of(online), api.query(COINS, c -> c >= 1000));
+        assertEquals(online, api.getTop(COINS, 1, Comparator.reverseOrder()).get(0).playerId());
+        assertEquals(online, api.getTop(COINS, 1).get(0).playerId());
+
+        assertEquals(Set.of(online), api.loadedPlayers());
+    }
+
+    @Test
+    void updateWhereWritesUnloadedPlayersWithoutCachingThem() {
+        UUID online = UUID.randomUUID();
+        UUID offline = UUID.randomUUID();
+        api.set(online, COINS, 500);
+        api.set(offline, COINS, 700);
+        api.unload(offline);
+
+        assertEquals(2, api.updateWhere(COINS, c -> c >= 500, c -> c + 1));
+
+        assertEquals(Set.of(online), api.loadedPlayers());
+        assertEquals(501, api.get(online, COINS));
+        assertEquals(701, api.get(offline, COINS));
+    }
+
+    @Test
+    void scansRunOnTheApisOwnPoolByDefault() {
+        UUID offline = UUID.randomUUID();
+        api.set(offline, COINS, 10);
+        api.unload(offline);
+
+        Set<String> threads = Collections.synchronizedSet(new HashSet<>());
+        api.count(COINS, c -> threads.add(Thread.currentThread().getName()));
+
+        assertFalse(threads.isEmpty());
+        threads.forEach(name -> assertTrue(name.startsWith("DataHandler-Scan-"), name));
+    }
 }
@@ -9,6 +9,7 @@ import net.swofty.data.format.JsonDataReader;
 import net.swofty.data.format.JsonDataWriter;
 import net.swofty.data.format.JsonFormat;
 import net.swofty.data.format.BinaryFormat;
+import net.swofty.data.format.KeyedBinaryFormat;
 
 import org.junit.jupiter.api.*;
 
@@ -20,6 +21,7 @@ class CodecTest {
 
     private final JsonFormat jsonFormat = new JsonFormat();
     private final BinaryFormat binaryFormat = new BinaryFormat();
+    private final BinaryFormat compactFormat = new BinaryFormat(BinaryFormat.Encoding.COMPACT);
 
     private <T> T roundTrip(Codec<T> codec, T value, net.swofty.data.DataFormat format) {
         DataWriter writer = format.createWriter();
@@ -126,6 +128,69 @@ class CodecTest {
         assertEquals(id, roundTrip(Codecs.UUID, id, binaryFormat));
     }
 
+    // ==================== Primitive Codecs (Compact Binary) ====================
+
+    @Test
+    void intAndLongCodecsCompact() {
+        for (int value : new int[]{0, 1, -1, 63, -64, 300, Integer.MAX_VALUE, Integer.MIN_VALUE}) {
+            assertEquals(value, roundTrip(Codecs.INT, value, compactFormat));
+        }
+        for (long value : new long[]{0L, -1L, 1L << 40, Long.MAX_VALUE, Long.MIN_VALUE}) {
+            assertEquals(value, roundTrip(Codecs.LONG, value, compactFormat));
+        }
+    }
+
+    @Test
+    void smallNumbersTakeOneByteCompact() {
+        DataWriter writer = compactFormat.createWriter();
+        writer.writeInt(-3);
+        writer.writeLong(42L);
+        // The version byte, then one byte each.
+        assertEquals(3, compactFormat.toBytes(writer).length);
+    }
+
+    @Test
+    void repeatedStringsAreStoredOnceCompact() {
+        Codec<List<String>> codec = Codecs.list(Codecs.STRING);
+        List<String> items = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            items.add(i % 2 == 0 ? "minecraft:diamond_sword" : "sharpness");
+        }
+        DataWriter writer = compactFormat.createWriter();
+        codec.write(writer, items);
+        byte[] bytes = compactFormat.toBytes(writer);
+
+        assertTrue(bytes.length < 150, "strings were not back-referenced: " + bytes.length + " bytes");
+        assertEquals(items, codec.read(compactFormat.createReader(bytes)));
+    }
+
+    @Test
+    void uuidIsSixteenRawBytesCompact() {
+        UUID id = UUID.randomUUID();
+        DataWriter writer = compactFormat.createWriter();
+        Codecs.UUID.write(writer, id);
+        assertEquals(17, compactFormat.toBytes(writer).length);
+        assertEquals(id, roundTrip(Codecs.UUID, id, compactFormat));
+    }
+
+    @Test
+    void nestedCodecsCompact() {
+        Codec<Map<String, List<UUID>>> codec = Codecs.map(Codecs.STRING, Codecs.list(Codecs.UUID));
+        Map<String, List<UUID>> input = new LinkedHashMap<>();
+        input.put("caf\u00e9 \uD83D\uDE00", List.of(UUID.randomUUID(), UUID.randomUUID()));
+        input.put("empty", List.of());
+        assertEquals(input, roundTrip(codec, input, compactFormat));
+        assertEquals("x".repeat(70_000), roundTrip(Codecs.STRING, "x".repeat(70_000), compactFormat));
+    }
+
+    @Test
+    void compactDocumentsAreNotReadAsFixed() {
+        DataWriter writer = binaryFormat.createWriter();
+        writer.writeInt(7);
+        byte[] fixed = binaryFormat.toBytes(writer);
+        assertThrows(IllegalStateException.class, () -> compactFormat.createReader(fixed));
+    }
+
     // ==================== Compound Codecs ====================
 
     @Test
@@ -167,6 +232,71 @@ class CodecTest {
         assertEquals(input, result);
     }
 
+    // ==================== Map Codec ====================
+
+    @Test
+    void mapCodecKeepsEntriesInOrderInEveryFormat() {
+        Codec<Map<String, Integer>> byName = Codecs.map(Codecs.STRING, Codecs.INT);
+        Codec<Map<Integer, List<String>>> byNumber = Codecs.map(Codecs.INT, Codecs.list(Codecs.STRING));
+        Map<String, Integer> names = new LinkedHashMap<>();
+        Map<Integer, List<String>> numbers = new LinkedHashMap<>();
+        for (int i = 0; i < 50; i++) {
+            names.put("entry" + (49 - i), i);
+            numbers.put(-i, List.of("a" + i, "b"));
+        }
+        for (net.swofty.data.DataFormat format : List.of(jsonFormat, binaryFormat, compactFormat, new KeyedBinaryFormat())) {
+            Map<String, Integer> readNames = roundTrip(byName, names, format);
+            assertEquals(List.copyOf(names.entrySet()), List.copyOf(readNames.entrySet()), format.getClass().getSimpleName());
+            Map<Integer, List<String>> readNumbers = roundTrip(byNumber, numbers, format);
+            assertEquals(List.copyOf(numbers.entrySet()), List.copyOf(readNumbers.entrySet()), format.getClass().getSimpleName());
+            assertEquals(Map.of(), roundTrip(byName, Map.of(), format));
+        }
+    }
+
+    @Test
+    void mapCodecWritesStringKeysAsAJsonObject() {
+        JsonDataWriter writer = new JsonDataWriter();
+        Map<String, Integer> input = new LinkedHashMap<>();
+        input.put("zombie", 3);
+        input.put("creeper", 1);
+        Codecs.map(Codecs.STRING, Codecs.INT).write(writer.writeSection("kills"), input);
+
+        assertEquals("{\"kills\":{\"_v0\":{\"zombie\":3,\"creeper\":1}}}",
+                new String(jsonFormat.toBytes(writer), java.nio.charset.StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void mapCodecReadsTheTwoListLayout() {
+        Codec<Map<String, Integer>> codec = Codecs.map(Codecs.STRING, Codecs.INT);
+        for (net.swofty.data.DataFormat format : List.of(jsonFormat, binaryFormat, compactFormat, new KeyedBinaryFormat())) {
+            DataWriter writer = format.createWriter();
+            writer.writeList(List.of("b", "a"), Codecs.STRING);
+            writer.writeList(List.of(2, 1), Codecs.INT);
+            Map<String, Integer> read = codec.read(format.createReader(format.toBytes(writer)));
+            assertEquals(List.of(Map.entry("b", 2), Map.entry("a", 1)), List.copyOf(read.entrySet()),
+                    format.getClass().getSimpleName());
+        }
+    }
+
+    @Test
+    void mapCodecReadsALivePrintedJsonObject() {
+        // JsonFormat prints a map field's live value straight into the document.
+        DataReader document = jsonFormat.createReader(
+                "{\"names\":{\"b\":2,\"a\":1},\"levels\":{\"10\":\"x\",\"-3\":\"y\"}}".getBytes(java.nio.charset.StandardCharsets.UTF_8));
+
+        assertEquals(Map.of("b", 2, "a", 1),
+                Codecs.map(Codecs.STRING, Codecs.INT).read(document.readSection("names")));
+        assertEquals(Map.of(10L, "x", -3L, "y"),
+                Codecs.map(Codecs.LONG, Codecs.STRING).read(document.readSection("levels")));
+    }
+
+    @Test
+    void mapsInsideListsStayMapsJson() {
+        Codec<List<Map<String, Integer>>> codec = Codecs.list(Codecs.map(Codecs.STRING, Codecs.INT));
+        List<Map<String, Integer>> input = List.of(Map.of("_v0", 1), Map.of(), Map.of("x", 2));
+        assertEquals(input, roundTrip(codec, input, jsonFormat));
+    }
+
     @Test
     void nullableCodecPresentJson() {
         Codec<String> codec = Codecs.nullable(Codecs.STRING);
@@ -191,6 +321,80 @@ class CodecTest {
         assertNull(roundTrip(codec, null, binaryFormat));
     }
 
+    // ==================== Record Codecs ====================
+
+    enum Rarity { COMMON, LEGENDARY }
+
+    record Enchant(String name, int level) {}
+
+    record Item(UUID id, String type, int amount, long obtainedAt, double durability, boolean soulbound,
+                Rarity rarity, List<Enchant> enchants, Map<String, Integer> stats) {}
+
+    private static Item sampleItem() {
+        return new Item(UUID.randomUUID(), "minecraft:diamond_sword", 1, 1_700_000_000_000L, 0.75, true,
+                Rarity.LEGENDARY, List.of(new Enchant("sharpness", 5), new Enchant("looting", 3)),
+                new LinkedHashMap<>(Map.of("damage", 12)));
+    }
+
+    @Test
+    void recordCodecRoundTripsInEveryFormat() {
+        Codec<Item> codec = Codecs.record(Item.class);
+        Item item = sampleItem();
+        assertEquals(item, roundTrip(codec, item, jsonFormat));
+        assertEquals(item, roundTrip(codec, item, binaryFormat));
+        assertEquals(item, roundTrip(codec, item, compactFormat));
+        assertEquals(item, roundTrip(codec, item, new KeyedBinaryFormat()));
+    }
+
+    @Test
+    void recordCodecWritesComponentsByName() {
+        JsonDataWriter writer = new JsonDataWriter();
+        Codecs.record(Enchant.class).write(writer, new Enchant("sharpness", 5));
+        assertEquals(Set.of("name", "level"), writer.getData().keySet());
+    }
+
+    record Tagged(String label, String note) {}
+
+    @Test
+    void recordCodecTakesExplicitComponentCodecs() {
+        Codec<Tagged> codec = Codecs.record(Tagged.class, Map.of("note", Codecs.nullable(Codecs.STRING)));
+        assertEquals(new Tagged("a", null), roundTrip(codec, new Tagged("a", null), binaryFormat));
+        assertThrows(NullPointerException.class,
+                () -> roundTrip(Codecs.record(Tagged.class), new Tagged("a", null), binaryFormat));
+    }
+
+    record Holder(Object anything) {}
+
+    record Node(String name, List<Node> children) {}
+
+    @Test
+    void recordCodecRejectsComponentsItCannotDerive() {
+        assertThrows(IllegalArgumentException.class, () -> Codecs.record(Holder.class));
+        assertThrows(IllegalArgumentException.class, () -> Codecs.record(Node.class));
+    }
+
+    // ==================== Size estimates ====================
+
+    @Test
+    void sizeEstimatesGrowWithTheValue() {
+        Codec<List<String>> list = Codecs.list(Codecs.STRING);
+        assertTrue(list.estimateSize(List.of("a", "b", "c")) > list.estimateSize(List.of("a")));
+        assertTrue(Codecs.STRING.estimateSize("x".repeat(1_000)) >= 1_000);
+
+        Codec<Map<String, Integer>> map = Codecs.map(Codecs.STRING, Codecs.INT);
+        assertTrue(map.estimateSize(Map.of("a", 1, "b", 2)) > map.estimateSize(Map.of("a", 1)));
+        assertEquals(0, Codecs.nullable(Codecs.STRING).estimateSize(null));
+    }
+
+    @Test
+    void recordSizeEstimatesSizeEachComponentThroughItsCodec() {
+        Codec<Item> codec = Codecs.record(Item.class);
+        Item item = sampleItem();
+        Item heavier = new Item(item.id(), item.type(), 1, 0L, 0.0, false, Rarity.COMMON,
+                Collections.nCopies(100, new Enchant("sharpness", 5)), item.stats());
+        assertTrue(codec.estimateSize(heavier) > codec.estimateSize(item) + 100 * 16);
+    }
+
     // ==================== VersionedCodec ====================
 
     record SimpleRecord(String name, int priority, Set<String> perms) {}
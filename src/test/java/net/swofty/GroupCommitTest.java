@@ -0,0 +1,186 @@
+package net.swofty;
+
+import net.swofty.api.DataAPIImpl;
+import net.swofty.api.GroupCommitOptions;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import net.swofty.codec.Codecs;
+import net.swofty.data.format.JsonFormat;
+import net.swofty.event.PubSubHandler;
+import net.swofty.storage.InMemoryDataStorage;
+import net.swofty.storage.SaveResult;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Durable writes without one storage round trip per call. Writes racing for the same player are
+ * merged into one compare-and-set, yet each caller still only returns once storage has its change,
+ * and listeners see each field end up at the value that was written.
+ */
+class GroupCommitTest {
+    private static final PlayerField<Integer> COINS = PlayerField.create("group", "coins", Codecs.INT, 0);
+    private static final PlayerField<Integer> GEMS = PlayerField.create("group", "gems", Codecs.INT, 0);
+
+    /** Counts writes and makes each one slow enough for others to queue up behind it. */
+    private static final class SlowStorage extends InMemoryDataStorage {
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public SaveResult saveIfVersion(String type, String id, byte[] data, long expectedVersion) {
+            writes.incrementAndGet();
+            try {
+                Thread.sleep(5);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return super.saveIfVersion(type, id, data, expectedVersion);
+        }
+    }
+
+    private static DataAPIImpl api(SlowStorage storage, Duration window) {
+        return DataAPIImpl.builder(storage).groupCommit(new GroupCommitOptions(window)).build();
+    }
+
+    private static int storedCoins(InMemoryDataStorage storage, UUID player) {
+        Object value = new JsonFormat().readRaw(storage.load("players", player.toString())).get(COINS.fullKey());
+        return value == null ? 0 : ((Number) value).intValue();
+    }
+
+    @Test
+    @Timeout(30)
+    void concurrentUpdatesShareWritesAndAreAllDurable() throws Exception {
+        SlowStorage storage = new SlowStorage();
+        DataAPIImpl api = api(storage, Duration.ofMillis(2));
+        UUID player = UUID.randomUUID();
+        int threads = 8;
+        int perThread = 25;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> done = new ArrayList<>();
+        try {
+            for (int t = 0; t < threads; t++) {
+                done.add(pool.submit(() -> {
+                    start.await();
+                    for (int i = 1; i <= perThread; i++) {
+                        api.update(player, COINS, c -> c + 1);
+                        // Storage already holds this thread's increments, whoever's write carried them.
+                        int stored = storedCoins(storage, player);
+                        assertTrue(stored >= i, "an update returned before it was durable: " + stored + " < " + i);
+                    }
+                    return null;
+                }));
+            }
+            start.countDown();
+            for (Future<?> f : done) f.get();
+        } finally {
+            pool.shutdownNow();
+        }
+
+        int updates = threads * perThread;
+        assertTrue(storage.writes.get() < updates,
+                "no writes were merged: " + storage.writes.get() + " writes for " + updates + " updates");
+        DataAPIImpl reader = new DataAPIImpl(storage);
+        assertEquals(updates, reader.get(player, COINS));
+        api.shutdown();
+        reader.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void aMergedGroupFiresOneEventPerFieldAtItsFinalValue() throws Exception {
+        SlowStorage storage = new SlowStorage();
+        DataAPIImpl api = api(storage, Duration.ofMillis(200));
+        UUID player = UUID.randomUUID();
+        List<Integer> seen = new ArrayList<>();
+        api.subscribe(COINS, (id, oldValue, newValue) -> {
+            synchronized (seen) {
+                seen.add(newValue);
+            }
+        });
+
+        Thread first = new Thread(() -> api.set(player, COINS, 1));
+        first.start();
+        Thread.sleep(50); // inside the first write's window
+        // Each caller blocks until its group is durable, so the joiners need threads of their own.
+        Thread second = new Thread(() -> api.set(player, COINS, 2));
+        Thread third = new Thread(() -> api.set(player, GEMS, 7));
+        second.start();
+        third.start();
+        first.join();
+        second.join();
+        third.join();
+
+        assertEquals(1, storage.writes.get());
+        assertEquals(List.of(2), seen);
+        assertEquals(2, storedCoins(storage, player));
+        api.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void aZeroWindowWritesALoneWriteStraightAway() throws Exception {
+        SlowStorage storage = new SlowStorage();
+        DataAPIImpl api = api(storage, Duration.ZERO);
+        UUID player = UUID.randomUUID();
+
+        api.set(player, COINS, 5);
+        assertEquals(1, storage.writes.get(), "a lone write was not written straight away");
+        assertEquals(5, storedCoins(storage, player));
+        api.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void aGroupDrainedByAnUnloadReportsThatUnloadsVersion() throws Exception {
+        SlowStorage storage = new SlowStorage();
+        List<JsonObject> published = new CopyOnWriteArrayList<>();
+        PubSubHandler pubSub = new PubSubHandler() {
+            @Override
+            public void publish(String message) {
+                published.add(JsonParser.parseString(message).getAsJsonObject());
+            }
+
+            @Override
+            public void subscribe(MessageHandler handler) {}
+
+            @Override
+            public void shutdown() {}
+        };
+        DataAPIImpl api = DataAPIImpl.builder(storage)
+                .groupCommit(new GroupCommitOptions(Duration.ofMillis(300)))
+                .pubSub(pubSub)
+                .build();
+        UUID player = UUID.randomUUID();
+
+        Thread writer = new Thread(() -> api.set(player, COINS, 4));
+        writer.start();
+        Thread.sleep(50); // inside the write's window
+        api.unload(player);
+        writer.join();
+
+        // The unload carried the group's change, so the group had nothing left to write itself.
+        assertEquals(1, storage.writes.get());
+        long stored = storage.loadVersioned("players", player.toString()).version();
+        JsonObject changed = published.stream()
+                .filter(m -> m.get("type").getAsString().equals("PLAYER_DATA_CHANGED"))
+                .findFirst().orElseThrow();
+        assertEquals(stored, changed.get("version").getAsLong(),
+                "the group's event was not stamped with the version of the write that drained it");
+        api.shutdown();
+    }
+}
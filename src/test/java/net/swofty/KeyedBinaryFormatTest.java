@@ -0,0 +1,117 @@
+package net.swofty;
+
+import net.swofty.api.DataAPIImpl;
+import net.swofty.codec.Codec;
+import net.swofty.codec.Codecs;
+import net.swofty.data.DataReader;
+import net.swofty.data.DataWriter;
+import net.swofty.data.format.KeyedBinaryFormat;
+import net.swofty.data.format.KeyedBinaryFormat.Slice;
+import net.swofty.storage.InMemoryDataStorage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A binary format that can back container storage: codec output round-trips, any one field is
+ * read through the offset table without decoding the others, and a rewrite copies untouched fields
+ * byte for byte.
+ */
+class KeyedBinaryFormatTest {
+    private static final KeyedBinaryFormat FORMAT = new KeyedBinaryFormat();
+
+    record Item(String id, int amount) {}
+
+    // Written as sections, so a list of these exercises nested documents.
+    private static final Codec<Item> ITEM = Codec.of(
+            reader -> new Item(reader.readSection("id").readString(), reader.readSection("amount").readInt()),
+            (writer, item) -> {
+                writer.writeSection("id").writeString(item.id());
+                writer.writeSection("amount").writeInt(item.amount());
+            });
+
+    private static final PlayerField<Integer> COINS = PlayerField.create("keyed", "coins", Codecs.INT, 0);
+    private static final PlayerField<String> NAME = PlayerField.create("keyed", "name", Codecs.STRING, "");
+    private static final PlayerField<List<Item>> ITEMS =
+            PlayerField.create("keyed", "items", Codecs.list(ITEM), List.of());
+    private static final PlayerField<Map<String, Integer>> STATS =
+            PlayerField.create("keyed", "stats", Codecs.map(Codecs.STRING, Codecs.INT), Map.of());
+
+    private static <T> T roundTrip(Codec<T> codec, T value) {
+        DataWriter writer = FORMAT.createWriter();
+        codec.write(writer, value);
+        DataReader reader = FORMAT.createReader(FORMAT.toBytes(writer));
+        return codec.read(reader);
+    }
+
+    @Test
+    void codecOutputRoundTrips() {
+        assertEquals(-7, roundTrip(Codecs.INT, -7));
+        assertEquals("héllo", roundTrip(Codecs.STRING, "héllo"));
+        assertEquals(List.of(new Item("sword", 1), new Item("apple", 64)),
+                roundTrip(Codecs.list(ITEM), List.of(new Item("sword", 1), new Item("apple", 64))));
+        assertEquals(Map.of("str", 5, "dex", 9), roundTrip(Codecs.map(Codecs.STRING, Codecs.INT), Map.of("str", 5, "dex", 9)));
+        assertNull(roundTrip(Codecs.nullable(Codecs.LONG), null));
+    }
+
+    @Test
+    void containersPersistThroughTheFormat() {
+        InMemoryDataStorage storage = new InMemoryDataStorage();
+        DataAPIImpl api = new DataAPIImpl(storage, FORMAT);
+        UUID player = UUID.randomUUID();
+        api.set(player, COINS, 40);
+        api.set(player, NAME, "steve");
+        api.set(player, ITEMS, List.of(new Item("bow", 1)));
+        api.set(player, STATS, Map.of("str", 3));
+        api.unload(player);
+
+        // A write of one field keeps the ones this session never read.
+        api.set(player, COINS, 41);
+        api.unload(player);
+
+        assertEquals(41, api.get(player, COINS));
+        assertEquals("steve", api.get(player, NAME));
+        assertEquals(List.of(new Item("bow", 1)), api.get(player, ITEMS));
+        assertEquals(Map.of("str", 3), api.get(player, STATS));
+        api.shutdown();
+    }
+
+    @Test
+    void oneFieldIsReadWithoutDecodingTheOthers() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("keyed:coins", FORMAT.encodeValue(Codecs.INT, 12));
+        // Not a valid encoding of anything: reading it would fail.
+        document.put("keyed:name", Slice.of(new byte[]{(byte) 0xFF, 1, 2}));
+        byte[] bytes = FORMAT.writeRaw(document);
+
+        DataReader reader = FORMAT.createReader(bytes);
+
+        assertTrue(reader.hasKey("keyed:name"));
+        assertEquals(12, Codecs.INT.read(reader.readSection("keyed:coins")));
+    }
+
+    @Test
+    void aRewriteCopiesUntouchedFieldsByteForByte() {
+        Map<String, Object> document = new LinkedHashMap<>();
+        document.put("keyed:items", FORMAT.encodeValue(Codecs.list(ITEM), List.of(new Item("bow", 1))));
+        document.put("keyed:coins", FORMAT.encodeValue(Codecs.INT, 1));
+        byte[] original = FORMAT.writeRaw(document);
+
+        Map<String, Object> tree = FORMAT.readRaw(original);
+        tree.put("keyed:coins", FORMAT.encodeValue(Codecs.INT, 2));
+        Map<String, Object> rewritten = FORMAT.readRaw(FORMAT.writeRaw(tree));
+
+        Slice before = (Slice) FORMAT.readRaw(original).get("keyed:items");
+        Slice after = (Slice) rewritten.get("keyed:items");
+        assertSame(original, before.array(), "readRaw copied a value out of the document");
+        assertTrue(Arrays.equals(before.toByteArray(), after.toByteArray()));
+        assertEquals(2, Codecs.INT.read(FORMAT.createDocumentReader(rewritten).readSection("keyed:coins")));
+    }
+}
@@ -5,10 +5,12 @@ import net.swofty.codec.Codecs;
 import net.swofty.data.format.JsonFormat;
 import net.swofty.storage.DataStorage;
 import net.swofty.storage.InMemoryDataStorage;
+import net.swofty.storage.VersionedData;
 
 import org.junit.jupiter.api.Test;
 
-import java.util.UUID;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -68,6 +70,56 @@ class LifecycleTest {
         target.shutdown();
     }
 
+    @Test
+    void loadAllWarmsAPartyInOneBatchedRead() {
+        class CountingStorage extends InMemoryDataStorage {
+            final AtomicInteger singleReads = new AtomicInteger();
+            final AtomicInteger batchedReads = new AtomicInteger();
+
+            @Override
+            public VersionedData loadVersioned(String type, String id) {
+                singleReads.incrementAndGet();
+                return super.loadVersioned(type, id);
+            }
+
+            @Override
+            public Map<String, VersionedData> loadManyVersioned(String type, Collection<String> ids) {
+                batchedReads.incrementAndGet();
+                Map<String, VersionedData> loaded = new LinkedHashMap<>();
+                for (String id : ids) loaded.put(id, super.loadVersioned(type, id));
+                return loaded;
+            }
+        }
+        CountingStorage storage = new CountingStorage();
+        List<UUID> party = new ArrayList<>();
+        DataAPIImpl writer = new DataAPIImpl(storage);
+        for (int i = 0; i < 8; i++) {
+            UUID member = UUID.randomUUID();
+            party.add(member);
+            writer.set(member, COINS, i);
+        }
+        writer.shutdown();
+        UUID newcomer = UUID.randomUUID(); // nothing stored yet
+        party.add(newcomer);
+
+        DataAPIImpl target = new DataAPIImpl(storage);
+        storage.singleReads.set(0);
+        target.loadAll(party);
+
+        assertEquals(1, storage.batchedReads.get());
+        assertEquals(Set.copyOf(party), target.loadedPlayers());
+        for (int i = 0; i < 8; i++) {
+            assertEquals(i, target.get(party.get(i), COINS));
+        }
+        assertEquals(0, target.get(newcomer, COINS));
+        assertEquals(0, storage.singleReads.get(), "a warmed player was read again on first use");
+
+        // Everyone is already warm, so a repeat is free.
+        target.loadAllAsync(party).join();
+        assertEquals(1, storage.batchedReads.get());
+        target.shutdown();
+    }
+
     @Test
     void deferredPersistenceHoldsWritesUntilFlush() {
         DataStorage storage = new InMemoryDataStorage();
@@ -0,0 +1,214 @@
+package net.swofty;
+
+import net.swofty.api.DataAPIImpl;
+import net.swofty.api.MailboxOptions;
+import net.swofty.codec.Codecs;
+import net.swofty.storage.InMemoryDataStorage;
+import net.swofty.storage.SaveResult;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Calls queued on an entity's mailbox run one after another, in order, and a run of them shares
+ * one lock hold and one storage write instead of each convoying on the entity's lock.
+ */
+class MailboxTest {
+    private static final PlayerField<Integer> COINS = PlayerField.create("mailbox", "coins", Codecs.INT, 0);
+    private static final PlayerField<UUID> COOP_ID =
+            PlayerField.create("mailbox", "coop_id", Codecs.nullable(Codecs.UUID), null);
+    private static final LinkType<UUID> COOP = LinkType.create("mailbox_coop", Codecs.UUID, COOP_ID);
+    private static final LinkedField<UUID, Integer> BANK = LinkedField.create("mailbox", "bank", Codecs.INT, 0, COOP);
+
+    /** Counts the writes that reach storage. */
+    private static final class CountingStorage extends InMemoryDataStorage {
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public SaveResult saveIfVersion(String type, String id, byte[] data, long expectedVersion) {
+            writes.incrementAndGet();
+            return super.saveIfVersion(type, id, data, expectedVersion);
+        }
+    }
+
+    private static DataAPIImpl api(InMemoryDataStorage storage, ExecutorService executor) {
+        return DataAPIImpl.builder(storage).mailboxes(new MailboxOptions(executor, 64)).build();
+    }
+
+    @Test
+    @Timeout(30)
+    void queuedUpdatesRunInOrderAndShareWrites() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DataAPIImpl api = api(storage, executor);
+        UUID player = UUID.randomUUID();
+        api.load(player);
+
+        // Hold the only executor thread so every call below queues up before any of them runs.
+        CountDownLatch release = new CountDownLatch(1);
+        executor.execute(() -> {
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        List<Integer> seen = new ArrayList<>();
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int i = 0; i < 100; i++) {
+            done.add(api.updateAsync(player, COINS, coins -> {
+                seen.add(coins);
+                return coins + 1;
+            }));
+        }
+        int before = storage.writes.get();
+        release.countDown();
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(100, api.get(player, COINS));
+        for (int i = 0; i < seen.size(); i++) {
+            assertEquals(i, seen.get(i), "each call saw the one queued before it");
+        }
+        assertEquals(2, storage.writes.get() - before, "one write per run of up to 64 calls");
+        api.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void aFailingCallFailsAloneAndStagesNothing() throws Exception {
+        InMemoryDataStorage storage = new InMemoryDataStorage();
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DataAPIImpl api = api(storage, executor);
+        UUID player = UUID.randomUUID();
+
+        CompletableFuture<Void> first = api.updateAsync(player, COINS, coins -> coins + 5);
+        CompletableFuture<Void> broken = api.updateAsync(player, COINS, coins -> {
+            throw new IllegalArgumentException("not enough coins");
+        });
+        CompletableFuture<Integer> read = api.getAsync(player, COINS);
+
+        first.get(10, TimeUnit.SECONDS);
+        CompletionException failure = assertThrows(CompletionException.class, broken::join);
+        assertInstanceOf(IllegalArgumentException.class, failure.getCause());
+        assertEquals(5, read.get(10, TimeUnit.SECONDS));
+        assertEquals(5, new DataAPIImpl(storage).get(player, COINS), "the good call is durable");
+        api.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void membersUpdatingOneCoopAllLand() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        ExecutorService executor = Executors.newFixedThreadPool(4);
+        DataAPIImpl api = api(storage, executor);
+        UUID coop = UUID.randomUUID();
+        List<UUID> members = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            UUID member = UUID.randomUUID();
+            api.link(member, COOP, coop);
+            members.add(member);
+        }
+        int before = storage.writes.get();
+
+        List<CompletableFuture<Void>> done = new ArrayList<>();
+        for (int round = 0; round < 10; round++) {
+            for (UUID member : members) {
+                done.add(api.updateAsync(member, BANK, bank -> bank + 1));
+            }
+        }
+        CompletableFuture.allOf(done.toArray(CompletableFuture[]::new)).get(10, TimeUnit.SECONDS);
+
+        assertEquals(200, api.getDirectAsync(coop, BANK).get(10, TimeUnit.SECONDS));
+        assertEquals(200, new DataAPIImpl(storage).getDirect(coop, BANK));
+        assertTrue(storage.writes.get() - before <= 200);
+        api.shutdown();
+        executor.shutdown();
+    }
+
+    @Test
+    void anUnlinkedPlayerReadsTheDefaultAndCannotWrite() {
+        DataAPIImpl api = api(new InMemoryDataStorage(), Executors.newSingleThreadExecutor());
+        UUID player = UUID.randomUUID();
+        assertEquals(0, api.getAsync(player, BANK).join());
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> api.setAsync(player, BANK, 3).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        api.shutdown();
+    }
+
+    @Test
+    void callsAfterShutdownAreRefused() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        DataAPIImpl api = api(new InMemoryDataStorage(), executor);
+        UUID player = UUID.randomUUID();
+        api.setAsync(player, COINS, 1).join();
+        api.shutdown();
+
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> api.setAsync(player, COINS, 2).join());
+        assertInstanceOf(IllegalStateException.class, failure.getCause());
+        executor.shutdown();
+    }
+
+    @Test
+    void aRejectingExecutorFailsTheCall() {
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        executor.shutdown();
+        DataAPIImpl api = api(new InMemoryDataStorage(), executor);
+        CompletionException failure = assertThrows(CompletionException.class,
+                () -> api.setAsync(UUID.randomUUID(), COINS, 2).join());
+        assertInstanceOf(RejectedExecutionException.class, failure.getCause());
+        api.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void byDefaultRunsAreOnVirtualThreadsAndShareWrites() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        DataAPIImpl api = DataAPIImpl.builder(storage).build();
+        UUID player = UUID.randomUUID();
+        api.load(player);
+        int before = storage.writes.get();
+
+        // The first call holds up its run, so the rest queue behind it and go in at most one more.
+        CountDownLatch release = new CountDownLatch(1);
+        List<Boolean> virtual = new ArrayList<>();
+        CompletableFuture<Void> first = api.updateAsync(player, COINS, c -> {
+            virtual.add(Thread.currentThread().isVirtual());
+            try {
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return c + 1;
+        });
+        List<CompletableFuture<Void>> rest = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            rest.add(api.updateAsync(player, COINS, c -> c + 1));
+        }
+        release.countDown();
+        first.join();
+        for (CompletableFuture<Void> f : rest) f.join();
+
+        assertEquals(List.of(true), virtual);
+        assertEquals(11, api.get(player, COINS));
+        assertTrue(storage.writes.get() - before <= 2, (storage.writes.get() - before) + " writes for 11 updates");
+        api.shutdown();
+    }
+}
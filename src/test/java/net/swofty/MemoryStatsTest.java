@@ -0,0 +1,77 @@
+package net.swofty;
+
+import net.swofty.api.DataAPIImpl;
+import net.swofty.codec.Codecs;
+import net.swofty.storage.InMemoryDataStorage;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The heap a node holds has to be visible before it can be bounded: which entities are largest,
+ * which feature's fields account for it, and how it splits between players and shared entities.
+ */
+class MemoryStatsTest {
+    private static final PlayerField<String> BIO = PlayerField.create("profile", "bio", Codecs.STRING, "");
+    private static final PlayerField<List<String>> INVENTORY =
+            PlayerField.create("items", "inventory", Codecs.list(Codecs.STRING), List.of());
+    private static final PlayerField<String> ISLAND_ID = PlayerField.create("links", "island", Codecs.nullable(Codecs.STRING), null);
+    private static final LinkType<String> ISLAND = LinkType.create("island", Codecs.STRING, ISLAND_ID);
+    private static final LinkedField<String, String> ISLAND_NAME =
+            LinkedField.create("island", "name", Codecs.STRING, "", ISLAND);
+
+    @Test
+    void theLargestEntitiesAreListedLargestFirst() {
+        DataAPIImpl api = new DataAPIImpl(new InMemoryDataStorage());
+        UUID small = UUID.randomUUID();
+        UUID large = UUID.randomUUID();
+        api.set(small, BIO, "hi");
+        api.set(large, BIO, "x".repeat(10_000));
+        for (int i = 0; i < 20; i++) api.set(UUID.randomUUID(), BIO, "filler");
+
+        MemoryStats stats = api.memoryStats(3);
+        assertEquals(3, stats.largest().size());
+        assertEquals(new MemoryStats.Entity("players", large.toString(), stats.largest().get(0).bytes()),
+                stats.largest().get(0));
+        assertTrue(stats.largest().get(0).bytes() > 10_000);
+        assertTrue(stats.largest().get(0).bytes() >= stats.largest().get(1).bytes());
+        assertTrue(stats.largest().stream().noneMatch(entity -> entity.id().equals(small.toString())));
+        api.shutdown();
+    }
+
+    @Test
+    void liveFieldsAreTotalledPerNamespace() {
+        DataAPIImpl api = new DataAPIImpl(new InMemoryDataStorage());
+        UUID player = UUID.randomUUID();
+        api.set(player, BIO, "hello");
+        api.set(player, INVENTORY, Collections.nCopies(500, "minecraft:stone"));
+
+        Map<String, Long> namespaces = api.memoryStats().namespaceBytes();
+        assertEquals(Set.of("profile", "items"), namespaces.keySet());
+        assertTrue(namespaces.get("items") > namespaces.get("profile"));
+        api.shutdown();
+    }
+
+    @Test
+    void totalsSplitBetweenPlayersAndSharedEntitiesAndShrinkOnUnload() {
+        DataAPIImpl api = new DataAPIImpl(new InMemoryDataStorage());
+        UUID player = UUID.randomUUID();
+        api.set(player, BIO, "hello");
+        api.link(player, ISLAND, "isle-1");
+        api.set(player, ISLAND_NAME, "Paradise");
+
+        MemoryStats stats = api.memoryStats();
+        assertTrue(stats.playerBytes() > 0);
+        assertTrue(stats.linkedBytes() > 0);
+        assertEquals(stats.playerBytes() + stats.linkedBytes() + stats.eventStateBytes(), stats.totalBytes());
+        assertTrue(stats.largest().stream().anyMatch(entity -> entity.type().equals("linked/island")
+                && entity.id().equals("isle-1")));
+
+        api.unload(player);
+        assertEquals(0, api.memoryStats().playerBytes());
+        api.shutdown();
+    }
+}
@@ -0,0 +1,135 @@
+package net.swofty;
+
+import net.swofty.api.DataAPIImpl;
+import net.swofty.data.format.JsonFormat;
+import net.swofty.data.format.KeyedBinaryFormat;
+import net.swofty.storage.InMemoryDataStorage;
+import net.swofty.validation.ValidationException;
+import net.swofty.validation.Validators;
+
+import org.junit.jupiter.api.Assumptions;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Counters read and changed as primitives. They are the same fields as their boxed counterparts,
+ * so either API sees what the other wrote, and an increment on a loaded player with deferred
+ * persistence does not box.
+ */
+class PrimitiveFieldTest {
+    private static final IntPlayerField KILLS = IntPlayerField.create("stats", "kills", 0);
+    private static final LongPlayerField BLOCKS = LongPlayerField.create("stats", "blocks", 0L);
+    private static final DoublePlayerField PLAYTIME = DoublePlayerField.create("stats", "playtime", 1.5);
+    private static final IntPlayerField LIVES = IntPlayerField.create("stats", "lives", 3, Validators.nonNegative());
+
+    @Test
+    void primitiveWritesPersistAndReadBackBoxed() {
+        InMemoryDataStorage storage = new InMemoryDataStorage();
+        DataAPIImpl api = new DataAPIImpl(storage);
+        UUID player = UUID.randomUUID();
+
+        assertEquals(0, api.getInt(player, KILLS));
+        assertEquals(1.5, api.getDouble(player, PLAYTIME));
+        assertEquals(5, api.addInt(player, KILLS, 5));
+        assertEquals(10, api.updateInt(player, KILLS, kills -> kills * 2));
+        api.setLong(player, BLOCKS, 1L << 40);
+        assertEquals(4.0, api.addDouble(player, PLAYTIME, 2.5));
+        api.shutdown();
+
+        DataAPIImpl reader = new DataAPIImpl(storage);
+        assertEquals(10, reader.get(player, KILLS));
+        assertEquals(1L << 40, reader.getLong(player, BLOCKS));
+        assertEquals(4.0, reader.get(player, PLAYTIME));
+        reader.shutdown();
+    }
+
+    @Test
+    void boxedAndPrimitiveWritesSeeEachOther() {
+        DataAPIImpl api = new DataAPIImpl(new InMemoryDataStorage(), new KeyedBinaryFormat());
+        UUID player = UUID.randomUUID();
+
+        api.set(player, KILLS, 7);
+        assertEquals(8, api.addInt(player, KILLS, 1));
+        assertEquals(8, api.get(player, KILLS));
+        api.update(player, KILLS, kills -> kills + 1);
+        assertEquals(9, api.getInt(player, KILLS));
+        api.shutdown();
+    }
+
+    @Test
+    void listenersReceiveTheChangeBoxed() {
+        DataAPIImpl api = new DataAPIImpl(new InMemoryDataStorage());
+        UUID player = UUID.randomUUID();
+        List<String> changes = new ArrayList<>();
+        api.subscribe(KILLS, (id, oldValue, newValue) -> changes.add(oldValue + "->" + newValue));
+
+        api.addInt(player, KILLS, 2);
+        api.addInt(player, KILLS, 3);
+
+        assertEquals(List.of("0->2", "2->5"), changes);
+        api.shutdown();
+    }
+
+    @Test
+    void validatedFieldsAreStillValidated() {
+        DataAPIImpl api = new DataAPIImpl(new InMemoryDataStorage());
+        UUID player = UUID.randomUUID();
+
+        assertEquals(2, api.addInt(player, LIVES, -1));
+        assertThrows(ValidationException.class, () -> api.addInt(player, LIVES, -5));
+        assertEquals(2, api.getInt(player, LIVES));
+        api.shutdown();
+    }
+
+    @Test
+    void incrementingALoadedPlayerStaysUnboxed() {
+        DataAPIImpl api = new DataAPIImpl(new InMemoryDataStorage(), new JsonFormat(), null, false);
+        UUID player = UUID.randomUUID();
+
+        for (int i = 0; i < 100_000; i++) {
+            api.addInt(player, KILLS, 1000);
+        }
+
+        // Far past Integer's cache of small boxes, and still the same counter either way it is read.
+        assertEquals(100_000 * 1000, api.getInt(player, KILLS));
+        assertEquals(100_000 * 1000, api.get(player, KILLS));
+        api.shutdown();
+    }
+
+    @Test
+    void incrementingALoadedPlayerAllocatesFarLessThanBoxing() {
+        Assumptions.assumeTrue(ManagementFactory.getThreadMXBean() instanceof com.sun.management.ThreadMXBean,
+                "per-thread allocation counters not available, skipping");
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        Assumptions.assumeTrue(threads.isThreadAllocatedMemorySupported() && threads.isThreadAllocatedMemoryEnabled(),
+                "per-thread allocation counters not available, skipping");
+        DataAPIImpl api = new DataAPIImpl(new InMemoryDataStorage(), new JsonFormat(), null, false);
+        UUID player = UUID.randomUUID();
+        long thread = Thread.currentThread().getId();
+
+        for (int i = 0; i < 200_000; i++) {
+            api.addInt(player, KILLS, 1000);
+        }
+        // The quietest of several rounds, so a round that caught a recompile or a stray allocation
+        // elsewhere on the thread does not decide it.
+        long fewest = Long.MAX_VALUE;
+        for (int round = 0; round < 5; round++) {
+            long before = threads.getThreadAllocatedBytes(thread);
+            for (int i = 0; i < 100_000; i++) {
+                api.addInt(player, KILLS, 1);
+            }
+            fewest = Math.min(fewest, threads.getThreadAllocatedBytes(thread) - before);
+        }
+
+        // Boxing alone would be 16 bytes an increment; allow a quarter of that for whatever a JIT
+        // or collector on some other JVM charges to the thread.
+        assertTrue(fewest < 100_000 * 4, fewest + " bytes allocated by 100k increments");
+        api.shutdown();
+    }
+}
@@ -1,12 +1,14 @@
 package net.swofty;
 
 import net.swofty.storage.RedisDataStorage;
+import net.swofty.storage.VersionedData;
 import org.junit.jupiter.api.*;
 import redis.clients.jedis.Jedis;
 import redis.clients.jedis.JedisPool;
 
 import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -99,6 +101,31 @@ class RedisDataStorageTest {
         assertTrue(storage.listIds("nonexistent").isEmpty());
     }
 
+    @Test
+    void loadManyVersionedPairsEachDocumentWithItsVersion() {
+        storage.save("players", "a", new byte[]{1});
+        storage.save("players", "a", new byte[]{2});
+
+        Map<String, VersionedData> loaded = storage.loadManyVersioned("players", List.of("a", "b"));
+
+        assertArrayEquals(new byte[]{2}, loaded.get("a").data());
+        assertEquals(2L, loaded.get("a").version());
+        assertNull(loaded.get("b").data());
+        assertEquals(VersionedData.UNVERSIONED, loaded.get("b").version());
+    }
+
+    @Test
+    void loadManyReadsABatchAndSkipsMissingIds() {
+        storage.save("players", "a", new byte[]{1});
+        storage.save("players", "c", new byte[]{3});
+
+        Map<String, byte[]> loaded = storage.loadMany("players", List.of("a", "b", "c"));
+
+        assertEquals(List.of("a", "c"), List.copyOf(loaded.keySet()));
+        assertArrayEquals(new byte[]{1}, loaded.get("a"));
+        assertArrayEquals(new byte[]{3}, loaded.get("c"));
+    }
+
     @Test
     void differentTypesAreIsolated() {
         storage.save("players", "x", new byte[]{1});
@@ -0,0 +1,139 @@
+package net.swofty;
+
+import net.swofty.api.DataAPIImpl;
+import net.swofty.codec.Codecs;
+import net.swofty.data.format.JsonFormat;
+import net.swofty.storage.RedisHashDataStorage;
+import net.swofty.storage.SaveResult;
+import net.swofty.storage.VersionedData;
+import org.junit.jupiter.api.*;
+import redis.clients.jedis.Jedis;
+import redis.clients.jedis.JedisPool;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * The hash-per-document layout: documents read back whole, exactly as the string layout would
+ * return them, while a write or a cold read can touch a single field.
+ */
+class RedisHashDataStorageTest {
+    private static final JsonFormat FORMAT = new JsonFormat();
+    private static final PlayerField<Integer> COINS = PlayerField.create("hash", "coins", Codecs.INT, 0);
+    private static final PlayerField<String> BIO = PlayerField.create("hash", "bio", Codecs.STRING, "");
+
+    private static JedisPool pool;
+    private RedisHashDataStorage storage;
+    private static final String PREFIX = "swofty:hashtest:" + System.currentTimeMillis();
+
+    @BeforeAll
+    static void checkRedis() {
+        try {
+            pool = new JedisPool("localhost", 6379);
+            try (Jedis jedis = pool.getResource()) {
+                jedis.ping();
+            }
+        } catch (Exception e) {
+            pool = null;
+        }
+        Assumptions.assumeTrue(pool != null, "Redis not available, skipping");
+    }
+
+    @BeforeEach
+    void setUp() {
+        storage = new RedisHashDataStorage(pool, PREFIX, FORMAT);
+    }
+
+    @AfterEach
+    void cleanUp() {
+        if (pool == null) return;
+        for (String id : storage.listIds("players")) {
+            storage.delete("players", id);
+        }
+    }
+
+    @AfterAll
+    static void closePool() {
+        if (pool != null) pool.close();
+    }
+
+    private static byte[] document(Map<String, Object> fields) {
+        return FORMAT.writeRaw(fields);
+    }
+
+    @Test
+    void aDocumentReadsBackWhole() {
+        storage.save("players", "a", document(Map.of("hash:coins", 5, "hash:bio", "hi")));
+
+        Map<String, Object> loaded = FORMAT.readRaw(storage.load("players", "a"));
+
+        assertEquals(Set.of("hash:coins", "hash:bio"), loaded.keySet());
+        assertEquals("hi", loaded.get("hash:bio"));
+        assertTrue(storage.exists("players", "a"));
+    }
+
+    @Test
+    void aSaveReplacesFieldsTheNewDocumentDropped() {
+        storage.save("players", "a", document(Map.of("hash:coins", 5, "hash:bio", "hi")));
+        storage.save("players", "a", document(Map.of("hash:coins", 6)));
+
+        assertEquals(Set.of("hash:coins"), FORMAT.readRaw(storage.load("players", "a")).keySet());
+    }
+
+    @Test
+    void anEmptyDocumentStillExists() {
+        storage.save("players", "a", document(Map.of()));
+
+        assertTrue(storage.exists("players", "a"));
+        assertNotNull(storage.load("players", "a"));
+        assertNull(storage.load("players", "missing"));
+    }
+
+    @Test
+    void aPatchTouchesOnlyTheNamedFieldsUnderTheVersionCheck() {
+        SaveResult first = storage.saveIfVersion("players", "a",
+                document(Map.of("hash:coins", 5, "hash:bio", "hi")), VersionedData.UNVERSIONED);
+
+        SaveResult patched = storage.savePatchIfVersion("players", "a",
+                Map.of("hash:coins", document(Map.of("hash:coins", 9))), Set.of("hash:bio"), first.version());
+        SaveResult stale = storage.savePatchIfVersion("players", "a",
+                Map.of("hash:coins", document(Map.of("hash:coins", 1))), Set.of(), first.version());
+
+        assertTrue(patched.saved());
+        assertTrue(stale.conflict());
+        VersionedData stored = storage.loadVersioned("players", "a");
+        assertEquals(patched.version(), stored.version());
+        assertEquals(Set.of("hash:coins"), FORMAT.readRaw(stored.data()).keySet());
+    }
+
+    @Test
+    void aColdReadFetchesOnlyTheRequestedFields() {
+        storage.save("players", "a", document(Map.of("hash:coins", 5, "hash:bio", "x".repeat(10_000))));
+        storage.save("players", "b", document(Map.of("hash:coins", 7)));
+
+        byte[] one = storage.loadFields("players", "a", Set.of("hash:coins"));
+        Map<String, byte[]> many = storage.loadManyFields("players", List.of("a", "b", "c"), Set.of("hash:coins"));
+
+        assertEquals(Set.of("hash:coins"), FORMAT.readRaw(one).keySet());
+        assertEquals(List.of("a", "b"), List.copyOf(many.keySet()));
+        assertEquals(Set.of("hash:coins"), FORMAT.readRaw(many.get("a")).keySet());
+    }
+
+    @Test
+    void theApiReadsAndWritesThroughTheHashLayout() {
+        DataAPI api = new DataAPIImpl(storage, FORMAT);
+        UUID player = UUID.randomUUID();
+        api.set(player, BIO, "hello");
+        api.set(player, COINS, 3);
+        api.unload(player);
+
+        assertEquals(3, api.get(player, COINS));
+        assertEquals("hello", api.get(player, BIO));
+        assertEquals(List.of(player), api.query(COINS, c -> c > 1));
+        api.shutdown();
+    }
+}
@@ -1,16 +1,26 @@
 package net.swofty;
 
+import net.swofty.codec.Codec;
+import net.swofty.codec.Codecs;
+import net.swofty.data.Bytes;
 import net.swofty.data.format.JsonFormat;
 import net.swofty.data.format.BinaryFormat;
 import net.swofty.storage.DataStorage;
 import net.swofty.storage.FileDataStorage;
+import net.swofty.storage.InMemoryDataStorage;
+import net.swofty.storage.VersionedData;
 
 import org.junit.jupiter.api.*;
 import org.junit.jupiter.api.io.TempDir;
 
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Path;
 import java.util.List;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -33,6 +43,23 @@ class StorageTest {
         assertEquals("{\"key\":\"value\"}", new String(loaded, StandardCharsets.UTF_8));
     }
 
+    @Test
+    void loadManyVersionedReadsEveryIdWithItsVersion() {
+        DataStorage storage = new FileDataStorage(tempDir, new JsonFormat(), ".json");
+        storage.save("players", "a", "1".getBytes(StandardCharsets.UTF_8));
+        storage.save("players", "b", "2".getBytes(StandardCharsets.UTF_8));
+        storage.save("players", "b", "3".getBytes(StandardCharsets.UTF_8));
+
+        Map<String, VersionedData> loaded = storage.loadManyVersioned("players", List.of("b", "missing", "a"));
+
+        assertEquals(List.of("b", "missing", "a"), List.copyOf(loaded.keySet()));
+        assertEquals("3", new String(loaded.get("b").data(), StandardCharsets.UTF_8));
+        assertEquals(2L, loaded.get("b").version());
+        assertEquals(1L, loaded.get("a").version());
+        assertNull(loaded.get("missing").data());
+        assertEquals(VersionedData.UNVERSIONED, loaded.get("missing").version());
+    }
+
     @Test
     void loadNonExistentReturnsNull() {
         DataStorage storage = new FileDataStorage(tempDir, new JsonFormat(), ".json");
@@ -137,6 +164,67 @@ class StorageTest {
         assertEquals("binary", new String(storage.load("data", "test")));
     }
 
+    // ==================== Byte views ====================
+
+    @Test
+    void inMemoryLoadsHandBackTheSavedDocumentWithoutCopying() {
+        InMemoryDataStorage storage = new InMemoryDataStorage();
+        byte[] document = new JsonFormat().writeRaw(Map.of("key", "value"));
+        storage.saveIfVersion("players", "a", Bytes.wrap(document), 0L);
+
+        VersionedData first = storage.loadVersioned("players", "a");
+        VersionedData second = storage.loadVersioned("players", "a");
+
+        assertSame(document, first.bytes().unsafeArray());
+        assertSame(document, second.bytes().sharedArray());
+        assertEquals(1L, first.version());
+        // The byte[] accessor keeps the copying behaviour it always had.
+        assertNotSame(document, first.data());
+        assertArrayEquals(document, first.data());
+        assertEquals(Map.of("key", "value"), new JsonFormat().readRaw(first.bytes()));
+    }
+
+    @Test
+    void bytesViewsShareTheirArrayAndStayReadOnly() {
+        byte[] array = {1, 2, 3, 4, 5};
+        Bytes middle = Bytes.wrap(array).slice(1, 4);
+
+        assertEquals(3, middle.length());
+        assertEquals(2, middle.byteAt(0));
+        assertEquals(Bytes.wrap(new byte[]{2, 3, 4}), middle);
+        assertEquals(Bytes.wrap(new byte[]{2, 3, 4}).hashCode(), middle.hashCode());
+        assertArrayEquals(new byte[]{2, 3, 4}, middle.sharedArray());
+        assertSame(array, Bytes.wrap(array).sharedArray());
+        assertTrue(middle.asByteBuffer().isReadOnly());
+        assertEquals(2, middle.asByteBuffer().get(0));
+        assertThrows(IndexOutOfBoundsException.class, () -> middle.byteAt(3));
+
+        byte[] mutable = {9};
+        Bytes copied = Bytes.copyOf(mutable);
+        mutable[0] = 0;
+        assertEquals(9, copied.byteAt(0));
+    }
+
+    @Test
+    void bytesOverADirectBufferReadLikeBytesOverAnArray() throws Exception {
+        ByteBuffer direct = ByteBuffer.allocateDirect(5).put(new byte[]{1, 2, 3, 4, 5}).flip();
+        Bytes view = Bytes.wrap(direct);
+
+        assertFalse(view.hasArray());
+        assertThrows(UnsupportedOperationException.class, view::unsafeArray);
+        assertEquals(Bytes.wrap(new byte[]{1, 2, 3, 4, 5}), view);
+        assertEquals(Bytes.wrap(new byte[]{1, 2, 3, 4, 5}).hashCode(), view.hashCode());
+        assertEquals(Bytes.wrap(new byte[]{2, 3, 4}), view.slice(1, 4));
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, view.sharedArray());
+        assertArrayEquals(new byte[]{1, 2, 3, 4, 5}, view.newInputStream().readAllBytes());
+        assertTrue(view.asByteBuffer().isReadOnly());
+        assertEquals(0, direct.position(), "wrapping must not move the caller's buffer");
+
+        byte[] document = new JsonFormat().writeRaw(Map.of("key", "value"));
+        Bytes offHeap = Bytes.wrap(ByteBuffer.allocateDirect(document.length).put(document).flip());
+        assertEquals(Map.of("key", "value"), new JsonFormat().readRaw(offHeap));
+    }
+
     // ==================== JsonFormat Round-Trip ====================
 
     @Test
@@ -152,6 +240,74 @@ class StorageTest {
         assertEquals(42, reader.readSection("test:field").readInt());
     }
 
+    @Test
+    void jsonFormatReadsDocumentsThePrettyPrintingFormatWrote() {
+        JsonFormat format = new JsonFormat();
+        byte[] stored = ("{\n  \"economy:coins\": 40,\n  \"profile:tags\": [\n    \"a\",\n    \"b\"\n  ],\n"
+                + "  \"profile:home\": {\n    \"x\": 1.5\n  }\n}").getBytes(StandardCharsets.UTF_8);
+
+        Map<String, Object> tree = format.readRaw(stored);
+
+        assertEquals(40.0, tree.get("economy:coins"));
+        assertEquals(List.of("a", "b"), tree.get("profile:tags"));
+        assertEquals(Map.of("x", 1.5), tree.get("profile:home"));
+        // Written back compact, and reading that gives the same tree.
+        byte[] rewritten = format.writeRaw(tree);
+        assertFalse(new String(rewritten, StandardCharsets.UTF_8).contains("\n"));
+        assertEquals(tree, format.readRaw(rewritten));
+    }
+
+    @Test
+    void jsonFormatWritesListsOfScalarsAndSectionsAsBefore() {
+        JsonFormat format = new JsonFormat();
+        var writer = format.createWriter();
+        writer.writeSection("test:names").writeList(List.of("a", "b"), Codecs.STRING);
+        writer.writeSection("test:pairs").writeList(List.of(1, 2), Codec.<Integer>of(
+                r -> r.readInt() + r.readInt(), (w, v) -> {
+                    w.writeInt(v);
+                    w.writeInt(0);
+                }));
+
+        String json = new String(format.toBytes(writer), StandardCharsets.UTF_8);
+
+        assertEquals("{\"test:names\":{\"_v0\":[\"a\",\"b\"]},"
+                + "\"test:pairs\":{\"_v0\":[{\"_v0\":1,\"_v1\":0},{\"_v0\":2,\"_v1\":0}]}}", json);
+    }
+
+    @Test
+    void jsonFormatReadsMembersInAnyOrder() {
+        JsonFormat format = new JsonFormat();
+        var writer = format.createWriter();
+        writer.writeSection("a").writeString("first");
+        var nested = writer.writeSection("b");
+        nested.writeSection("x").writeInt(1);
+        nested.writeSection("y").writeInt(2);
+        writer.writeSection("c").writeInt(3);
+
+        var reader = format.createReader(format.toBytes(writer));
+
+        assertEquals(3, reader.readSection("c").readInt());
+        assertEquals("first", reader.readSection("a").readString());
+        var section = reader.readSection("b");
+        assertEquals(2, section.readSection("y").readInt());
+        assertEquals(1, section.readSection("x").readInt());
+        assertTrue(reader.hasKey("c"));
+        assertFalse(reader.hasKey("d"));
+        assertEquals(3, reader.readSection("c").readInt());
+    }
+
+    @Test
+    void jsonFormatRefusesWritesToASectionItsParentMovedPast() {
+        JsonFormat format = new JsonFormat();
+        var writer = format.createWriter();
+        var first = writer.writeSection("a");
+        first.writeInt(1);
+        writer.writeSection("b").writeInt(2);
+
+        assertThrows(IllegalStateException.class, () -> first.writeInt(3));
+        assertEquals("{\"a\":{\"_v0\":1},\"b\":{\"_v0\":2}}", new String(format.toBytes(writer), StandardCharsets.UTF_8));
+    }
+
     @Test
     void jsonFormatEmptyData() {
         JsonFormat format = new JsonFormat();
@@ -181,4 +337,55 @@ class StorageTest {
         assertTrue(reader.readBoolean());
         assertEquals(123456789L, reader.readLong());
     }
+
+    @Test
+    void binaryFormatWritesTheBytesDataOutputStreamWrote() throws Exception {
+        String awkward = "caf\u00e9 \u0000 \u20ac \uD83D\uDE00";
+        ByteArrayOutputStream expected = new ByteArrayOutputStream();
+        try (DataOutputStream out = new DataOutputStream(expected)) {
+            out.writeInt(-7);
+            out.writeUTF(awkward);
+            out.writeLong(Long.MIN_VALUE);
+            out.writeDouble(2.5);
+            out.writeBoolean(true);
+            out.writeInt(3);
+            out.write(new byte[]{1, 2, 3});
+        }
+
+        BinaryFormat format = new BinaryFormat();
+        var writer = format.createWriter();
+        writer.writeInt(-7);
+        writer.writeString(awkward);
+        writer.writeLong(Long.MIN_VALUE);
+        writer.writeDouble(2.5);
+        writer.writeBoolean(true);
+        writer.writeBytes(new byte[]{1, 2, 3});
+        byte[] bytes = format.toBytes(writer);
+
+        assertArrayEquals(expected.toByteArray(), bytes);
+        var reader = format.createReader(bytes);
+        assertEquals(-7, reader.readInt());
+        assertEquals(awkward, reader.readString());
+        assertEquals(Long.MIN_VALUE, reader.readLong());
+        assertEquals(2.5, reader.readDouble());
+        assertTrue(reader.readBoolean());
+        assertArrayEquals(new byte[]{1, 2, 3}, reader.readBytes());
+        assertThrows(UncheckedIOException.class, reader::readInt);
+    }
+
+    @Test
+    void binaryWriterKeepsWritingAfterItsBytesAreTaken() {
+        BinaryFormat format = new BinaryFormat();
+        var writer = format.createWriter();
+        writer.writeString("x".repeat(1000));
+        byte[] first = format.toBytes(writer);
+        writer.writeInt(9);
+        byte[] second = format.toBytes(writer);
+
+        assertEquals(first.length + 4, second.length);
+        var reader = format.createReader(second);
+        assertEquals("x".repeat(1000), reader.readString());
+        assertEquals(9, reader.readInt());
+        assertEquals("x".repeat(1000), format.createReader(first).readString());
+    }
 }
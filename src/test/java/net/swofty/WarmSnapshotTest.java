@@ -0,0 +1,190 @@
+package net.swofty;
+
+import net.swofty.api.CacheOptions;
+import net.swofty.api.DataAPIImpl;
+import net.swofty.codec.Codecs;
+import net.swofty.storage.InMemoryDataStorage;
+import net.swofty.storage.VersionedData;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Restarting a node with {@link CacheOptions#withWarmSnapshot}: what it had cached and clean at
+ * shutdown comes back from the snapshot file after a version-only check, instead of every
+ * reconnecting player's document being read again.
+ */
+class WarmSnapshotTest {
+    private static final PlayerField<Integer> COINS = PlayerField.create("warm", "coins", Codecs.INT, 0);
+    private static final PlayerField<UUID> ISLAND_ID =
+            PlayerField.create("warm", "island_id", Codecs.nullable(Codecs.UUID), null);
+    private static final LinkType<UUID> ISLAND = LinkType.create("warm_island", Codecs.UUID, ISLAND_ID);
+    private static final LinkedField<UUID, Integer> LEVEL = LinkedField.create("warm", "level", Codecs.INT, 1, ISLAND);
+
+    @TempDir
+    Path snapshots;
+
+    /** Counts document reads apart from version-only reads. */
+    private static final class CountingStorage extends InMemoryDataStorage {
+        final AtomicInteger documentReads = new AtomicInteger();
+        final AtomicInteger versionReads = new AtomicInteger();
+        final List<Collection<String>> batchedDocumentReads = new ArrayList<>();
+
+        @Override
+        public VersionedData loadVersioned(String type, String id) {
+            documentReads.incrementAndGet();
+            return super.loadVersioned(type, id);
+        }
+
+        @Override
+        public Map<String, VersionedData> loadManyVersioned(String type, Collection<String> ids) {
+            batchedDocumentReads.add(List.copyOf(ids));
+            return super.loadManyVersioned(type, ids);
+        }
+
+        @Override
+        public Map<String, Long> loadVersions(String type, Collection<String> ids) {
+            versionReads.incrementAndGet();
+            return super.loadVersions(type, ids);
+        }
+    }
+
+    private DataAPIImpl node(InMemoryDataStorage storage) {
+        return DataAPIImpl.builder(storage).cache(CacheOptions.UNBOUNDED.withWarmSnapshot(snapshots)).build();
+    }
+
+    @Test
+    void aRestartedNodeServesCleanPlayersWithoutRereadingThem() {
+        CountingStorage storage = new CountingStorage();
+        UUID player = UUID.randomUUID();
+        DataAPIImpl before = node(storage);
+        before.set(player, COINS, 40);
+        before.shutdown();
+        assertTrue(Files.exists(snapshots.resolve("players.snapshot")));
+
+        storage.documentReads.set(0);
+        DataAPIImpl after = node(storage);
+        assertEquals(40, after.get(player, COINS));
+        assertEquals(0, storage.documentReads.get(), "the document came from the snapshot");
+        assertEquals(1, storage.versionReads.get());
+
+        after.set(player, COINS, 41);
+        assertEquals(41, new DataAPIImpl(storage).get(player, COINS), "writes go on from the served version");
+        after.shutdown();
+    }
+
+    @Test
+    void aSnapshotIsServedOnlyByTheStartThatOpenedIt() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        UUID player = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        DataAPIImpl before = node(storage);
+        before.set(player, COINS, 40);
+        before.set(other, COINS, 7);
+        before.shutdown();
+
+        DataAPIImpl after = node(storage);
+        assertFalse(Files.exists(snapshots.resolve("players.snapshot")), "the file was left for another start");
+        assertEquals(40, after.get(player, COINS));
+        assertTrue(Files.exists(snapshots.resolve("players.snapshot.open")), "an entry is still unused");
+        assertEquals(7, after.get(other, COINS));
+        assertFalse(Files.exists(snapshots.resolve("players.snapshot.open")), "every entry was used");
+
+        // Started again without the first shutting down, as after a crash: nothing is left to serve.
+        storage.documentReads.set(0);
+        DataAPIImpl again = node(storage);
+        assertEquals(40, again.get(player, COINS));
+        assertEquals(1, storage.documentReads.get());
+        again.shutdown();
+        after.shutdown();
+    }
+
+    @Test
+    void aDocumentWrittenWhileTheNodeWasDownIsReadFresh() {
+        CountingStorage storage = new CountingStorage();
+        UUID player = UUID.randomUUID();
+        DataAPIImpl before = node(storage);
+        before.set(player, COINS, 40);
+        before.shutdown();
+
+        new DataAPIImpl(storage).set(player, COINS, 90);
+
+        storage.documentReads.set(0);
+        DataAPIImpl after = node(storage);
+        assertEquals(90, after.get(player, COINS));
+        assertEquals(1, storage.documentReads.get(), "the stale entry was checked and passed over");
+        after.shutdown();
+    }
+
+    @Test
+    void loadAllChecksEveryVersionInOneReadAndFetchesOnlyWhatMoved() {
+        CountingStorage storage = new CountingStorage();
+        List<UUID> party = List.of(UUID.randomUUID(), UUID.randomUUID(), UUID.randomUUID());
+        DataAPIImpl before = node(storage);
+        for (int i = 0; i < party.size(); i++) before.set(party.get(i), COINS, i);
+        before.shutdown();
+
+        new DataAPIImpl(storage).set(party.get(1), COINS, 100);
+
+        storage.versionReads.set(0);
+        DataAPIImpl after = node(storage);
+        after.loadAll(party);
+        assertEquals(1, storage.versionReads.get());
+        assertEquals(List.of(List.of(party.get(1).toString())), storage.batchedDocumentReads);
+        assertEquals(0, after.get(party.get(0), COINS));
+        assertEquals(100, after.get(party.get(1), COINS));
+        assertEquals(2, after.get(party.get(2), COINS));
+        after.shutdown();
+    }
+
+    @Test
+    void sharedEntitiesAreKeptToo() {
+        CountingStorage storage = new CountingStorage();
+        UUID island = UUID.randomUUID();
+        DataAPIImpl before = node(storage);
+        before.setDirect(island, LEVEL, 7);
+        before.shutdown();
+
+        storage.documentReads.set(0);
+        DataAPIImpl after = node(storage);
+        assertEquals(7, after.getDirect(island, LEVEL));
+        assertEquals(0, storage.documentReads.get());
+        after.shutdown();
+    }
+
+    @Test
+    void anEntityWithNoStoredVersionIsLeftOut() {
+        CountingStorage storage = new CountingStorage();
+        UUID player = UUID.randomUUID();
+        // Loaded but never written: there is no version a restart could check an entry against.
+        DataAPIImpl before = node(storage);
+        before.load(player);
+        before.shutdown();
+
+        storage.documentReads.set(0);
+        DataAPIImpl after = node(storage);
+        assertEquals(0, after.get(player, COINS));
+        assertEquals(1, storage.documentReads.get());
+        assertEquals(0, storage.versionReads.get());
+        after.shutdown();
+    }
+
+    @Test
+    void aDamagedSnapshotIsIgnored() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        UUID player = UUID.randomUUID();
+        new DataAPIImpl(storage).set(player, COINS, 5);
+        Files.write(snapshots.resolve("players.snapshot"), new byte[]{1, 2, 3});
+
+        DataAPIImpl after = node(storage);
+        assertEquals(5, after.get(player, COINS));
+        after.shutdown();
+    }
+}
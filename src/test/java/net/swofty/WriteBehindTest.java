@@ -0,0 +1,123 @@
+package net.swofty;
+
+import net.swofty.api.DataAPIImpl;
+import net.swofty.api.WriteBehindOptions;
+import net.swofty.codec.Codecs;
+import net.swofty.storage.InMemoryDataStorage;
+import net.swofty.storage.SaveResult;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Deferred writes without a hand-rolled flush timer. Nothing is written on the write path, a crash
+ * loses at most the staleness window, a player hammered with writes costs one storage write per
+ * window rather than one per change, and a backlog never turns into more writes per second than
+ * storage was promised.
+ */
+class WriteBehindTest {
+    private static final PlayerField<Integer> COINS = PlayerField.create("behind", "coins", Codecs.INT, 0);
+
+    private static final class CountingStorage extends InMemoryDataStorage {
+        final AtomicInteger writes = new AtomicInteger();
+
+        @Override
+        public SaveResult saveIfVersion(String type, String id, byte[] data, long expectedVersion) {
+            writes.incrementAndGet();
+            return super.saveIfVersion(type, id, data, expectedVersion);
+        }
+    }
+
+    private static DataAPIImpl api(CountingStorage storage, WriteBehindOptions options) {
+        return DataAPIImpl.builder(storage).writeBehind(options).build();
+    }
+
+    private static void awaitTrue(BooleanSupplier condition, Duration within) throws InterruptedException {
+        long deadline = System.nanoTime() + within.toNanos();
+        while (!condition.getAsBoolean()) {
+            assertTrue(System.nanoTime() < deadline, "condition not met within " + within);
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    @Timeout(30)
+    void deferredWritesReachStorageWithoutAnExplicitFlush() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        DataAPIImpl api = api(storage, new WriteBehindOptions(Duration.ofMillis(300), 1000, 2));
+        UUID player = UUID.randomUUID();
+
+        api.set(player, COINS, 42);
+        assertEquals(0, storage.writes.get(), "the write path wrote through");
+
+        awaitTrue(() -> storage.exists("players", player.toString()), Duration.ofSeconds(5));
+        DataAPIImpl reader = new DataAPIImpl(storage);
+        assertEquals(42, reader.get(player, COINS));
+        api.shutdown();
+        reader.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void repeatedWritesToOnePlayerCoalesce() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        DataAPIImpl api = api(storage, new WriteBehindOptions(Duration.ofSeconds(2), 1000, 2));
+        UUID player = UUID.randomUUID();
+
+        for (int i = 1; i <= 200; i++) {
+            api.set(player, COINS, i);
+        }
+        awaitTrue(() -> storage.writes.get() > 0, Duration.ofSeconds(10));
+        Thread.sleep(100);
+
+        assertEquals(1, storage.writes.get());
+        DataAPIImpl reader = new DataAPIImpl(storage);
+        assertEquals(200, reader.get(player, COINS));
+        api.shutdown();
+        reader.shutdown();
+    }
+
+    @Test
+    @Timeout(30)
+    void aBacklogIsWrittenNoFasterThanTheRateCap() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        DataAPIImpl api = api(storage, new WriteBehindOptions(Duration.ofMillis(100), 10, 4));
+
+        for (int i = 0; i < 40; i++) {
+            api.set(UUID.randomUUID(), COINS, i);
+        }
+        Thread.sleep(1000);
+
+        // A full bucket of 10 plus 10 per second, with slack for scheduling.
+        int written = storage.writes.get();
+        assertTrue(written >= 10, "write-behind stalled: " + written);
+        assertTrue(written <= 25, "rate cap exceeded: " + written);
+
+        // Shutdown writes whatever the cap held back.
+        api.shutdown();
+        assertEquals(40, storage.listIds("players").size());
+    }
+
+    @Test
+    @Timeout(30)
+    void anUnloadedPlayerIsNotWrittenAgain() throws Exception {
+        CountingStorage storage = new CountingStorage();
+        DataAPIImpl api = api(storage, new WriteBehindOptions(Duration.ofMillis(200), 1000, 2));
+        UUID player = UUID.randomUUID();
+
+        api.set(player, COINS, 1);
+        api.unload(player);
+        assertEquals(1, storage.writes.get());
+        Thread.sleep(400);
+
+        assertEquals(1, storage.writes.get());
+        api.shutdown();
+    }
+}
@@ -0,0 +1,134 @@
+package net.swofty.api;
+
+import net.swofty.storage.InMemoryDataStorage;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A nightly report over every stored player is a linear scan, and doing it one round trip per id
+ * on one thread is what made it take tens of minutes. The scanner batches the reads and spreads
+ * the chunks over a pool, but a table of millions must never be pulled into memory at once: the
+ * number of chunks in flight stays bounded however fast the backend answers.
+ */
+class BulkScannerTest {
+
+    /** Records how the scan reads: batched or not, and how many batches are open at once. */
+    private static final class RecordingStorage extends InMemoryDataStorage {
+        final AtomicInteger singleLoads = new AtomicInteger();
+        final AtomicInteger batches = new AtomicInteger();
+        final AtomicInteger open = new AtomicInteger();
+        final AtomicInteger mostOpen = new AtomicInteger();
+        final AtomicInteger projectedBatches = new AtomicInteger();
+
+        @Override
+        public byte[] load(String type, String id) {
+            singleLoads.incrementAndGet();
+            return super.load(type, id);
+        }
+
+        @Override
+        public Map<String, byte[]> loadMany(String type, List<String> ids) {
+            batches.incrementAndGet();
+            mostOpen.accumulateAndGet(open.incrementAndGet(), Math::max);
+            try {
+                Thread.sleep(5);
+                return super.loadMany(type, ids);
+            } catch (InterruptedException e) {
+                throw new IllegalStateException(e);
+            } finally {
+                open.decrementAndGet();
+            }
+        }
+
+        @Override
+        public Map<String, byte[]> loadManyFields(String type, List<String> ids, Set<String> fields) {
+            projectedBatches.incrementAndGet();
+            return super.loadManyFields(type, ids, fields);
+        }
+    }
+
+    private static RecordingStorage storageWith(int documents) {
+        RecordingStorage storage = new RecordingStorage();
+        for (int i = 0; i < documents; i++) {
+            storage.save("players", String.format("%05d", i), Integer.toString(i).getBytes(StandardCharsets.UTF_8));
+        }
+        return storage;
+    }
+
+    @Test
+    @Timeout(30)
+    void readsInBatchesWithABoundedNumberInFlight() {
+        RecordingStorage storage = storageWith(1000);
+        ExecutorService pool = Executors.newFixedThreadPool(16);
+        try {
+            BulkScanner scanner = new BulkScanner(storage, new ScanOptions(10, 3, pool));
+
+            List<Integer> sizes = scanner.scan("players", chunk -> chunk.documents().size());
+
+            assertEquals(100, sizes.size());
+            assertEquals(1000, sizes.stream().mapToInt(Integer::intValue).sum());
+            assertEquals(100, storage.batches.get());
+            assertEquals(0, storage.singleLoads.get(), "a document was read outside a batch");
+            assertTrue(storage.mostOpen.get() <= 3, "more chunks in flight than allowed: " + storage.mostOpen.get());
+            assertTrue(storage.mostOpen.get() > 1, "chunks never overlapped");
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void resultsComeBackInIdOrder() {
+        RecordingStorage storage = storageWith(250);
+        List<String> ids = new ArrayList<>(storage.listIds("players"));
+        ids.sort(null);
+        ExecutorService pool = Executors.newCachedThreadPool();
+        try {
+            BulkScanner scanner = new BulkScanner(storage, new ScanOptions(7, 4, pool));
+
+            List<String> seen = new ArrayList<>();
+            for (List<String> chunk : scanner.scan("players", ids, BulkScanner.Chunk::ids)) {
+                seen.addAll(chunk);
+            }
+
+            assertEquals(ids, seen);
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    @Test
+    void aFailingChunkFailsTheScanWithItsOwnException() {
+        RecordingStorage storage = storageWith(100);
+        BulkScanner scanner = new BulkScanner(storage, new ScanOptions(10, 2, Runnable::run));
+
+        IllegalStateException failure = assertThrows(IllegalStateException.class,
+                () -> scanner.scan("players", chunk -> {
+                    throw new IllegalStateException("bad document");
+                }));
+
+        assertEquals("bad document", failure.getMessage());
+        assertEquals(1, storage.batches.get(), "kept fetching after the scan had already failed");
+    }
+
+    @Test
+    void aScanThatNamesItsFieldsAsksTheBackendForOnlyThose() {
+        RecordingStorage storage = storageWith(30);
+        BulkScanner scanner = new BulkScanner(storage, new ScanOptions(10, 2, Runnable::run));
+
+        List<Integer> sizes = scanner.scan("players", Set.of("economy:coins"), chunk -> chunk.documents().size());
+
+        assertEquals(30, sizes.stream().mapToInt(Integer::intValue).sum());
+        assertEquals(3, storage.projectedBatches.get());
+    }
+}
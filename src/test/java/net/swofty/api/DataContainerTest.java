@@ -0,0 +1,188 @@
+package net.swofty.api;
+
+import net.swofty.PlayerField;
+import net.swofty.codec.Codecs;
+import net.swofty.data.format.JsonFormat;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * How often a container decodes its backing document.
+ *
+ * <p>A large document with many fields used to be parsed once per field read, once more for every
+ * persist and again for every remote patch. The container now decodes it once and works off that
+ * tree, so the number of full parses is bounded by the number of documents it was handed, not by
+ * how many fields anyone touched.
+ */
+class DataContainerTest {
+    private static final PlayerField<Integer> COINS = PlayerField.create("doc", "coins", Codecs.INT, 0);
+    private static final PlayerField<String> NAME = PlayerField.create("doc", "name", Codecs.STRING, "");
+    private static final PlayerField<List<String>> TAGS =
+            PlayerField.create("doc", "tags", Codecs.list(Codecs.STRING), List.of());
+
+    /** Counts whole-document parses. */
+    private static final class CountingFormat extends JsonFormat {
+        final AtomicInteger documentReads = new AtomicInteger();
+
+        @Override
+        public Map<String, Object> readRaw(byte[] data) {
+            documentReads.incrementAndGet();
+            return super.readRaw(data);
+        }
+    }
+
+    private static byte[] stored(JsonFormat format, int coins, String name, List<String> tags) {
+        DataContainer writer = new DataContainer();
+        writer.loadDocument(format, null, 0L);
+        writer.set(COINS, coins);
+        writer.set(NAME, name);
+        writer.set(TAGS, tags);
+        return writer.serialize(format);
+    }
+
+    @Test
+    void readingManyFieldsDecodesTheDocumentOnce() {
+        CountingFormat format = new CountingFormat();
+        DataContainer container = new DataContainer();
+        container.loadDocument(format, stored(format, 40, "steve", List.of("a", "b")), 1L);
+        format.documentReads.set(0);
+
+        container.ensureField(COINS, format);
+        container.ensureField(NAME, format);
+        container.ensureField(TAGS, format);
+
+        assertEquals(40, container.get(COINS));
+        assertEquals("steve", container.get(NAME));
+        assertEquals(List.of("a", "b"), container.get(TAGS));
+        assertEquals(1, format.documentReads.get());
+    }
+
+    @Test
+    void persistingCarriesTheDecodedTreeForward() {
+        CountingFormat format = new CountingFormat();
+        DataContainer container = new DataContainer();
+        container.loadDocument(format, stored(format, 40, "steve", List.of("a")), 1L);
+        container.ensureField(COINS, format);
+        container.set(COINS, 41);
+        container.set(NAME, null);
+        container.markPersisted(format, container.serialize(format), 2L);
+        format.documentReads.set(0);
+
+        // A second, unrelated edit merges over the carried tree rather than re-parsing the bytes.
+        container.set(COINS, 42);
+        byte[] written = container.serialize(format);
+        int parsesForTheWrite = format.documentReads.get();
+
+        DataContainer fresh = new DataContainer();
+        fresh.loadDocument(format, written, 3L);
+        fresh.ensureField(COINS, format);
+        fresh.ensureField(NAME, format);
+        fresh.ensureField(TAGS, format);
+        assertEquals(42, fresh.get(COINS));
+        assertEquals("", fresh.get(NAME), "a cleared field came back from the carried tree");
+        assertEquals(List.of("a"), fresh.get(TAGS), "an untouched field was dropped");
+        assertEquals(0, parsesForTheWrite);
+    }
+
+    @Test
+    void aRemotePatchDoesNotReparseTheDocument() {
+        CountingFormat format = new CountingFormat();
+        DataContainer container = new DataContainer();
+        container.loadDocument(format, stored(format, 40, "steve", List.of("a")), 1L);
+        container.ensureField(COINS, format);
+        format.documentReads.set(0);
+
+        container.applyRemote(NAME, "alex", format);
+        container.applyRemote(TAGS, null, format);
+        container.set(COINS, 5);
+        byte[] written = container.serialize(format);
+
+        // Only the single patched value is round-tripped; the document itself is never parsed.
+        assertEquals(1, format.documentReads.get());
+
+        DataContainer fresh = new DataContainer();
+        fresh.loadDocument(format, written, 2L);
+        fresh.ensureField(COINS, format);
+        fresh.ensureField(NAME, format);
+        fresh.ensureField(TAGS, format);
+        assertEquals(5, fresh.get(COINS));
+        assertEquals("alex", fresh.get(NAME));
+        assertEquals(List.of(), fresh.get(TAGS));
+    }
+
+    @Test
+    void anOffHeapDocumentKeepsNoTreeAndLosesNoField() {
+        CountingFormat format = new CountingFormat();
+        DataContainer container = new DataContainer(new DocumentSlabs());
+        container.loadDocument(format, stored(format, 40, "steve", List.of("a")), 1L);
+
+        container.ensureField(COINS, format);
+        container.ensureField(NAME, format);
+        // Each miss decodes from direct memory; nothing decoded is kept around for the next.
+        assertEquals(2, format.documentReads.get());
+
+        container.applyRemote(TAGS, List.of("b"), format);
+        container.set(COINS, 41);
+        container.markPersisted(format, container.serialize(format), 2L);
+        container.set(NAME, "alex");
+        container.markPatched(format, 3L);
+
+        DataContainer fresh = new DataContainer();
+        fresh.loadDocument(format, container.serialize(format), 3L);
+        fresh.ensureField(COINS, format);
+        fresh.ensureField(NAME, format);
+        fresh.ensureField(TAGS, format);
+        assertEquals(41, fresh.get(COINS));
+        assertEquals("alex", fresh.get(NAME));
+        assertEquals(List.of("b"), fresh.get(TAGS), "the remote patch was lost off the heap");
+    }
+
+    @Test
+    void releasingAnOffHeapContainerHandsItsBlockToTheNext() {
+        JsonFormat format = new JsonFormat();
+        DocumentSlabs slabs = new DocumentSlabs();
+        byte[] document = stored(format, 1, "x".repeat(3_000), List.of());
+        for (int i = 0; i < 10_000; i++) {
+            DataContainer container = new DataContainer(slabs);
+            container.loadDocument(format, document, 1L);
+            container.release();
+            assertFalse(container.isDocumentLoaded());
+        }
+        assertEquals(1 << 20, slabs.reservedBytes(), "one slab serves every cycle");
+    }
+
+    @Test
+    void aReloadDropsTheOldTree() {
+        CountingFormat format = new CountingFormat();
+        DataContainer container = new DataContainer();
+        container.loadDocument(format, stored(format, 1, "old", List.of()), 1L);
+        container.ensureField(NAME, format);
+
+        container.reload(stored(format, 2, "new", List.of()), 2L);
+        container.ensureField(NAME, format);
+
+        assertEquals("new", container.get(NAME));
+    }
+
+    @Test
+    void aLockFreeReadSeesAllOfAChangeToSeveralFieldsOrNoneOfIt() {
+        DataContainer container = new DataContainer();
+        container.set(COINS, 1);
+        container.set(NAME, "before");
+        assertEquals(1, container.peek(COINS));
+        assertNull(container.peek(TAGS), "not materialised: the locked path decodes it");
+
+        container.changeAtomically(() -> {
+            container.set(COINS, 2);
+            assertNull(container.peek(NAME), "mid-change, the reader is sent to the lock");
+            container.set(NAME, "after");
+        });
+        assertEquals(2, container.peek(COINS));
+        assertEquals("after", container.peek(NAME));
+    }
+}
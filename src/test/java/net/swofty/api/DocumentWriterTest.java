@@ -3,6 +3,7 @@ package net.swofty.api;
 import net.swofty.PlayerField;
 import net.swofty.codec.Codecs;
 import net.swofty.data.format.JsonFormat;
+import net.swofty.data.format.KeyedBinaryFormat;
 import net.swofty.storage.InMemoryDataStorage;
 import net.swofty.storage.SaveResult;
 import net.swofty.storage.WriteConflictException;
@@ -10,6 +11,9 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.Timeout;
 
 import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -26,8 +30,50 @@ import static org.junit.jupiter.api.Assertions.*;
  */
 class DocumentWriterTest {
     private static final PlayerField<Integer> COINS = PlayerField.create("writer", "coins", Codecs.INT, 0);
+    private static final PlayerField<String> BIO = PlayerField.create("writer", "bio", Codecs.STRING, "");
+    private static final PlayerField<String> NAME = PlayerField.create("writer", "name", Codecs.STRING, "");
     private static final JsonFormat FORMAT = new JsonFormat();
 
+    /** Takes field patches, merging them under the key's monitor, and counts what they shipped. */
+    private static final class PatchingStorage extends InMemoryDataStorage {
+        final AtomicInteger patchBytes = new AtomicInteger();
+        final AtomicInteger fullWrites = new AtomicInteger();
+
+        @Override
+        public boolean supportsFieldPatches() {
+            return true;
+        }
+
+        @Override
+        public JsonFormat fieldFormat() {
+            return FORMAT;
+        }
+
+        @Override
+        public synchronized SaveResult savePatchIfVersion(String type, String id, Map<String, byte[]> changed,
+                                                          Set<String> removed, long expectedVersion) {
+            changed.values().forEach(field -> patchBytes.addAndGet(field.length));
+            byte[] stored = load(type, id);
+            Map<String, Object> merged = new LinkedHashMap<>(FORMAT.readRaw(stored));
+            changed.values().forEach(field -> merged.putAll(FORMAT.readRaw(field)));
+            merged.keySet().removeAll(removed);
+            return super.saveIfVersion(type, id, FORMAT.writeRaw(merged), expectedVersion);
+        }
+
+        @Override
+        public synchronized SaveResult saveIfVersion(String type, String id, byte[] data, long expectedVersion) {
+            fullWrites.incrementAndGet();
+            return super.saveIfVersion(type, id, data, expectedVersion);
+        }
+    }
+
+    private static DataContainer loaded(InMemoryDataStorage storage, String id) {
+        DataContainer container = new DataContainer();
+        var stored = storage.loadVersioned("players", id);
+        container.loadDocument(FORMAT, stored.data(), stored.version());
+        return container;
+    }
+
     private static DataContainer containerHolding(int coins) {
         DataContainer container = new DataContainer();
         container.loadDocument(FORMAT, null, 0L);
@@ -85,4 +131,61 @@ class DocumentWriterTest {
         assertTrue(result.saved());
         assertTrue(storage.exists("players", id));
     }
+
+    @Test
+    void aSmallChangeToALargeDocumentShipsOnlyThatField() {
+        PatchingStorage storage = new PatchingStorage();
+        String id = UUID.randomUUID().toString();
+        DataContainer writer = containerHolding(1);
+        writer.set(BIO, "x".repeat(50_000));
+        writer.set(NAME, "steve");
+        DocumentWriter.write(storage, FORMAT, "players", id, writer);
+
+        writer.set(COINS, 2);
+        writer.set(NAME, null);
+        DocumentWriter.write(storage, FORMAT, "players", id, writer);
+
+        assertEquals(0, storage.fullWrites.get(), "a write fell back to the whole document");
+        DataContainer reader = loaded(storage, id);
+        reader.ensureField(COINS, FORMAT);
+        reader.ensureField(BIO, FORMAT);
+        reader.ensureField(NAME, FORMAT);
+        assertEquals(2, reader.get(COINS));
+        assertEquals(50_000, reader.get(BIO).length(), "an untouched field was lost");
+        assertEquals("", reader.get(NAME), "a cleared field survived");
+        assertTrue(storage.patchBytes.get() < 51_000, "the large field was shipped again: " + storage.patchBytes.get());
+
+        // The writer's own view carries the patch forward for its next write.
+        writer.set(COINS, 3);
+        assertEquals(FORMAT.readRaw(writer.serialize(FORMAT)).keySet(),
+                FORMAT.readRaw(storage.load("players", id)).keySet());
+    }
+
+    @Test
+    void aPatchThatLosesTheRaceIsRebasedAndBothFieldsSurvive() {
+        PatchingStorage storage = new PatchingStorage();
+        String id = UUID.randomUUID().toString();
+        DocumentWriter.write(storage, FORMAT, "players", id, containerHolding(1));
+
+        DataContainer first = loaded(storage, id);
+        DataContainer second = loaded(storage, id);
+        first.set(COINS, 10);
+        second.set(NAME, "alex");
+        DocumentWriter.write(storage, FORMAT, "players", id, first);
+        DocumentWriter.write(storage, FORMAT, "players", id, second);
+
+        DataContainer reader = loaded(storage, id);
+        reader.ensureField(COINS, FORMAT);
+        reader.ensureField(NAME, FORMAT);
+        assertEquals(10, reader.get(COINS));
+        assertEquals("alex", reader.get(NAME));
+    }
+
+    @Test
+    void anApiRefusesAStorageWhoseFieldsAreInAnotherFormat() {
+        PatchingStorage storage = new PatchingStorage();
+
+        assertThrows(IllegalArgumentException.class, () -> new DataAPIImpl(storage, new KeyedBinaryFormat()));
+        new DataAPIImpl(storage, new JsonFormat()).shutdown();
+    }
 }
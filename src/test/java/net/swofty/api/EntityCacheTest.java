@@ -0,0 +1,175 @@
+package net.swofty.api;
+
+import net.swofty.PlayerField;
+import net.swofty.codec.Codecs;
+import net.swofty.data.format.JsonFormat;
+import net.swofty.event.EventBus;
+import net.swofty.storage.InMemoryDataStorage;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A bounded cache gives entities up on its own, so everything an unload guarantees has to hold for
+ * an eviction too: nothing unsaved is lost, and nothing is taken from under an operation using it.
+ */
+class EntityCacheTest {
+    private static final PlayerField<Integer> COINS = PlayerField.create("cache", "coins", Codecs.INT, 0);
+
+    private static PlayerDataManager bounded(InMemoryDataStorage storage, boolean autoPersist, long maxEntries) {
+        return new PlayerDataManager(storage, new JsonFormat(), new EventBus(), autoPersist, null, null,
+                CacheOptions.maxEntries(maxEntries));
+    }
+
+    @Test
+    void theCacheIsHeldToItsBound() {
+        PlayerDataManager players = bounded(new InMemoryDataStorage(), true, 100);
+        try {
+            for (int i = 0; i < 1_000; i++) {
+                players.load(UUID.randomUUID());
+            }
+            players.cleanUpCache();
+            assertTrue(players.cachedCount() <= 100, "cached " + players.cachedCount());
+        } finally {
+            players.shutdown();
+        }
+    }
+
+    @Test
+    void aByteBoundCountsTheDocumentsEachEntityHolds() {
+        InMemoryDataStorage storage = new InMemoryDataStorage();
+        PlayerDataManager writer = new PlayerDataManager(storage, new JsonFormat(), new EventBus(), true);
+        PlayerField<String> bio = PlayerField.create("cache", "bio", Codecs.STRING, "");
+        List<UUID> stored = new ArrayList<>();
+        for (int i = 0; i < 50; i++) {
+            UUID player = UUID.randomUUID();
+            writer.set(player, bio, "x".repeat(10_000));
+            stored.add(player);
+        }
+
+        PlayerDataManager players = new PlayerDataManager(storage, new JsonFormat(), new EventBus(), true, null,
+                null, CacheOptions.maxBytes(100_000));
+        try {
+            for (UUID player : stored) players.load(player);
+            players.cleanUpCache();
+            // Ten documents of 10 KB fill the budget before anything else is counted.
+            assertTrue(players.cachedCount() < 10, "cached " + players.cachedCount());
+            assertTrue(players.cachedCount() > 0);
+        } finally {
+            players.shutdown();
+        }
+    }
+
+    @Test
+    void anUnboundedCacheNeverEvicts() {
+        PlayerDataManager players = new PlayerDataManager(
+                new InMemoryDataStorage(), new JsonFormat(), new EventBus(), true);
+        for (int i = 0; i < 500; i++) {
+            players.load(UUID.randomUUID());
+        }
+        players.cleanUpCache();
+        assertEquals(500, players.cachedCount());
+    }
+
+    @Test
+    void unsavedWritesAreFlushedBeforeTheirEntityIsEvicted() {
+        InMemoryDataStorage storage = new InMemoryDataStorage();
+        PlayerDataManager players = bounded(storage, false, 10);
+        try {
+            List<UUID> written = new ArrayList<>();
+            for (int i = 0; i < 50; i++) {
+                UUID player = UUID.randomUUID();
+                players.set(player, COINS, i + 1);
+                written.add(player);
+            }
+            players.cleanUpCache();
+            assertTrue(players.cachedCount() <= 10);
+
+            for (int i = 0; i < written.size(); i++) {
+                UUID player = written.get(i);
+                if (!players.isLoaded(player)) {
+                    assertNotNull(storage.load("players", player.toString()), "evicted without a flush");
+                }
+                assertEquals(i + 1, players.get(player, COINS, new ExpirationManager(new EventBus())));
+            }
+        } finally {
+            players.shutdown();
+        }
+    }
+
+    @Test
+    void playersInSteadyUseSurviveAScanOfOneOffReads() {
+        PlayerDataManager players = bounded(new InMemoryDataStorage(), true, 100);
+        try {
+            List<UUID> online = new ArrayList<>();
+            for (int i = 0; i < 50; i++) online.add(UUID.randomUUID());
+            for (int round = 0; round < 10; round++) {
+                for (UUID player : online) players.load(player);
+            }
+
+            // Between two uses of each online player, more one-off reads than the cache holds: plain
+            // LRU would have flushed the online players out every time.
+            for (int i = 0; i < 2_000; i++) {
+                players.load(UUID.randomUUID());
+                if (i % 150 == 149) {
+                    players.cleanUpCache();
+                    for (UUID player : online) players.load(player);
+                }
+            }
+            players.cleanUpCache();
+
+            long stillCached = online.stream().filter(players::isLoaded).count();
+            assertEquals(online.size(), stillCached);
+        } finally {
+            players.shutdown();
+        }
+    }
+
+    @Test
+    void anEntityIsNotEvictedFromUnderAnUpdateInProgress() throws Exception {
+        InMemoryDataStorage storage = new InMemoryDataStorage();
+        PlayerDataManager players = bounded(storage, false, 1);
+        try {
+            UUID busy = UUID.randomUUID();
+            players.load(busy);
+            CountDownLatch inside = new CountDownLatch(1);
+            CountDownLatch release = new CountDownLatch(1);
+            Thread updater = new Thread(() -> players.update(busy, COINS, coins -> {
+                inside.countDown();
+                try {
+                    release.await();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                return coins + 1;
+            }));
+            updater.start();
+            assertTrue(inside.await(5, TimeUnit.SECONDS));
+
+            for (int i = 0; i < 20; i++) {
+                UUID other = UUID.randomUUID();
+                // One sharing the busy player's lock stripe would wait on the paused update.
+                if (players.getLock(other) != players.getLock(busy)) players.load(other);
+            }
+            Thread evictor = new Thread(players::cleanUpCache);
+            evictor.start();
+            Thread.sleep(50);
+            release.countDown();
+            updater.join(5_000);
+            evictor.join(5_000);
+            assertFalse(evictor.isAlive());
+
+            // Either the update's container is still cached, or it was flushed on its way out;
+            // an eviction that dropped it mid-update would read back 0.
+            assertEquals(1, players.get(busy, COINS, new ExpirationManager(new EventBus())));
+        } finally {
+            players.shutdown();
+        }
+    }
+}
@@ -0,0 +1,205 @@
+package net.swofty.api;
+
+import net.swofty.LockStats;
+import net.swofty.PlayerField;
+import net.swofty.codec.Codecs;
+import net.swofty.data.format.JsonFormat;
+import net.swofty.event.EventBus;
+import net.swofty.lock.LockAcquisitionException;
+import net.swofty.storage.InMemoryDataStorage;
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Entity locks are held across storage round trips, so a caller has to be able to stop waiting for
+ * one: after {@link LockOptions#acquireTimeout()}, or when it is interrupted.
+ */
+class EntityLockTest {
+    private static final PlayerField<Integer> COINS = PlayerField.create("locking", "coins", Codecs.INT, 0);
+
+    private static PlayerDataManager players(LockOptions options) {
+        return new PlayerDataManager(new InMemoryDataStorage(), new JsonFormat(), new EventBus(), true,
+                null, null, CacheOptions.UNBOUNDED, options);
+    }
+
+    /** Holds {@code player}'s lock on another thread until the returned action lets go of it. */
+    private static Runnable holdElsewhere(PlayerDataManager players, UUID player) throws InterruptedException {
+        CountDownLatch held = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        CompletableFuture<Void> holder = CompletableFuture.runAsync(() -> {
+            try (EntityLock lock = players.lock(player)) {
+                held.countDown();
+                release.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        });
+        assertTrue(held.await(5, TimeUnit.SECONDS));
+        return () -> {
+            release.countDown();
+            holder.join();
+        };
+    }
+
+    @Test
+    void aWriteGivesUpOnceTheTimeoutPasses() throws Exception {
+        PlayerDataManager players = players(LockOptions.acquireTimeout(Duration.ofMillis(50)));
+        UUID player = UUID.randomUUID();
+        Runnable release = holdElsewhere(players, player);
+        try {
+            LockAcquisitionException failure =
+                    assertThrows(LockAcquisitionException.class, () -> players.set(player, COINS, 5));
+            assertTrue(failure.getMessage().contains(player.toString()), failure.getMessage());
+        } finally {
+            release.run();
+        }
+        players.set(player, COINS, 5);
+        assertEquals(5, players.get(player, COINS, null));
+    }
+
+    @Test
+    void anInterruptedWaiterStopsWaitingAndKeepsItsInterrupt() throws Exception {
+        PlayerDataManager players = players(LockOptions.DEFAULT);
+        UUID player = UUID.randomUUID();
+        Runnable release = holdElsewhere(players, player);
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        AtomicReference<Boolean> stillInterrupted = new AtomicReference<>();
+        Thread waiter = new Thread(() -> {
+            try {
+                players.set(player, COINS, 1);
+            } catch (Throwable t) {
+                failure.set(t);
+                stillInterrupted.set(Thread.currentThread().isInterrupted());
+            }
+        });
+        try {
+            waiter.start();
+            waiter.interrupt();
+            waiter.join(5_000);
+            assertFalse(waiter.isAlive());
+            assertInstanceOf(LockAcquisitionException.class, failure.get());
+            assertEquals(Boolean.TRUE, stillInterrupted.get());
+        } finally {
+            release.run();
+        }
+    }
+
+    @Test
+    void theHolderReentersWithoutWaiting() {
+        PlayerDataManager players = players(LockOptions.acquireTimeout(Duration.ofMillis(1)));
+        UUID player = UUID.randomUUID();
+        try (EntityLock outer = players.lock(player)) {
+            players.set(player, COINS, 3);
+            assertTrue(outer.isHeldByCurrentThread());
+        }
+        assertFalse(players.getLock(player).isHeldByCurrentThread());
+    }
+
+    @Test
+    void aCachedFieldIsReadWithoutWaitingForTheLock() throws Exception {
+        PlayerDataManager players = players(LockOptions.acquireTimeout(Duration.ofMillis(50)));
+        UUID player = UUID.randomUUID();
+        players.set(player, COINS, 7);
+        PlayerField<Integer> gems = PlayerField.create("locking", "gems", Codecs.INT, 0);
+        Runnable release = holdElsewhere(players, player);
+        try {
+            assertEquals(7, players.get(player, COINS, null));
+            assertThrows(LockAcquisitionException.class, () -> players.get(player, gems, null),
+                    "a field not decoded yet still needs the lock");
+        } finally {
+            release.run();
+        }
+    }
+
+    @Test
+    void theStripeCountIsConfigurable() {
+        PlayerDataManager one = players(LockOptions.DEFAULT.withStripes(1));
+        assertSame(one.getLock(UUID.randomUUID()), one.getLock(UUID.randomUUID()));
+        assertEquals(1024, players(LockOptions.DEFAULT.withStripes(1000)).lockStats(10).stripes());
+        assertEquals(LockOptions.DEFAULT_STRIPES, players(LockOptions.DEFAULT).lockStats(10).stripes());
+    }
+
+    @Test
+    void waitsAreCountedAgainstTheirStripe() throws Exception {
+        PlayerDataManager players = players(LockOptions.acquireTimeout(Duration.ofMillis(20)));
+        UUID player = UUID.randomUUID();
+        assertEquals(0, players.lockStats(10).contended());
+        Runnable release = holdElsewhere(players, player);
+        try {
+            assertThrows(LockAcquisitionException.class, () -> players.lock(player));
+        } finally {
+            release.run();
+        }
+        players.set(player, COINS, 1);
+
+        LockStats.Locks stats = players.lockStats(10);
+        assertEquals(1, stats.contended(), "only the wait is counted, not the free acquisitions");
+        assertTrue(stats.waited().toMillis() >= 20, stats.waited().toString());
+        assertEquals(1, stats.hottest().size());
+        assertEquals(stats.waited(), stats.hottest().get(0).waited());
+    }
+
+    @Test
+    void dedicatedLocksKeepUnrelatedEntitiesApart() throws Exception {
+        // One stripe would put every player on the same lock; dedicated locks ignore it.
+        PlayerDataManager players = players(
+                LockOptions.acquireTimeout(Duration.ofMillis(50)).withStripes(1).withDedicatedLocks());
+        UUID busy = UUID.randomUUID();
+        UUID other = UUID.randomUUID();
+        Runnable release = holdElsewhere(players, busy);
+        try {
+            players.set(other, COINS, 2);
+            assertThrows(LockAcquisitionException.class, () -> players.set(busy, COINS, 2));
+            assertEquals(1, players.lockStats(10).dedicatedLocks());
+        } finally {
+            release.run();
+        }
+        players.set(busy, COINS, 3);
+        assertEquals(3, players.get(busy, COINS, null));
+        LockStats.Locks stats = players.lockStats(10);
+        assertEquals(0, stats.dedicatedLocks(), "an entity nobody is locking keeps no lock");
+        assertEquals(1, stats.contended(), "counts outlive the locks they were taken on");
+    }
+
+    @Test
+    void aDedicatedLockStaysTheEntitysWhileAnyoneWaitsForIt() throws Exception {
+        PlayerDataManager players = players(LockOptions.DEFAULT.withDedicatedLocks());
+        UUID player = UUID.randomUUID();
+        AtomicReference<EntityLock> taken = new AtomicReference<>();
+        EntityLock first;
+        Thread waiter;
+        try (EntityLock held = players.lock(player)) {
+            first = held;
+            try (EntityLock again = players.lock(player)) {
+                assertSame(held, again, "reentrant");
+            }
+            assertSame(held, players.liveLock(player), "the holder still references it");
+            assertThrows(IllegalStateException.class, () -> players.getLock(player), "no fixed lock to hand out");
+            waiter = new Thread(() -> {
+                try (EntityLock lock = players.lock(player)) {
+                    taken.set(lock);
+                }
+            });
+            waiter.start();
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (players.lockStats(10).contended() == 0 && System.nanoTime() < deadline) Thread.onSpinWait();
+        }
+        waiter.join(5_000);
+        assertSame(first, taken.get(), "the waiter got the lock the holder released, not a fresh one");
+        assertNull(players.liveLock(player));
+    }
+
+    @Test
+    void theTimeoutMustBePositive() {
+        assertThrows(IllegalArgumentException.class, () -> LockOptions.acquireTimeout(Duration.ZERO));
+        assertThrows(IllegalArgumentException.class, () -> LockOptions.acquireTimeout(Duration.ofSeconds(-1)));
+    }
+}
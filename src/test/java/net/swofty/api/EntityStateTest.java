@@ -70,6 +70,25 @@ class EntityStateTest {
         assertSame(before, players.getLock(player));
     }
 
+    @Test
+    void offHeapDocumentsAreReusedAcrossLoadAndUnloadCycles() {
+        PlayerDataManager players = new PlayerDataManager(new InMemoryDataStorage(), new JsonFormat(),
+                new EventBus(), true, null, null, CacheOptions.UNBOUNDED.withOffHeapDocuments());
+
+        PlayerField<String> bio = PlayerField.create("state", "bio", Codecs.STRING, "");
+        for (int i = 0; i < 500; i++) {
+            UUID player = UUID.randomUUID();
+            players.load(player);
+            players.set(player, bio, "x".repeat(3_000));
+            players.unload(player);
+        }
+
+        assertEquals(0, players.cachedCount());
+        // Each cycle's document went back to the pool on unload. Kept, five hundred 4 KB blocks
+        // would have taken two slabs.
+        assertEquals(1 << 20, players.offHeapReservedBytes());
+    }
+
     @Test
     void linkedEntityCyclesLeaveNothingBehind() {
         LinkRegistryImpl registry = new LinkRegistryImpl();
@@ -0,0 +1,80 @@
+package net.swofty.api;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * A shutdown that outlasts its wait stops the pool outright, and nothing admitted is left with a
+ * future that never completes.
+ */
+class IoExecutorTest {
+    private static final long SHORT_WAIT = TimeUnit.MILLISECONDS.toNanos(100);
+
+    @Test
+    @Timeout(10)
+    void aShutdownPastItsWaitFailsWhatNeverRan() {
+        IoExecutor io = new IoExecutor(new IoOptions(1, 10), SHORT_WAIT);
+        CountDownLatch never = new CountDownLatch(1);
+        CompletableFuture<Integer> running = io.submit(() -> {
+            try {
+                never.await();
+                return 1;
+            } catch (InterruptedException e) {
+                throw new IllegalStateException("interrupted", e);
+            }
+        });
+        CompletableFuture<Integer> queued = io.submit(() -> 2);
+
+        io.shutdown();
+
+        CompletionException dropped = assertThrows(CompletionException.class, queued::join);
+        assertInstanceOf(IllegalStateException.class, dropped.getCause());
+        assertTrue(dropped.getCause().getMessage().contains("shut down"));
+        assertThrows(CompletionException.class, running::join, "the running task was interrupted");
+        assertEquals(0, io.pendingCalls(), "both permits were given back");
+    }
+
+    @Test
+    @Timeout(10)
+    void aDroppedMailboxFailsItsQueuedCalls() {
+        IoExecutor io = new IoExecutor(new IoOptions(1, 10), SHORT_WAIT);
+        CountDownLatch never = new CountDownLatch(1);
+        io.submit(() -> {
+            try {
+                never.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return null;
+        });
+        EntityMailboxes<String> mailboxes = new EntityMailboxes<>(io, 8, key -> {
+            throw new AssertionError("never runs");
+        }, key -> {
+            throw new AssertionError("never runs");
+        });
+        CompletableFuture<String> call = mailboxes.submit("coop", changes -> "ran");
+
+        io.shutdown();
+
+        CompletionException dropped = assertThrows(CompletionException.class, call::join);
+        assertInstanceOf(IllegalStateException.class, dropped.getCause());
+        assertEquals(0, mailboxes.activeMailboxes());
+    }
+
+    @Test
+    void finishedCallsFreeTheirPermits() {
+        IoExecutor io = new IoExecutor(new IoOptions(2, 1));
+        assertEquals(3, io.submit(() -> 3).join());
+        assertEquals(4, io.submit(() -> 4).join());
+        assertEquals(0, io.pendingCalls());
+        io.shutdown();
+        assertThrows(CompletionException.class, () -> io.submit(() -> 5).join());
+    }
+}
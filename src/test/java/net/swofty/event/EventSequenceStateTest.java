@@ -42,6 +42,18 @@ class EventSequenceStateTest {
         assertEquals(0, bus.trackedEntities());
     }
 
+    @Test
+    void theOrderingStateReportsWhatItHolds() {
+        DistributedEventBus bus = new DistributedEventBus(silent());
+        long empty = bus.estimatedBytes();
+        UUID player = UUID.randomUUID();
+        bus.firePlayerDataChanged(COINS, player, 0, 1, 1);
+        assertTrue(bus.estimatedBytes() > empty);
+
+        bus.forgetPlayer(player);
+        assertEquals(empty, bus.estimatedBytes());
+    }
+
     @Test
     void orderingStateStaysBoundedForANodeThatNeverUnloads() {
         DistributedEventBus bus = new DistributedEventBus(silent());